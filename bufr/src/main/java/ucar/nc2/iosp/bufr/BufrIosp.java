@@ -9,6 +9,8 @@ import java.util.Formatter;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import javax.annotation.Nullable;
 import org.jdom2.Element;
 import ucar.ma2.Array;
 import ucar.ma2.ArraySequence;
@@ -41,6 +43,39 @@ public class BufrIosp extends AbstractIOServiceProvider {
     debugIter = debugFlag.isSet("Bufr/iter");
   }
 
+  private static boolean useMessageIndex;
+
+  /**
+   * Use a BufrMessageIndex (bufx) to find the messages, creating it on the first open of the file.
+   * Default is false, which scans the file for messages each time it is opened.
+   */
+  public static void setUseMessageIndex(boolean b) {
+    useMessageIndex = b;
+  }
+
+  private static Executor decodeExecutor;
+  private static int maxMessagesInFlight;
+
+  /**
+   * Decode the messages of a file on this Executor, reading ahead up to maxMessagesInFlight messages, while the
+   * caller iterates over the current one. The messages are still read from the file in order, on the calling thread.
+   * Default is null, which decodes each message on the calling thread when it is needed.
+   */
+  public static void setDecodeExecutor(@Nullable Executor executor, int maxMessagesInFlight) {
+    BufrIosp.decodeExecutor = executor;
+    BufrIosp.maxMessagesInFlight = maxMessagesInFlight;
+  }
+
+  /** Make a MessagePrefetcher over the scanner's remaining messages, or null if no decode Executor is set. */
+  @Nullable
+  <T> MessagePrefetcher<T> makePrefetcher(MessagePrefetcher.Decoder<T> decoder) {
+    Executor executor = decodeExecutor;
+    if (executor == null)
+      return null;
+    return new MessagePrefetcher<>(scanner, raf.getLocation(), this::acceptMessage, decoder, executor,
+        Math.max(1, maxMessagesInFlight));
+  }
+
   Sequence obsStructure;
   Message protoMessage; // prototypical message: all messages in the file must be the same.
   MessageScanner scanner;
@@ -58,7 +93,13 @@ public class BufrIosp extends AbstractIOServiceProvider {
   public void build(RandomAccessFile raf, Group.Builder rootGroup, CancelTask cancelTask) throws IOException {
     super.open(raf, rootGroup.getNcfile(), cancelTask);
 
-    scanner = new MessageScanner(raf);
+    BufrMessageIndex index = null;
+    if (useMessageIndex) {
+      index = BufrMessageIndex.readOrCreate(raf);
+      scanner = new MessageScanner(raf, index, true);
+    } else {
+      scanner = new MessageScanner(raf);
+    }
     // TODO We have a problem - we havent finished building but we need to read the first message to use as the
     // protoMessage.
     // TODO Possible only trouble when theres an EmbeddedTable?
@@ -74,6 +115,9 @@ public class BufrIosp extends AbstractIOServiceProvider {
     // this fills the netcdf object
     new BufrIospBuilder(protoMessage, config, rootGroup, raf.getLocation());
     isSingle = false;
+
+    if (index != null) // the number of obs is known without reading the data
+      nelems = index.getTotalObs(BufrMessageIndex.calcDescriptorHash(protoMessage));
   }
 
   @Override
@@ -163,8 +207,28 @@ public class BufrIosp extends AbstractIOServiceProvider {
     this.obsStructure = (Sequence) this.ncfile.findVariable(BufrIosp.obsRecordName);
   }
 
+  /** Data messages of the same type as the protoMessage are read, others are skipped. */
+  boolean acceptMessage(Message m) {
+    if (m.containsBufrTable()) // data messages only
+      return false;
+
+    // mixed messages
+    if (!protoMessage.equals(m)) {
+      if (messHash == null)
+        messHash = new HashSet<>(20);
+      if (!messHash.contains(m.hashCode())) {
+        log.warn("File " + raf.getLocation() + " has different BUFR message types hash=" + protoMessage.hashCode()
+            + "; skipping");
+        messHash.add(m.hashCode());
+      }
+      return false;
+    }
+    return true;
+  }
+
   private class SeqIter implements StructureDataIterator {
     StructureDataIterator currIter;
+    MessagePrefetcher<ArrayStructure> prefetcher;
     int recnum;
 
     SeqIter() {
@@ -176,6 +240,9 @@ public class BufrIosp extends AbstractIOServiceProvider {
       recnum = 0;
       currIter = null;
       scanner.reset();
+      if (prefetcher != null)
+        prefetcher.cancel();
+      prefetcher = makePrefetcher((m, mraf) -> readMessage(m, mraf));
       return this;
     }
 
@@ -204,6 +271,11 @@ public class BufrIosp extends AbstractIOServiceProvider {
     }
 
     private StructureDataIterator readNextMessage() throws IOException {
+      if (prefetcher != null) {
+        ArrayStructure as = prefetcher.next();
+        return (as == null) ? null : as.getStructureDataIterator();
+      }
+
       if (!scanner.hasNext())
         return null;
       Message m = scanner.next();
@@ -211,33 +283,21 @@ public class BufrIosp extends AbstractIOServiceProvider {
         log.warn("BUFR scanner hasNext() true but next() null!");
         return null;
       }
-      if (m.containsBufrTable()) // data messages only
+      if (!acceptMessage(m))
         return readNextMessage();
 
-      // mixed messages
-      if (!protoMessage.equals(m)) {
-        if (messHash == null)
-          messHash = new HashSet<>(20);
-        if (!messHash.contains(m.hashCode())) {
-          log.warn("File " + raf.getLocation() + " has different BUFR message types hash=" + protoMessage.hashCode()
-              + "; skipping");
-          messHash.add(m.hashCode());
-        }
-        return readNextMessage();
-      }
-
-      ArrayStructure as = readMessage(m);
+      ArrayStructure as = readMessage(m, raf);
       return as.getStructureDataIterator();
     }
 
-    private ArrayStructure readMessage(Message m) throws IOException {
+    private ArrayStructure readMessage(Message m, RandomAccessFile mraf) throws IOException {
       ArrayStructure as;
       if (m.dds.isCompressed()) {
         MessageCompressedDataReader reader = new MessageCompressedDataReader();
-        as = reader.readEntireMessage(obsStructure, protoMessage, m, raf, null);
+        as = reader.readEntireMessage(obsStructure, protoMessage, m, mraf, null);
       } else {
         MessageUncompressedDataReader reader = new MessageUncompressedDataReader();
-        as = reader.readEntireMessage(obsStructure, protoMessage, m, raf, null);
+        as = reader.readEntireMessage(obsStructure, protoMessage, m, mraf, null);
       }
       return as;
     }
@@ -252,6 +312,9 @@ public class BufrIosp extends AbstractIOServiceProvider {
       if (currIter != null)
         currIter.close();
       currIter = null;
+      if (prefetcher != null)
+        prefetcher.cancel();
+      prefetcher = null;
       if (debugIter)
         System.out.printf("BUFR read recnum %d%n", recnum);
     }
@@ -6,11 +6,12 @@ package ucar.nc2.iosp.bufr;
 
 import java.io.IOException;
 import java.util.Formatter;
-import java.util.HashSet;
 import java.util.Iterator;
+import javax.annotation.Nullable;
 import ucar.array.StructureData;
 import ucar.array.StructureDataArray;
 import ucar.nc2.Sequence;
+import ucar.unidata.io.RandomAccessFile;
 
 /** IOSP for BUFR data - using the preprocessor. */
 public class BufrIospArrays extends BufrIosp {
@@ -29,10 +30,12 @@ public class BufrIospArrays extends BufrIosp {
 
   private class SeqIterArray implements Iterator<ucar.array.StructureData> {
     Iterator<StructureData> currIter;
+    MessagePrefetcher<StructureDataArray> prefetcher;
     int recnum;
 
     SeqIterArray() {
       scanner.reset();
+      prefetcher = makePrefetcher((m, mraf) -> readMessage(m, mraf, null));
     }
 
     @Override
@@ -68,6 +71,11 @@ public class BufrIospArrays extends BufrIosp {
     }
 
     private Iterator<StructureData> readNextMessage() throws IOException {
+      if (prefetcher != null) {
+        StructureDataArray as = prefetcher.next();
+        return (as == null) ? null : as.iterator();
+      }
+
       if (!scanner.hasNext()) {
         return null;
       }
@@ -76,41 +84,28 @@ public class BufrIospArrays extends BufrIosp {
         log.warn("BUFR scanner hasNext() true but next() null!");
         return null;
       }
-      if (m.containsBufrTable()) { // data messages only
-        return readNextMessage();
-      }
-
-      // mixed messages
-      if (!protoMessage.equals(m)) {
-        if (messHash == null) {
-          messHash = new HashSet<>(20);
-        }
-        if (!messHash.contains(m.hashCode())) {
-          log.warn("File " + raf.getLocation() + " has different BUFR message types hash=" + protoMessage.hashCode()
-              + "; skipping");
-          messHash.add(m.hashCode());
-        }
+      if (!acceptMessage(m)) {
         return readNextMessage();
       }
 
-      StructureDataArray as = readMessage(m);
+      StructureDataArray as = readMessage(m, raf, new Formatter());
       return as.iterator();
     }
 
-    private StructureDataArray readMessage(Message m) throws IOException {
-      Formatter f = new Formatter();
+    private StructureDataArray readMessage(Message m, RandomAccessFile mraf, @Nullable Formatter f) throws IOException {
       StructureDataArray as;
       try {
         if (m.dds.isCompressed()) {
-          MessageArrayCompressedReader comp = new MessageArrayCompressedReader(obsStructure, protoMessage, m, raf, f);
+          MessageArrayCompressedReader comp = new MessageArrayCompressedReader(obsStructure, protoMessage, m, mraf, f);
           as = comp.readEntireMessage();
         } else {
           MessageArrayUncompressedReader uncomp =
-              new MessageArrayUncompressedReader(obsStructure, protoMessage, m, raf, f);
+              new MessageArrayUncompressedReader(obsStructure, protoMessage, m, mraf, f);
           as = uncomp.readEntireMessage();
         }
       } catch (Throwable t) {
-        System.out.printf("FAIL %s%n", f);
+        if (f != null)
+          System.out.printf("FAIL %s%n", f);
         throw t;
       }
       // System.out.printf("SUCCEED %s%n", f);
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 1998-2020 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.bufr;
+
+import com.google.protobuf.ByteString;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nullable;
+import ucar.nc2.internal.util.DiskCache2;
+import ucar.nc2.stream.NcStream;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Read and Write a BUFR message index (bufx), the position, length, number of obs and descriptor hash of each
+ * message in a BUFR file. Allows a file to be reopened without scanning it for messages.
+ * Hides BufrMessageIndexProto.
+ *
+ * <pre>
+ * BufrMessageIndex index = BufrMessageIndex.readOrCreate(raf);
+ * MessageScanner scanner = new MessageScanner(raf, index, true);
+ * </pre>
+ */
+public class BufrMessageIndex {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(BufrMessageIndex.class);
+
+  public static final String MAGIC_START = "BufrMessageIndex";
+  public static final String BUFX_IDX = ".bufx";
+  private static final int version = 1; // index must be this version, or else rewrite.
+
+  private static DiskCache2 diskCache;
+
+  /** Where to put index files when they cant be written next to the BUFR file. Default is DiskCache2.getDefault(). */
+  public static synchronized void setDiskCache2(DiskCache2 dc) {
+    diskCache = dc;
+  }
+
+  public static synchronized DiskCache2 getDiskCache2() {
+    if (diskCache == null)
+      diskCache = DiskCache2.getDefault();
+    return diskCache;
+  }
+
+  /**
+   * Read the index for this BUFR file if it exists and is up to date, else scan the file and write the index.
+   *
+   * @param raf the BUFR file
+   * @return the index, never null
+   */
+  public static BufrMessageIndex readOrCreate(RandomAccessFile raf) throws IOException {
+    String idxPath = raf.getLocation() + BUFX_IDX;
+    BufrMessageIndex index = readIndex(raf, idxPath);
+    if (index != null)
+      return index;
+
+    index = makeIndex(raf);
+    File idxFile = getDiskCache2().getFile(idxPath);
+    try {
+      index.writeIndex(idxFile);
+    } catch (IOException e) {
+      logger.warn("BufrMessageIndex cant write index file {}", idxFile.getPath(), e);
+    }
+    return index;
+  }
+
+  /**
+   * Read an existing index.
+   *
+   * @return the index, or null if it doesnt exist, or doesnt match the current BUFR file.
+   */
+  @Nullable
+  static BufrMessageIndex readIndex(RandomAccessFile raf, String idxPath) {
+    File idxFile = getDiskCache2().getExistingFileOrCache(idxPath);
+    if (idxFile == null)
+      return null;
+
+    try (FileInputStream fin = new FileInputStream(idxFile)) {
+      //// check header is ok
+      if (!NcStream.readAndTest(fin, MAGIC_START.getBytes(StandardCharsets.UTF_8))) {
+        logger.info("Bad magic number of bufr index on file= {}", idxFile);
+        return null;
+      }
+
+      int v = NcStream.readVInt(fin);
+      if (v != version) {
+        logger.debug("BufrMessageIndex found version {}, want version {} on {}", v, version, idxFile);
+        return null;
+      }
+
+      int size = NcStream.readVInt(fin);
+      if (size <= 0 || size > 500 * 1000 * 1000) { // try to catch garbage
+        logger.warn("BufrMessageIndex bad size = {} for index = {}", size, idxFile.getPath());
+        return null;
+      }
+
+      byte[] m = new byte[size];
+      NcStream.readFully(fin, m);
+      BufrMessageIndexProto.BufrMessageIndex proto = BufrMessageIndexProto.BufrMessageIndex.parseFrom(m);
+
+      // force new index if file was updated
+      if (proto.getFileLength() != raf.length() || proto.getLastModified() != lastModified(raf)) {
+        logger.debug("BufrMessageIndex {} is out of date", idxFile.getPath());
+        return null;
+      }
+
+      List<MessagePos> messages = new ArrayList<>(proto.getMessagesCount());
+      for (BufrMessageIndexProto.BufrMessage pm : proto.getMessagesList()) {
+        messages.add(new MessagePos(pm.getStart(), pm.getLength(), pm.getHeader().toByteArray(), pm.getNobs(),
+            pm.getDdsHash(), pm.getIsTable()));
+      }
+      return new BufrMessageIndex(proto.getFilename(), proto.getFileLength(), proto.getLastModified(), messages);
+
+    } catch (IOException e) {
+      logger.error("BufrMessageIndex error on " + idxFile.getPath(), e);
+      return null;
+    }
+  }
+
+  /** Scan the BUFR file for messages. */
+  static BufrMessageIndex makeIndex(RandomAccessFile raf) throws IOException {
+    List<MessagePos> messages = new ArrayList<>();
+    MessageScanner scanner = new MessageScanner(raf, 0, false);
+    while (scanner.hasNext()) {
+      byte[] header = scanner.getHeaderBytes();
+      Message m = scanner.next();
+      if (m == null)
+        continue;
+      messages.add(new MessagePos(m.getStartPos(), m.is.getBufrLength(), header, m.getNumberDatasets(),
+          calcDescriptorHash(m), m.containsBufrTable()));
+    }
+    return new BufrMessageIndex(raf.getLocation(), raf.length(), lastModified(raf), messages);
+  }
+
+  /**
+   * A hash of the fields that Message.equals() uses, which can be computed without the data descriptor tree.
+   * Messages with different hashes are not equal.
+   */
+  public static int calcDescriptorHash(Message m) {
+    return Objects.hash(m.dds.getDataDescriptors(), m.ids.getCenterId(), m.ids.getCategory(),
+        m.ids.getSubCategory());
+  }
+
+  private static long lastModified(RandomAccessFile raf) {
+    return new File(raf.getLocation()).lastModified();
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+
+  private final String filename;
+  private final long fileLength;
+  private final long lastModified;
+  private final List<MessagePos> messages;
+
+  private BufrMessageIndex(String filename, long fileLength, long lastModified, List<MessagePos> messages) {
+    this.filename = filename;
+    this.fileLength = fileLength;
+    this.lastModified = lastModified;
+    this.messages = Collections.unmodifiableList(messages);
+  }
+
+  /** The messages in the file, in file order. */
+  public List<MessagePos> getMessages() {
+    return messages;
+  }
+
+  /** Total number of obs in all the messages, as counted by MessageScanner. */
+  public int getTotalObs() {
+    int count = 0;
+    for (MessagePos mpos : messages) {
+      count += mpos.nobs;
+    }
+    return count;
+  }
+
+  /** Total number of obs in the data messages with this descriptor hash. */
+  public int getTotalObs(int ddsHash) {
+    int count = 0;
+    for (MessagePos mpos : messages) {
+      if (!mpos.isTable && mpos.ddsHash == ddsHash)
+        count += mpos.nobs;
+    }
+    return count;
+  }
+
+  /*
+   * MAGIC_START
+   * version
+   * sizeIndex
+   * BufrMessageIndexProto (sizeIndex bytes)
+   */
+  void writeIndex(File idxFile) throws IOException {
+    File dir = idxFile.getParentFile();
+    if (dir != null && !dir.exists() && !dir.mkdirs())
+      logger.warn("BufrMessageIndex cant make directory {}", dir.getPath());
+
+    BufrMessageIndexProto.BufrMessageIndex.Builder indexBuilder = BufrMessageIndexProto.BufrMessageIndex.newBuilder();
+    indexBuilder.setFilename(filename);
+    indexBuilder.setFileLength(fileLength);
+    indexBuilder.setLastModified(lastModified);
+    for (MessagePos mpos : messages) {
+      BufrMessageIndexProto.BufrMessage.Builder b = BufrMessageIndexProto.BufrMessage.newBuilder();
+      b.setStart(mpos.start);
+      b.setLength(mpos.length);
+      b.setHeader(ByteString.copyFrom(mpos.header));
+      b.setNobs(mpos.nobs);
+      b.setDdsHash(mpos.ddsHash);
+      b.setIsTable(mpos.isTable);
+      indexBuilder.addMessages(b);
+    }
+
+    try (FileOutputStream fout = new FileOutputStream(idxFile)) {
+      //// header message
+      fout.write(MAGIC_START.getBytes(StandardCharsets.UTF_8));
+      NcStream.writeVInt(fout, version);
+      byte[] b = indexBuilder.build().toByteArray();
+      NcStream.writeVInt(fout, b.length); // message size
+      fout.write(b); // message - all in one gulp
+    }
+    logger.debug("  BufrMessageIndex {} has {} messages", idxFile.getPath(), messages.size());
+  }
+
+  /** The position of a message in the BUFR file. */
+  public static class MessagePos {
+    public final long start; // file position of "BUFR"
+    public final int length;
+    final byte[] header; // raw bytes before start, eg WMO header
+    public final int nobs;
+    public final int ddsHash;
+    public final boolean isTable;
+
+    MessagePos(long start, int length, byte[] header, int nobs, int ddsHash, boolean isTable) {
+      this.start = start;
+      this.length = length;
+      this.header = header;
+      this.nobs = nobs;
+      this.ddsHash = ddsHash;
+      this.isTable = isTable;
+    }
+  }
+}
@@ -148,6 +148,10 @@ public class BufrTableLookup {
     this.tlookup = tlookup;
   }
 
+  TableLookup getTableLookup() {
+    return tlookup;
+  }
+
   public TableB.Descriptor getDescriptorTableB(short fxy) {
     return tlookup.getDescriptorTableB(fxy);
   }
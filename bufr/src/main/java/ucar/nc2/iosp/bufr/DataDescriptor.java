@@ -264,6 +264,8 @@ public class DataDescriptor {
    */
   static void transferInfo(List<DataDescriptor> fromList, List<DataDescriptor> toList) { // get info from proto
                                                                                          // message
+    if (fromList == toList) // message shares the proto message's tree
+      return;
     if (fromList.size() != toList.size())
       throw new IllegalArgumentException("list sizes dont match " + fromList.size() + " != " + toList.size());
 
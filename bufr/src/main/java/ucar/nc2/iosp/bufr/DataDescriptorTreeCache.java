@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 1998-2020 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.bufr;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import ucar.nc2.iosp.bufr.tables.BufrTables;
+
+/**
+ * Shares the DataDescriptor tree among the messages of one file that have the same edition, tables and data
+ * descriptors, instead of each Message constructing its own with DataDescriptorTreeConstructor.
+ * Not shared between files, since BufrIosp connects the tree of its proto message to its own Sequences.
+ * The readers do not modify a tree that is shared with the proto message, so it may be used by more than one thread.
+ */
+class DataDescriptorTreeCache {
+  private static final int maxTrees = 1000; // after that, messages construct their own trees
+
+  private final Map<Key, DataDescriptor> trees = new HashMap<>();
+
+  synchronized DataDescriptor getRootDataDescriptor(BufrTableLookup lookup, BufrDataDescriptionSection dds) {
+    Key key = new Key(lookup, dds);
+    DataDescriptor root = trees.get(key);
+    if (root == null) {
+      root = new DataDescriptorTreeConstructor().factory(lookup, dds);
+      if (trees.size() < maxTrees)
+        trees.put(key, root);
+    }
+    return root;
+  }
+
+  synchronized int size() {
+    return trees.size();
+  }
+
+  // the tables are compared by identity; BufrTables keeps one of each
+  private static class Key {
+    final int edition;
+    final BufrTables.Mode mode;
+    final Object wmoTableB, wmoTableD, localTableB, localTableD;
+    final List<Short> descriptors;
+    final int hashCode;
+
+    Key(BufrTableLookup lookup, BufrDataDescriptionSection dds) {
+      TableLookup tables = lookup.getTableLookup();
+      this.edition = lookup.getBufrEdition();
+      this.mode = tables.getMode();
+      this.wmoTableB = tables.getWmoTableB();
+      this.wmoTableD = tables.getWmoTableD();
+      this.localTableB = tables.getLocalTableB();
+      this.localTableD = tables.getLocalTableD();
+      this.descriptors = dds.getDataDescriptors();
+      this.hashCode = Objects.hash(edition, mode, System.identityHashCode(wmoTableB),
+          System.identityHashCode(wmoTableD), System.identityHashCode(localTableB),
+          System.identityHashCode(localTableD), descriptors);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof Key))
+        return false;
+      Key key = (Key) o;
+      return edition == key.edition && mode == key.mode && wmoTableB == key.wmoTableB && wmoTableD == key.wmoTableD
+          && localTableB == key.localTableB && localTableD == key.localTableD && descriptors.equals(key.descriptors);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -28,6 +28,7 @@ public class Message {
   private RandomAccessFile raf;
   private BufrTableLookup lookup;
   private DataDescriptor root;
+  private DataDescriptorTreeCache treeCache; // share the root with other messages from the same file
 
   private String header; // wmo header
   private long startPos; // starting pos in raf
@@ -47,10 +48,36 @@ public class Message {
     lookup = BufrTableLookup.factory(this);
   }
 
+  // a copy of the message in messageRaf, which has just the bytes of the message, starting at 0
+  private Message(Message from, RandomAccessFile messageRaf) {
+    this.raf = messageRaf;
+    this.is = from.is;
+    this.ids = from.ids;
+    this.dds = from.dds;
+    this.dataSection = new BufrDataSection(from.dataSection.getDataPos() - from.startPos,
+        from.dataSection.getDataLength());
+    this.lookup = from.lookup;
+    this.root = from.getRootDataDescriptor();
+    this.header = from.header;
+  }
+
+  /**
+   * Make a copy of this message that can be read from messageRaf, so it can be decoded on another thread.
+   *
+   * @param messageRaf contains only this message, eg from MessageScanner.getMessageBytes()
+   */
+  Message copyToMessageRaf(RandomAccessFile messageRaf) {
+    return new Message(this, messageRaf);
+  }
+
   void setTableLookup(TableLookup lookup) {
     this.lookup.setTableLookup(lookup);
   }
 
+  void setTreeCache(DataDescriptorTreeCache treeCache) {
+    this.treeCache = treeCache;
+  }
+
   public void close() throws IOException {
     if (raf != null)
       raf.close();
@@ -121,7 +148,8 @@ public class Message {
    */
   public DataDescriptor getRootDataDescriptor() {
     if (root == null)
-      root = new DataDescriptorTreeConstructor().factory(lookup, dds);
+      root = (treeCache != null) ? treeCache.getRootDataDescriptor(lookup, dds)
+          : new DataDescriptorTreeConstructor().factory(lookup, dds);
     return root;
   }
 
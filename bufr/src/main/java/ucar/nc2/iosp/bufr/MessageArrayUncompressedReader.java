@@ -20,7 +20,7 @@ import ucar.array.StructureMembers;
 import ucar.array.StructureMembers.Member;
 import ucar.nc2.Sequence;
 import ucar.nc2.Structure;
-import ucar.nc2.iosp.BitReader;
+import ucar.nc2.iosp.BitUnpacker;
 import ucar.unidata.io.RandomAccessFile;
 
 /**
@@ -114,7 +114,10 @@ class MessageArrayUncompressedReader {
    * @throws IOException on read error
    */
   StructureDataArray readEntireMessage() throws IOException {
-    BitReader reader = new BitReader(raf, message.dataSection.getDataPos() + 4);
+    // read all of section 4 at once; its length includes the 4 byte header, so this also reads the 4 bytes of the
+    // end section, which some messages with a short section length run into
+    BitUnpacker reader =
+        BitUnpacker.read(raf, message.dataSection.getDataPos() + 4, message.dataSection.getDataLength());
     DataDescriptor root = message.getRootDataDescriptor();
     if (!root.isBad) {
       Request req = new Request(this.storageBB, this.bbuffer, topmap);
@@ -173,7 +176,7 @@ class MessageArrayUncompressedReader {
    * @param req read data into here, cant be null
    * @param out optional debug output, may be null
    */
-  private void readData(BitReader reader, BitCounterUncompressed table, List<DataDescriptor> dkeys, int row,
+  private void readData(BitUnpacker reader, BitCounterUncompressed table, List<DataDescriptor> dkeys, int row,
       Request req, @Nullable DebugOut out) throws IOException {
 
     for (DataDescriptor dkey : dkeys) {
@@ -256,7 +259,7 @@ class MessageArrayUncompressedReader {
     }
   }
 
-  private byte[] readCharData(DataDescriptor dkey, BitReader reader, Request req) throws IOException {
+  private byte[] readCharData(DataDescriptor dkey, BitUnpacker reader, Request req) throws IOException {
     int nchars = dkey.getByteWidthCDM();
     byte[] b = new byte[nchars];
     for (int i = 0; i < nchars; i++)
@@ -268,7 +271,7 @@ class MessageArrayUncompressedReader {
     return b;
   }
 
-  private StructureDataArray makeNestedSequence(BitReader reader, BitCounterUncompressed bitCounterNested,
+  private StructureDataArray makeNestedSequence(BitUnpacker reader, BitCounterUncompressed bitCounterNested,
       DataDescriptor seqdd, DebugOut out) throws IOException {
 
     int nestedNrows = bitCounterNested.getNumberRows(); // the actual number of rows in this sequence
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 1998-2020 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.bufr;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Decodes the upcoming messages of a BUFR file on an Executor, while the consumer processes the current one.
+ * A message the Executor rejects, or has not started when it is needed, is decoded on the calling thread.
+ * The messages are found and read into memory on the calling thread, in file order, so the file is still read
+ * sequentially, and the decoded messages are returned in file order.
+ * Not thread-safe: use one for each iterator.
+ *
+ * @param <T> the decoded message
+ */
+class MessagePrefetcher<T> {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MessagePrefetcher.class);
+
+  /** Decodes one message. Must be thread-safe. */
+  interface Decoder<T> {
+    T decode(Message m, RandomAccessFile raf) throws IOException;
+  }
+
+  private final MessageScanner scanner;
+  private final String location;
+  private final Predicate<Message> accept;
+  private final Decoder<T> decoder;
+  private final Executor executor;
+  private final int maxMessagesInFlight;
+  private final Deque<FutureTask<T>> inFlight = new ArrayDeque<>();
+  private boolean done;
+
+  /**
+   * @param scanner get the messages from here, starting at its current position.
+   * @param location of the BUFR file.
+   * @param accept only decode the messages it accepts, called on the calling thread.
+   * @param decoder decodes the messages.
+   * @param executor decode on this executor.
+   * @param maxMessagesInFlight maximum number of messages read but not yet returned. Bounds memory use.
+   */
+  MessagePrefetcher(MessageScanner scanner, String location, Predicate<Message> accept, Decoder<T> decoder,
+      Executor executor, int maxMessagesInFlight) {
+    Preconditions.checkArgument(maxMessagesInFlight > 0);
+    this.scanner = scanner;
+    this.location = location;
+    this.accept = accept;
+    this.decoder = decoder;
+    this.executor = executor;
+    this.maxMessagesInFlight = maxMessagesInFlight;
+  }
+
+  /** The next decoded message, or null if there are no more. Rethrows the failure of its decoding. */
+  @Nullable
+  T next() throws IOException {
+    fill();
+    FutureTask<T> task = inFlight.poll();
+    if (task == null)
+      return null;
+
+    try {
+      task.run(); // if the executor has not started it yet, dont wait for it
+      T result = task.get();
+      fill(); // keep the executor busy while the caller works on this one
+      return result;
+
+    } catch (InterruptedException e) {
+      cancel();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("MessagePrefetcher was interrupted");
+
+    } catch (ExecutionException e) {
+      cancel();
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /** Cancel any decoding not yet started, and stop reading messages. */
+  void cancel() {
+    inFlight.forEach(t -> t.cancel(true));
+    inFlight.clear();
+    done = true;
+  }
+
+  private void fill() throws IOException {
+    while (!done && inFlight.size() < maxMessagesInFlight) {
+      Message m = nextMessage();
+      if (m == null) {
+        done = true;
+        return;
+      }
+
+      RandomAccessFile messageRaf = new InMemoryRandomAccessFile(location, scanner.getMessageBytes(m));
+      messageRaf.order(RandomAccessFile.BIG_ENDIAN);
+      Message copy = m.copyToMessageRaf(messageRaf); // constructs the DataDescriptor tree on this thread
+      FutureTask<T> task = new FutureTask<>(() -> {
+        try {
+          return decoder.decode(copy, messageRaf);
+        } finally {
+          messageRaf.close();
+        }
+      });
+      try {
+        executor.execute(task);
+      } catch (RejectedExecutionException e) {
+        task.run(); // eg the executor was shut down
+      }
+      inFlight.add(task);
+    }
+  }
+
+  // same logic as the serial iterators
+  private Message nextMessage() throws IOException {
+    while (scanner.hasNext()) {
+      Message m = scanner.next();
+      if (m == null) {
+        log.warn("BUFR scanner hasNext() true but next() null!");
+        return null;
+      }
+      if (accept.test(m))
+        return m;
+    }
+    return null;
+  }
+}
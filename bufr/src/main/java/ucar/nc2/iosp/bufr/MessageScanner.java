@@ -5,6 +5,7 @@
 package ucar.nc2.iosp.bufr;
 
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.unidata.io.KMPMatch;
 import java.io.*;
@@ -54,6 +55,13 @@ public class MessageScanner {
   private boolean debug;
 
   private EmbeddedTable embedTable;
+  private final DataDescriptorTreeCache treeCache = new DataDescriptorTreeCache();
+
+  // when using a BufrMessageIndex, the messages are not searched for
+  private List<BufrMessageIndex.MessagePos> indexMessages;
+  private int indexCount;
+  private int indexObs;
+  private BufrMessageIndex.MessagePos indexCurrent;
 
   public MessageScanner(RandomAccessFile raf) throws IOException {
     this(raf, 0, true);
@@ -68,6 +76,21 @@ public class MessageScanner {
     raf.order(RandomAccessFile.BIG_ENDIAN);
   }
 
+  /**
+   * Go directly to the messages in the index, instead of searching the file for them.
+   *
+   * @param raf the BUFR file
+   * @param index the index of that file
+   * @param useEmbeddedTables use tables in the table messages of the file
+   */
+  public MessageScanner(RandomAccessFile raf, BufrMessageIndex index, boolean useEmbeddedTables) {
+    this.raf = raf;
+    this.useEmbeddedTables = useEmbeddedTables;
+    this.indexMessages = index.getMessages();
+    this.indexObs = index.getTotalObs();
+    raf.order(RandomAccessFile.BIG_ENDIAN);
+  }
+
   public Message getFirstDataMessage() throws IOException {
     while (hasNext()) {
       Message m = next();
@@ -84,9 +107,13 @@ public class MessageScanner {
 
   public void reset() {
     lastPos = 0;
+    indexCount = 0;
   }
 
   public boolean hasNext() throws IOException {
+    if (indexMessages != null) {
+      return hasNextIndexed();
+    }
     if (lastPos >= raf.length())
       return false;
     raf.seek(lastPos);
@@ -110,7 +137,20 @@ public class MessageScanner {
     return more;
   }
 
+  private boolean hasNextIndexed() throws IOException {
+    if (indexCount >= indexMessages.size())
+      return false;
+    indexCurrent = indexMessages.get(indexCount++);
+    header = indexCurrent.header;
+    startPos = indexCurrent.start - header.length;
+    raf.seek(indexCurrent.start);
+    return true;
+  }
+
   public Message next() {
+    if (indexMessages != null) {
+      return nextIndexed();
+    }
 
     try {
       long start = raf.getFilePointer();
@@ -146,20 +186,22 @@ public class MessageScanner {
         return null;
       }
 
-      // check that end section is correct
+      // check that end section is correct: read the byte before it too, in case its off by one
       long ending = dataPos + dataLength;
-      raf.seek(dataPos + dataLength);
-      for (int i = 0; i < 3; i++) {
-        if (raf.read() != 55) {
+      byte[] end = new byte[5];
+      int nend = (int) Math.max(0, Math.min(end.length, raf.length() - (ending - 1)));
+      raf.seek(ending - 1);
+      raf.readFully(end, 0, nend);
+      for (int i = 1; i < 4; i++) {
+        if (nend <= i || end[i] != 55) {
           log.warn("Missing End of BUFR message at pos= {} header= {} file= {}", ending, cleanup(header),
               raf.getLocation());
           return null;
         }
       }
       // allow off by one : may happen when dataLength rounded to even bytes
-      if (raf.read() != 55) {
-        raf.seek(dataPos + dataLength - 1); // see if byte before is a '7'
-        if (raf.read() != 55) {
+      if (nend < 5 || end[4] != 55) {
+        if (end[0] != 55) { // see if byte before is a '7'
           log.warn("Missing End of BUFR message at pos= {} header= {} edition={} file= {}", ending, cleanup(header),
               is.getBufrEdition(), raf.getLocation());
           return null;
@@ -173,6 +215,7 @@ public class MessageScanner {
       Message m = new Message(raf, is, ids, dds, dataSection);
       m.setHeader(cleanup(header));
       m.setStartPos(start);
+      m.setTreeCache(treeCache);
 
       if (useEmbeddedTables && m.containsBufrTable()) {
         if (embedTable == null)
@@ -194,6 +237,50 @@ public class MessageScanner {
     }
   }
 
+  // the index has already checked the message
+  private Message nextIndexed() {
+    try {
+      long start = indexCurrent.start;
+      raf.seek(start + 4);
+
+      BufrIndicatorSection is = new BufrIndicatorSection(raf);
+      BufrIdentificationSection ids = new BufrIdentificationSection(raf, is);
+      BufrDataDescriptionSection dds = new BufrDataDescriptionSection(raf);
+
+      long dataPos = raf.getFilePointer();
+      int dataLength = BufrNumbers.uint3(raf);
+      BufrDataSection dataSection = new BufrDataSection(dataPos, dataLength);
+      lastPos = start + is.getBufrLength();
+
+      Message m = new Message(raf, is, ids, dds, dataSection);
+      m.setHeader(cleanup(header));
+      m.setStartPos(start);
+      m.setTreeCache(treeCache);
+
+      if (useEmbeddedTables && m.containsBufrTable()) {
+        if (embedTable == null)
+          embedTable = new EmbeddedTable(m, raf);
+        embedTable.addTable(m);
+      } else if (embedTable != null) {
+        m.setTableLookup(embedTable.getTableLookup());
+      }
+
+      countMsgs++;
+      countObs += dds.getNumberDatasets();
+      raf.seek(lastPos);
+      return m;
+
+    } catch (IOException ioe) {
+      log.error("Error reading indexed message at " + indexCurrent.start, ioe);
+      return null;
+    }
+  }
+
+  // the raw bytes before the current message, set by hasNext()
+  byte[] getHeaderBytes() {
+    return header;
+  }
+
   public TableLookup getTableLookup() throws IOException {
     while (hasNext()) {
       next();
@@ -221,12 +308,14 @@ public class MessageScanner {
     return result;
   }
 
+  /** The number of obs scanned so far, or if using an index, in all the messages of the file. */
   public int getTotalObs() {
-    return countObs;
+    return (indexMessages != null) ? indexObs : countObs;
   }
 
+  /** The number of messages scanned so far, or if using an index, in the file. */
   public int getTotalMessages() {
-    return countMsgs;
+    return (indexMessages != null) ? indexMessages.size() : countMsgs;
   }
 
   // the WMO header is in here somewhere when the message comes over the IDD
@@ -10,7 +10,7 @@ import ucar.ma2.*;
 import ucar.nc2.Sequence;
 import ucar.nc2.Variable;
 import ucar.nc2.Structure;
-import ucar.nc2.iosp.BitReader;
+import ucar.nc2.iosp.BitUnpacker;
 import ucar.unidata.io.RandomAccessFile;
 import java.util.Formatter;
 import java.util.List;
@@ -103,7 +103,9 @@ public class MessageUncompressedDataReader {
    */
   public int readData(ArrayStructureBB abb, Message m, RandomAccessFile raf, Range r, boolean addTime, Formatter f)
       throws IOException {
-    BitReader reader = new BitReader(raf, m.dataSection.getDataPos() + 4);
+    // read all of section 4 at once; its length includes the 4 byte header, so this also reads the 4 bytes of the
+    // end section, which some messages with a short section length run into
+    BitUnpacker reader = BitUnpacker.read(raf, m.dataSection.getDataPos() + 4, m.dataSection.getDataLength());
     DataDescriptor root = m.getRootDataDescriptor();
     if (root.isBad)
       return 0;
@@ -176,7 +178,7 @@ public class MessageUncompressedDataReader {
    * @param req read data into here, may be null
    * @throws IOException on read error
    */
-  private void readData(DebugOut out, BitReader reader, BitCounterUncompressed table, List<DataDescriptor> dkeys,
+  private void readData(DebugOut out, BitUnpacker reader, BitCounterUncompressed table, List<DataDescriptor> dkeys,
       int nestedRow, Request req) throws IOException {
 
     for (DataDescriptor dkey : dkeys) {
@@ -249,7 +251,7 @@ public class MessageUncompressedDataReader {
 
   }
 
-  private byte[] readCharData(DataDescriptor dkey, BitReader reader, Request req) throws IOException {
+  private byte[] readCharData(DataDescriptor dkey, BitUnpacker reader, Request req) throws IOException {
     int nchars = dkey.getByteWidthCDM();
     byte[] b = new byte[nchars];
     for (int i = 0; i < nchars; i++)
@@ -262,7 +264,7 @@ public class MessageUncompressedDataReader {
     return b;
   }
 
-  private long readNumericData(DataDescriptor dkey, BitReader reader, Request req) throws IOException {
+  private long readNumericData(DataDescriptor dkey, BitUnpacker reader, Request req) throws IOException {
     // numeric data
     long result = reader.bits2UInt(dkey.bitWidth);
 
@@ -312,7 +314,7 @@ public class MessageUncompressedDataReader {
   }
 
   // read in the data into an ArrayStructureBB, wrapped by an ArraySequence
-  private ArraySequence makeArraySequenceUncompressed(DebugOut out, BitReader reader,
+  private ArraySequence makeArraySequenceUncompressed(DebugOut out, BitUnpacker reader,
       BitCounterUncompressed bitCounterNested, DataDescriptor seqdd, Request req) throws IOException {
 
     int count = bitCounterNested.getNumberRows(); // the actual number of rows in this sequence
@@ -81,6 +81,14 @@ public class TableLookup {
     return localTableD;
   }
 
+  public TableB getWmoTableB() {
+    return wmoTableB;
+  }
+
+  public TableD getWmoTableD() {
+    return wmoTableD;
+  }
+
   public TableB.Descriptor getDescriptorTableB(short fxy) {
     TableB.Descriptor b = null;
     boolean isWmoRange = Descriptor.isWmoRange(fxy);
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 1998-2020 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.bufr;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.StructureDataIterator;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Sequence;
+import ucar.nc2.internal.util.DiskCache2;
+import ucar.unidata.io.RandomAccessFile;
+
+/** Test {@link BufrMessageIndex} */
+public class TestBufrMessageIndex {
+  private static final String filename = "../bufr/src/test/data/RadiosondeStationData.bufr";
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Before
+  public void setup() throws IOException {
+    DiskCache2 cache = new DiskCache2(tempFolder.newFolder().getAbsolutePath(), false, 0, 0);
+    cache.setAlwaysUseCache(true);
+    BufrMessageIndex.setDiskCache2(cache);
+  }
+
+  @After
+  public void tearDown() {
+    BufrMessageIndex.setDiskCache2(null);
+    BufrIosp.setUseMessageIndex(false);
+  }
+
+  @Test
+  public void testIndexedScanner() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+      List<Message> expected = new ArrayList<>();
+      MessageScanner scanner = new MessageScanner(raf, 0, true);
+      while (scanner.hasNext()) {
+        Message m = scanner.next();
+        if (m != null)
+          expected.add(m);
+      }
+      int expectedObs = scanner.getTotalObs();
+      assertThat(expected).isNotEmpty();
+
+      BufrMessageIndex index = BufrMessageIndex.readOrCreate(raf);
+      assertThat(index.getMessages()).hasSize(expected.size());
+      assertThat(index.getTotalObs()).isEqualTo(expectedObs);
+      String idxPath = raf.getLocation() + BufrMessageIndex.BUFX_IDX;
+      assertThat(BufrMessageIndex.getDiskCache2().getExistingFileOrCache(idxPath)).isNotNull();
+
+      // read it back
+      BufrMessageIndex index2 = BufrMessageIndex.readIndex(raf, idxPath);
+      assertThat(index2).isNotNull();
+      assertThat(index2.getMessages()).hasSize(expected.size());
+
+      MessageScanner indexed = new MessageScanner(raf, index2, true);
+      assertThat(indexed.getTotalObs()).isEqualTo(expectedObs);
+      for (Message want : expected) {
+        assertThat(indexed.hasNext()).isTrue();
+        Message m = indexed.next();
+        assertThat(m).isNotNull();
+        assertThat(m.getStartPos()).isEqualTo(want.getStartPos());
+        assertThat(m.getHeader()).isEqualTo(want.getHeader());
+        assertThat(m.getNumberDatasets()).isEqualTo(want.getNumberDatasets());
+        assertThat(m).isEqualTo(want);
+        assertThat(BufrMessageIndex.calcDescriptorHash(m)).isEqualTo(BufrMessageIndex.calcDescriptorHash(want));
+      }
+      assertThat(indexed.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  public void testReadWithIndex() throws IOException {
+    int expected = countObs();
+    BufrIosp.setUseMessageIndex(true);
+    assertThat(countObs()).isEqualTo(expected); // creates the index
+    assertThat(countObs()).isEqualTo(expected); // uses the index
+  }
+
+  private int countObs() throws IOException {
+    int count = 0;
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename)) {
+      Sequence obs = (Sequence) ncfile.findVariable(BufrIosp.obsRecordName);
+      try (StructureDataIterator iter = obs.getStructureIterator()) {
+        while (iter.hasNext()) {
+          iter.next();
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 1998-2020 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.bufr;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureDataIterator;
+import ucar.ma2.StructureMembers;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Sequence;
+import ucar.unidata.io.RandomAccessFile;
+
+/** Test decoding BUFR messages on an Executor, and sharing the DataDescriptor trees. */
+public class TestBufrParallelDecode {
+  private static final String source = "../bufr/src/test/data/RadiosondeStationData.bufr";
+  private static final int ncopies = 5;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private String filename;
+
+  // a file with several messages
+  @Before
+  public void setup() throws IOException {
+    byte[] message = Files.readAllBytes(Paths.get(source));
+    File file = tempFolder.newFile("copies.bufr");
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      for (int i = 0; i < ncopies; i++) {
+        out.write(message);
+      }
+    }
+    filename = file.getPath();
+  }
+
+  @After
+  public void tearDown() {
+    BufrIosp.setDecodeExecutor(null, 0);
+  }
+
+  @Test
+  public void testTreesAreShared() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+      MessageScanner scanner = new MessageScanner(raf);
+      Message proto = scanner.getFirstDataMessage();
+      assertThat(proto).isNotNull();
+      DataDescriptor root = proto.getRootDataDescriptor();
+
+      scanner.reset();
+      int count = 0;
+      while (scanner.hasNext()) {
+        Message m = scanner.next();
+        if (m == null || m.containsBufrTable() || !proto.equals(m))
+          continue;
+        assertThat(m.getRootDataDescriptor()).isSameInstanceAs(root);
+        count++;
+      }
+      assertThat(count).isEqualTo(ncopies);
+    }
+  }
+
+  @Test
+  public void testParallelDecode() throws IOException {
+    List<String> expected = readObs();
+    assertThat(expected).isNotEmpty();
+    assertThat(expected.size() % ncopies).isEqualTo(0);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      BufrIosp.setDecodeExecutor(executor, 3);
+      assertThat(readObs()).isEqualTo(expected);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  // the messages are decoded on the calling thread
+  @Test
+  public void testRejectingExecutor() throws IOException {
+    List<String> expected = readObs();
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    executor.shutdown();
+    BufrIosp.setDecodeExecutor(executor, 3);
+    assertThat(readObs()).isEqualTo(expected);
+  }
+
+  // must not wait for the pool thread it is running on
+  @Test
+  public void testFromPoolThread() throws Exception {
+    List<String> expected = readObs();
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      BufrIosp.setDecodeExecutor(executor, 3);
+      assertThat(executor.submit(this::readObs).get(1, TimeUnit.MINUTES)).isEqualTo(expected);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private List<String> readObs() throws IOException {
+    List<String> result = new ArrayList<>();
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename)) {
+      Sequence obs = (Sequence) ncfile.findVariable(BufrIosp.obsRecordName);
+      try (StructureDataIterator iter = obs.getStructureIterator()) {
+        while (iter.hasNext()) {
+          StructureData sdata = iter.next();
+          StringBuilder sb = new StringBuilder();
+          for (StructureMembers.Member member : sdata.getMembers()) {
+            sb.append(member.getName()).append('=').append(sdata.getArray(member)).append(';');
+          }
+          result.add(sb.toString());
+        }
+      }
+    }
+    return result;
+  }
+}
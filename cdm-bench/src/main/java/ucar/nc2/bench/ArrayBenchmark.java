@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.bench;
+
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.array.Array;
+import ucar.array.Arrays;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+
+/** Iteration over ucar.array.Array, and iteration over its section and permute views. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ArrayBenchmark {
+  private static final int[] shape = {32, 256, 256};
+
+  private Array<Float> array;
+  private Section section;
+  private double[] dest;
+
+  @Setup
+  public void setup() throws InvalidRangeException {
+    int n = (int) Arrays.computeSize(shape);
+    float[] values = new float[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = BenchmarkFiles.value(i);
+    }
+    array = Arrays.factory(DataType.FLOAT, shape, values);
+    section = new Section("0:31:2,10:209,0:255:3");
+    dest = new double[n];
+  }
+
+  @Benchmark
+  public double iterateBoxed() {
+    double sum = 0;
+    for (float val : array) {
+      sum += val;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double iterateDouble() {
+    return sum(array);
+  }
+
+  @Benchmark
+  public double[] copyToDouble() {
+    array.copyTo(dest, 0);
+    return dest;
+  }
+
+  @Benchmark
+  public double sectionAndIterate() throws InvalidRangeException {
+    return sum(Arrays.section(array, section.getRanges()));
+  }
+
+  @Benchmark
+  public double permuteAndIterate() {
+    return sum(Arrays.permute(array, new int[] {2, 0, 1}));
+  }
+
+  private static double sum(Array<?> a) {
+    double sum = 0;
+    PrimitiveIterator.OfDouble iter = a.doubleIterator();
+    while (iter.hasNext()) {
+      sum += iter.nextDouble();
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.write.NetcdfFormatWriter;
+
+/** Creates and finds the files that the benchmarks read. */
+class BenchmarkFiles {
+  /** System property with the directory of the GRIB sample files. Set by the jmh gradle task. */
+  static final String GRIB_DIR_PROPERTY = "cdm.bench.gribDir";
+
+  private BenchmarkFiles() {}
+
+  /** A smooth field with some noise, so it compresses like real data. */
+  static float value(long index) {
+    return (float) (100.0 * Math.sin(index * 1.0e-3) + (index % 17) * 0.25);
+  }
+
+  static File createTempDir() throws IOException {
+    return Files.createTempDirectory("cdm-bench").toFile();
+  }
+
+  static void deleteDir(File dir) throws IOException {
+    if (dir == null || !dir.exists()) {
+      return;
+    }
+    try (Stream<java.nio.file.Path> paths = Files.walk(dir.toPath())) {
+      paths.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+    }
+  }
+
+  /** Write n big-endian floats. */
+  static void writeFloats(File file, int n) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536))) {
+      for (int i = 0; i < n; i++) {
+        out.writeFloat(value(i));
+      }
+    }
+  }
+
+  /**
+   * Write a netcdf-3 file with one float variable "data(time, y, x)".
+   *
+   * @param record if true, time is the unlimited dimension, so each time slice is in a different record.
+   */
+  static void writeNetcdf3(File file, int ntimes, int ny, int nx, boolean record) throws IOException {
+    NetcdfFormatWriter.Builder writerb = NetcdfFormatWriter.createNewNetcdf3(file.getPath()).setFill(false);
+    if (record) {
+      writerb.addUnlimitedDimension("time");
+    } else {
+      writerb.addDimension("time", ntimes);
+    }
+    writerb.addDimension("y", ny);
+    writerb.addDimension("x", nx);
+    writerb.addVariable("data", DataType.FLOAT, "time y x");
+
+    int[] shape = {1, ny, nx};
+    try (NetcdfFormatWriter writer = writerb.build()) {
+      for (int t = 0; t < ntimes; t++) {
+        float[] values = new float[ny * nx];
+        long start = (long) t * values.length;
+        for (int i = 0; i < values.length; i++) {
+          values[i] = value(start + i);
+        }
+        writer.write("data", new int[] {t, 0, 0}, Array.factory(DataType.FLOAT, shape, values));
+      }
+    } catch (InvalidRangeException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /** Write an HDF5 file with one chunked, deflated float variable "data". */
+  static void writeHdf5Chunked(File file, int[] shape, int[] chunk, int deflateLevel) throws IOException {
+    new Hdf5ChunkedWriter("data", shape, chunk, deflateLevel).write(file, BenchmarkFiles::value);
+  }
+
+  /** One of the GRIB sample files in the grib module. */
+  static File gribFile(String name) {
+    String dir = System.getProperty(GRIB_DIR_PROPERTY, "../grib/src/test/data");
+    File file = new File(dir, name);
+    if (!file.exists()) {
+      throw new IllegalStateException(
+          "Cant find " + file.getAbsolutePath() + "; set -D" + GRIB_DIR_PROPERTY + " to grib/src/test/data");
+    }
+    return file;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.nc2.iosp.BitReader;
+import ucar.nc2.iosp.BitUnpacker;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Unpacking a file of nbits wide values, as GRIB simple packing does, with BitReader one value at a time,
+ * or with BitUnpacker after reading all of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BitUnpackerBenchmark {
+
+  /** 8, 12, 16 and 24 have their own loops in BitUnpacker, 13 is unpacked by the general one. */
+  @Param({"8", "12", "13", "16", "24"})
+  public int nbits;
+
+  @Param({"1000000"})
+  public int nvalues;
+
+  private File dir;
+  private RandomAccessFile raf;
+  private int nbytes;
+  private int[] dest;
+
+  @Setup
+  public void setup() throws IOException {
+    dir = BenchmarkFiles.createTempDir();
+    File file = new File(dir, "packed.bin");
+    nbytes = (int) (((long) nbits * nvalues + 7) / 8);
+    byte[] bytes = new byte[nbytes];
+    new Random(nbits).nextBytes(bytes);
+    Files.write(file.toPath(), bytes);
+    raf = new RandomAccessFile(file.getPath(), "r");
+    dest = new int[nvalues];
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    raf.close();
+    BenchmarkFiles.deleteDir(dir);
+  }
+
+  @Benchmark
+  public int[] bitReader() throws IOException {
+    BitReader reader = new BitReader(raf, 0);
+    for (int i = 0; i < nvalues; i++) {
+      dest[i] = (int) reader.bits2UInt(nbits);
+    }
+    return dest;
+  }
+
+  @Benchmark
+  public int[] bitUnpacker() throws IOException {
+    BitUnpacker unpacker = BitUnpacker.read(raf, 0, nbytes);
+    unpacker.unpack(nbits, dest, 0, nvalues);
+    return dest;
+  }
+
+  @Benchmark
+  public int[] bitUnpackerOneAtATime() throws IOException {
+    BitUnpacker unpacker = BitUnpacker.read(raf, 0, nbytes);
+    for (int i = 0; i < nvalues; i++) {
+      dest[i] = (int) unpacker.bits2UInt(nbits);
+    }
+    return dest;
+  }
+}
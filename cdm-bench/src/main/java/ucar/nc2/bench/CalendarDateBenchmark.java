@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateUnit;
+
+/** Parsing of ISO and udunits date strings, as done for every time coordinate. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CalendarDateBenchmark {
+  private final CalendarDateUnit hoursSince = CalendarDateUnit.of(null, "hours since 1970-01-01T00:00:00Z");
+
+  @Benchmark
+  public CalendarDate parseIsoDateTime() {
+    return CalendarDate.parseISOformat(null, "2020-10-17T12:34:56Z");
+  }
+
+  @Benchmark
+  public CalendarDate parseIsoDate() {
+    return CalendarDate.parseISOformat(null, "2020-10-17");
+  }
+
+  @Benchmark
+  public CalendarDate parseIsoNoLeap() {
+    return CalendarDate.parseISOformat("noleap", "2020-10-17T12:34:56Z");
+  }
+
+  @Benchmark
+  public CalendarDate parseUdunits() {
+    return CalendarDate.parseUdunits(null, "36 hours since 2020-10-17 12:00:00");
+  }
+
+  @Benchmark
+  public CalendarDateUnit parseDateUnit() {
+    return CalendarDateUnit.of(null, "days since 1850-01-01 00:00:00");
+  }
+
+  @Benchmark
+  public CalendarDate makeCalendarDate() {
+    return hoursSince.makeCalendarDate(442500.5);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.nc2.grib.grib2.Grib2DataReader;
+import ucar.nc2.grib.grib2.Grib2DataWindow;
+import ucar.nc2.grib.grib2.Grib2Record;
+import ucar.nc2.grib.grib2.Grib2RecordScanner;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Unpacking one GRIB2 record, for each of the common data representation templates.
+ * The records come from the sample files in the grib module, since there is no GRIB2 writer, in particular
+ * no JPEG2000 encoder, to generate them with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class Grib2DataReaderBenchmark {
+
+  /** Code table 5.0: 0 = simple, 2 = complex, 3 = complex with spatial differencing, 40 = JPEG2000, 41 = PNG. */
+  @Param({"0", "2", "3", "40", "41"})
+  public int template;
+
+  private RandomAccessFile raf;
+  private Grib2Record record;
+  private Grib2DataWindow window;
+
+  @Setup
+  public void setup() throws IOException {
+    File file = BenchmarkFiles.gribFile(sampleFile(template));
+    raf = new RandomAccessFile(file.getPath(), "r");
+    raf.order(RandomAccessFile.BIG_ENDIAN);
+    Grib2RecordScanner scanner = new Grib2RecordScanner(raf);
+    while (scanner.hasNext()) {
+      Grib2Record gr = scanner.next();
+      if (gr.getDataRepresentationSection().getDataTemplate() == template) {
+        record = gr;
+        break;
+      }
+    }
+    if (record == null) {
+      throw new IllegalStateException("No record with data template " + template + " in " + file);
+    }
+    // a 10 x 10 window in the middle of the grid; JPEG2000 and PNG always unpack all of it
+    int nx = record.getGDS().getNxRaw();
+    int ny = record.getGDS().getNyRaw();
+    window = new Grib2DataWindow(ny / 2, Math.min(ny - 1, ny / 2 + 9), nx / 2, Math.min(nx - 1, nx / 2 + 9));
+  }
+
+  // Grib2DataReader caches the unpacked data by file position
+  @Setup(Level.Invocation)
+  public void clearDataCache() {
+    Grib2DataReader.tearDown();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Grib2DataReader.tearDown();
+    raf.close();
+  }
+
+  @Benchmark
+  public float[] readData() throws IOException {
+    return record.readData(raf);
+  }
+
+  @Benchmark
+  public float[] readWindow() throws IOException {
+    return record.readData(raf, window);
+  }
+
+  private static String sampleFile(int template) {
+    switch (template) {
+      case 0:
+        return "cosmo.pds11.grib2"; // 194081 points
+      case 2:
+        return "ds.snow.grib2"; // 739297 points
+      case 3:
+        return "ds.sky.grib2"; // 22833 points
+      case 40:
+        return "pdsScale.pds1.grib2"; // 65160 points
+      case 41:
+        return "HLYA10.grib2"; // 259920 points
+      default:
+        throw new IllegalArgumentException("No sample file for data template " + template);
+    }
+  }
+}
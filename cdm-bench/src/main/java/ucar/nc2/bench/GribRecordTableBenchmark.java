@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.nc2.grib.collection.GribCollectionImmutable;
+import ucar.nc2.grib.collection.RecordTable;
+
+/**
+ * The records of a synthetic GRIB collection, stored as a List of Record objects or as a RecordTable.
+ * The heap each one uses is printed at setup; the benchmark is the cost of random lookups.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GribRecordTableBenchmark {
+  private static final int recordsPerFile = 10000;
+  private static final int nlookups = 1000;
+
+  @Param({"list", "table"})
+  public String storage;
+
+  @Param({"10000000"})
+  public int nrecords;
+
+  private List<GribCollectionImmutable.Record> records;
+  private int[] lookups;
+
+  @Setup
+  public void setup() {
+    long before = usedHeap();
+    records = storage.equals("table") ? makeTable() : makeList();
+    long after = usedHeap();
+    System.out.printf("%n%s of %d records uses %d MB of heap%n", storage, nrecords, (after - before) / 1000 / 1000);
+
+    Random random = new Random(nrecords);
+    lookups = new int[nlookups];
+    for (int i = 0; i < nlookups; i++) {
+      lookups[i] = random.nextInt(nrecords);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    records = null;
+  }
+
+  @Benchmark
+  public long getRecord() {
+    long sum = 0;
+    for (int idx : lookups) {
+      GribCollectionImmutable.Record record = records.get(idx);
+      sum += record.fileno + record.pos + record.drsOffset;
+    }
+    return sum;
+  }
+
+  private List<GribCollectionImmutable.Record> makeList() {
+    List<GribCollectionImmutable.Record> result = new ArrayList<>(nrecords);
+    Generator gen = new Generator();
+    for (int i = 0; i < nrecords; i++) {
+      gen.next(i);
+      result.add(new GribCollectionImmutable.Record(gen.fileno, gen.pos, gen.bmsOffset, gen.drsOffset));
+    }
+    return result;
+  }
+
+  private List<GribCollectionImmutable.Record> makeTable() {
+    RecordTable.Builder builder = RecordTable.builder(nrecords);
+    Generator gen = new Generator();
+    for (int i = 0; i < nrecords; i++) {
+      gen.next(i);
+      builder.add(gen.fileno, gen.pos, gen.bmsOffset, gen.drsOffset);
+    }
+    return builder.build();
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  // GRIB2 records in file order, a few hundred KB apart
+  private static class Generator {
+    final Random random = new Random(17);
+    int fileno, bmsOffset, drsOffset;
+    long pos;
+
+    void next(int i) {
+      if (i % recordsPerFile == 0) {
+        fileno = i / recordsPerFile;
+        pos = 0;
+      } else {
+        pos += 1000 + random.nextInt(500 * 1000);
+      }
+      drsOffset = 100 + random.nextInt(100);
+      bmsOffset = drsOffset + 23;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.unidata.io.MappedRandomAccessFile;
+
+/** Reads of a chunked, deflated HDF5 variable, through H5iospArrays. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class H5iospBenchmark {
+  private static final int[] shape = {16, 256, 256};
+
+  /** The storage chunk shape. */
+  @Param({"1,128,128", "4,64,64"})
+  public String chunk;
+
+  @Param({"1", "6"})
+  public int deflateLevel;
+
+  /** Open through MappedRandomAccessFile instead of the buffered RandomAccessFile. */
+  @Param({"false", "true"})
+  public boolean mmap;
+
+  private File dir;
+  private NetcdfFile ncfile;
+  private Variable data;
+  private Section timeSlice;
+  private Section subset;
+
+  @Setup
+  public void setup() throws IOException, InvalidRangeException {
+    String[] tokens = chunk.split(",");
+    int[] chunkShape = new int[tokens.length];
+    for (int i = 0; i < tokens.length; i++) {
+      chunkShape[i] = Integer.parseInt(tokens[i].trim());
+    }
+
+    dir = BenchmarkFiles.createTempDir();
+    File file = new File(dir, "bench.h5");
+    BenchmarkFiles.writeHdf5Chunked(file, shape, chunkShape, deflateLevel);
+    ncfile = NetcdfFiles.open(mmap ? MappedRandomAccessFile.PREFIX + file.getPath() : file.getPath());
+    data = ncfile.findVariable("data");
+    timeSlice = new Section(String.format("5,0:%d,0:%d", shape[1] - 1, shape[2] - 1));
+    // not aligned with the chunks
+    subset = new Section("2:9,30:149,70:229");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    ncfile.close();
+    BenchmarkFiles.deleteDir(dir);
+  }
+
+  @Benchmark
+  public Object readAll() throws IOException {
+    return data.readArray();
+  }
+
+  @Benchmark
+  public Object readTimeSlice() throws IOException, InvalidRangeException {
+    return data.readArray(timeSlice);
+  }
+
+  @Benchmark
+  public Object readSubset() throws IOException, InvalidRangeException {
+    return data.readArray(subset);
+  }
+}
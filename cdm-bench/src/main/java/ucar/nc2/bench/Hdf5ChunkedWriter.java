@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.bench;
+
+import com.google.common.base.Preconditions;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a minimal HDF5 file with one chunked, deflated float variable in the root group, so that the
+ * benchmarks do not need the netCDF-4 C library.
+ * Uses the version 0 superblock, version 1 object headers and a single leaf node in the chunk B-tree.
+ * The HDF5 library limits B-tree nodes to 2K entries, so keep the number of chunks small if the file is
+ * to be read by anything other than the CDM.
+ */
+class Hdf5ChunkedWriter {
+  private static final byte[] magic = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
+  private static final long undefinedAddress = -1L;
+
+  private final String varName;
+  private final int[] shape;
+  private final int[] chunk;
+  private final int deflateLevel;
+
+  /**
+   * @param varName name of the variable
+   * @param shape shape of the variable
+   * @param chunk shape of the storage chunks
+   * @param deflateLevel deflate level 1-9
+   */
+  Hdf5ChunkedWriter(String varName, int[] shape, int[] chunk, int deflateLevel) {
+    Preconditions.checkArgument(shape.length == chunk.length);
+    Preconditions.checkArgument(deflateLevel >= 1 && deflateLevel <= 9);
+    this.varName = varName;
+    this.shape = shape.clone();
+    this.chunk = chunk.clone();
+    this.deflateLevel = deflateLevel;
+  }
+
+  /** Write the file. The value at index i (in canonical order) is values.value(i). */
+  void write(File file, ValueFn values) throws IOException {
+    int rank = shape.length;
+
+    // chunks, in canonical order of their offsets, which is also B-tree key order
+    List<int[]> chunkOffsets = new ArrayList<>();
+    int[] counter = new int[rank];
+    boolean done = false;
+    while (!done) {
+      chunkOffsets.add(counter.clone());
+      int dim = rank - 1;
+      for (; dim >= 0; dim--) {
+        counter[dim] += chunk[dim];
+        if (counter[dim] < shape[dim]) {
+          break;
+        }
+        counter[dim] = 0;
+      }
+      done = (dim < 0);
+    }
+    List<byte[]> chunkBytes = new ArrayList<>();
+    for (int[] offset : chunkOffsets) {
+      chunkBytes.add(deflate(chunkData(offset, values)));
+    }
+
+    // fixed layout: superblock, root group, local heap, group btree, symbol table node, dataset, chunk btree, chunks
+    int rootHeaderPos = 96;
+    int heapPos = rootHeaderPos + 16 + 24;
+    int heapDataPos = heapPos + 32;
+    byte[] heapData = heapData();
+    int groupBtreePos = heapDataPos + heapData.length;
+    int snodPos = groupBtreePos + 24 + 24;
+    int datasetPos = snodPos + 8 + 40;
+    int dataspaceSize = 8 + 8 * rank;
+    int layoutSize = pad8(3 + 8 + 4 * (rank + 1));
+    int datasetHeaderSize = (8 + dataspaceSize) + (8 + 24) + (8 + layoutSize) + (8 + 24);
+    int chunkBtreePos = datasetPos + 16 + datasetHeaderSize;
+    int keySize = 8 + 8 * (rank + 1);
+    long chunkPos = chunkBtreePos + 24 + (chunkOffsets.size() + 1) * keySize + chunkOffsets.size() * 8;
+    long eof = chunkPos;
+    for (byte[] b : chunkBytes) {
+      eof += b.length;
+    }
+
+    ByteBuffer bb = ByteBuffer.allocate((int) chunkPos).order(ByteOrder.LITTLE_ENDIAN);
+
+    // superblock version 0
+    bb.put(magic);
+    bb.put(new byte[] {0, 0, 0, 0, 0, 8, 8, 0}); // versions, sizeOffsets, sizeLengths
+    bb.putShort((short) 4); // group leaf node K
+    bb.putShort((short) 16); // group internal node K
+    bb.putInt(0); // file consistency flags
+    bb.putLong(0); // base address
+    bb.putLong(undefinedAddress); // free-space info
+    bb.putLong(eof);
+    bb.putLong(undefinedAddress); // driver info
+    putSymbolTableEntry(bb, 0, rootHeaderPos, groupBtreePos, heapPos);
+
+    // root group object header, with a symbol table message
+    bb.position(rootHeaderPos);
+    putObjectHeader(bb, 1, 24);
+    putMessageHeader(bb, 0x11, 16);
+    bb.putLong(groupBtreePos);
+    bb.putLong(heapPos);
+
+    // local heap, holding the link names
+    bb.position(heapPos);
+    bb.put("HEAP".getBytes(StandardCharsets.US_ASCII));
+    bb.put(new byte[] {0, 0, 0, 0});
+    bb.putLong(heapData.length);
+    bb.putLong(undefinedAddress); // no free list
+    bb.putLong(heapDataPos);
+    bb.put(heapData);
+
+    // group B-tree, one leaf entry
+    bb.position(groupBtreePos);
+    putBtreeNodeHeader(bb, 0, 1);
+    bb.putLong(0); // key: offset of "" in the heap
+    bb.putLong(snodPos);
+    bb.putLong(8); // key: offset of the variable name in the heap
+
+    // symbol table node
+    bb.position(snodPos);
+    bb.put("SNOD".getBytes(StandardCharsets.US_ASCII));
+    bb.put((byte) 1);
+    bb.put((byte) 0);
+    bb.putShort((short) 1);
+    putSymbolTableEntry(bb, 8, datasetPos, -1, -1);
+
+    // dataset object header
+    bb.position(datasetPos);
+    putObjectHeader(bb, 4, datasetHeaderSize);
+    // dataspace version 1
+    putMessageHeader(bb, 0x01, dataspaceSize);
+    bb.put((byte) 1);
+    bb.put((byte) rank);
+    bb.put(new byte[6]); // flags, reserved
+    for (int len : shape) {
+      bb.putLong(len);
+    }
+    // datatype: little-endian IEEE float
+    putMessageHeader(bb, 0x03, 24);
+    bb.put(new byte[] {0x11, 0x20, 0x1f, 0x00});
+    bb.putInt(4);
+    bb.putShort((short) 0); // bit offset
+    bb.putShort((short) 32); // precision
+    bb.put(new byte[] {23, 8, 0, 23}); // exponent location and size, mantissa location and size
+    bb.putInt(127); // exponent bias
+    bb.putInt(0); // pad
+    // data layout version 3, chunked
+    putMessageHeader(bb, 0x08, layoutSize);
+    int layoutStart = bb.position();
+    bb.put((byte) 3);
+    bb.put((byte) 2);
+    bb.put((byte) (rank + 1));
+    bb.putLong(chunkBtreePos);
+    for (int len : chunk) {
+      bb.putInt(len);
+    }
+    bb.putInt(4); // element size
+    bb.position(layoutStart + layoutSize);
+    // filter pipeline version 1, deflate
+    putMessageHeader(bb, 0x0B, 24);
+    bb.put((byte) 1);
+    bb.put((byte) 1);
+    bb.put(new byte[6]);
+    bb.putShort((short) 1); // deflate
+    bb.putShort((short) 0); // name length
+    bb.putShort((short) 0); // flags
+    bb.putShort((short) 1); // number of client values
+    bb.putInt(deflateLevel);
+    bb.putInt(0); // pad to 8
+
+    // chunk B-tree, one leaf node
+    bb.position(chunkBtreePos);
+    putBtreeNodeHeader(bb, 1, chunkOffsets.size());
+    long pos = chunkPos;
+    for (int i = 0; i < chunkOffsets.size(); i++) {
+      bb.putInt(chunkBytes.get(i).length);
+      bb.putInt(0); // filter mask
+      for (int off : chunkOffsets.get(i)) {
+        bb.putLong(off);
+      }
+      bb.putLong(0);
+      bb.putLong(pos);
+      pos += chunkBytes.get(i).length;
+    }
+    // final key is past the end of the data
+    bb.putInt(0);
+    bb.putInt(0);
+    for (int len : shape) {
+      bb.putLong(len);
+    }
+    bb.putLong(0);
+
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(bb.array());
+      for (byte[] b : chunkBytes) {
+        out.write(b);
+      }
+    }
+  }
+
+  /** The value of the variable at each index, in canonical order. */
+  interface ValueFn {
+    float value(long index);
+  }
+
+  private byte[] chunkData(int[] offset, ValueFn values) {
+    int rank = shape.length;
+    int chunkSize = 1;
+    for (int len : chunk) {
+      chunkSize *= len;
+    }
+    // edge chunks are full size; the part outside the variable is left as zeros
+    ByteBuffer bb = ByteBuffer.allocate(4 * chunkSize).order(ByteOrder.LITTLE_ENDIAN);
+    int[] counter = new int[rank];
+    for (int i = 0; i < chunkSize; i++) {
+      long index = 0;
+      boolean inside = true;
+      for (int dim = 0; dim < rank; dim++) {
+        int idx = offset[dim] + counter[dim];
+        inside &= idx < shape[dim];
+        index = index * shape[dim] + idx;
+      }
+      bb.putFloat(inside ? values.value(index) : 0.0f);
+      for (int dim = rank - 1; dim >= 0; dim--) {
+        if (++counter[dim] < chunk[dim]) {
+          break;
+        }
+        counter[dim] = 0;
+      }
+    }
+    return bb.array();
+  }
+
+  private byte[] deflate(byte[] data) {
+    Deflater deflater = new Deflater(deflateLevel);
+    deflater.setInput(data);
+    deflater.finish();
+    ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+    byte[] buffer = new byte[8192];
+    while (!deflater.finished()) {
+      int n = deflater.deflate(buffer);
+      out.write(buffer, 0, n);
+    }
+    deflater.end();
+    return out.toByteArray();
+  }
+
+  // offset 0 is the empty name of the root group, offset 8 is the variable name
+  private byte[] heapData() {
+    byte[] name = varName.getBytes(StandardCharsets.UTF_8);
+    byte[] heap = new byte[8 + pad8(name.length + 1)];
+    System.arraycopy(name, 0, heap, 8, name.length);
+    return heap;
+  }
+
+  private static void putObjectHeader(ByteBuffer bb, int nmess, int headerSize) {
+    bb.put((byte) 1);
+    bb.put((byte) 0);
+    bb.putShort((short) nmess);
+    bb.putInt(1); // reference count
+    bb.putInt(headerSize);
+    bb.putInt(0); // pad to 8
+  }
+
+  private static void putMessageHeader(ByteBuffer bb, int type, int size) {
+    bb.putShort((short) type);
+    bb.putShort((short) size);
+    bb.putInt(0); // flags, reserved
+  }
+
+  private static void putBtreeNodeHeader(ByteBuffer bb, int type, int nentries) {
+    bb.put("TREE".getBytes(StandardCharsets.US_ASCII));
+    bb.put((byte) type);
+    bb.put((byte) 0); // leaf
+    bb.putShort((short) nentries);
+    bb.putLong(undefinedAddress);
+    bb.putLong(undefinedAddress);
+  }
+
+  // cacheType 1 if btreeAddress >= 0, with the group's btree and heap in the scratch pad
+  private static void putSymbolTableEntry(ByteBuffer bb, long nameOffset, long headerAddress, long btreeAddress,
+      long heapAddress) {
+    bb.putLong(nameOffset);
+    bb.putLong(headerAddress);
+    bb.putInt(btreeAddress >= 0 ? 1 : 0);
+    bb.putInt(0);
+    bb.putLong(btreeAddress >= 0 ? btreeAddress : 0);
+    bb.putLong(btreeAddress >= 0 ? heapAddress : 0);
+  }
+
+  private static int pad8(int n) {
+    return (n + 7) & ~7;
+  }
+}
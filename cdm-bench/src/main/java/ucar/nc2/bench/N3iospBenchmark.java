@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.unidata.io.MappedRandomAccessFile;
+
+/**
+ * Section reads from a netcdf-3 file, through both the ucar.ma2 and the ucar.array API.
+ * With record=true the time dimension is unlimited, so each time slice is in its own record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class N3iospBenchmark {
+  private static final int ntimes = 32;
+  private static final int ny = 256;
+  private static final int nx = 256;
+
+  @Param({"false", "true"})
+  public boolean record;
+
+  /** Open through MappedRandomAccessFile instead of the buffered RandomAccessFile. */
+  @Param({"false", "true"})
+  public boolean mmap;
+
+  private File dir;
+  private NetcdfFile ncfile;
+  private Variable data;
+  private Section contiguous;
+  private Section strided;
+
+  @Setup
+  public void setup() throws IOException, InvalidRangeException {
+    dir = BenchmarkFiles.createTempDir();
+    File file = new File(dir, "bench.nc");
+    BenchmarkFiles.writeNetcdf3(file, ntimes, ny, nx, record);
+    ncfile = NetcdfFiles.open(mmap ? MappedRandomAccessFile.PREFIX + file.getPath() : file.getPath());
+    data = ncfile.findVariable("data");
+    // a block of whole time slices, contiguous in the file unless record=true
+    contiguous = new Section(String.format("8:15,0:%d,0:%d", ny - 1, nx - 1));
+    strided = new Section(String.format("0:%d:2,0:%d:4,0:%d:4", ntimes - 1, ny - 1, nx - 1));
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    ncfile.close();
+    BenchmarkFiles.deleteDir(dir);
+  }
+
+  @Benchmark
+  public Object readContiguous() throws IOException, InvalidRangeException {
+    return data.read(contiguous);
+  }
+
+  @Benchmark
+  public Object readStrided() throws IOException, InvalidRangeException {
+    return data.read(strided);
+  }
+
+  @Benchmark
+  public Object readArrayContiguous() throws IOException, InvalidRangeException {
+    return data.readArray(contiguous);
+  }
+
+  @Benchmark
+  public Object readArrayStrided() throws IOException, InvalidRangeException {
+    return data.readArray(strided);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.ProjectionPoint;
+import ucar.unidata.geoloc.projection.AlbersEqualArea;
+import ucar.unidata.geoloc.projection.LambertConformal;
+import ucar.unidata.geoloc.projection.Mercator;
+import ucar.unidata.geoloc.projection.RotatedPole;
+import ucar.unidata.geoloc.projection.Stereographic;
+import ucar.unidata.geoloc.projection.TransverseMercator;
+
+/** Projecting a grid of lat/lon points, one point at a time and with the batch methods. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProjectionBenchmark {
+  private static final int ny = 300;
+  private static final int nx = 400;
+
+  @Param({"LambertConformal", "Stereographic", "Mercator", "TransverseMercator", "AlbersEqualArea", "RotatedPole"})
+  public String projection;
+
+  private Projection proj;
+  private double[] lats;
+  private double[] lons;
+  private double[] xs;
+  private double[] ys;
+
+  @Setup
+  public void setup() {
+    proj = makeProjection(projection);
+    // 20N-50N, 130W-60W
+    lats = new double[ny * nx];
+    lons = new double[ny * nx];
+    xs = new double[ny * nx];
+    ys = new double[ny * nx];
+    for (int j = 0; j < ny; j++) {
+      for (int i = 0; i < nx; i++) {
+        lats[j * nx + i] = 20.0 + 30.0 * j / ny;
+        lons[j * nx + i] = -130.0 + 70.0 * i / nx;
+      }
+    }
+  }
+
+  @Benchmark
+  public double latLonToProj() {
+    double sum = 0;
+    for (int i = 0; i < lats.length; i++) {
+      ProjectionPoint pt = proj.latLonToProj(lats[i], lons[i]);
+      sum += pt.getX() + pt.getY();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double[] latLonToProjBatch() {
+    proj.latLonToProj(lats, lons, xs, ys);
+    return xs;
+  }
+
+  static Projection makeProjection(String name) {
+    switch (name) {
+      case "LambertConformal":
+        return new LambertConformal(25.0, -95.0, 25.0, 25.0);
+      case "Stereographic":
+        return new Stereographic(90.0, -105.0, 0.933);
+      case "Mercator":
+        return new Mercator(-95.0, 20.0);
+      case "TransverseMercator":
+        return new TransverseMercator(0.0, -95.0, 0.9996);
+      case "AlbersEqualArea":
+        return new AlbersEqualArea(23.0, -96.0, 29.5, 45.5);
+      case "RotatedPole":
+        return new RotatedPole(37.0, -153.0);
+      default:
+        throw new IllegalArgumentException("Unknown projection " + name);
+    }
+  }
+}
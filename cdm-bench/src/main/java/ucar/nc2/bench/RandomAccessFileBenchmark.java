@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ucar.unidata.io.MappedRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+
+/** Bulk reads of primitives through the RandomAccessFile buffer, or from a memory mapping. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RandomAccessFileBenchmark {
+
+  /** 8092 is the default buffer size used by NetcdfFiles.open(). */
+  @Param({"8092", "65536"})
+  public int bufferSize;
+
+  @Param({"4000000"})
+  public int nfloats;
+
+  /** Open through MappedRandomAccessFile instead of the buffered RandomAccessFile. */
+  @Param({"false", "true"})
+  public boolean mmap;
+
+  private File dir;
+  private RandomAccessFile raf;
+  private float[] dest;
+
+  @Setup
+  public void setup() throws IOException {
+    dir = BenchmarkFiles.createTempDir();
+    File file = new File(dir, "floats.bin");
+    BenchmarkFiles.writeFloats(file, nfloats);
+    raf = mmap ? new MappedRandomAccessFile(file.getPath(), bufferSize)
+        : new RandomAccessFile(file.getPath(), "r", bufferSize);
+    raf.order(RandomAccessFile.BIG_ENDIAN);
+    dest = new float[nfloats];
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    raf.close();
+    BenchmarkFiles.deleteDir(dir);
+  }
+
+  @Benchmark
+  public float[] readFloatArray() throws IOException {
+    raf.seek(0);
+    raf.readFloat(dest, 0, nfloats);
+    return dest;
+  }
+
+  @Benchmark
+  public float readFloatOneAtATime() throws IOException {
+    raf.seek(0);
+    float sum = 0;
+    for (int i = 0; i < nfloats; i++) {
+      sum += raf.readFloat();
+    }
+    return sum;
+  }
+}
@@ -161,7 +161,7 @@ public class GribCoordsMatchGbx {
     if (MAX_READS > 0 && countReadsForVariable > MAX_READS)
       return;
 
-    GribDataReader.currentDataRecord = null;
+    GribDataReader.clearCurrentDataRecord();
     GeoReferencedArray geoArray = cover.readData(coords);
     int[] shape = geoArray.getData().getShape();
 
@@ -319,7 +319,7 @@ public class GribCoordsMatchGbx {
     if (MAX_READS > 0 && countReadsForVariable > MAX_READS)
       return;
 
-    GribDataReader.currentDataRecord = null;
+    GribDataReader.clearCurrentDataRecord();
     gdt.readDataSlice(rtIndex, -1, tIndex, zIndex, -1, -1);
     dtCoords.set("rtIndex", rtIndex);
     dtCoords.set("tIndex", tIndex);
@@ -356,7 +356,7 @@ public class GribCoordsMatchGbx {
   }
 
   private void readAndTestGrib1(String name, SubsetParams coords) throws IOException {
-    GribCollectionImmutable.Record dr = GribDataReader.currentDataRecord;
+    GribCollectionImmutable.Record dr = GribDataReader.getCurrentDataRecord();
     if (dr == null) {
       if (showMissing)
         logger.debug("missing record= {}", coords);
@@ -367,7 +367,7 @@ public class GribCoordsMatchGbx {
       logger.debug("found record= {}", coords);
     counters.count(kind, "found1");
 
-    String filename = GribDataReader.currentDataRafFilename;
+    String filename = GribDataReader.getCurrentDataRafFilename();
     String idxFile = filename.endsWith(".gbx9") ? filename : filename + ".gbx9";
     IdxHashGrib1 idxHash = fileIndexMapGrib1.get(idxFile);
     if (idxHash == null) {
@@ -490,8 +490,8 @@ public class GribCoordsMatchGbx {
   }
 
   private void readAndTestGrib2(String name, SubsetParams coords) throws IOException {
-    GribCollectionImmutable.Record dr = GribDataReader.currentDataRecord;
-    String filename = GribDataReader.currentDataRafFilename;
+    GribCollectionImmutable.Record dr = GribDataReader.getCurrentDataRecord();
+    String filename = GribDataReader.getCurrentDataRafFilename();
     if (dr == null) {
       counters.count(kind, "missing2");
       return;
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import ucar.array.Array;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.internal.util.CompareArrayToArray;
+import ucar.unidata.util.test.category.NeedsCdmUnitTest;
+
+/** Compare serial and parallel decompression of filtered HDF5 variables. */
+@RunWith(Parameterized.class)
+@Category(NeedsCdmUnitTest.class)
+public class TestH5parallelFilter {
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void setup() {
+    executor = Executors.newFixedThreadPool(4);
+    H5chunkCache.disable();
+  }
+
+  @AfterClass
+  public static void teardown() {
+    H5iospArrays.setFilterExecutor(null);
+    executor.shutdownNow();
+  }
+
+  @Parameterized.Parameters(name = "{0}")
+  public static List<Object[]> getTestParameters() {
+    List<Object[]> result = new ArrayList<>();
+    result.add(new Object[] {TestH5.testDir + "msg/MSG1_8bit_HRV.H5"});
+    result.add(new Object[] {TestN4reading.testDir + "endianTest.nc4"});
+    result.add(new Object[] {TestN4reading.testDir + "hiig_forec_20140208.nc"});
+    result.add(new Object[] {TestN4reading.testDir + "files/nc_test_netcdf4.nc4"});
+    return result;
+  }
+
+  private final String filename;
+
+  public TestH5parallelFilter(String filename) {
+    this.filename = filename;
+  }
+
+  @Test
+  public void compareParallel() throws Exception {
+    compareAll(executor, 2);
+  }
+
+  // the chunks are uncompressed on the calling thread
+  @Test
+  public void compareRejected() throws Exception {
+    ExecutorService shutdown = Executors.newSingleThreadExecutor();
+    shutdown.shutdown();
+    compareAll(shutdown, 2);
+  }
+
+  // must not wait for the pool thread it is running on
+  @Test
+  public void compareFromPoolThread() throws Exception {
+    ExecutorService single = Executors.newSingleThreadExecutor();
+    try {
+      single.submit(() -> {
+        compareAll(single, 1);
+        return null;
+      }).get(5, TimeUnit.MINUTES);
+    } finally {
+      single.shutdownNow();
+    }
+  }
+
+  private void compareAll(Executor parallelExecutor, int maxChunksInFlight) throws Exception {
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename)) {
+      for (Variable v : ncfile.getVariables()) {
+        compare(v, null, parallelExecutor, maxChunksInFlight);
+        if (v.getRank() > 0 && v.getShape(0) > 1) {
+          // a section that doesnt start at the origin, with a stride
+          int n = v.getShape(0);
+          Section.Builder sb = Section.builder().appendRange(n / 2, n - 1, 2);
+          for (int i = 1; i < v.getRank(); i++) {
+            sb.appendRange(v.getShape(i));
+          }
+          compare(v, sb.build(), parallelExecutor, maxChunksInFlight);
+        }
+      }
+    }
+  }
+
+  // each read opens the file again, so neither one can use the data cached by the other
+  private void compare(Variable v, Section section, Executor parallelExecutor, int maxChunksInFlight)
+      throws Exception {
+    Array<?> serial = read(NetcdfFiles.makeFullName(v), section, null, 1);
+    Array<?> parallel = read(NetcdfFiles.makeFullName(v), section, parallelExecutor, maxChunksInFlight);
+
+    Formatter f = new Formatter();
+    boolean ok = CompareArrayToArray.compareData(f, v.getShortName(), serial, parallel, false, true);
+    if (!ok) {
+      System.out.printf("%s%n", f);
+    }
+    assertThat(ok).isTrue();
+  }
+
+  private Array<?> read(String varName, Section section, Executor readExecutor, int maxChunksInFlight)
+      throws Exception {
+    H5iospArrays.setFilterExecutor(readExecutor, maxChunksInFlight);
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename)) {
+      Variable v = ncfile.findVariable(varName);
+      assertThat(v).isNotNull();
+      v.setCaching(false);
+      return (section == null) ? v.readArray() : v.readArray(section);
+    } finally {
+      H5iospArrays.setFilterExecutor(null);
+    }
+  }
+
+}
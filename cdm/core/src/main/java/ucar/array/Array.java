@@ -5,7 +5,11 @@
 package ucar.array;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.DoubleConsumer;
 import javax.annotation.concurrent.Immutable;
 import ucar.ma2.DataType;
 import ucar.ma2.Section;
@@ -39,6 +43,59 @@ public abstract class Array<T> implements Iterable<T> {
     return this.get(this.getIndex());
   }
 
+  /**
+   * Get the element indicated by Index as a double, without boxing. Numeric types only.
+   *
+   * @param index multidimensional indices.
+   */
+  public double getDouble(Index index) {
+    return storage().getDouble(indexFn.get(index.getCurrentIndex()));
+  }
+
+  /** Iterates in canonical order over all the elements of a numeric Array as doubles, without boxing. */
+  public PrimitiveIterator.OfDouble doubleIterator() {
+    return indexFn.isCanonicalOrder() ? new FastDoubleIterator() : new CanonicalDoubleIterator();
+  }
+
+  /** Perform the action on all the elements of a numeric Array as doubles, in canonical order, without boxing. */
+  public void forEachDouble(DoubleConsumer action) {
+    Storage<T> storage = storage();
+    if (indexFn.isCanonicalOrder()) {
+      long n = length();
+      for (long elem = 0; elem < n; elem++) {
+        action.accept(storage.getDouble(elem));
+      }
+    } else {
+      PrimitiveIterator.OfInt iter = indexFn.iterator();
+      while (iter.hasNext()) {
+        action.accept(storage.getDouble(iter.nextInt()));
+      }
+    }
+  }
+
+  /**
+   * Copy all the elements of a numeric Array as doubles, in canonical order, into dest.
+   *
+   * @param dest copy into this array, must have room for length() elements after destPos.
+   * @param destPos starting pos in dest.
+   */
+  public void copyTo(double[] dest, int destPos) {
+    Preconditions.checkArgument(destPos >= 0 && destPos + length() <= dest.length);
+    Storage<T> storage = storage();
+    int destIndex = destPos;
+    if (indexFn.isCanonicalOrder()) {
+      long n = length();
+      for (long elem = 0; elem < n; elem++) {
+        dest[destIndex++] = storage.getDouble(elem);
+      }
+    } else {
+      PrimitiveIterator.OfInt iter = indexFn.iterator();
+      while (iter.hasNext()) {
+        dest[destIndex++] = storage.getDouble(iter.nextInt());
+      }
+    }
+  }
+
   /** The datatype for this array */
   public DataType getDataType() {
     return this.dataType;
@@ -145,5 +202,41 @@ public abstract class Array<T> implements Iterable<T> {
    */
   abstract Array<T> createView(IndexFn view);
 
+  // used when the data is in canonical order
+  private class FastDoubleIterator implements PrimitiveIterator.OfDouble {
+    private final Storage<T> storage = storage();
+    private final long nelems = length();
+    private long count = 0;
+
+    @Override
+    public boolean hasNext() {
+      return count < nelems;
+    }
+
+    @Override
+    public double nextDouble() {
+      if (count >= nelems) {
+        throw new NoSuchElementException();
+      }
+      return storage.getDouble(count++);
+    }
+  }
+
+  // used when the data is not in canonical order
+  private class CanonicalDoubleIterator implements PrimitiveIterator.OfDouble {
+    private final Storage<T> storage = storage();
+    private final PrimitiveIterator.OfInt iter = indexFn.iterator();
+
+    @Override
+    public boolean hasNext() {
+      return iter.hasNext();
+    }
+
+    @Override
+    public double nextDouble() {
+      return storage.getDouble(iter.nextInt());
+    }
+  }
+
 }
 
@@ -8,6 +8,7 @@ import com.google.common.base.Preconditions;
 import com.google.protobuf.ByteString;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
+import java.util.PrimitiveIterator;
 import javax.annotation.concurrent.Immutable;
 import ucar.ma2.DataType;
 
@@ -63,9 +64,9 @@ public final class ArrayByte extends Array<Byte> {
     } else {
       byte[] ddest = (byte[]) dest;
       int destIndex = destPos;
-      Iterator<Integer> iter = indexFn.iterator(srcPos, length);
+      PrimitiveIterator.OfInt iter = indexFn.iterator(srcPos, length);
       while (iter.hasNext()) {
-        ddest[destIndex++] = storage.get(iter.next());
+        ddest[destIndex++] = storage.get(iter.nextInt());
       }
     }
   }
@@ -73,7 +74,7 @@ public final class ArrayByte extends Array<Byte> {
   /** Convert the Array into a ByteString. */
   public ByteString getByteString() {
     if (indexFn.isCanonicalOrder()) {
-      ByteString.copyFrom(((StorageS) storage).storage);
+      return ByteString.copyFrom(((StorageS) storage).storage);
     }
 
     byte[] raw = new byte[(int) length()];
@@ -109,7 +110,7 @@ public final class ArrayByte extends Array<Byte> {
 
   // used when the data is not in canonical order
   private class CanonicalIterator implements Iterator<Byte> {
-    private final Iterator<Integer> iter = indexFn.iterator();
+    private final PrimitiveIterator.OfInt iter = indexFn.iterator();
 
     @Override
     public boolean hasNext() {
@@ -118,7 +119,7 @@ public final class ArrayByte extends Array<Byte> {
 
     @Override
     public Byte next() {
-      return storage.get(iter.next());
+      return storage.get(iter.nextInt());
     }
   }
 
@@ -138,7 +139,12 @@ public final class ArrayByte extends Array<Byte> {
 
     @Override
     public Byte get(long elem) {
-      return storage[(byte) elem];
+      return storage[(int) elem];
+    }
+
+    @Override
+    public double getDouble(long elem) {
+      return storage[(int) elem];
     }
 
     @Override
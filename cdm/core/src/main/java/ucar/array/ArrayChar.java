@@ -6,6 +6,7 @@ package ucar.array;
 
 import com.google.common.base.Preconditions;
 import java.util.Iterator;
+import java.util.PrimitiveIterator;
 import javax.annotation.concurrent.Immutable;
 import ucar.ma2.DataType;
 
@@ -61,9 +62,9 @@ public final class ArrayChar extends Array<Character> {
     } else {
       char[] ddest = (char[]) dest;
       int destIndex = destPos;
-      Iterator<Integer> iter = indexFn.iterator(srcPos, length);
+      PrimitiveIterator.OfInt iter = indexFn.iterator(srcPos, length);
       while (iter.hasNext()) {
-        ddest[destIndex++] = storage.get(iter.next());
+        ddest[destIndex++] = storage.get(iter.nextInt());
       }
     }
   }
@@ -140,7 +141,7 @@ public final class ArrayChar extends Array<Character> {
 
   // used when the data is not in canonical order
   private class CanonicalIterator implements Iterator<Character> {
-    private final Iterator<Integer> iter = indexFn.iterator();
+    private final PrimitiveIterator.OfInt iter = indexFn.iterator();
 
     @Override
     public boolean hasNext() {
@@ -149,7 +150,7 @@ public final class ArrayChar extends Array<Character> {
 
     @Override
     public Character next() {
-      return storage.get(iter.next());
+      return storage.get(iter.nextInt());
     }
   }
 
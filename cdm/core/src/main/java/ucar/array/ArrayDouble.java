@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
 import javax.annotation.concurrent.Immutable;
 import ucar.ma2.DataType;
 
@@ -65,13 +66,19 @@ public final class ArrayDouble extends ucar.array.Array<Double> {
     } else {
       double[] ddest = (double[]) dest;
       int destIndex = destPos;
-      Iterator<Integer> iter = indexFn.iterator(srcPos, length);
+      PrimitiveIterator.OfInt iter = indexFn.iterator(srcPos, length);
       while (iter.hasNext()) {
-        ddest[destIndex++] = storageD.get(iter.next());
+        ddest[destIndex++] = storageD.getDouble(iter.nextInt());
       }
     }
   }
 
+  @Override
+  public void copyTo(double[] dest, int destPos) {
+    Preconditions.checkArgument(destPos >= 0 && destPos + length() <= dest.length);
+    arraycopy(0, dest, destPos, length());
+  }
+
   @Override
   Storage<Double> storage() {
     return storageD;
@@ -85,7 +92,7 @@ public final class ArrayDouble extends ucar.array.Array<Double> {
 
   // used when the data is not in canonical order
   private class CanonicalIterator implements Iterator<Double> {
-    private final Iterator<Integer> iter = indexFn.iterator();
+    private final PrimitiveIterator.OfInt iter = indexFn.iterator();
 
     @Override
     public boolean hasNext() {
@@ -94,7 +101,7 @@ public final class ArrayDouble extends ucar.array.Array<Double> {
 
     @Override
     public Double next() {
-      return storageD.get(iter.next());
+      return storageD.get(iter.nextInt());
     }
   }
 
@@ -117,6 +124,11 @@ public final class ArrayDouble extends ucar.array.Array<Double> {
       return storage[(int) elem];
     }
 
+    @Override
+    public double getDouble(long elem) {
+      return storage[(int) elem];
+    }
+
     @Override
     public void arraycopy(int srcPos, Object dest, int destPos, long length) {
       System.arraycopy(storage, srcPos, dest, destPos, (int) length);
@@ -178,6 +190,14 @@ public final class ArrayDouble extends ucar.array.Array<Double> {
       return array.get((int) (elem - arrayEdge[arrayIndex]));
     }
 
+    @Override
+    public double getDouble(long elem) {
+      int search = Arrays.binarySearch(arrayEdge, elem);
+      int arrayIndex = (search < 0) ? -search - 2 : search;
+      Storage<Double> array = dataArrays.get(arrayIndex);
+      return array.getDouble(elem - arrayEdge[arrayIndex]);
+    }
+
     @Override
     public void arraycopy(int srcPos, Object dest, int destPos, long length) {
       long needed = length;
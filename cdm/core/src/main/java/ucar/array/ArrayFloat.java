@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
 import javax.annotation.concurrent.Immutable;
 import ucar.ma2.DataType;
 
@@ -66,9 +67,9 @@ public final class ArrayFloat extends Array<Float> {
     } else {
       float[] ddest = (float[]) dest;
       int destIndex = destPos;
-      Iterator<Integer> iter = indexFn.iterator(srcPos, length);
+      PrimitiveIterator.OfInt iter = indexFn.iterator(srcPos, length);
       while (iter.hasNext()) {
-        ddest[destIndex++] = storageF.get(iter.next());
+        ddest[destIndex++] = (float) storageF.getDouble(iter.nextInt()); // float -> double -> float is exact
       }
     }
   }
@@ -86,7 +87,7 @@ public final class ArrayFloat extends Array<Float> {
 
   private class CanonicalIterator implements Iterator<Float> {
     // used when the data is not in canonical order
-    private final Iterator<Integer> iter = indexFn.iterator();
+    private final PrimitiveIterator.OfInt iter = indexFn.iterator();
 
     @Override
     public boolean hasNext() {
@@ -95,7 +96,7 @@ public final class ArrayFloat extends Array<Float> {
 
     @Override
     public Float next() {
-      return storageF.get(iter.next());
+      return storageF.get(iter.nextInt());
     }
   }
 
@@ -117,6 +118,11 @@ public final class ArrayFloat extends Array<Float> {
       return storage[(int) elem];
     }
 
+    @Override
+    public double getDouble(long elem) {
+      return storage[(int) elem];
+    }
+
     @Override
     public void arraycopy(int srcPos, Object dest, int destPos, long length) {
       System.arraycopy(storage, srcPos, dest, destPos, (int) length);
@@ -176,6 +182,14 @@ public final class ArrayFloat extends Array<Float> {
       return storage.get((int) (elem - arrayEdge[arrayIndex]));
     }
 
+    @Override
+    public double getDouble(long elem) {
+      int search = Arrays.binarySearch(arrayEdge, elem);
+      int arrayIndex = (search < 0) ? -search - 2 : search;
+      Storage<Float> storage = dataArrays.get(arrayIndex);
+      return storage.getDouble(elem - arrayEdge[arrayIndex]);
+    }
+
     @Override
     public void arraycopy(int srcPos, Object dest, int destPos, long length) {
       long needed = length;
@@ -6,6 +6,7 @@ package ucar.array;
 
 import com.google.common.base.Preconditions;
 import java.util.Iterator;
+import java.util.PrimitiveIterator;
 import javax.annotation.concurrent.Immutable;
 import ucar.ma2.DataType;
 
@@ -61,9 +62,9 @@ public final class ArrayShort extends Array<Short> {
     } else {
       short[] ddest = (short[]) dest;
       int destIndex = destPos;
-      Iterator<Integer> iter = indexFn.iterator(srcPos, length);
+      PrimitiveIterator.OfInt iter = indexFn.iterator(srcPos, length);
       while (iter.hasNext()) {
-        ddest[destIndex++] = storage.get(iter.next());
+        ddest[destIndex++] = storage.get(iter.nextInt());
       }
     }
   }
@@ -81,7 +82,7 @@ public final class ArrayShort extends Array<Short> {
 
   // used when the data is not in canonical order
   private class CanonicalIterator implements Iterator<Short> {
-    private final Iterator<Integer> iter = indexFn.iterator();
+    private final PrimitiveIterator.OfInt iter = indexFn.iterator();
 
     @Override
     public boolean hasNext() {
@@ -90,7 +91,7 @@ public final class ArrayShort extends Array<Short> {
 
     @Override
     public Short next() {
-      return storage.get(iter.next());
+      return storage.get(iter.nextInt());
     }
   }
 
@@ -113,6 +114,11 @@ public final class ArrayShort extends Array<Short> {
       return storage[(int) elem];
     }
 
+    @Override
+    public double getDouble(long elem) {
+      return storage[(int) elem];
+    }
+
     @Override
     public void arraycopy(int srcPos, Object dest, int destPos, long length) {
       System.arraycopy(storage, srcPos, dest, destPos, (int) length);
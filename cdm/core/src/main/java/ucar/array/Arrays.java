@@ -6,6 +6,7 @@ package ucar.array;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.PrimitiveIterator;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.base.Preconditions;
@@ -402,84 +403,48 @@ public class Arrays {
     return newshape;
   }
 
+  /** Copy the values into a new java primitive array (or String[]) of the appropriate type, in canonical order. */
   public static Object copyPrimitiveArray(Array<?> data) {
     DataType dataType = data.getDataType();
-    int idx = 0;
+    int length = (int) data.length();
+    Object parray;
     switch (dataType) {
       case ENUM1:
       case UBYTE:
-      case BYTE: {
-        Array<Byte> bdata = (Array<Byte>) data;
-        byte[] parray = new byte[(int) data.length()];
-        for (byte val : bdata) {
-          parray[idx++] = val;
-        }
-        return parray;
-      }
-      case CHAR: {
-        Array<Character> cdata = (Array<Character>) data;
-        char[] parray = new char[(int) data.length()];
-        for (char val : cdata) {
-          parray[idx++] = val;
-        }
-        return parray;
-      }
+      case BYTE:
+        parray = new byte[length];
+        break;
+      case CHAR:
+        parray = new char[length];
+        break;
       case ENUM2:
       case USHORT:
-      case SHORT: {
-        Array<Short> sdata = (Array<Short>) data;
-        short[] parray = new short[(int) data.length()];
-        for (short val : sdata) {
-          parray[idx++] = val;
-        }
-        return parray;
-      }
+      case SHORT:
+        parray = new short[length];
+        break;
       case ENUM4:
       case UINT:
-      case INT: {
-        Array<Integer> idata = (Array<Integer>) data;
-        int[] parray = new int[(int) data.length()];
-        for (int val : idata) {
-          parray[idx++] = val;
-        }
-        return parray;
-      }
+      case INT:
+        parray = new int[length];
+        break;
       case ULONG:
-      case LONG: {
-        Array<Long> ldata = (Array<Long>) data;
-        long[] parray = new long[(int) data.length()];
-        for (long val : ldata) {
-          parray[idx++] = val;
-        }
-        return parray;
-      }
-      case FLOAT: {
-        Array<Float> fdata = (Array<Float>) data;
-        float[] parray = new float[(int) data.length()];
-        for (float val : fdata) {
-          parray[idx++] = val;
-        }
-        return parray;
-      }
-      case DOUBLE: {
-        Array<Double> ddata = (Array<Double>) data;
-        double[] parray = new double[(int) data.length()];
-        for (double val : ddata) {
-          parray[idx++] = val;
-        }
-        return parray;
-      }
-      case STRING: {
-        Array<String> sdata = (Array<String>) data;
-        String[] parray = new String[(int) data.length()];
-        for (String val : sdata) {
-          parray[idx++] = val;
-        }
-        return parray;
-      }
+      case LONG:
+        parray = new long[length];
+        break;
+      case FLOAT:
+        parray = new float[length];
+        break;
+      case DOUBLE:
+        parray = new double[length];
+        break;
+      case STRING:
+        parray = new String[length];
+        break;
       default:
         throw new IllegalStateException("Unimplemented datatype " + dataType);
     }
+    data.arraycopy(0, parray, 0, length);
+    return parray;
   }
 
   /** Convert a numeric array to double values. */
@@ -487,13 +452,9 @@ public class Arrays {
     if (array instanceof ArrayDouble) {
       return (Array<Double>) array;
     }
-    Array<Number> conv = (Array<Number>) array;
     int n = (int) array.length();
     double[] storage = new double[n];
-    int count = 0;
-    for (Number val : conv) {
-      storage[count++] = val.doubleValue();
-    }
+    array.copyTo(storage, 0);
     return factory(DataType.DOUBLE, new int[] {n}, storage);
   }
 
@@ -515,31 +476,19 @@ public class Arrays {
 
   public static MinMax getMinMaxSkipMissingData(Array<? extends Number> a, IsMissingEvaluator eval) {
     Preconditions.checkNotNull(a);
-    boolean hasEval = (eval == null || !eval.hasMissing());
+    boolean hasEval = (eval != null && eval.hasMissing());
     double max = -Double.MAX_VALUE;
     double min = Double.MAX_VALUE;
-    if (a instanceof ArrayDouble) {
-      ArrayDouble ad = (ArrayDouble) a;
-      for (double val : ad) {
-        if (hasEval && eval.isMissing(val)) {
-          continue;
-        }
-        if (val > max)
-          max = val;
-        if (val < min)
-          min = val;
-      }
-    } else {
-      for (Number number : a) {
-        double val = number.doubleValue();
-        if (hasEval && eval.isMissing(val)) {
-          continue;
-        }
-        if (val > max)
-          max = val;
-        if (val < min)
-          min = val;
-      }
+    PrimitiveIterator.OfDouble iter = a.doubleIterator();
+    while (iter.hasNext()) {
+      double val = iter.nextDouble();
+      if (hasEval && eval.isMissing(val)) {
+        continue;
+      }
+      if (val > max)
+        max = val;
+      if (val < min)
+        min = val;
     }
     return MinMax.create(min, max);
   }
@@ -6,8 +6,8 @@ package ucar.array;
 
 import com.google.common.base.Preconditions;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import javax.annotation.concurrent.Immutable;
 import ucar.ma2.InvalidRangeException;
@@ -69,11 +69,11 @@ final class IndexFn implements Iterable<Integer> {
     return shape[index];
   }
 
-  public Iterator<Integer> iterator() {
+  public PrimitiveIterator.OfInt iterator() {
     return new Odometer();
   }
 
-  public Iterator<Integer> iterator(int start, long length) {
+  public PrimitiveIterator.OfInt iterator(int start, long length) {
     return new Odometer(start, length);
   }
 
@@ -391,7 +391,7 @@ final class IndexFn implements Iterable<Integer> {
     return odometer;
   }
 
-  private class Odometer implements Iterator<Integer> {
+  private class Odometer implements PrimitiveIterator.OfInt {
     private final long nelems;
     private final int[] current;
     private int count = 0;
@@ -413,7 +413,7 @@ final class IndexFn implements Iterable<Integer> {
       return count++ < nelems;
     }
 
-    public Integer next() {
+    public int nextInt() {
       int result = nextIndex;
       nextIndex = incr();
       return result;
@@ -23,4 +23,12 @@ public interface Storage<T> extends Iterable<T> {
    * @param length copy these number of elements.
    */
   void arraycopy(int srcPos, Object dest, int destPos, long length);
+
+  /**
+   * Get the ith element as a double, for numeric types only.
+   * The standard storage classes override this to avoid boxing.
+   */
+  default double getDouble(long elem) {
+    return ((Number) get(elem)).doubleValue();
+  }
 }
@@ -6,6 +6,7 @@ package ucar.array;
 
 import com.google.common.base.Preconditions;
 import java.util.Iterator;
+import java.util.PrimitiveIterator;
 import java.util.List;
 import javax.annotation.concurrent.Immutable;
 import ucar.ma2.DataType;
@@ -94,7 +95,7 @@ public final class StructureDataArray extends Array<StructureData> {
 
   private class CanonicalIterator implements Iterator<StructureData> {
     // used when the data is not in canonical order
-    private final Iterator<Integer> iter = indexFn.iterator();
+    private final PrimitiveIterator.OfInt iter = indexFn.iterator();
 
     @Override
     public boolean hasNext() {
@@ -103,7 +104,7 @@ public final class StructureDataArray extends Array<StructureData> {
 
     @Override
     public StructureData next() {
-      return storage.get(iter.next());
+      return storage.get(iter.nextInt());
     }
   }
 
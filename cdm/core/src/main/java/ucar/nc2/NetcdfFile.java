@@ -40,7 +40,7 @@ import ucar.nc2.write.NcmlWriter;
  * <p>
  * Read-only scientific datasets that are accessible through the netCDF API.
  * Immutable after {@code setImmutable()} is called. Reading data is not
- * thread-safe because of the use of {@code RandomAccessFile}.
+ * thread-safe because of the use of {@code RandomAccessFile}, unless {@code isThreadSafe()} is true.
  * <p>
  * Using this class's {@code Builder} scheme to create a {@code NetcdfFile} object could, for
  * example, be accomplished as follows, using a try/finally block to ensure that the
@@ -388,6 +388,15 @@ public class NetcdfFile implements FileCacheable, Closeable {
     return null;
   }
 
+  /**
+   * Whether the data may be read by many threads at once, see IOServiceProvider.isThreadSafe().
+   * If so, one open NetcdfFile can be shared by concurrent readers, instead of opening one for each.
+   * The cached data of the Variables is shared, and must not be modified.
+   */
+  public boolean isThreadSafe() {
+    return iosp != null && iosp.isThreadSafe();
+  }
+
   /**
    * Get a human-readable description for this file type.
    *
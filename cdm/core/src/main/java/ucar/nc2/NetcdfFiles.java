@@ -20,24 +20,28 @@ import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import javax.annotation.Nullable;
-import ucar.nc2.internal.iosp.netcdf3.N3header;
 import ucar.nc2.internal.iosp.netcdf3.N3iosp;
 import ucar.nc2.internal.util.StringLocker;
 import ucar.nc2.internal.util.URLnaming;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
 import ucar.nc2.iosp.IOServiceProvider;
+import ucar.nc2.iosp.MagicNumber;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.internal.util.DiskCache;
 import ucar.nc2.internal.util.EscapeStrings;
 import ucar.nc2.util.IO;
 import ucar.unidata.io.UncompressInputStream;
 import ucar.unidata.io.bzip2.CBZip2InputStream;
+import ucar.unidata.io.compress.CompressedRandomAccessFile;
 import ucar.unidata.io.spi.RandomAccessFileProvider;
 import ucar.unidata.util.StringUtil2;
 
@@ -56,7 +60,14 @@ public class NetcdfFiles {
   private static final StringLocker stringLocker = new StringLocker();
   private static final List<String> possibleCompressedSuffixes = Arrays.asList("Z", "zip", "gzip", "gz", "bz2");
   private static boolean loadWarnings = false;
+  private static boolean readCompressedInPlace = false;
+  private static long maxSeekDistance = CompressedRandomAccessFile.DEFAULT_MAX_SEEK_DISTANCE;
   private static boolean userLoadsFirst;
+  private static final int headerBlockSize = 4096; // read this much of the file once to match magic numbers
+
+  // loaded by the ServiceLoader the first time they are needed
+  private static List<IOServiceProvider> loadedProviders;
+  private static List<RandomAccessFileProvider> loadedRandomAccessFileProviders;
 
   // load core service providers
   static {
@@ -96,6 +107,13 @@ public class NetcdfFiles {
         log.info("Cant load class InMemoryRandomAccessFileProvider", e);
     }
 
+    try {
+      registerRandomAccessFileProvider("ucar.unidata.io.MappedRandomAccessFile$Provider");
+    } catch (Throwable e) {
+      if (loadWarnings)
+        log.info("Cant load class MappedRandomAccessFileProvider", e);
+    }
+
     // if a user explicitly registers an IOSP or RandomAccessFile implementation via
     // registerIOProvider or registerRandomAccessFileProvider, this ensures they are tried first,
     // even before the core implementations.
@@ -199,6 +217,30 @@ public class NetcdfFiles {
     }
   }
 
+  /**
+   * Set whether local gzip and bzip2 files are read in place with a CompressedRandomAccessFile, instead of being
+   * uncompressed to a file first. Default is false.
+   * Reading in place makes a seek index, and writes it next to the file or in the DiskCache.
+   *
+   * @param readInPlace true to read in place
+   * @param maxSeekDistance a file is still uncompressed if more uncompressed data than this follows one of its
+   *        seek points, eg a gzip file with a single member, since reading it backwards could mean decompressing it
+   *        again from the start. See CompressedRandomAccessFile.getMaxSeekDistance().
+   */
+  public static void setReadCompressedInPlace(boolean readInPlace, long maxSeekDistance) {
+    readCompressedInPlace = readInPlace;
+    NetcdfFiles.maxSeekDistance = maxSeekDistance;
+  }
+
+  /**
+   * Set whether local gzip and bzip2 files are read in place, using the default maximum seek distance.
+   *
+   * @see #setReadCompressedInPlace(boolean, long)
+   */
+  public static void setReadCompressedInPlace(boolean readInPlace) {
+    setReadCompressedInPlace(readInPlace, CompressedRandomAccessFile.DEFAULT_MAX_SEEK_DISTANCE);
+  }
+
   ///////////////////////////////////////////////////////////////////////////////////////////////
 
   /**
@@ -250,9 +292,12 @@ public class NetcdfFiles {
    *        <li>local netcdf-4 filename (with a file: prefix or no prefix)
    *        <li>local hdf-5 filename (with a file: prefix or no prefix)
    *        <li>local iosp filename (with a file: prefix or no prefix)
+   *        <li>local filename with an mmap: prefix, read through a memory mapping (see MappedRandomAccessFile)
    *        </ol>
-   *        If file ends with ".Z", ".zip", ".gzip", ".gz", or ".bz2", it will uncompress/unzip and write to new file
-   *        without the suffix,
+   *        If a local file ends with ".gzip", ".gz", or ".bz2", it is read without decompressing it to disk, using
+   *        a seek index written next to it (see CompressedRandomAccessFile).
+   *        Otherwise, if file ends with ".Z", ".zip", ".gzip", ".gz", or ".bz2", it will uncompress/unzip and write to new
+   *        file without the suffix,
    *        then use the uncompressed file. It will look for the uncompressed file before it does any of that. Generally
    *        it prefers to
    *        place the uncompressed file in the same directory as the original file. If it does not have write permission
@@ -369,7 +414,7 @@ public class NetcdfFiles {
 
     if (raf == null) {
       // look for dynamically loaded RandomAccessFile Providers
-      for (RandomAccessFileProvider provider : ServiceLoader.load(RandomAccessFileProvider.class)) {
+      for (RandomAccessFileProvider provider : getLoadedRandomAccessFileProviders()) {
         if (provider.isOwnerOf(location)) {
           raf = provider.open(location);
           Preconditions.checkNotNull(raf);
@@ -392,6 +437,26 @@ public class NetcdfFiles {
         uriString = StringUtil2.unescape(uriString.substring(5)); // 11/10/2010 from erussell@ngs.org
       }
 
+      // if asked, gzip and bzip2 are read in place, using a seek index, unless they have too few seek points
+      if (readCompressedInPlace && CompressedRandomAccessFile.isCompressed(uriString)
+          && new File(uriString).exists()) {
+        try {
+          stringLocker.control(uriString); // Avoid making the seek index in two threads at once
+          CompressedRandomAccessFile craf = new CompressedRandomAccessFile(uriString, buffer_size);
+          if (NetcdfFile.debugCompress)
+            log.info("opened {} with {} seek points", uriString, craf.getNumberOfSeekPoints());
+          if (craf.getMaxSeekDistance() <= maxSeekDistance) {
+            return craf;
+          }
+          craf.close();
+          log.debug("Too few seek points in {}; uncompress it.", uriString);
+        } catch (IOException e) {
+          log.warn("Failed to open compressed {}, err= {}; try to uncompress it.", uriString, e.getMessage());
+        } finally {
+          stringLocker.release(uriString);
+        }
+      }
+
       String uncompressedFileName = null;
       if (looksCompressed(uriString)) {
         try {
@@ -699,44 +764,137 @@ public class NetcdfFiles {
   private static IOServiceProvider getIosp(ucar.unidata.io.RandomAccessFile raf) throws IOException {
     if (NetcdfFile.debugSPI)
       log.info("NetcdfFile try to open = {}", raf.getLocation());
+    FileHeader header = new FileHeader(raf);
 
     // Registered providers override defaults.
     for (IOServiceProvider registeredSpi : registeredProviders) {
       if (NetcdfFile.debugSPI)
         log.info(" try iosp = {}", registeredSpi.getClass().getName());
 
-      if (registeredSpi.isValidFile(raf)) {
+      if (isValidFile(registeredSpi, raf, header)) {
         // need a new instance for thread safety
-        Class<?> c = registeredSpi.getClass();
-        try {
-          return (IOServiceProvider) c.newInstance();
-        } catch (InstantiationException e) {
-          throw new IOException("IOServiceProvider " + c.getName() + "must have no-arg constructor.");
-        } catch (IllegalAccessException e) {
-          throw new IOException("IOServiceProvider " + c.getName() + " IllegalAccessException: " + e.getMessage());
+        return newInstance(registeredSpi);
+      }
+    }
+
+    N3iosp n3iosp = new N3iosp();
+    if (isValidFile(n3iosp, raf, header)) {
+      return n3iosp;
+    }
+
+    // look for dynamically loaded IOSPs
+    for (IOServiceProvider loadedSpi : getLoadedProviders()) {
+      if (isValidFile(loadedSpi, raf, header)) {
+        return newInstance(loadedSpi);
+      }
+    }
+    return null;
+  }
+
+  // only call isValidFile() if the iosp doesnt have magic numbers, or a match isnt conclusive
+  private static boolean isValidFile(IOServiceProvider spi, ucar.unidata.io.RandomAccessFile raf, FileHeader header)
+      throws IOException {
+    List<MagicNumber> magicNumbers = spi.getMagicNumbers();
+    if (magicNumbers.isEmpty()) {
+      return spi.isValidFile(raf);
+    }
+
+    boolean candidate = false;
+    for (MagicNumber magic : magicNumbers) {
+      if (header.matches(magic)) {
+        if (magic.isConclusive()) {
+          return true;
         }
+        candidate = true;
       }
     }
+    return candidate && spi.isValidFile(raf);
+  }
 
-    if (N3header.isValidFile(raf)) {
-      return new N3iosp();
+  private static IOServiceProvider newInstance(IOServiceProvider prototype) throws IOException {
+    Class<?> c = prototype.getClass();
+    try {
+      return (IOServiceProvider) c.newInstance();
+    } catch (InstantiationException e) {
+      throw new IOException("IOServiceProvider " + c.getName() + "must have no-arg constructor.");
+    } catch (IllegalAccessException e) {
+      throw new IOException("IOServiceProvider " + c.getName() + " IllegalAccessException: " + e.getMessage());
+    }
+  }
 
-    } else {
-      // look for dynamically loaded IOSPs
+  private static synchronized List<IOServiceProvider> getLoadedProviders() {
+    if (loadedProviders == null) {
+      List<IOServiceProvider> providers = new ArrayList<>();
       for (IOServiceProvider loadedSpi : ServiceLoader.load(IOServiceProvider.class)) {
-        if (loadedSpi.isValidFile(raf)) {
-          Class<?> c = loadedSpi.getClass();
-          try {
-            return (IOServiceProvider) c.newInstance();
-          } catch (InstantiationException e) {
-            throw new IOException("IOServiceProvider " + c.getName() + "must have no-arg constructor.");
-          } catch (IllegalAccessException e) {
-            throw new IOException("IOServiceProvider " + c.getName() + " IllegalAccessException: " + e.getMessage());
-          }
+        providers.add(loadedSpi);
+      }
+      loadedProviders = Collections.unmodifiableList(providers);
+    }
+    return loadedProviders;
+  }
+
+  private static synchronized List<RandomAccessFileProvider> getLoadedRandomAccessFileProviders() {
+    if (loadedRandomAccessFileProviders == null) {
+      List<RandomAccessFileProvider> providers = new ArrayList<>();
+      for (RandomAccessFileProvider provider : ServiceLoader.load(RandomAccessFileProvider.class)) {
+        providers.add(provider);
+      }
+      loadedRandomAccessFileProviders = Collections.unmodifiableList(providers);
+    }
+    return loadedRandomAccessFileProviders;
+  }
+
+  /** The start of a file, read once and shared by all the magic number tests. */
+  private static class FileHeader {
+    private final ucar.unidata.io.RandomAccessFile raf;
+    private byte[] block;
+    private int blockLength;
+    private Map<Long, byte[]> beyondBlock; // magic numbers past the block, by offset
+
+    FileHeader(ucar.unidata.io.RandomAccessFile raf) {
+      this.raf = raf;
+    }
+
+    boolean matches(MagicNumber magic) throws IOException {
+      if (block == null) {
+        block = new byte[headerBlockSize];
+        blockLength = read(0, block);
+      }
+      if (magic.getOffset() + magic.getLength() <= headerBlockSize) {
+        return magic.matches(block, 0, blockLength);
+      }
+      if (blockLength < headerBlockSize || magic.getOffset() + magic.getLength() > raf.length()) {
+        return false; // past the end of the file
+      }
+
+      if (beyondBlock == null) {
+        beyondBlock = new HashMap<>();
+      }
+      byte[] bytes = beyondBlock.get(magic.getOffset());
+      if (bytes == null || bytes.length < magic.getLength()) {
+        bytes = new byte[Math.max(magic.getLength(), 8)];
+        int n = read(magic.getOffset(), bytes);
+        if (n < bytes.length) {
+          bytes = Arrays.copyOf(bytes, n);
         }
+        beyondBlock.put(magic.getOffset(), bytes);
       }
+      return magic.matches(bytes, magic.getOffset(), bytes.length);
+    }
+
+    // read as much of buff as the file has
+    private int read(long pos, byte[] buff) throws IOException {
+      raf.seek(pos);
+      int total = 0;
+      while (total < buff.length) {
+        int n = raf.readBytes(buff, total, buff.length - total);
+        if (n <= 0) {
+          break;
+        }
+        total += n;
+      }
+      return total;
     }
-    return null;
   }
 
   public static NetcdfFile build(IOServiceProvider spi, ucar.unidata.io.RandomAccessFile raf, String location,
@@ -1135,7 +1135,7 @@ public class Variable implements VariableSimpleIF, ProxyReader {
   protected static class Cache {
     // this is the only source of the data, do not erase, can only be set in the builder
     private ucar.array.Array<?> srcData;
-    private ucar.array.Array<?> cacheData; // this is temporary data, may be erased, can be set by setCachedData()
+    private volatile ucar.array.Array<?> cacheData; // temporary data, may be erased, can be set by setCachedData()
     private Integer sizeToCacheBytes; // bytes
     private Boolean isCaching;
 
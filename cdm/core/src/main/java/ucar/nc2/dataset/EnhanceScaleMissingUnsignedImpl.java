@@ -4,6 +4,8 @@
  */
 package ucar.nc2.dataset;
 
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -604,4 +606,160 @@ public class EnhanceScaleMissingUnsignedImpl implements EnhanceScaleMissingUnsig
 
     return out;
   }
+
+  /**
+   * Same as convert(Array, ...), for ucar.array.Array. Reads the data as primitives in a single pass, and writes
+   * directly into the storage of the returned Array, with no intermediate copies.
+   */
+  public ucar.array.Array<?> convertArray(ucar.array.Array<?> in, boolean convertUnsigned, boolean applyScaleOffset,
+      boolean convertMissing) {
+    DataType inType = in.getDataType();
+    if (!inType.isNumeric() || (!convertUnsigned && !applyScaleOffset && !convertMissing)) {
+      return in; // Nothing to do!
+    }
+
+    if (getSignedness() == Signedness.SIGNED) {
+      convertUnsigned = false;
+    }
+    if (!hasScaleOffset()) {
+      applyScaleOffset = false;
+    }
+
+    DataType outType = origDataType;
+    if (convertUnsigned) {
+      outType = getUnsignedConversionType();
+    }
+    if (applyScaleOffset) {
+      outType = getScaledOffsetType();
+    }
+
+    if (outType != DataType.FLOAT && outType != DataType.DOUBLE) {
+      convertMissing = false;
+    }
+    if (!convertUnsigned && !applyScaleOffset && !convertMissing) {
+      return in; // values are unchanged, and the ucar.array.Array is immutable
+    }
+
+    // the amount to add to a negative value to make it unsigned
+    double unsignedWidth = 0.0;
+    PrimitiveIterator.OfDouble iterIn;
+    if (inType.getSize() == 8) { // a double cant hold every long
+      iterIn = (inType == DataType.DOUBLE) ? in.doubleIterator() : new LongIterator(in, convertUnsigned);
+    } else {
+      iterIn = in.doubleIterator();
+      if (convertUnsigned && inType.isIntegral()) {
+        unsignedWidth = Math.pow(2, 8 * inType.getSize());
+      }
+    }
+
+    int n = (int) in.length();
+    Object storage;
+    switch (outType) {
+      case DOUBLE: {
+        double[] pa = new double[n];
+        for (int i = 0; i < n; i++) {
+          pa[i] = convertValue(iterIn.nextDouble(), unsignedWidth, applyScaleOffset, convertMissing);
+        }
+        storage = pa;
+        break;
+      }
+      case FLOAT: {
+        float[] pa = new float[n];
+        for (int i = 0; i < n; i++) {
+          pa[i] = (float) convertValue(iterIn.nextDouble(), unsignedWidth, applyScaleOffset, convertMissing);
+        }
+        storage = pa;
+        break;
+      }
+      case LONG:
+      case ULONG: {
+        long[] pa = new long[n];
+        if (applyScaleOffset) {
+          for (int i = 0; i < n; i++) {
+            pa[i] = (long) convertValue(iterIn.nextDouble(), unsignedWidth, applyScaleOffset, convertMissing);
+          }
+        } else {
+          // only unsigned widening, done exactly: a double cant hold every long
+          Iterator<?> iter = in.iterator();
+          long unsignedBits = (convertUnsigned && inType.getSize() < 8) ? 1L << (8 * inType.getSize()) : 0;
+          for (int i = 0; i < n; i++) {
+            long value = ((Number) iter.next()).longValue();
+            pa[i] = (value < 0) ? value + unsignedBits : value;
+          }
+        }
+        storage = pa;
+        break;
+      }
+      case INT:
+      case UINT: {
+        int[] pa = new int[n];
+        for (int i = 0; i < n; i++) {
+          pa[i] = (int) convertValue(iterIn.nextDouble(), unsignedWidth, applyScaleOffset, convertMissing);
+        }
+        storage = pa;
+        break;
+      }
+      case SHORT:
+      case USHORT: {
+        short[] pa = new short[n];
+        for (int i = 0; i < n; i++) {
+          pa[i] = (short) convertValue(iterIn.nextDouble(), unsignedWidth, applyScaleOffset, convertMissing);
+        }
+        storage = pa;
+        break;
+      }
+      case BYTE:
+      case UBYTE: {
+        byte[] pa = new byte[n];
+        for (int i = 0; i < n; i++) {
+          pa[i] = (byte) convertValue(iterIn.nextDouble(), unsignedWidth, applyScaleOffset, convertMissing);
+        }
+        storage = pa;
+        break;
+      }
+      default:
+        throw new IllegalStateException("Unimplemented output type " + outType);
+    }
+
+    return ucar.array.Arrays.factory(outType, in.getShape(), storage);
+  }
+
+  private double convertValue(double value, double unsignedWidth, boolean applyScaleOffset, boolean convertMissing) {
+    if (value < 0) {
+      value += unsignedWidth;
+    }
+    if (applyScaleOffset) {
+      value = scale * value + offset;
+    }
+    if (convertMissing && isMissing(value)) {
+      value = Double.NaN;
+    }
+    return value;
+  }
+
+  // long and unsigned long values as doubles. Boxes, but long data is rare.
+  private static class LongIterator implements PrimitiveIterator.OfDouble {
+    private final Iterator<?> iter;
+    private final boolean isUnsigned;
+
+    LongIterator(ucar.array.Array<?> in, boolean isUnsigned) {
+      this.iter = in.iterator();
+      this.isUnsigned = isUnsigned;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return iter.hasNext();
+    }
+
+    @Override
+    public double nextDouble() {
+      long value = ((Number) iter.next()).longValue();
+      if (isUnsigned && value < 0) {
+        // same as UnsignedLong.doubleValue(): halve, keeping the low bit so that it rounds correctly
+        return ((double) ((value >>> 1) | (value & 1))) * 2.0;
+      }
+      return value;
+    }
+  }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+import java.io.IOException;
+
+/**
+ * Bitshuffle (filter id 32008), optionally combined with LZ4 or Zstd compression, as written by the HDF5
+ * bitshuffle plugin. Within each block of elements, the bits are transposed so that bit k of all the elements are
+ * stored together.
+ * Client data: [0-1] plugin version, [2] element size, [3] block size in elements (0 = default),
+ * [4] compression (0 = none, 2 = LZ4, 3 = Zstd).
+ */
+public class Bitshuffle implements Filter {
+  public static final int ID = 32008;
+  public static final int NO_COMPRESS = 0;
+  public static final int LZ4_COMPRESS = 2;
+  public static final int ZSTD_COMPRESS = 3;
+
+  private static final int TARGET_BLOCK_SIZE_BYTES = 8192;
+  private static final int BLOCKED_MULT = 8;
+  private static final int MIN_RECOMMEND_BLOCK = 128;
+
+  private final int elemSize;
+  private final int blockSize;
+  private final int compression;
+
+  /**
+   * @param elemSize size in bytes of one element
+   * @param blockSize number of elements in a block, or 0 for the default
+   * @param compression NO_COMPRESS, LZ4_COMPRESS or ZSTD_COMPRESS
+   */
+  public Bitshuffle(int elemSize, int blockSize, int compression) {
+    this.elemSize = elemSize;
+    this.blockSize = blockSize;
+    this.compression = compression;
+  }
+
+  @Override
+  public int getId() {
+    return ID;
+  }
+
+  @Override
+  public String getName() {
+    return "bitshuffle";
+  }
+
+  @Override
+  public byte[] decode(byte[] dataIn) throws IOException {
+    if (compression != NO_COMPRESS && compression != LZ4_COMPRESS && compression != ZSTD_COMPRESS) {
+      throw new IOException("Bitshuffle: unknown compression " + compression);
+    }
+
+    int inPos = 0;
+    long nbytes;
+    int block;
+    if (compression == NO_COMPRESS) {
+      nbytes = dataIn.length;
+      block = (blockSize > 0) ? blockSize : defaultBlockSize(elemSize);
+    } else {
+      nbytes = Lz4.readLongBE(dataIn, 0);
+      block = Lz4.readIntBE(dataIn, 8) / elemSize;
+      inPos = 12;
+    }
+    if (nbytes < 0 || nbytes > Integer.MAX_VALUE - 8) {
+      throw new IOException("Bitshuffle: illegal uncompressed size " + nbytes);
+    }
+    if (block <= 0 || block % BLOCKED_MULT != 0) {
+      throw new IOException("Bitshuffle: illegal block size " + block);
+    }
+
+    byte[] result = new byte[(int) nbytes];
+    int size = (int) (nbytes / elemSize); // number of elements
+    byte[] tmp = (compression == NO_COMPRESS) ? null : new byte[block * elemSize];
+    int outPos = 0;
+
+    int nfull = size / block;
+    int lastBlock = size % block;
+    lastBlock -= lastBlock % BLOCKED_MULT;
+    for (int b = 0; b <= nfull; b++) {
+      int n = (b < nfull) ? block : lastBlock;
+      if (n == 0) {
+        break;
+      }
+      int blockBytes = n * elemSize;
+      if (compression == NO_COMPRESS) {
+        untransposeBits(dataIn, inPos, result, outPos, n, elemSize);
+        inPos += blockBytes;
+      } else {
+        int compressedSize = Lz4.readIntBE(dataIn, inPos);
+        inPos += 4;
+        if (compressedSize < 0 || inPos + compressedSize > dataIn.length) {
+          throw new IOException("Bitshuffle: illegal compressed block size " + compressedSize);
+        }
+        int got;
+        if (compression == LZ4_COMPRESS) {
+          got = Lz4.decompressBlock(dataIn, inPos, compressedSize, tmp, 0, blockBytes);
+        } else {
+          byte[] decoded = Zstd.decompress(dataIn, inPos, inPos + compressedSize, blockBytes);
+          got = Math.min(decoded.length, blockBytes);
+          System.arraycopy(decoded, 0, tmp, 0, got);
+        }
+        if (got != blockBytes) {
+          throw new IOException("Bitshuffle: block uncompressed to " + got + " bytes, expected " + blockBytes);
+        }
+        untransposeBits(tmp, 0, result, outPos, n, elemSize);
+        inPos += compressedSize;
+      }
+      outPos += blockBytes;
+    }
+
+    // the leftover elements, and any partial element, are copied as is
+    int leftover = (int) nbytes - outPos;
+    if (inPos + leftover > dataIn.length) {
+      throw new IOException("Bitshuffle: data truncated");
+    }
+    System.arraycopy(dataIn, inPos, result, outPos, leftover);
+    return result;
+  }
+
+  static int defaultBlockSize(int elemSize) {
+    int block = TARGET_BLOCK_SIZE_BYTES / elemSize;
+    block = (block / BLOCKED_MULT) * BLOCKED_MULT;
+    return Math.max(block, MIN_RECOMMEND_BLOCK);
+  }
+
+  /**
+   * Undo the bit transpose of one block.
+   * In the shuffled data, bit k of byte j of all the elements forms row (8 * j + k), with element i stored in bit
+   * (i % 8) of byte (i / 8) of the row.
+   *
+   * @param in shuffled data
+   * @param inPos starting here
+   * @param out unshuffled data, must be zero
+   * @param outPos starting here
+   * @param n number of elements in the block, a multiple of 8
+   * @param elemSize size in bytes of one element
+   */
+  static void untransposeBits(byte[] in, int inPos, byte[] out, int outPos, int n, int elemSize) {
+    int rowBytes = n / 8;
+    for (int j = 0; j < elemSize; j++) {
+      for (int k = 0; k < 8; k++) {
+        int rowStart = inPos + (8 * j + k) * rowBytes;
+        int bit = 1 << k;
+        for (int m = 0; m < rowBytes; m++) {
+          int b = in[rowStart + m];
+          if (b == 0) {
+            continue;
+          }
+          int dest = outPos + 8 * m * elemSize + j;
+          for (int p = 0; p < 8; p++) {
+            if ((b & (1 << p)) != 0) {
+              out[dest] |= bit;
+            }
+            dest += elemSize;
+          }
+        }
+      }
+    }
+  }
+
+  static class Provider implements FilterProvider {
+    @Override
+    public int getId() {
+      return ID;
+    }
+
+    @Override
+    public String getName() {
+      return "bitshuffle";
+    }
+
+    @Override
+    public Filter create(int[] clientData, int elemSize, int chunkSize) {
+      int esize = (clientData.length > 2 && clientData[2] > 0) ? clientData[2] : elemSize;
+      int block = (clientData.length > 3) ? clientData[3] : 0;
+      int compression = (clientData.length > 4) ? clientData[4] : NO_COMPRESS;
+      return new Bitshuffle(esize, block, compression);
+    }
+  }
+}
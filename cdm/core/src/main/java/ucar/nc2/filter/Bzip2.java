@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import ucar.unidata.io.bzip2.BZip2ReadException;
+import ucar.unidata.io.bzip2.CBZip2InputStream;
+
+/** bzip2 (filter id 307), using ucar.unidata.io.bzip2. */
+public class Bzip2 implements Filter {
+  public static final int ID = 307;
+
+  private final int sizeHint;
+
+  /** @param sizeHint the expected size of the uncompressed data, or <= 0 if unknown. */
+  public Bzip2(int sizeHint) {
+    this.sizeHint = sizeHint;
+  }
+
+  @Override
+  public int getId() {
+    return ID;
+  }
+
+  @Override
+  public String getName() {
+    return "bzip2";
+  }
+
+  @Override
+  public byte[] decode(byte[] compressed) throws IOException {
+    if (compressed.length < 2 || compressed[0] != 'B' || compressed[1] != 'Z') {
+      throw new IOException("Not a bzip2 stream");
+    }
+    ByteArrayInputStream in = new ByteArrayInputStream(compressed);
+    byte[] result = new byte[Math.max(sizeHint > 0 ? sizeHint : 4 * compressed.length, 1)];
+    int count = 0;
+    try {
+      CBZip2InputStream bzIn = new CBZip2InputStream(in, true); // skips the "BZ"
+      int n;
+      while ((n = bzIn.read(result, count, result.length - count)) != -1) {
+        count += n;
+        if (count == result.length) { // only grow if there is more, so an exact sizeHint is not copied
+          int b = bzIn.read();
+          if (b == -1) {
+            break;
+          }
+          result = Arrays.copyOf(result, 2 * result.length);
+          result[count++] = (byte) b;
+        }
+      }
+    } catch (BZip2ReadException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+    return (count == result.length) ? result : Arrays.copyOf(result, count);
+  }
+
+  static class Provider implements FilterProvider {
+    @Override
+    public int getId() {
+      return ID;
+    }
+
+    @Override
+    public String getName() {
+      return "bzip2";
+    }
+
+    @Override
+    public Filter create(int[] clientData, int elemSize, int chunkSize) {
+      return new Bzip2(chunkSize);
+    }
+  }
+}
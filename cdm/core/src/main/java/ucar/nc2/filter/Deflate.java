@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * zlib deflate (filter id 1).
+ * Inflates directly into a result array sized from the expected chunk size, so normally there is no
+ * intermediate buffer or copy. The Inflater is reused per thread.
+ */
+public class Deflate implements Filter {
+  public static final int ID = 1;
+  // Copied from ArrayList.
+  private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
+
+  private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+  private final int sizeHint;
+
+  /** @param sizeHint the expected size of the inflated data, or <= 0 if unknown. */
+  public Deflate(int sizeHint) {
+    this.sizeHint = sizeHint;
+  }
+
+  @Override
+  public int getId() {
+    return ID;
+  }
+
+  @Override
+  public String getName() {
+    return "deflate";
+  }
+
+  @Override
+  public byte[] decode(byte[] compressed) throws IOException {
+    Inflater inflater = inflaters.get();
+    inflater.reset();
+    inflater.setInput(compressed);
+
+    int size = (sizeHint > 0) ? sizeHint : (int) Math.min(8L * compressed.length, MAX_ARRAY_LEN);
+    byte[] result = new byte[Math.max(size, 1)];
+    int count = 0;
+    try {
+      while (!inflater.finished()) {
+        if (count == result.length) { // sizeHint was too small
+          int newSize = (int) Math.min(2L * result.length, MAX_ARRAY_LEN);
+          if (newSize == result.length) {
+            throw new IOException("Inflated data is larger than the maximum array size");
+          }
+          result = Arrays.copyOf(result, newSize);
+        }
+        int n = inflater.inflate(result, count, result.length - count);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new EOFException("Unexpected end of ZLIB input stream");
+        }
+        count += n;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e.getMessage(), e);
+    } finally {
+      inflater.reset(); // dont hold onto the input
+    }
+
+    return (count == result.length) ? result : Arrays.copyOf(result, count);
+  }
+
+  static class Provider implements FilterProvider {
+    @Override
+    public int getId() {
+      return ID;
+    }
+
+    @Override
+    public String getName() {
+      return "deflate";
+    }
+
+    @Override
+    public Filter create(int[] clientData, int elemSize, int chunkSize) {
+      return new Deflate(chunkSize);
+    }
+  }
+}
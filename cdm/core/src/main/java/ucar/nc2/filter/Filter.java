@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+import java.io.IOException;
+
+/**
+ * Reverses one filter of a chunk's filter pipeline, eg uncompresses it.
+ * A Filter is created for one variable, and may be called from multiple threads at once.
+ */
+public interface Filter {
+
+  /** The HDF5 registered filter id. */
+  int getId();
+
+  /** A short name for the filter. */
+  String getName();
+
+  /**
+   * Undo the filter.
+   *
+   * @param dataIn the filtered data. May be modified, or returned if nothing needs to change.
+   * @return the unfiltered data.
+   * @throws IOException if the data is corrupt.
+   */
+  byte[] decode(byte[] dataIn) throws IOException;
+}
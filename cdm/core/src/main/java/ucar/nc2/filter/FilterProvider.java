@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+/**
+ * A Service Provider of Filter, for one HDF5 filter id.
+ * Found by the ServiceLoader, or added with Filters.registerFilter().
+ */
+public interface FilterProvider {
+
+  /** The HDF5 registered filter id. */
+  int getId();
+
+  /** A short name for the filter. */
+  String getName();
+
+  /**
+   * Create a Filter for one variable.
+   *
+   * @param clientData the filter's client data values, as stored in the file.
+   * @param elemSize size in bytes of one element of the variable.
+   * @param chunkSize the size in bytes of one unfiltered chunk, may be used to size output buffers.
+   */
+  Filter create(int[] clientData, int elemSize, int chunkSize);
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Registry of the FilterProviders, keyed by HDF5 filter id.
+ * The built-in filters are registered first, then any found by the ServiceLoader, then any added with
+ * registerFilter(). A later registration of the same id replaces an earlier one.
+ */
+@ThreadSafe
+public class Filters {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Filters.class);
+
+  private static final Map<Integer, FilterProvider> providers = new HashMap<>();
+
+  static {
+    register(new Deflate.Provider());
+    register(new Shuffle.Provider());
+    register(new Fletcher32.Provider());
+    register(new Bzip2.Provider());
+    register(new Lz4.Provider());
+    register(new Bitshuffle.Provider());
+    register(new Zstd.Provider());
+
+    // loaded once, not on every call to getFilter()
+    for (FilterProvider provider : ServiceLoader.load(FilterProvider.class)) {
+      log.debug("Filters: found FilterProvider {} for id {}", provider.getClass().getName(), provider.getId());
+      register(provider);
+    }
+  }
+
+  private static void register(FilterProvider provider) {
+    synchronized (providers) {
+      providers.put(provider.getId(), provider);
+    }
+  }
+
+  /** Add a FilterProvider, replacing any existing one with the same id. */
+  public static void registerFilter(FilterProvider provider) {
+    register(provider);
+  }
+
+  /** Is there a FilterProvider for this filter id? */
+  public static boolean isKnown(int id) {
+    synchronized (providers) {
+      return providers.containsKey(id);
+    }
+  }
+
+  /**
+   * Create a Filter for one variable.
+   *
+   * @param id the HDF5 filter id.
+   * @param clientData the filter's client data values, as stored in the file.
+   * @param elemSize size in bytes of one element of the variable.
+   * @param chunkSize the size in bytes of one unfiltered chunk.
+   * @throws UnknownFilterException if there is no FilterProvider for this id.
+   */
+  public static Filter getFilter(int id, int[] clientData, int elemSize, int chunkSize) {
+    FilterProvider provider;
+    synchronized (providers) {
+      provider = providers.get(id);
+    }
+    if (provider == null) {
+      throw new UnknownFilterException(id);
+    }
+    return provider.create(clientData, elemSize, chunkSize);
+  }
+
+  /** Thrown when a variable uses a filter that has no FilterProvider. */
+  public static class UnknownFilterException extends RuntimeException {
+    UnknownFilterException(int id) {
+      super("Unknown filter type=" + id);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+import java.util.Arrays;
+
+/** HDF5 Fletcher32 checksum (filter id 3). The checksum is stripped off, not verified. */
+public class Fletcher32 implements Filter {
+  public static final int ID = 3;
+
+  @Override
+  public int getId() {
+    return ID;
+  }
+
+  @Override
+  public String getName() {
+    return "fletcher32";
+  }
+
+  // just strip off the 4-byte fletcher32 checksum at the end
+  @Override
+  public byte[] decode(byte[] dataIn) {
+    return Arrays.copyOf(dataIn, dataIn.length - 4);
+  }
+
+  static class Provider implements FilterProvider {
+    @Override
+    public int getId() {
+      return ID;
+    }
+
+    @Override
+    public String getName() {
+      return "fletcher32";
+    }
+
+    @Override
+    public Filter create(int[] clientData, int elemSize, int chunkSize) {
+      return new Fletcher32();
+    }
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+import java.io.IOException;
+
+/**
+ * LZ4 (filter id 32004), as written by the HDF5 LZ4 plugin.
+ * The data starts with the uncompressed size (8 bytes) and the block size (4 bytes), followed by the blocks.
+ * Each block has its compressed size (4 bytes) then the LZ4 block data, or the raw data if it did not compress.
+ * All integers are big endian.
+ */
+public class Lz4 implements Filter {
+  public static final int ID = 32004;
+
+  @Override
+  public int getId() {
+    return ID;
+  }
+
+  @Override
+  public String getName() {
+    return "lz4";
+  }
+
+  @Override
+  public byte[] decode(byte[] dataIn) throws IOException {
+    if (dataIn.length < 12) {
+      throw new IOException("LZ4 data too short");
+    }
+    long origSize = readLongBE(dataIn, 0);
+    int blockSize = readIntBE(dataIn, 8);
+    if (origSize < 0 || origSize > Integer.MAX_VALUE - 8) {
+      throw new IOException("LZ4 illegal uncompressed size " + origSize);
+    }
+    if (blockSize <= 0 || blockSize > origSize) {
+      blockSize = (int) origSize;
+    }
+
+    byte[] result = new byte[(int) origSize];
+    int inPos = 12;
+    int outPos = 0;
+    while (outPos < origSize) {
+      int wantSize = Math.min(blockSize, (int) origSize - outPos);
+      if (inPos + 4 > dataIn.length) {
+        throw new IOException("LZ4 data truncated");
+      }
+      int compressedSize = readIntBE(dataIn, inPos);
+      inPos += 4;
+      if (compressedSize < 0 || inPos + compressedSize > dataIn.length) {
+        throw new IOException("LZ4 illegal block size " + compressedSize);
+      }
+      if (compressedSize == wantSize) { // stored uncompressed
+        System.arraycopy(dataIn, inPos, result, outPos, wantSize);
+      } else {
+        int n = decompressBlock(dataIn, inPos, compressedSize, result, outPos, wantSize);
+        if (n != wantSize) {
+          throw new IOException("LZ4 block uncompressed to " + n + " bytes, expected " + wantSize);
+        }
+      }
+      inPos += compressedSize;
+      outPos += wantSize;
+    }
+    return result;
+  }
+
+  /**
+   * Decompress one LZ4 block (no frame header).
+   *
+   * @param src compressed data
+   * @param srcPos start of the block in src
+   * @param srcLen length of the compressed block
+   * @param dest put uncompressed data here
+   * @param destPos starting at this position
+   * @param maxLen maximum number of bytes to write to dest
+   * @return number of bytes written to dest
+   * @throws IOException if the block is corrupt
+   */
+  public static int decompressBlock(byte[] src, int srcPos, int srcLen, byte[] dest, int destPos, int maxLen)
+      throws IOException {
+    int ip = srcPos;
+    int srcEnd = srcPos + srcLen;
+    int op = destPos;
+    int destEnd = destPos + maxLen;
+
+    try {
+      while (ip < srcEnd) {
+        int token = src[ip++] & 0xff;
+
+        // literals
+        int literalLen = token >>> 4;
+        if (literalLen == 15) {
+          int b;
+          do {
+            b = src[ip++] & 0xff;
+            literalLen += b;
+          } while (b == 255);
+        }
+        if (literalLen > 0) {
+          if (ip + literalLen > srcEnd || op + literalLen > destEnd) {
+            throw new IOException("LZ4 literals overrun");
+          }
+          System.arraycopy(src, ip, dest, op, literalLen);
+          ip += literalLen;
+          op += literalLen;
+        }
+        if (ip >= srcEnd) { // the last sequence has only literals
+          break;
+        }
+
+        // match
+        int offset = (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8);
+        ip += 2;
+        int matchLen = token & 0x0f;
+        if (matchLen == 15) {
+          int b;
+          do {
+            b = src[ip++] & 0xff;
+            matchLen += b;
+          } while (b == 255);
+        }
+        matchLen += 4;
+
+        int match = op - offset;
+        if (offset == 0 || match < destPos || op + matchLen > destEnd) {
+          throw new IOException("LZ4 illegal match offset=" + offset + " length=" + matchLen);
+        }
+        if (offset >= matchLen) {
+          System.arraycopy(dest, match, dest, op, matchLen);
+          op += matchLen;
+        } else { // overlapping copy, repeats the pattern
+          for (int i = 0; i < matchLen; i++) {
+            dest[op++] = dest[match++];
+          }
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IOException("LZ4 block is corrupt", e);
+    }
+    return op - destPos;
+  }
+
+  private static final int MIN_MATCH = 4;
+  private static final int LAST_LITERALS = 5; // the last 5 bytes are always literals
+  private static final int MF_LIMIT = 12; // the last match starts at least 12 bytes before the end
+  private static final int MAX_OFFSET = 65535;
+  private static final int HASH_BITS = 14;
+
+  /** The largest possible size of compressing srcLen bytes with compressBlock(). */
+  public static int maxCompressedLength(int srcLen) {
+    return srcLen + srcLen / 255 + 16;
+  }
+
+  /**
+   * Compress one LZ4 block (no frame header), using a fast greedy match search.
+   * The result can be read by any LZ4 block decoder, including decompressBlock().
+   *
+   * @param src uncompressed data
+   * @param srcPos start of the data in src
+   * @param srcLen number of bytes to compress
+   * @param dest put compressed data here, must have room for maxCompressedLength(srcLen) bytes
+   * @param destPos starting at this position
+   * @return number of bytes written to dest
+   */
+  public static int compressBlock(byte[] src, int srcPos, int srcLen, byte[] dest, int destPos) {
+    int srcEnd = srcPos + srcLen;
+    int matchLimit = srcEnd - LAST_LITERALS;
+    int mfLimit = srcEnd - MF_LIMIT;
+    int[] hashTable = new int[1 << HASH_BITS];
+    java.util.Arrays.fill(hashTable, -1);
+
+    int ip = srcPos;
+    int anchor = srcPos; // start of pending literals
+    int op = destPos;
+
+    while (ip < mfLimit) {
+      int seq = readIntLE(src, ip);
+      int h = hash(seq);
+      int ref = hashTable[h];
+      hashTable[h] = ip;
+      if (ref < 0 || ip - ref > MAX_OFFSET || readIntLE(src, ref) != seq) {
+        ip++;
+        continue;
+      }
+
+      // extend the match backwards over pending literals, then forwards
+      while (ip > anchor && ref > srcPos && src[ip - 1] == src[ref - 1]) {
+        ip--;
+        ref--;
+      }
+      int matchLen = MIN_MATCH;
+      while (ip + matchLen < matchLimit && src[ip + matchLen] == src[ref + matchLen]) {
+        matchLen++;
+      }
+
+      op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLen - MIN_MATCH, dest, op);
+      ip += matchLen;
+      anchor = ip;
+      if (ip < mfLimit) {
+        hashTable[hash(readIntLE(src, ip - 2))] = ip - 2;
+      }
+    }
+
+    // the last literals
+    int literalLen = srcEnd - anchor;
+    op = writeLength(dest, op, literalLen);
+    System.arraycopy(src, anchor, dest, op, literalLen);
+    return op + literalLen - destPos;
+  }
+
+  private static int writeSequence(byte[] src, int literalStart, int literalLen, int offset, int matchLenExtra,
+      byte[] dest, int op) {
+    int tokenPos = op;
+    op = writeLength(dest, op, literalLen);
+    System.arraycopy(src, literalStart, dest, op, literalLen);
+    op += literalLen;
+    dest[op++] = (byte) offset;
+    dest[op++] = (byte) (offset >>> 8);
+    if (matchLenExtra >= 15) {
+      dest[tokenPos] |= 0x0f;
+      op = writeLengthBytes(dest, op, matchLenExtra - 15);
+    } else {
+      dest[tokenPos] |= (byte) matchLenExtra;
+    }
+    return op;
+  }
+
+  // write the token with the literal length in the high nibble, and any extra length bytes
+  private static int writeLength(byte[] dest, int op, int literalLen) {
+    if (literalLen >= 15) {
+      dest[op++] = (byte) 0xf0;
+      return writeLengthBytes(dest, op, literalLen - 15);
+    }
+    dest[op++] = (byte) (literalLen << 4);
+    return op;
+  }
+
+  private static int writeLengthBytes(byte[] dest, int op, int len) {
+    while (len >= 255) {
+      dest[op++] = (byte) 255;
+      len -= 255;
+    }
+    dest[op++] = (byte) len;
+    return op;
+  }
+
+  private static int hash(int seq) {
+    return (seq * -1640531535) >>> (32 - HASH_BITS);
+  }
+
+  private static int readIntLE(byte[] b, int pos) {
+    return (b[pos] & 0xff) | ((b[pos + 1] & 0xff) << 8) | ((b[pos + 2] & 0xff) << 16) | ((b[pos + 3] & 0xff) << 24);
+  }
+
+  static long readLongBE(byte[] b, int pos) {
+    return ((long) readIntBE(b, pos) << 32) | (readIntBE(b, pos + 4) & 0xffffffffL);
+  }
+
+  static int readIntBE(byte[] b, int pos) {
+    return ((b[pos] & 0xff) << 24) | ((b[pos + 1] & 0xff) << 16) | ((b[pos + 2] & 0xff) << 8) | (b[pos + 3] & 0xff);
+  }
+
+  static class Provider implements FilterProvider {
+    @Override
+    public int getId() {
+      return ID;
+    }
+
+    @Override
+    public String getName() {
+      return "lz4";
+    }
+
+    @Override
+    public Filter create(int[] clientData, int elemSize, int chunkSize) {
+      return new Lz4();
+    }
+  }
+}
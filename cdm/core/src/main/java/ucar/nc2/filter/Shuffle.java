@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+/**
+ * HDF5 byte shuffle (filter id 2).
+ * The first bytes of all elements are stored together, then all of the second bytes, etc.
+ */
+public class Shuffle implements Filter {
+  public static final int ID = 2;
+
+  private final int elemSize;
+
+  /** @param elemSize the size in bytes of one element */
+  public Shuffle(int elemSize) {
+    this.elemSize = elemSize;
+  }
+
+  @Override
+  public int getId() {
+    return ID;
+  }
+
+  @Override
+  public String getName() {
+    return "shuffle";
+  }
+
+  @Override
+  public byte[] decode(byte[] data) {
+    int n = elemSize;
+    if (n <= 1) {
+      return data;
+    }
+
+    int m = data.length / n; // number of elements
+    byte[] result = new byte[data.length];
+    for (int j = 0; j < n; j++) {
+      int src = j * m;
+      int dest = j;
+      for (int i = 0; i < m; i++) {
+        result[dest] = data[src++];
+        dest += n;
+      }
+    }
+    // any leftover bytes are not shuffled
+    int done = m * n;
+    System.arraycopy(data, done, result, done, data.length - done);
+    return result;
+  }
+
+  static class Provider implements FilterProvider {
+    @Override
+    public int getId() {
+      return ID;
+    }
+
+    @Override
+    public String getName() {
+      return "shuffle";
+    }
+
+    @Override
+    public Filter create(int[] clientData, int elemSize, int chunkSize) {
+      return new Shuffle(clientData.length > 0 ? clientData[0] : elemSize);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+import java.io.IOException;
+
+/** Zstandard (filter id 32015), as written by the HDF5 Zstd plugin. The data is one or more Zstd frames. */
+public class Zstd implements Filter {
+  public static final int ID = 32015;
+
+  private final int sizeHint;
+
+  /** @param sizeHint the expected size of the uncompressed data, or <= 0 if unknown. */
+  public Zstd(int sizeHint) {
+    this.sizeHint = sizeHint;
+  }
+
+  @Override
+  public int getId() {
+    return ID;
+  }
+
+  @Override
+  public String getName() {
+    return "zstd";
+  }
+
+  @Override
+  public byte[] decode(byte[] dataIn) throws IOException {
+    return decompress(dataIn, 0, dataIn.length, sizeHint);
+  }
+
+  /**
+   * Decompress Zstd frames, a pure java implementation.
+   *
+   * @param src the compressed data
+   * @param start starting position in src
+   * @param end ending position (exclusive) in src
+   * @param sizeHint the expected size of the decompressed data, or <= 0 if unknown.
+   * @return the decompressed data
+   */
+  public static byte[] decompress(byte[] src, int start, int end, int sizeHint) throws IOException {
+    return new ZstdDecoder().decompress(src, start, end, sizeHint);
+  }
+
+  static class Provider implements FilterProvider {
+    @Override
+    public int getId() {
+      return ID;
+    }
+
+    @Override
+    public String getName() {
+      return "zstd";
+    }
+
+    @Override
+    public Filter create(int[] clientData, int elemSize, int chunkSize) {
+      return new Zstd(chunkSize);
+    }
+  }
+}
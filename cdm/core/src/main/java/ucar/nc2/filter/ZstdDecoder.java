@@ -0,0 +1,741 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Pure java Zstandard decompressor, following RFC 8878.
+ * Dictionaries are not supported, and the content checksum is not verified.
+ * Not thread safe, use one instance per thread.
+ */
+class ZstdDecoder {
+  private static final int MAGIC = 0xFD2FB528;
+  private static final int SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+  private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+  private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
+
+  private static final int LL_MAX_LOG = 9;
+  private static final int ML_MAX_LOG = 9;
+  private static final int OF_MAX_LOG = 8;
+
+  private static final int[] LL_BASE = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 18, 20, 22, 24, 28,
+      32, 40, 48, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 16384, 32768, 65536};
+  private static final int[] LL_BITS =
+      {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 3, 3, 4, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+  private static final int[] ML_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23,
+      24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 37, 39, 41, 43, 47, 51, 59, 67, 83, 99, 131, 259, 515, 1027, 2051,
+      4099, 8195, 16387, 32771, 65539};
+  private static final int[] ML_BITS = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+      0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+
+  private static final short[] LL_DEFAULT = {4, 3, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 1, 1, 1, 2, 2, 2, 2, 2, 2, 2, 2, 2,
+      3, 2, 1, 1, 1, 1, 1, -1, -1, -1, -1};
+  private static final short[] ML_DEFAULT = {1, 4, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+      1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1, -1, -1};
+  private static final short[] OF_DEFAULT =
+      {1, 1, 1, 1, 1, 1, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1};
+
+  private static final FseTable LL_DEFAULT_TABLE = FseTable.build(LL_DEFAULT, LL_DEFAULT.length - 1, 6);
+  private static final FseTable ML_DEFAULT_TABLE = FseTable.build(ML_DEFAULT, ML_DEFAULT.length - 1, 6);
+  private static final FseTable OF_DEFAULT_TABLE = FseTable.build(OF_DEFAULT, OF_DEFAULT.length - 1, 5);
+
+  // output
+  private byte[] out;
+  private int outPos;
+
+  // per frame state
+  private final int[] rep = new int[3];
+  private HuffmanTable huffman;
+  private FseTable llTable, ofTable, mlTable;
+  private byte[] literals = new byte[0];
+
+  /**
+   * Decompress all of the frames in src[start, end).
+   *
+   * @param src the compressed data
+   * @param start starting position in src
+   * @param end ending position (exclusive) in src
+   * @param sizeHint the expected size of the decompressed data, or <= 0 if unknown.
+   * @return the decompressed data
+   */
+  byte[] decompress(byte[] src, int start, int end, int sizeHint) throws IOException {
+    out = new byte[Math.max(sizeHint, 16)];
+    outPos = 0;
+    try {
+      int pos = start;
+      while (pos < end) {
+        pos = decodeFrame(src, pos);
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IOException("Zstd data is corrupt", e);
+    }
+    byte[] result = (outPos == out.length) ? out : Arrays.copyOf(out, outPos);
+    out = null;
+    return result;
+  }
+
+  private int decodeFrame(byte[] src, int pos) throws IOException {
+    int magic = readIntLE(src, pos);
+    pos += 4;
+    if ((magic & SKIPPABLE_MAGIC_MASK) == SKIPPABLE_MAGIC) {
+      return pos + 4 + readIntLE(src, pos);
+    }
+    if (magic != MAGIC) {
+      throw new IOException("Not a Zstd frame: magic= " + Integer.toHexString(magic));
+    }
+
+    int fhd = src[pos++] & 0xff;
+    int fcsFlag = fhd >>> 6;
+    boolean singleSegment = (fhd & 0x20) != 0;
+    boolean hasChecksum = (fhd & 0x04) != 0;
+    int dictIdFlag = fhd & 0x03;
+    if ((fhd & 0x08) != 0) {
+      throw new IOException("Zstd reserved bit set in frame header");
+    }
+    if (!singleSegment) {
+      pos++; // window descriptor, not needed since we keep all the output
+    }
+    int dictIdSize = (dictIdFlag == 3) ? 4 : dictIdFlag;
+    long dictId = readLE(src, pos, dictIdSize);
+    pos += dictIdSize;
+    if (dictId != 0) {
+      throw new IOException("Zstd dictionaries are not supported");
+    }
+    int fcsSize = (fcsFlag == 0) ? (singleSegment ? 1 : 0) : (1 << fcsFlag);
+    if (fcsSize > 0) {
+      long contentSize = readLE(src, pos, fcsSize);
+      if (fcsSize == 2) {
+        contentSize += 256;
+      }
+      pos += fcsSize;
+      if (contentSize < 0 || outPos + contentSize > MAX_ARRAY_LEN) {
+        throw new IOException("Zstd content size too large " + contentSize);
+      }
+      ensureCapacity((int) contentSize);
+    }
+
+    // reset per frame state
+    rep[0] = 1;
+    rep[1] = 4;
+    rep[2] = 8;
+    huffman = null;
+    llTable = null;
+    ofTable = null;
+    mlTable = null;
+
+    boolean last;
+    do {
+      int header = (int) readLE(src, pos, 3);
+      pos += 3;
+      last = (header & 1) != 0;
+      int blockType = (header >>> 1) & 3;
+      int blockSize = header >>> 3;
+      switch (blockType) {
+        case 0: // raw
+          ensureCapacity(blockSize);
+          System.arraycopy(src, pos, out, outPos, blockSize);
+          outPos += blockSize;
+          pos += blockSize;
+          break;
+        case 1: // RLE
+          ensureCapacity(blockSize);
+          Arrays.fill(out, outPos, outPos + blockSize, src[pos]);
+          outPos += blockSize;
+          pos += 1;
+          break;
+        case 2: // compressed
+          decodeCompressedBlock(src, pos, blockSize);
+          pos += blockSize;
+          break;
+        default:
+          throw new IOException("Zstd reserved block type");
+      }
+    } while (!last);
+
+    if (hasChecksum) {
+      pos += 4;
+    }
+    return pos;
+  }
+
+  private void decodeCompressedBlock(byte[] src, int pos, int blockSize) throws IOException {
+    int end = pos + blockSize;
+
+    //// literals section
+    int b0 = src[pos] & 0xff;
+    int litType = b0 & 3;
+    int sizeFormat = (b0 >>> 2) & 3;
+    int litSize;
+    if (litType == 0 || litType == 1) { // raw or RLE
+      switch (sizeFormat) {
+        case 1:
+          litSize = (b0 >>> 4) + ((src[pos + 1] & 0xff) << 4);
+          pos += 2;
+          break;
+        case 3:
+          litSize = (b0 >>> 4) + ((src[pos + 1] & 0xff) << 4) + ((src[pos + 2] & 0xff) << 12);
+          pos += 3;
+          break;
+        default:
+          litSize = b0 >>> 3;
+          pos += 1;
+      }
+      ensureLiterals(litSize);
+      if (litType == 0) {
+        System.arraycopy(src, pos, literals, 0, litSize);
+        pos += litSize;
+      } else {
+        Arrays.fill(literals, 0, litSize, src[pos]);
+        pos += 1;
+      }
+
+    } else { // compressed or treeless
+      int compSize;
+      boolean fourStreams = sizeFormat != 0;
+      long header;
+      switch (sizeFormat) {
+        case 2:
+          header = readLE(src, pos, 4);
+          litSize = (int) ((header >>> 4) & 0x3FFF);
+          compSize = (int) ((header >>> 18) & 0x3FFF);
+          pos += 4;
+          break;
+        case 3:
+          header = readLE(src, pos, 5);
+          litSize = (int) ((header >>> 4) & 0x3FFFF);
+          compSize = (int) ((header >>> 22) & 0x3FFFF);
+          pos += 5;
+          break;
+        default:
+          header = readLE(src, pos, 3);
+          litSize = (int) ((header >>> 4) & 0x3FF);
+          compSize = (int) ((header >>> 14) & 0x3FF);
+          pos += 3;
+      }
+      int litEnd = pos + compSize;
+      if (litType == 2) {
+        huffman = new HuffmanTable();
+        pos = huffman.read(src, pos);
+      } else if (huffman == null) {
+        throw new IOException("Zstd treeless literals without a previous Huffman table");
+      }
+      ensureLiterals(litSize);
+      if (fourStreams) {
+        int size1 = (int) readLE(src, pos, 2);
+        int size2 = (int) readLE(src, pos + 2, 2);
+        int size3 = (int) readLE(src, pos + 4, 2);
+        pos += 6;
+        int size4 = litEnd - pos - size1 - size2 - size3;
+        int segment = (litSize + 3) / 4;
+        huffman.decodeStream(src, pos, size1, literals, 0, segment);
+        pos += size1;
+        huffman.decodeStream(src, pos, size2, literals, segment, segment);
+        pos += size2;
+        huffman.decodeStream(src, pos, size3, literals, 2 * segment, segment);
+        pos += size3;
+        huffman.decodeStream(src, pos, size4, literals, 3 * segment, litSize - 3 * segment);
+      } else {
+        huffman.decodeStream(src, pos, litEnd - pos, literals, 0, litSize);
+      }
+      pos = litEnd;
+    }
+
+    //// sequences section
+    int nbSeq = src[pos++] & 0xff;
+    if (nbSeq == 0) { // just literals
+      appendLiterals(0, litSize);
+      return;
+    }
+    if (nbSeq == 255) {
+      nbSeq = (src[pos] & 0xff) + ((src[pos + 1] & 0xff) << 8) + 0x7F00;
+      pos += 2;
+    } else if (nbSeq >= 128) {
+      nbSeq = ((nbSeq - 128) << 8) + (src[pos++] & 0xff);
+    }
+
+    int modes = src[pos++] & 0xff;
+    int[] posHolder = {pos};
+    llTable = readSequenceTable(src, posHolder, (modes >>> 6) & 3, llTable, LL_DEFAULT_TABLE, 35, LL_MAX_LOG);
+    ofTable = readSequenceTable(src, posHolder, (modes >>> 4) & 3, ofTable, OF_DEFAULT_TABLE, 31, OF_MAX_LOG);
+    mlTable = readSequenceTable(src, posHolder, (modes >>> 2) & 3, mlTable, ML_DEFAULT_TABLE, 52, ML_MAX_LOG);
+    pos = posHolder[0];
+
+    BackwardBitReader bits = new BackwardBitReader(src, pos, end);
+    int llState = bits.readBits(llTable.log);
+    int ofState = bits.readBits(ofTable.log);
+    int mlState = bits.readBits(mlTable.log);
+
+    int litPos = 0;
+    for (int i = 0; i < nbSeq; i++) {
+      int ofCode = ofTable.symbol[ofState];
+      int llCode = llTable.symbol[llState];
+      int mlCode = mlTable.symbol[mlState];
+      if (llCode > 35 || mlCode > 52 || ofCode > 31) {
+        throw new IOException("Zstd illegal sequence code");
+      }
+
+      int offsetValue = (1 << ofCode) + bits.readBits(ofCode);
+      int matchLen = ML_BASE[mlCode] + bits.readBits(ML_BITS[mlCode]);
+      int litLen = LL_BASE[llCode] + bits.readBits(LL_BITS[llCode]);
+
+      int offset;
+      if (offsetValue > 3) {
+        offset = offsetValue - 3;
+        rep[2] = rep[1];
+        rep[1] = rep[0];
+        rep[0] = offset;
+      } else {
+        int repIndex = (litLen == 0) ? offsetValue : offsetValue - 1; // 0, 1, 2 or 3
+        if (repIndex == 0) {
+          offset = rep[0];
+        } else {
+          offset = (repIndex == 3) ? rep[0] - 1 : rep[repIndex];
+          if (repIndex != 1) {
+            rep[2] = rep[1];
+          }
+          rep[1] = rep[0];
+          rep[0] = offset;
+        }
+      }
+
+      // execute the sequence
+      if (litPos + litLen > litSize) {
+        throw new IOException("Zstd sequence uses more literals than available");
+      }
+      appendLiterals(litPos, litLen);
+      litPos += litLen;
+      copyMatch(offset, matchLen);
+
+      if (i < nbSeq - 1) { // update the states
+        llState = llTable.newState[llState] + bits.readBits(llTable.nbBits[llState]);
+        mlState = mlTable.newState[mlState] + bits.readBits(mlTable.nbBits[mlState]);
+        ofState = ofTable.newState[ofState] + bits.readBits(ofTable.nbBits[ofState]);
+      }
+    }
+    appendLiterals(litPos, litSize - litPos);
+  }
+
+  private FseTable readSequenceTable(byte[] src, int[] posHolder, int mode, FseTable previous, FseTable predefined,
+      int maxSymbol, int maxLog) throws IOException {
+    switch (mode) {
+      case 0: // predefined
+        return predefined;
+      case 1: // RLE
+        return FseTable.rle(src[posHolder[0]++] & 0xff);
+      case 2: { // FSE compressed
+        short[] norm = new short[maxSymbol + 1];
+        int[] result = new int[2];
+        posHolder[0] += readNormalizedCounts(src, posHolder[0], norm, maxSymbol, result);
+        if (result[1] > maxLog) {
+          throw new IOException("Zstd FSE accuracy log too large " + result[1]);
+        }
+        return FseTable.build(norm, result[0], result[1]);
+      }
+      default: // repeat
+        if (previous == null) {
+          throw new IOException("Zstd repeat mode without a previous table");
+        }
+        return previous;
+    }
+  }
+
+  private void appendLiterals(int litPos, int len) throws IOException {
+    ensureCapacity(len);
+    System.arraycopy(literals, litPos, out, outPos, len);
+    outPos += len;
+  }
+
+  private void copyMatch(int offset, int len) throws IOException {
+    int match = outPos - offset;
+    if (offset <= 0 || match < 0) {
+      throw new IOException("Zstd illegal match offset " + offset);
+    }
+    ensureCapacity(len);
+    if (offset >= len) {
+      System.arraycopy(out, match, out, outPos, len);
+      outPos += len;
+    } else { // overlapping copy, repeats the pattern
+      for (int i = 0; i < len; i++) {
+        out[outPos++] = out[match++];
+      }
+    }
+  }
+
+  private void ensureCapacity(int n) throws IOException {
+    long need = (long) outPos + n;
+    if (need > out.length) {
+      if (need > MAX_ARRAY_LEN) {
+        throw new IOException("Zstd decompressed data is larger than the maximum array size");
+      }
+      out = Arrays.copyOf(out, (int) Math.min(Math.max(need, 2L * out.length), MAX_ARRAY_LEN));
+    }
+  }
+
+  private void ensureLiterals(int n) {
+    if (literals.length < n) {
+      literals = new byte[n];
+    }
+  }
+
+  /**
+   * Read an FSE table description.
+   *
+   * @param norm put the normalized counts here
+   * @param maxSymbol largest allowed symbol
+   * @param result return the largest symbol, and the accuracy log
+   * @return the number of bytes used
+   */
+  static int readNormalizedCounts(byte[] src, int start, short[] norm, int maxSymbol, int[] result)
+      throws IOException {
+    ForwardBitReader bits = new ForwardBitReader(src, start);
+    int accuracyLog = bits.readBits(4) + 5;
+    int remaining = (1 << accuracyLog) + 1;
+    int threshold = 1 << accuracyLog;
+    int nbBits = accuracyLog + 1;
+    int symbol = 0;
+    boolean previous0 = false;
+
+    while (remaining > 1 && symbol <= maxSymbol) {
+      if (previous0) {
+        int n0 = symbol;
+        while (bits.peekBits(16) == 0xFFFF) {
+          n0 += 24;
+          bits.skip(16);
+        }
+        while (bits.peekBits(2) == 3) {
+          n0 += 3;
+          bits.skip(2);
+        }
+        n0 += bits.readBits(2);
+        if (n0 > maxSymbol) {
+          throw new IOException("Zstd FSE table has too many symbols");
+        }
+        while (symbol < n0) {
+          norm[symbol++] = 0;
+        }
+        if (symbol > maxSymbol) {
+          break;
+        }
+      }
+
+      int max = (2 * threshold - 1) - remaining;
+      int count;
+      int low = bits.peekBits(nbBits - 1);
+      if (low < max) {
+        count = low;
+        bits.skip(nbBits - 1);
+      } else {
+        count = bits.peekBits(nbBits);
+        if (count >= threshold) {
+          count -= max;
+        }
+        bits.skip(nbBits);
+      }
+      count--; // -1 means "less than one"
+      remaining -= Math.abs(count);
+      norm[symbol++] = (short) count;
+      previous0 = (count == 0);
+      while (remaining < threshold) {
+        nbBits--;
+        threshold >>= 1;
+      }
+    }
+    if (remaining != 1) {
+      throw new IOException("Zstd corrupt FSE table description");
+    }
+    for (int s = symbol; s <= maxSymbol; s++) {
+      norm[s] = 0;
+    }
+    result[0] = symbol - 1;
+    result[1] = accuracyLog;
+    return bits.bytesUsed();
+  }
+
+  static int highBit(int v) {
+    return 31 - Integer.numberOfLeadingZeros(v);
+  }
+
+  static long readLE(byte[] b, int pos, int n) {
+    long v = 0;
+    for (int i = 0; i < n; i++) {
+      v |= (b[pos + i] & 0xffL) << (8 * i);
+    }
+    return v;
+  }
+
+  static int readIntLE(byte[] b, int pos) {
+    return (int) readLE(b, pos, 4);
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////
+
+  /** FSE decoding table. */
+  static class FseTable {
+    final int log;
+    final int[] symbol;
+    final int[] nbBits;
+    final int[] newState;
+
+    private FseTable(int log) {
+      int size = 1 << log;
+      this.log = log;
+      this.symbol = new int[size];
+      this.nbBits = new int[size];
+      this.newState = new int[size];
+    }
+
+    static FseTable rle(int sym) {
+      FseTable table = new FseTable(0);
+      table.symbol[0] = sym;
+      return table;
+    }
+
+    static FseTable build(short[] norm, int maxSymbol, int log) {
+      FseTable table = new FseTable(log);
+      int tableSize = 1 << log;
+      int highThreshold = tableSize - 1;
+      int[] symbolNext = new int[maxSymbol + 1];
+
+      for (int s = 0; s <= maxSymbol; s++) {
+        if (norm[s] == -1) {
+          table.symbol[highThreshold--] = s;
+          symbolNext[s] = 1;
+        } else {
+          symbolNext[s] = Math.max(norm[s], 0);
+        }
+      }
+
+      int mask = tableSize - 1;
+      int step = (tableSize >>> 1) + (tableSize >>> 3) + 3;
+      int position = 0;
+      for (int s = 0; s <= maxSymbol; s++) {
+        for (int i = 0; i < norm[s]; i++) {
+          table.symbol[position] = s;
+          do {
+            position = (position + step) & mask;
+          } while (position > highThreshold);
+        }
+      }
+
+      for (int u = 0; u < tableSize; u++) {
+        int s = table.symbol[u];
+        int nextState = symbolNext[s]++;
+        int nb = log - highBit(nextState);
+        table.nbBits[u] = nb;
+        table.newState[u] = (nextState << nb) - tableSize;
+      }
+      return table;
+    }
+  }
+
+  /** Huffman decoding table for the literals. */
+  static class HuffmanTable {
+    private int maxBits;
+    private byte[] symbols; // indexed by the next maxBits bits
+    private byte[] lengths;
+
+    /** Read the Huffman tree description, return the position after it. */
+    int read(byte[] src, int pos) throws IOException {
+      int[] weights = new int[256];
+      int nbWeights;
+      int headerByte = src[pos++] & 0xff;
+      if (headerByte >= 128) { // direct representation, 4 bits each
+        nbWeights = headerByte - 127;
+        for (int i = 0; i < nbWeights; i += 2) {
+          int b = src[pos + i / 2] & 0xff;
+          weights[i] = b >>> 4;
+          if (i + 1 < nbWeights) {
+            weights[i + 1] = b & 0xf;
+          }
+        }
+        pos += (nbWeights + 1) / 2;
+
+      } else { // FSE compressed weights
+        int end = pos + headerByte;
+        short[] norm = new short[256];
+        int[] result = new int[2];
+        int used = readNormalizedCounts(src, pos, norm, 255, result);
+        if (result[1] > 6) {
+          throw new IOException("Zstd Huffman weights accuracy log too large");
+        }
+        FseTable table = FseTable.build(norm, result[0], result[1]);
+        BackwardBitReader bits = new BackwardBitReader(src, pos + used, end);
+        int state1 = bits.readBits(table.log);
+        int state2 = bits.readBits(table.log);
+        nbWeights = 0;
+        while (true) {
+          weights[nbWeights++] = table.symbol[state1];
+          state1 = table.newState[state1] + bits.readBits(table.nbBits[state1]);
+          if (bits.isOverflow()) {
+            weights[nbWeights++] = table.symbol[state2];
+            break;
+          }
+          weights[nbWeights++] = table.symbol[state2];
+          state2 = table.newState[state2] + bits.readBits(table.nbBits[state2]);
+          if (bits.isOverflow()) {
+            weights[nbWeights++] = table.symbol[state1];
+            break;
+          }
+          if (nbWeights >= 255) {
+            throw new IOException("Zstd too many Huffman weights");
+          }
+        }
+        pos = end;
+      }
+
+      // the last weight is implied
+      int sum = 0;
+      for (int i = 0; i < nbWeights; i++) {
+        if (weights[i] > 0) {
+          sum += 1 << (weights[i] - 1);
+        }
+      }
+      if (sum == 0) {
+        throw new IOException("Zstd corrupt Huffman weights");
+      }
+      maxBits = highBit(sum) + 1;
+      int leftOver = (1 << maxBits) - sum;
+      if (Integer.bitCount(leftOver) != 1) {
+        throw new IOException("Zstd corrupt Huffman weights");
+      }
+      weights[nbWeights++] = highBit(leftOver) + 1;
+      if (maxBits > 11) {
+        throw new IOException("Zstd Huffman code too long");
+      }
+
+      // fill the table in order of increasing weight, then increasing symbol
+      int tableSize = 1 << maxBits;
+      symbols = new byte[tableSize];
+      lengths = new byte[tableSize];
+      int position = 0;
+      for (int w = 1; w <= maxBits; w++) {
+        int count = 1 << (w - 1);
+        byte len = (byte) (maxBits + 1 - w);
+        for (int s = 0; s < nbWeights; s++) {
+          if (weights[s] == w) {
+            Arrays.fill(symbols, position, position + count, (byte) s);
+            Arrays.fill(lengths, position, position + count, len);
+            position += count;
+          }
+        }
+      }
+      if (position != tableSize) {
+        throw new IOException("Zstd corrupt Huffman table");
+      }
+      return pos;
+    }
+
+    void decodeStream(byte[] src, int start, int len, byte[] dest, int destPos, int n) throws IOException {
+      BackwardBitReader bits = new BackwardBitReader(src, start, start + len);
+      for (int i = 0; i < n; i++) {
+        int index = bits.peekBits(maxBits);
+        dest[destPos + i] = symbols[index];
+        bits.skip(lengths[index]);
+      }
+      if (bits.isOverflow()) {
+        throw new IOException("Zstd corrupt Huffman stream");
+      }
+    }
+  }
+
+  /** Reads bits forward, starting at the least significant bit of the first byte. */
+  static class ForwardBitReader {
+    private final byte[] src;
+    private final int start;
+    private long bitPos;
+
+    ForwardBitReader(byte[] src, int start) {
+      this.src = src;
+      this.start = start;
+    }
+
+    int peekBits(int n) {
+      long v = 0;
+      int bytePos = start + (int) (bitPos >>> 3);
+      int shift = (int) (bitPos & 7);
+      int nbytes = (shift + n + 7) >>> 3;
+      for (int i = 0; i < nbytes && bytePos + i < src.length; i++) {
+        v |= (src[bytePos + i] & 0xffL) << (8 * i);
+      }
+      return (int) ((v >>> shift) & ((1L << n) - 1));
+    }
+
+    void skip(int n) {
+      bitPos += n;
+    }
+
+    int readBits(int n) {
+      int v = peekBits(n);
+      bitPos += n;
+      return v;
+    }
+
+    int bytesUsed() {
+      return (int) ((bitPos + 7) >>> 3);
+    }
+  }
+
+  /**
+   * Reads bits backward from the end of the stream, as used by FSE and Huffman bitstreams.
+   * The highest set bit of the last byte marks the start. Bits beyond the beginning read as zero.
+   */
+  static class BackwardBitReader {
+    private final byte[] src;
+    private final int start;
+    private long bitPos; // number of unread bits
+
+    BackwardBitReader(byte[] src, int start, int end) throws IOException {
+      this.src = src;
+      this.start = start;
+      if (end <= start) {
+        throw new IOException("Zstd empty bitstream");
+      }
+      int last = src[end - 1] & 0xff;
+      if (last == 0) {
+        throw new IOException("Zstd bitstream missing end mark");
+      }
+      this.bitPos = 8L * (end - 1 - start) + highBit(last);
+    }
+
+    int peekBits(int n) {
+      if (n == 0) {
+        return 0;
+      }
+      long low = bitPos - n;
+      if (low < 0) {
+        return (bitPos <= 0) ? 0 : (int) (getField(0, (int) bitPos) << (int) -low);
+      }
+      return (int) getField(low, n);
+    }
+
+    // n bits starting at bit position from, n <= 32
+    private long getField(long from, int n) {
+      int bytePos = start + (int) (from >>> 3);
+      int shift = (int) (from & 7);
+      int nbytes = (shift + n + 7) >>> 3;
+      long v = 0;
+      for (int i = 0; i < nbytes; i++) {
+        v |= (src[bytePos + i] & 0xffL) << (8 * i);
+      }
+      return (v >>> shift) & ((1L << n) - 1);
+    }
+
+    void skip(int n) {
+      bitPos -= n;
+    }
+
+    int readBits(int n) {
+      int v = peekBits(n);
+      bitPos -= n;
+      return v;
+    }
+
+    boolean isOverflow() {
+      return bitPos < 0;
+    }
+  }
+}
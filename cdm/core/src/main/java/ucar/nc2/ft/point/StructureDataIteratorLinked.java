@@ -4,51 +4,86 @@
  */
 package ucar.nc2.ft.point;
 
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import ucar.ma2.ArrayStructure;
+import ucar.ma2.InvalidRangeException;
 import ucar.nc2.Structure;
 import ucar.ma2.StructureData;
 import ucar.ma2.StructureDataIterator;
 import java.io.IOException;
 
 /**
- * Use contiguous or linked lists to iterate over members of a Structure
+ * Use contiguous or linked lists to iterate over members of a Structure.
+ * Contiguous records are read in blocks, and the StructureData returned are views into the block.
+ * When the links are known in advance, the records of a linked list are also read in blocks, in file order.
  *
  * @author caron
  * @since Mar 26, 2008
  */
 public class StructureDataIteratorLinked implements StructureDataIterator {
   private static org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StructureDataIteratorLinked.class);
+  private static final int defaultBufferSize = 500 * 1000; // 500K bytes
+  private static final int maxGap = 8; // read through gaps of up to this many records in a linked list
 
   private Structure s;
   private int firstRecord, nextRecno, numRecords;
   private String linkVarName;
+  private int[] links;
   private int currRecno;
   private boolean isContiguous;
+  private boolean readBlocks; // else read one record at a time
+  private int readAtaTime;
+  private int count; // number of records returned so far
+
+  // the current block, in iteration order
+  private int[] blockRecnos;
+  private StructureData[] blockData;
+  private int blockCount, blockPos;
 
   public StructureDataIteratorLinked(Structure s, int firstRecord, int numRecords, String linkVarName) {
+    this(s, firstRecord, numRecords, linkVarName, null);
+  }
+
+  /**
+   * Iterate over a linked list whose links have already been read, so its records can be read in blocks.
+   *
+   * @param s the Structure containing the records
+   * @param firstRecord first record of the list, or -1 if empty
+   * @param links the value of the link variable for each record of s, -1 at the end of a list
+   */
+  public StructureDataIteratorLinked(Structure s, int firstRecord, int[] links) {
+    this(s, firstRecord, -1, null, links);
+  }
+
+  private StructureDataIteratorLinked(Structure s, int firstRecord, int numRecords, String linkVarName,
+      @Nullable int[] links) {
     this.s = s;
     this.firstRecord = firstRecord;
     this.nextRecno = firstRecord;
     this.numRecords = numRecords; // contiguous only
     this.linkVarName = linkVarName;
-    this.isContiguous = (linkVarName == null);
+    this.links = links;
+    this.isContiguous = (linkVarName == null) && (links == null);
+    // otherwise each record must be read to find the next one
+    this.readBlocks = (s.getRank() == 1) && (isContiguous || links != null);
+    setBufferSize(defaultBufferSize);
   }
 
   @Override
   public StructureData next() throws IOException {
-    StructureData sdata;
-    currRecno = nextRecno;
-    try {
-      sdata = s.readStructure(currRecno);
-    } catch (ucar.ma2.InvalidRangeException e) {
-      log.error("StructureDataLinkedIterator.nextStructureData recno=" + currRecno, e);
-      throw new IOException(e.getMessage());
-    }
+    if (blockPos >= blockCount)
+      readBlock();
+
+    currRecno = blockRecnos[blockPos];
+    StructureData sdata = blockData[blockPos++];
+    count++;
 
     if (isContiguous) {
       nextRecno++;
 
     } else {
-      nextRecno = sdata.getScalarInt(linkVarName);
+      nextRecno = (links != null) ? links[currRecno] : sdata.getScalarInt(linkVarName);
       if (currRecno == nextRecno) // infinite loop
         throw new IllegalStateException("Infinite loop in linked list at recno= " + nextRecno);
     }
@@ -64,6 +99,9 @@ public class StructureDataIteratorLinked implements StructureDataIterator {
   @Override
   public StructureDataIterator reset() {
     this.nextRecno = firstRecord;
+    this.count = 0;
+    this.blockCount = 0;
+    this.blockPos = 0;
     return this;
   }
 
@@ -72,4 +110,103 @@ public class StructureDataIteratorLinked implements StructureDataIterator {
     return currRecno;
   }
 
+  @Override
+  public void setBufferSize(int bytes) {
+    if (count > 0)
+      return; // too late
+    int structureSize = s.getElementSize();
+    if (structureSize <= 0)
+      structureSize = 1;
+    if (bytes <= 0)
+      bytes = defaultBufferSize;
+    readAtaTime = Math.max(10, bytes / structureSize);
+  }
+
+  // read the next block of records, starting at nextRecno
+  private void readBlock() throws IOException {
+    int n = readBlocks ? planBlock() : 1;
+    ensureCapacity(n);
+    blockPos = 0;
+    blockCount = n;
+
+    try {
+      if (!readBlocks) {
+        blockRecnos[0] = nextRecno;
+        blockData[0] = s.readStructure(nextRecno);
+
+      } else if (isContiguous) {
+        ArrayStructure as = s.readStructure(nextRecno, n);
+        for (int i = 0; i < n; i++) {
+          blockRecnos[i] = nextRecno + i;
+          blockData[i] = as.getStructureData(i);
+        }
+
+      } else {
+        readLinkedBlock(n);
+      }
+
+    } catch (InvalidRangeException e) {
+      blockCount = 0;
+      log.error("StructureDataLinkedIterator.readBlock recno=" + nextRecno, e);
+      throw new IOException(e.getMessage());
+    }
+  }
+
+  // the number of records in the next block; for a linked list, also fills blockRecnos
+  private int planBlock() throws IOException {
+    if (isContiguous)
+      return Math.min(readAtaTime, firstRecord + numRecords - nextRecno);
+
+    int n = 0;
+    int recno = nextRecno;
+    while (recno >= 0 && n < readAtaTime) {
+      if (recno >= links.length)
+        throw new IOException("Linked list recno= " + recno + " out of range");
+      ensureCapacity(n + 1);
+      blockRecnos[n++] = recno;
+      if (links[recno] == recno) // infinite loop, found by next()
+        break;
+      recno = links[recno];
+    }
+    return n;
+  }
+
+  // lists are often short, so grow the block as needed
+  private void ensureCapacity(int n) {
+    if (blockRecnos == null || blockRecnos.length < n) {
+      int size = Math.min(readAtaTime, Math.max(n, (blockRecnos == null) ? 16 : 2 * blockRecnos.length));
+      blockRecnos = (blockRecnos == null) ? new int[size] : Arrays.copyOf(blockRecnos, size);
+      blockData = new StructureData[size];
+    }
+  }
+
+  // read the records of blockRecnos in file order, in runs of nearby records
+  private void readLinkedBlock(int n) throws IOException, InvalidRangeException {
+    long[] sorted = new long[n]; // recno, position in the block
+    for (int i = 0; i < n; i++) {
+      sorted[i] = ((long) blockRecnos[i] << 32) | i;
+    }
+    Arrays.sort(sorted);
+
+    int runStart = 0;
+    while (runStart < n) {
+      int runEnd = runStart + 1; // exclusive
+      while (runEnd < n && recno(sorted[runEnd]) - recno(sorted[runEnd - 1]) <= maxGap + 1) {
+        runEnd++;
+      }
+
+      int first = recno(sorted[runStart]);
+      int last = recno(sorted[runEnd - 1]);
+      ArrayStructure as = s.readStructure(first, last - first + 1);
+      for (int i = runStart; i < runEnd; i++) {
+        blockData[(int) sorted[i]] = as.getStructureData(recno(sorted[i]) - first);
+      }
+      runStart = runEnd;
+    }
+  }
+
+  private static int recno(long sortKey) {
+    return (int) (sortKey >>> 32);
+  }
+
 }
@@ -691,9 +691,14 @@ public abstract class Table {
   public static class TableLinkedList extends TableStructure {
     private String start; // variable name holding the starting index in parent
     private String next; // variable name holding the next index in child
+    private NetcdfDataset ds;
+    // the next variable for all children, so they can be read in blocks. guarded by this
+    private int[] links;
+    private boolean isInit;
 
     TableLinkedList(NetcdfDataset ds, TableConfig config) {
       super(ds, config);
+      this.ds = ds;
       this.start = config.start;
       this.next = config.next;
 
@@ -701,10 +706,29 @@ public abstract class Table {
       addNonDataVariable(config.next);
     }
 
+    // the links, or null to read them record by record
+    private synchronized int[] getLinks() {
+      if (!isInit) {
+        Variable v = ds.findVariable(next);
+        if (v != null && v.getRank() == 1 && v.getSize() == struct.getSize()) {
+          try {
+            links = (int[]) v.read().get1DJavaArray(DataType.INT);
+          } catch (IOException e) {
+            log.error("Cant read the links " + next + ", will read them record by record", e);
+          }
+        }
+        isInit = true;
+      }
+      return links;
+    }
+
     @Override
     public StructureDataIterator getStructureDataIterator(Cursor cursor) {
+      int[] links = getLinks();
       StructureData parentStruct = cursor.getParentStructure();
       int firstRecno = parentStruct.getScalarInt(start);
+      if (links != null)
+        return new StructureDataIteratorLinked(struct, firstRecno, links);
       return new StructureDataIteratorLinked(struct, firstRecno, -1, next);
     }
 
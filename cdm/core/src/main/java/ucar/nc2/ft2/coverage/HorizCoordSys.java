@@ -481,6 +481,25 @@ public class HorizCoordSys {
     double maxLat = -Double.MAX_VALUE;
     double maxLon = -Double.MAX_VALUE;
 
+    if (isProjection) {
+      // same as below, but without making a point object for each boundary point
+      double[][] boundary = calcProjectionBoundaryCoords(Integer.MAX_VALUE, Integer.MAX_VALUE);
+      double[] lats = boundary[0];
+      double[] lons = boundary[1];
+      transform.getProjection().projToLatLon(boundary[0], boundary[1], lats, lons);
+
+      double prevLon = 0;
+      for (int k = 0; k < lats.length; k++) {
+        double lon = (k == 0) ? lons[k] : LatLonPoints.lonNormal(lons[k], prevLon); // see connectLatLonPoints()
+        minLat = Math.min(minLat, lats[k]);
+        minLon = Math.min(minLon, lon);
+        maxLat = Math.max(maxLat, lats[k]);
+        maxLon = Math.max(maxLon, lon);
+        prevLon = lon;
+      }
+      return new LatLonRect(minLat, minLon, maxLat, maxLon);
+    }
+
     for (ProjectionPoint boundaryPoint : calcConnectedLatLonBoundaryPoints()) {
       minLat = Math.min(minLat, boundaryPoint.getY());
       minLon = Math.min(minLon, boundaryPoint.getX());
@@ -571,6 +590,19 @@ public class HorizCoordSys {
    * @throws UnsupportedOperationException if this CRS is not a projection.
    */
   public List<ProjectionPoint> calcProjectionBoundaryPoints(int maxPointsInYEdge, int maxPointsInXEdge) {
+    double[][] boundary = calcProjectionBoundaryCoords(maxPointsInYEdge, maxPointsInXEdge);
+    double[] xs = boundary[0];
+    double[] ys = boundary[1];
+
+    List<ProjectionPoint> points = new LinkedList<>();
+    for (int k = 0; k < xs.length; k++) {
+      points.add(ProjectionPoint.create(xs[k], ys[k]));
+    }
+    return points;
+  }
+
+  // The points of calcProjectionBoundaryPoints() as {x, y} arrays, for the batch Projection methods.
+  private double[][] calcProjectionBoundaryCoords(int maxPointsInYEdge, int maxPointsInXEdge) {
     if (!isProjection) {
       throw new UnsupportedOperationException("Coordinate system is not a projection.");
     }
@@ -581,30 +613,38 @@ public class HorizCoordSys {
     int strideY = calcStride(numYtotal, maxPointsInYEdge);
     int strideX = calcStride(numXtotal, maxPointsInXEdge);
 
-    List<ProjectionPoint> points = new LinkedList<>();
+    int npts = 2 * ((numXtotal + strideX - 1) / strideX) + 2 * ((numYtotal + strideY - 1) / strideY);
+    double[] xs = new double[npts];
+    double[] ys = new double[npts];
+    int count = 0;
 
     // Bottom boundary points
     for (int i = 0; i < numXtotal; i += strideX) {
-      points.add(ProjectionPoint.create(xAxis.getCoordEdge1(i), yAxis.getCoordEdgeFirst()));
+      xs[count] = xAxis.getCoordEdge1(i);
+      ys[count++] = yAxis.getCoordEdgeFirst();
     }
 
     // Right boundary points
     for (int j = 0; j < numYtotal; j += strideY) {
-      points.add(ProjectionPoint.create(xAxis.getCoordEdgeLast(), yAxis.getCoordEdge1(j)));
+      xs[count] = xAxis.getCoordEdgeLast();
+      ys[count++] = yAxis.getCoordEdge1(j);
     }
 
     // Top boundary points
     for (int i = numXtotal - 1; i >= 0; i -= strideX) {
-      points.add(ProjectionPoint.create(xAxis.getCoordEdge2(i), yAxis.getCoordEdgeLast()));
+      xs[count] = xAxis.getCoordEdge2(i);
+      ys[count++] = yAxis.getCoordEdgeLast();
     }
 
     // Left boundary points
     for (int j = numYtotal - 1; j >= 0; j -= strideY) {
-      points.add(ProjectionPoint.create(xAxis.getCoordEdgeFirst(), yAxis.getCoordEdge2(j)));
+      xs[count] = xAxis.getCoordEdgeFirst();
+      ys[count++] = yAxis.getCoordEdge2(j);
     }
 
-    assertNotExceedingMaxBoundaryPoints(points.size(), maxPointsInYEdge, maxPointsInXEdge);
-    return points;
+    assert count == npts;
+    assertNotExceedingMaxBoundaryPoints(count, maxPointsInYEdge, maxPointsInXEdge);
+    return new double[][] {xs, ys};
   }
 
   private List<LatLonPoint> calcLatLon1DBoundaryPoints(int maxPointsInYEdge, int maxPointsInXEdge) {
@@ -645,11 +685,14 @@ public class HorizCoordSys {
   }
 
   private List<LatLonPoint> calcLatLonBoundaryPointsFromProjection(int maxPointsInYEdge, int maxPointsInXEdge) {
-    List<ProjectionPoint> projPoints = calcProjectionBoundaryPoints(maxPointsInYEdge, maxPointsInXEdge);
-    List<LatLonPoint> latLonPoints = new LinkedList<>();
+    double[][] boundary = calcProjectionBoundaryCoords(maxPointsInYEdge, maxPointsInXEdge);
+    double[] lats = boundary[0];
+    double[] lons = boundary[1];
+    transform.getProjection().projToLatLon(boundary[0], boundary[1], lats, lons);
 
-    for (ProjectionPoint projPoint : projPoints) {
-      latLonPoints.add(transform.getProjection().projToLatLon(projPoint));
+    List<LatLonPoint> latLonPoints = new LinkedList<>();
+    for (int k = 0; k < lats.length; k++) {
+      latLonPoints.add(LatLonPoint.create(lats[k], lons[k]));
     }
 
     return latLonPoints;
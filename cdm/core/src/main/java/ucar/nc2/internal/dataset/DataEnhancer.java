@@ -5,7 +5,6 @@
 package ucar.nc2.internal.dataset;
 
 import java.util.Set;
-import ucar.array.ArraysConvert;
 import ucar.ma2.DataType;
 import ucar.ma2.IndexIterator;
 import ucar.nc2.dataset.EnhanceScaleMissingUnsignedImpl;
@@ -56,10 +55,37 @@ public class DataEnhancer {
     return result;
   }
 
-  // TODO
+  private ucar.array.Array<?> convertEnums(ucar.array.Array<?> values) {
+    DataType valuesType = values.getDataType();
+    if (!valuesType.isIntegral()) {
+      return values; // Nothing to do!
+    }
+
+    String[] sdata = new String[(int) values.length()];
+    int count = 0;
+    for (Object value : values) {
+      Number number = (Number) value;
+      if (valuesType.isUnsigned()) {
+        number = DataType.widenNumberIfNegative(number);
+      }
+      sdata[count++] = variableDS.lookupEnumString(number.intValue());
+    }
+    return ucar.array.Arrays.factory(DataType.STRING, values.getShape(), sdata);
+  }
+
   public ucar.array.Array<?> convertArray(ucar.array.Array<?> data, Set<Enhance> enhancements) {
-    ucar.ma2.Array ma2 = ArraysConvert.convertFromArray(data);
-    return ArraysConvert.convertToArray(convert(ma2, enhancements));
+    if (enhancements.contains(Enhance.ConvertEnums)
+        && (dataType.isEnum() || (orgDataType != null && orgDataType.isEnum()))) {
+      // Creates STRING data. As a result, we can return here, because the other conversions don't apply to STRING.
+      return convertEnums(data);
+    } else {
+      // TODO: make this work for isVariableLength; i thought BUFR worked?
+      if (variableDS.isVariableLength()) {
+        return data;
+      }
+      return scaleMissingUnsignedProxy.convertArray(data, enhancements.contains(Enhance.ConvertUnsigned),
+          enhancements.contains(Enhance.ApplyScaleOffset), enhancements.contains(Enhance.ConvertMissing));
+    }
   }
 
 }
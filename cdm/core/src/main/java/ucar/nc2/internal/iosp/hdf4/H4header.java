@@ -35,6 +35,7 @@ import ucar.nc2.NetcdfFiles;
 import ucar.nc2.Structure;
 import ucar.nc2.Variable;
 import ucar.nc2.constants.CDM;
+import ucar.nc2.iosp.MagicNumber;
 import ucar.nc2.write.Ncdump;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.unidata.util.Format;
@@ -49,6 +50,7 @@ public class H4header implements HdfHeaderIF {
   private static final byte[] H4HEAD = {(byte) 0x0e, (byte) 0x03, (byte) 0x13, (byte) 0x01};
   private static final String H4HEAD_STRING = new String(H4HEAD, StandardCharsets.UTF_8);
   private static final long maxHeaderPos = 500000; // header's gotta be within this
+  static final List<MagicNumber> MAGIC_NUMBERS = MagicNumber.doublingOffsets(H4HEAD, maxHeaderPos, true, true);
 
   static boolean isValidFile(ucar.unidata.io.RandomAccessFile raf) throws IOException {
     long pos = 0;
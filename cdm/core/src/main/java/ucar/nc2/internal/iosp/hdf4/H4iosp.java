@@ -34,6 +34,7 @@ import ucar.nc2.iosp.LayoutBBTiled;
 import ucar.nc2.iosp.LayoutRegular;
 import ucar.nc2.iosp.LayoutSegmented;
 import ucar.nc2.iosp.LayoutTiled;
+import ucar.nc2.iosp.MagicNumber;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.IO;
 import ucar.unidata.io.PositioningDataInputStream;
@@ -52,6 +53,11 @@ public class H4iosp extends AbstractIOServiceProvider {
     return H4header.isValidFile(raf);
   }
 
+  @Override
+  public List<MagicNumber> getMagicNumbers() {
+    return H4header.MAGIC_NUMBERS;
+  }
+
   @Override
   public String getFileTypeId() {
     if (header != null && header.isEos()) {
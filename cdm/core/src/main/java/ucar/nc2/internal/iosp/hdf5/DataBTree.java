@@ -157,57 +157,60 @@ public class DataBTree {
       if (debugDataBtree)
         debugOut.println("\n--> DataBTree read tree at address=" + address + " parent= " + parent + " owner= " + owner);
 
-      raf.order(RandomAccessFile.LITTLE_ENDIAN); // header information is in le byte order
-      raf.seek(h5.getFileOffset(address));
-      this.address = address;
-
-      String magic = raf.readString(4);
-      if (!magic.equals("TREE"))
-        throw new IllegalStateException("DataBTree doesnt start with TREE");
-
-      int type = raf.readByte();
-      level = raf.readByte();
-      nentries = raf.readShort();
-      if (type != wantType)
-        throw new IllegalStateException("DataBTree must be type " + wantType);
-
-      long size = 8 + 2 * h5.getSizeOffsets() + ((long) nentries) * (8 + h5.getSizeOffsets() + 8 + ndimStorage);
-      if (memTracker != null)
-        memTracker.addByLen("Data BTree (" + owner + ")", address, size);
-      if (debugDataBtree)
-        debugOut.println("    type=" + type + " level=" + level + " nentries=" + nentries + " size = " + size);
-
-      long leftAddress = h5.readOffset();
-      long rightAddress = h5.readOffset();
-      if (debugDataBtree)
-        debugOut.println("    leftAddress=" + leftAddress + " =0x" + Long.toHexString(leftAddress) + " rightAddress="
-            + rightAddress + " =0x" + Long.toHexString(rightAddress));
-
-      if (level == 0) {
-        // read all entries as a DataChunk
-        myEntries = new ArrayList<>();
-        for (int i = 0; i <= nentries; i++) {
-          DataChunk dc = new DataChunk(ndimStorage, (i == nentries));
-          myEntries.add(dc);
-          if (debugDataChunk)
-            debugOut.println(dc);
-        }
-      } else { // just track the offsets and node addresses
-        offset = new int[nentries + 1][ndimStorage];
-        childPointer = new long[nentries + 1];
-        for (int i = 0; i <= nentries; i++) {
-          raf.skipBytes(8); // skip size, filterMask
-          for (int j = 0; j < ndimStorage; j++) {
-            long loffset = raf.readLong();
-            assert loffset < Integer.MAX_VALUE;
-            offset[i][j] = (int) loffset;
+      // the raf may be shared by concurrent reads of the data, which lock it when they use its file position
+      synchronized (raf) {
+        raf.order(RandomAccessFile.LITTLE_ENDIAN); // header information is in le byte order
+        raf.seek(h5.getFileOffset(address));
+        this.address = address;
+
+        String magic = raf.readString(4);
+        if (!magic.equals("TREE"))
+          throw new IllegalStateException("DataBTree doesnt start with TREE");
+
+        int type = raf.readByte();
+        level = raf.readByte();
+        nentries = raf.readShort();
+        if (type != wantType)
+          throw new IllegalStateException("DataBTree must be type " + wantType);
+
+        long size = 8 + 2 * h5.getSizeOffsets() + ((long) nentries) * (8 + h5.getSizeOffsets() + 8 + ndimStorage);
+        if (memTracker != null)
+          memTracker.addByLen("Data BTree (" + owner + ")", address, size);
+        if (debugDataBtree)
+          debugOut.println("    type=" + type + " level=" + level + " nentries=" + nentries + " size = " + size);
+
+        long leftAddress = h5.readOffset();
+        long rightAddress = h5.readOffset();
+        if (debugDataBtree)
+          debugOut.println("    leftAddress=" + leftAddress + " =0x" + Long.toHexString(leftAddress) + " rightAddress="
+              + rightAddress + " =0x" + Long.toHexString(rightAddress));
+
+        if (level == 0) {
+          // read all entries as a DataChunk
+          myEntries = new ArrayList<>();
+          for (int i = 0; i <= nentries; i++) {
+            DataChunk dc = new DataChunk(ndimStorage, (i == nentries));
+            myEntries.add(dc);
+            if (debugDataChunk)
+              debugOut.println(dc);
           }
-          this.childPointer[i] = (i == nentries) ? -1 : h5.readOffset();
-          if (debugDataBtree) {
-            debugOut.print("    childPointer=" + childPointer[i] + " =0x" + Long.toHexString(childPointer[i]));
-            for (long anOffset : offset[i])
-              debugOut.print(" " + anOffset);
-            debugOut.println();
+        } else { // just track the offsets and node addresses
+          offset = new int[nentries + 1][ndimStorage];
+          childPointer = new long[nentries + 1];
+          for (int i = 0; i <= nentries; i++) {
+            raf.skipBytes(8); // skip size, filterMask
+            for (int j = 0; j < ndimStorage; j++) {
+              long loffset = raf.readLong();
+              assert loffset < Integer.MAX_VALUE;
+              offset[i][j] = (int) loffset;
+            }
+            this.childPointer[i] = (i == nentries) ? -1 : h5.readOffset();
+            if (debugDataBtree) {
+              debugOut.print("    childPointer=" + childPointer[i] + " =0x" + Long.toHexString(childPointer[i]));
+              for (long anOffset : offset[i])
+                debugOut.print(" " + anOffset);
+              debugOut.println();
+            }
           }
         }
       }
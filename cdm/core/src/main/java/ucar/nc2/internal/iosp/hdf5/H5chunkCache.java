@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.Objects;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A size bounded cache of uncompressed HDF5 chunks, shared by all open files.
+ * Avoids re-reading and re-inflating the same chunks when a variable is read many times in small pieces,
+ * eg extracting a time series at many points.
+ * Chunks are keyed by file location and last modified time, variable name and chunk offset.
+ * The least recently used chunks are evicted when the total size exceeds the byte budget.
+ * Disabled by default, call enable() to use it.
+ */
+@ThreadSafe
+public class H5chunkCache {
+  private static volatile H5chunkCache global;
+
+  /**
+   * Enable the global chunk cache, discarding any existing one.
+   *
+   * @param maxBytes maximum total size of the cached uncompressed chunks, in bytes.
+   */
+  public static void enable(long maxBytes) {
+    global = new H5chunkCache(maxBytes);
+  }
+
+  /** Disable and discard the global chunk cache. */
+  public static void disable() {
+    H5chunkCache old = global;
+    global = null;
+    if (old != null) {
+      old.clear();
+    }
+  }
+
+  /** The global chunk cache, or null if not enabled. */
+  @Nullable
+  public static H5chunkCache getInstance() {
+    return global;
+  }
+
+  ///////////////////////////////////////////////////////////////////
+
+  private final long maxBytes;
+  private final Cache<Key, ByteBuffer> cache;
+
+  private H5chunkCache(long maxBytes) {
+    Preconditions.checkArgument(maxBytes > 0, "maxBytes must be > 0");
+    this.maxBytes = maxBytes;
+    // a single segment, so that the byte budget applies to the whole cache, not to each segment
+    this.cache = CacheBuilder.newBuilder().concurrencyLevel(1).maximumWeight(maxBytes)
+        .weigher((Key key, ByteBuffer bb) -> bb.capacity()).recordStats().build();
+  }
+
+  /**
+   * Get a previously cached chunk.
+   *
+   * @return the uncompressed chunk, with its own position and the given byte order, or null if not in the cache.
+   */
+  @Nullable
+  ByteBuffer get(Key key, ByteOrder byteOrder) {
+    ByteBuffer bb = cache.getIfPresent(key);
+    return (bb == null) ? null : bb.duplicate().order(byteOrder);
+  }
+
+  /** Add an uncompressed chunk to the cache. The ByteBuffer must not be modified afterwards. */
+  void put(Key key, ByteBuffer bb) {
+    cache.put(key, bb);
+  }
+
+  /** Remove all chunks belonging to the given file. */
+  public void invalidate(String location) {
+    cache.asMap().keySet().removeIf(key -> key.location.equals(location));
+  }
+
+  /** Remove all chunks. */
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  /** The maximum total size of the cached chunks, in bytes. */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /** The current total size of the cached chunks, in bytes. */
+  public long getBytes() {
+    long total = 0;
+    for (ByteBuffer bb : cache.asMap().values()) {
+      total += bb.capacity();
+    }
+    return total;
+  }
+
+  /** The number of cached chunks. */
+  public long getCount() {
+    return cache.size();
+  }
+
+  /** Hit, miss and eviction counts since the cache was enabled. */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public void showStats(Formatter f) {
+    CacheStats stats = cache.stats();
+    f.format("H5chunkCache: %d chunks, %d / %d bytes%n", getCount(), getBytes(), maxBytes);
+    f.format("  hits= %d misses= %d hitRate= %.3f evictions= %d%n", stats.hitCount(), stats.missCount(),
+        stats.hitRate(), stats.evictionCount());
+  }
+
+  /** Identifies one chunk of one variable in one file. */
+  static class Key {
+    private final String location;
+    private final long lastModified;
+    private final String varName;
+    private final int[] offset;
+    private final int hashCode;
+
+    Key(String location, long lastModified, String varName, int[] offset) {
+      this.location = location;
+      this.lastModified = lastModified;
+      this.varName = varName;
+      this.offset = offset;
+      this.hashCode = Objects.hash(location, lastModified, varName, Arrays.hashCode(offset));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return lastModified == key.lastModified && location.equals(key.location) && varName.equals(key.varName)
+          && Arrays.equals(offset, key.offset);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public String toString() {
+      return location + " " + varName + " " + Arrays.toString(offset);
+    }
+  }
+}
@@ -44,6 +44,7 @@ import ucar.nc2.Group.Builder;
 import ucar.nc2.Structure;
 import ucar.nc2.Variable;
 import ucar.nc2.constants.CDM;
+import ucar.nc2.filter.Filters;
 import ucar.nc2.internal.iosp.hdf4.HdfEos;
 import ucar.nc2.internal.iosp.hdf4.HdfHeaderIF;
 import ucar.nc2.internal.iosp.hdf5.H5objects.DataObject;
@@ -66,6 +67,7 @@ import ucar.nc2.iosp.NetcdfFileFormat;
 import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.iosp.Layout;
 import ucar.nc2.iosp.LayoutRegular;
+import ucar.nc2.iosp.MagicNumber;
 import ucar.nc2.iosp.NetcdfFormatUtils;
 import ucar.unidata.io.RandomAccessFile;
 
@@ -114,6 +116,10 @@ public class H5header implements HdfHeaderIF {
   private static final byte[] magic = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
   private static final String magicString = new String(magic, StandardCharsets.UTF_8);
   private static final boolean transformReference = true;
+  private static final long maxHeaderPos = 50000; // same as NetcdfFileFormat.findNetcdfFormatType
+
+  // a file that starts with a netcdf-3 magic number is not valid, even if it has the HDF5 one further on
+  static final List<MagicNumber> MAGIC_NUMBERS = MagicNumber.doublingOffsets(magic, maxHeaderPos, true, false);
 
   public static boolean isValidFile(RandomAccessFile raf) throws IOException {
     NetcdfFileFormat format = NetcdfFileFormat.findNetcdfFormatType(raf);
@@ -136,8 +142,6 @@ public class H5header implements HdfHeaderIF {
    * 3) all variables' dimensions have a dimension scale
    */
 
-  private static final int KNOWN_FILTERS = 3;
-
   private final RandomAccessFile raf;
   private final Group.Builder root;
   private final H5iosp h5iosp;
@@ -1046,19 +1050,13 @@ public class H5header implements HdfHeaderIF {
       // place data into an ArrayStructureBB for efficiency
       ArrayStructureBB asbb = new ArrayStructureBB(sm, shape);
       byte[] byteArray = asbb.getByteBuffer().array();
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        if (chunk == null)
-          continue;
-        if (debugStructure) {
-          log.debug(" readStructure " + matt.name + " chunk= " + chunk + " index.getElemSize= " + layout.getElemSize());
-        }
-
-        // copy bytes directly into the underlying byte[]
-        raf.seek(chunk.getSrcPos());
-        raf.readFully(byteArray, (int) chunk.getDestElem() * recsize, chunk.getNelems() * recsize);
+      if (debugStructure) {
+        log.debug(" readStructure " + matt.name + " layout= " + layout + " recsize= " + recsize);
       }
 
+      // copy bytes directly into the underlying byte[]
+      IospHelper.readData(raf, layout, DataType.STRUCTURE, byteArray, null, false);
+
       // strings are stored on the heap, and must be read separately
       if (hasStrings) {
         int destPos = 0;
@@ -1374,7 +1372,7 @@ public class H5header implements HdfHeaderIF {
     vinfo.setOwner(vb);
     if ((vinfo.mfp != null) && warnings) {
       for (Filter f : vinfo.mfp.getFilters()) {
-        if (f.id > KNOWN_FILTERS) {
+        if (!Filters.isKnown(f.id)) {
           log.warn("  Variable " + facade.name + " has unknown Filter(s) = " + vinfo.mfp);
           break;
         }
@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.Charset;
+import java.util.List;
 import java.util.Optional;
 import ucar.ma2.Array;
 import ucar.ma2.ArrayStructure;
@@ -30,6 +31,7 @@ import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.iosp.Layout;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutRegular;
+import ucar.nc2.iosp.MagicNumber;
 import ucar.nc2.iosp.NetcdfFileFormat;
 import ucar.nc2.iosp.NetcdfFormatUtils;
 import ucar.nc2.time.CalendarDate;
@@ -76,6 +78,11 @@ public class H5iosp extends AbstractIOServiceProvider {
     return H5header.isValidFile(raf);
   }
 
+  @Override
+  public List<MagicNumber> getMagicNumbers() {
+    return H5header.MAGIC_NUMBERS;
+  }
+
   @Override
   public String getFileTypeId() {
     if (isEos) {
@@ -92,6 +99,12 @@ public class H5iosp extends AbstractIOServiceProvider {
     return "Hierarchical Data Format 5";
   }
 
+  /** Reads that use the file position lock the raf, see isPositionalRead(). */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   public static void useHdfEos(boolean val) {
     useHdfEos = val;
   }
@@ -171,7 +184,23 @@ public class H5iosp extends AbstractIOServiceProvider {
     H5header.Vinfo vinfo = (H5header.Vinfo) v2.getSPobject();
     if (debugRead)
       System.out.printf("%s read %s%n", v2.getFullName(), section);
-    return readData(v2, vinfo.dataPos, section);
+    if (isPositionalRead(vinfo, v2.getDataType())) {
+      return readData(v2, vinfo.dataPos, section);
+    }
+    synchronized (raf) {
+      return readData(v2, vinfo.dataPos, section);
+    }
+  }
+
+  /**
+   * Numeric, char and enum data is read only with positional reads, which dont use the file position,
+   * so many threads may read it at once. Everything else, eg strings, vlens and structures, also reads the
+   * global heap using the file position, and so must lock the raf, as does DataBTree.
+   */
+  boolean isPositionalRead(H5header.Vinfo vinfo, DataType dataType) {
+    H5header.TypeInfo typeInfo = vinfo.typeInfo;
+    return (dataType.isNumeric() || dataType.isEnum() || dataType == DataType.CHAR) && !typeInfo.isVlen
+        && !typeInfo.isVString && typeInfo.hdfType != 7; // reference
   }
 
   // all the work is here, so can be called recursively
@@ -344,17 +373,10 @@ public class H5iosp extends AbstractIOServiceProvider {
       int recsize = layout.getElemSize();
       long size = recsize * layout.getTotalNelems();
       byte[] byteArray = new byte[(int) size];
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        if (chunk == null)
-          continue;
-        if (debugStructure)
-          System.out.println(
-              " readStructure " + v.getFullName() + " chunk= " + chunk + " index.getElemSize= " + layout.getElemSize());
-        // copy bytes directly into the underlying byte[] LOOK : assumes contiguous layout ??
-        raf.seek(chunk.getSrcPos());
-        raf.readFully(byteArray, (int) chunk.getDestElem() * recsize, chunk.getNelems() * recsize);
-      }
+      if (debugStructure)
+        System.out.println(" readStructure " + v.getFullName() + " layout= " + layout + " recsize= " + recsize);
+      // copy bytes directly into the underlying byte[] LOOK : assumes contiguous layout ??
+      IospHelper.readData(raf, layout, DataType.STRUCTURE, byteArray, null, false);
 
       // place data into an ArrayStructureBB
       return convertStructure((Structure) v, layout, shape, byteArray); // LOOK
@@ -8,6 +8,8 @@ import com.google.common.base.Preconditions;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.concurrent.Executor;
+import javax.annotation.Nullable;
 import ucar.array.ArrayVlen;
 import ucar.array.Arrays;
 import ucar.array.StructureDataArray;
@@ -33,6 +35,29 @@ import ucar.unidata.io.RandomAccessFile;
 
 /** HDF5 I/O with ucar.array.Array */
 public class H5iospArrays extends H5iosp {
+  private static final int DEFAULT_CHUNKS_IN_FLIGHT = 16;
+
+  private static volatile Executor filterExecutor;
+  private static volatile int maxChunksInFlight = DEFAULT_CHUNKS_IN_FLIGHT;
+
+  /**
+   * Opt-in parallel decompression of filtered (eg deflated) chunked variables in readArrayData().
+   * The chunks are still read from the file sequentially, but the filters are run on the given executor,
+   * typically a fixed size thread pool owned by the application. The result is the same as the serial read.
+   *
+   * @param executor run the filters on this executor, or null (the default) to run them on the calling thread.
+   * @param maxChunksInFlight maximum number of chunks read but not yet decoded, per read call. Bounds memory use.
+   */
+  public static void setFilterExecutor(@Nullable Executor executor, int maxChunksInFlight) {
+    Preconditions.checkArgument(maxChunksInFlight > 0, "maxChunksInFlight must be > 0");
+    H5iospArrays.maxChunksInFlight = maxChunksInFlight;
+    H5iospArrays.filterExecutor = executor;
+  }
+
+  /** Same as setFilterExecutor(executor, 16). */
+  public static void setFilterExecutor(@Nullable Executor executor) {
+    setFilterExecutor(executor, DEFAULT_CHUNKS_IN_FLIGHT);
+  }
 
   @Override
   public void build(RandomAccessFile raf, Group.Builder rootGroup, CancelTask cancelTask) throws IOException {
@@ -62,7 +87,12 @@ public class H5iospArrays extends H5iosp {
     if (debugRead) {
       System.out.printf("%s read %s%n", v2.getFullName(), section);
     }
-    return readArrayData(v2, vinfo.dataPos, section);
+    if (isPositionalRead(vinfo, v2.getDataType())) {
+      return readArrayData(v2, vinfo.dataPos, section);
+    }
+    synchronized (raf) {
+      return readArrayData(v2, vinfo.dataPos, section);
+    }
   }
 
   // all the work is here, so it can be called recursively
@@ -86,11 +116,15 @@ public class H5iospArrays extends H5iosp {
         System.out.println("read variable filtered " + v2.getFullName() + " vinfo = " + vinfo);
       assert vinfo.isChunked;
       ByteOrder bo = vinfo.typeInfo.endian;
-      layout = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo);
+      H5tiledLayoutBB layoutBB = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo);
+      layout = layoutBB;
+      Executor executor = filterExecutor;
       if (vinfo.typeInfo.isVString) {
-        data = readFilteredStringData((LayoutBB) layout);
+        data = readFilteredStringData(layoutBB);
+      } else if (executor != null && (dataType.isNumeric() || dataType.isEnum() || dataType == DataType.CHAR)) {
+        data = layoutBB.readDataParallel(dataType, vinfo.getFillValue(), executor, maxChunksInFlight);
       } else {
-        data = IospHelper.readDataFill((LayoutBB) layout, v2.getDataType(), vinfo.getFillValue());
+        data = IospHelper.readDataFill(layoutBB, v2.getDataType(), vinfo.getFillValue());
       }
 
     } else { // normal case
@@ -7,19 +7,27 @@ package ucar.nc2.internal.iosp.hdf5;
 import com.google.common.base.Preconditions;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import javax.annotation.Nullable;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
 import ucar.nc2.Variable;
-import ucar.nc2.internal.iosp.hdf5.H5objects.Filter;
+import ucar.nc2.filter.Filter;
+import ucar.nc2.filter.Filters;
+import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutBBTiled;
-import ucar.nc2.util.IO;
 import ucar.unidata.io.RandomAccessFile;
 
 /**
@@ -33,25 +41,26 @@ import ucar.unidata.io.RandomAccessFile;
  */
 public class H5tiledLayoutBB implements LayoutBB {
   static boolean debugFilter;
-
-  private static final int DEFAULTZIPBUFFERSIZE = 512;
-  // System property name for -D flag
-  private static final String INFLATEBUFFERSIZE_PROPERTY = "unidata.h5iosp.inflate.buffersize";
   private static boolean debug;
 
+  // Copied from ArrayList.
+  private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
+
   private final LayoutBBTiled delegate;
+  private final DataChunkIterator chunkIterator;
 
   private final RandomAccessFile raf;
   private final Filter[] filters;
   private final ByteOrder byteOrder;
+  private final String varName;
+  private final H5chunkCache chunkCache; // may be null
+  private final long lastModified; // only needed for the chunkCache key
 
   private final Section want;
   private final int[] chunkSize; // from the StorageLayout message (exclude the elemSize)
   private final int elemSize; // last dimension of the StorageLayout message
   private final int nChunkDims;
 
-  private int inflatebuffersize = DEFAULTZIPBUFFERSIZE;
-
   /**
    * Constructor.
    * This is for HDF5 chunked data storage. The data is read by chunk, for efficency.
@@ -62,8 +71,10 @@ public class H5tiledLayoutBB implements LayoutBB {
    * @param filters set of filters that have been applied to the data
    * @throws InvalidRangeException if section invalid for this variable
    * @throws IOException on io error
+   * @throws Filters.UnknownFilterException if a filter has no FilterProvider
    */
-  public H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, Filter[] filters, ByteOrder byteOrder)
+  public H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, H5objects.Filter[] filters,
+      ByteOrder byteOrder)
       throws InvalidRangeException, IOException {
     wantSection = Section.fill(wantSection, v2.getShape());
 
@@ -73,8 +84,10 @@ public class H5tiledLayoutBB implements LayoutBB {
     Preconditions.checkNotNull(vinfo.btree);
 
     this.raf = raf;
-    this.filters = filters;
     this.byteOrder = byteOrder;
+    this.varName = v2.getFullName();
+    this.chunkCache = H5chunkCache.getInstance();
+    this.lastModified = (chunkCache == null) ? 0 : raf.getLastModified();
 
     // we have to translate the want section into the same rank as the storageSize, in order to be able to call
     // Section.intersect(). It appears that storageSize (actually msl.chunkSize) may have an extra dimension, reletive
@@ -92,24 +105,22 @@ public class H5tiledLayoutBB implements LayoutBB {
     System.arraycopy(vinfo.storageSize, 0, chunkSize, 0, nChunkDims);
     this.elemSize = vinfo.storageSize[vinfo.storageSize.length - 1]; // last one is always the elements size
 
+    // the filters get the size of an unfiltered chunk, so they can allocate their result up front
+    long chunkBytes = elemSize;
+    for (int i = 0; i < nChunkDims; i++) {
+      chunkBytes *= chunkSize[i];
+    }
+    int chunkBytesHint = (int) Math.min(chunkBytes, MAX_ARRAY_LEN);
+    this.filters = new Filter[filters.length];
+    for (int i = 0; i < filters.length; i++) {
+      H5objects.Filter f = filters[i];
+      this.filters[i] = Filters.getFilter(f.id, f.data, elemSize, chunkBytesHint);
+    }
+
     // create the data chunk iterator
     DataBTree.DataChunkIterator iter = vinfo.btree.getDataChunkIteratorFilter(this.want);
-    DataChunkIterator dcIter = new DataChunkIterator(iter);
-    delegate = new LayoutBBTiled(dcIter, chunkSize, elemSize, this.want);
-
-    if (System.getProperty(INFLATEBUFFERSIZE_PROPERTY) != null) {
-      try {
-        int size = Integer.parseInt(System.getProperty(INFLATEBUFFERSIZE_PROPERTY));
-        if (size <= 0)
-          H5iosp.log.warn(String.format("-D%s must be > 0", INFLATEBUFFERSIZE_PROPERTY));
-        else
-          this.inflatebuffersize = size;
-      } catch (NumberFormatException nfe) {
-        H5iosp.log.warn(String.format("-D%s is not an integer", INFLATEBUFFERSIZE_PROPERTY));
-      }
-    }
-    if (debugFilter)
-      System.out.printf("inflate buffer size -D%s = %d%n", INFLATEBUFFERSIZE_PROPERTY, this.inflatebuffersize);
+    this.chunkIterator = new DataChunkIterator(iter);
+    delegate = new LayoutBBTiled(chunkIterator, chunkSize, elemSize, this.want);
 
     if (debug)
       System.out.println(" H5tiledLayout: " + this);
@@ -131,6 +142,169 @@ public class H5tiledLayoutBB implements LayoutBB {
     return delegate.next();
   }
 
+  /**
+   * Read all of the wanted data, running the filters on the given executor.
+   * The raw chunk bytes are read in batches with RandomAccessFile.readRanges() on the calling thread,
+   * since the RandomAccessFile is not thread safe.
+   * Each chunk is then uncompressed on the executor and copied directly into its place in the result.
+   * Chunks the executor has not started, or rejects, are uncompressed on the calling thread, so this may be called
+   * from one of the executor's threads.
+   * The result is the same as IospHelper.readDataFill(this, dataType, fillValue).
+   * Do not mix with hasNext() / next(), they share the same chunk iterator.
+   *
+   * @param dataType dataType of the variable, must be numeric, enum or char.
+   * @param fillValue the fill value for missing chunks, or null for none
+   * @param executor run the filters on this executor.
+   * @param maxChunksInFlight maximum number of chunks read but not yet copied, bounds the memory used.
+   * @return primitive array with data read in
+   * @throws IOException on read error, or if a filter fails.
+   */
+  public Object readDataParallel(DataType dataType, Object fillValue, Executor executor, int maxChunksInFlight)
+      throws IOException {
+    Preconditions.checkArgument(dataType.isNumeric() || dataType.isEnum() || dataType == DataType.CHAR);
+    Preconditions.checkArgument(maxChunksInFlight > 0);
+    long size = getTotalNelems();
+    if (size >= Integer.MAX_VALUE) {
+      throw new RuntimeException("Read request too large");
+    }
+    Object arr = (fillValue == null) ? IospHelper.makePrimitiveArray((int) size, dataType)
+        : IospHelper.makePrimitiveArray((int) size, dataType, fillValue);
+    // char is stored as bytes, and converted once at the end
+    DataType copyType = (dataType == DataType.CHAR) ? DataType.BYTE : dataType;
+
+    Semaphore inFlight = new Semaphore(maxChunksInFlight);
+    int batchSize = Math.max(1, maxChunksInFlight / 2); // read the next batch while the last one is uncompressed
+    List<DataChunk> batch = new ArrayList<>(batchSize);
+    List<FutureTask<Void>> tasks = new ArrayList<>();
+    int[] helpFrom = {0};
+    try {
+      while (chunkIterator.hasNext()) {
+        DataChunk dataChunk = chunkIterator.next();
+        Section dataSection = new Section(dataChunk.getOffset(), chunkSize);
+        if (!dataSection.intersects(want)) {
+          continue;
+        }
+        ByteBuffer cached = dataChunk.getCached();
+        if (cached != null) { // already uncompressed, just copy it
+          copyChunk(dataChunk.getOffset(), cached, copyType, arr);
+          continue;
+        }
+        batch.add(dataChunk);
+        if (batch.size() == batchSize) {
+          submitBatch(batch, copyType, arr, inFlight, executor, tasks, helpFrom);
+        }
+      }
+      submitBatch(batch, copyType, arr, inFlight, executor, tasks, helpFrom);
+      for (FutureTask<Void> task : tasks) {
+        task.run(); // if the executor has not started it yet, dont wait for it
+        task.get();
+      }
+
+    } catch (InterruptedException e) {
+      tasks.forEach(t -> t.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("readDataParallel was interrupted");
+
+    } catch (ExecutionException e) {
+      tasks.forEach(t -> t.cancel(true));
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+
+    } catch (InvalidRangeException e) {
+      throw new IllegalStateException(e);
+    }
+
+    return (dataType == DataType.CHAR) ? IospHelper.convertByteToChar((byte[]) arr) : arr;
+  }
+
+  // Read the raw bytes of the batch of chunks together, then uncompress each one on the executor.
+  private void submitBatch(List<DataChunk> batch, DataType copyType, Object arr, Semaphore inFlight,
+      Executor executor, List<FutureTask<Void>> tasks, int[] helpFrom) throws IOException, InterruptedException {
+    if (batch.isEmpty()) {
+      return;
+    }
+    acquire(inFlight, batch.size(), tasks, helpFrom);
+    int submitted = 0;
+    try {
+      List<byte[]> raws = readRaw(batch);
+      for (int i = 0; i < batch.size(); i++) {
+        DataChunk dataChunk = batch.get(i);
+        byte[] raw = raws.get(i);
+        FutureTask<Void> task = new FutureTask<>(() -> {
+          try {
+            ByteBuffer bb = dataChunk.cache(dataChunk.applyFilters(raw));
+            copyChunk(dataChunk.getOffset(), bb, copyType, arr);
+          } finally {
+            inFlight.release();
+          }
+          return null;
+        });
+        tasks.add(task);
+        submitted++; // from here on the task releases its own permit
+        try {
+          executor.execute(task);
+        } catch (RejectedExecutionException e) {
+          task.run(); // eg the executor was shut down
+        }
+      }
+    } finally {
+      inFlight.release(batch.size() - submitted);
+    }
+    batch.clear();
+  }
+
+  // Acquire the permits, running tasks that have not started yet on this thread while waiting. Otherwise a
+  // busy executor, or one whose thread is this one, could keep the permits from ever being released.
+  // helpFrom[0] is the first task that may not have started.
+  private static void acquire(Semaphore inFlight, int permits, List<FutureTask<Void>> tasks, int[] helpFrom)
+      throws InterruptedException {
+    while (!inFlight.tryAcquire(permits)) {
+      if (helpFrom[0] < tasks.size()) {
+        tasks.get(helpFrom[0]++).run(); // does nothing if it has already started
+      } else {
+        inFlight.acquire(permits); // the remaining tasks are running, and will release theirs
+        return;
+      }
+    }
+  }
+
+  // read the raw (still filtered) bytes of the chunks with RandomAccessFile.readRanges(), so nearby chunks are read
+  // together, and remote chunks may be read concurrently
+  private List<byte[]> readRaw(List<DataChunk> chunks) throws IOException {
+    List<RandomAccessFile.Range> ranges = new ArrayList<>(chunks.size());
+    for (DataChunk dataChunk : chunks) {
+      ranges.add(new RandomAccessFile.Range(dataChunk.delegate.filePos, dataChunk.delegate.size));
+    }
+    try {
+      List<byte[]> result = new ArrayList<>(chunks.size());
+      for (ByteBuffer bb : raf.readRanges(ranges)) {
+        if (bb.hasArray() && bb.arrayOffset() == 0 && bb.remaining() == bb.array().length) {
+          result.add(bb.array()); // not coalesced with its neighbors
+        } else {
+          byte[] data = new byte[bb.remaining()];
+          bb.get(data);
+          result.add(data);
+        }
+      }
+      return result;
+    } catch (OutOfMemoryError e) {
+      throw chunks.get(0).outOfMemory(e);
+    }
+  }
+
+  // copy the wanted part of one uncompressed chunk into the result
+  private void copyChunk(int[] offset, ByteBuffer bb, DataType dataType, Object arr) {
+    LayoutBBTiled chunkLayout = new LayoutBBTiled(new DecodedChunkIterator(offset, bb), chunkSize, elemSize, want);
+    IospHelper.readData(chunkLayout, dataType, arr);
+  }
+
   public String toString() {
     StringBuilder sbuff = new StringBuilder();
     sbuff.append("want=").append(want).append("; ");
@@ -156,15 +330,41 @@ public class H5tiledLayoutBB implements LayoutBB {
       return delegate.hasNext();
     }
 
-    public LayoutBBTiled.DataChunk next() throws IOException {
+    public DataChunk next() throws IOException {
       return new DataChunk(delegate.next());
     }
   }
 
-  private class DataChunk implements LayoutBBTiled.DataChunk {
-    // Copied from ArrayList.
-    private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
+  // A single chunk that has already been read and uncompressed.
+  private static class DecodedChunkIterator implements LayoutBBTiled.DataChunkIterator, LayoutBBTiled.DataChunk {
+    private final int[] offset;
+    private final ByteBuffer bb;
+    private boolean done;
+
+    DecodedChunkIterator(int[] offset, ByteBuffer bb) {
+      this.offset = offset;
+      this.bb = bb;
+    }
+
+    public boolean hasNext() {
+      return !done;
+    }
+
+    public LayoutBBTiled.DataChunk next() {
+      done = true;
+      return this;
+    }
 
+    public int[] getOffset() {
+      return offset;
+    }
+
+    public ByteBuffer getByteBuffer() {
+      return bb;
+    }
+  }
+
+  private class DataChunk implements LayoutBBTiled.DataChunk {
     DataBTree.DataChunk delegate;
 
     DataChunk(DataBTree.DataChunk delegate) {
@@ -201,12 +401,46 @@ public class H5tiledLayoutBB implements LayoutBB {
     }
 
     public ByteBuffer getByteBuffer() throws IOException {
+      ByteBuffer cached = getCached();
+      if (cached != null) {
+        return cached;
+      }
+      return cache(applyFilters(readRaw()));
+    }
+
+    // the uncompressed chunk from the H5chunkCache, or null if not cached
+    @Nullable
+    ByteBuffer getCached() {
+      return (chunkCache == null) ? null : chunkCache.get(cacheKey(), byteOrder);
+    }
+
+    // add the uncompressed chunk to the H5chunkCache, if enabled
+    ByteBuffer cache(ByteBuffer bb) {
+      if (chunkCache == null) {
+        return bb;
+      }
+      chunkCache.put(cacheKey(), bb);
+      return bb.duplicate().order(byteOrder); // caller gets its own position
+    }
+
+    private H5chunkCache.Key cacheKey() {
+      return new H5chunkCache.Key(raf.getLocation(), lastModified, varName, delegate.offset);
+    }
+
+    // read the raw (still filtered) bytes of this chunk, with a positional read, so it is thread-safe
+    byte[] readRaw() throws IOException {
       try {
-        // read the data
         byte[] data = new byte[delegate.size];
-        raf.seek(delegate.filePos);
-        raf.readFully(data);
+        raf.readFullyAt(delegate.filePos, data, 0, data.length);
+        return data;
+      } catch (OutOfMemoryError e) {
+        throw outOfMemory(e);
+      }
+    }
 
+    // Does not use the RandomAccessFile, so may be called from any thread.
+    ByteBuffer applyFilters(byte[] data) throws IOException {
+      try {
         // apply filters backwards
         for (int i = filters.length - 1; i >= 0; i--) {
           Filter f = filters[i];
@@ -215,107 +449,25 @@ public class H5tiledLayoutBB implements LayoutBB {
               System.out.println("skip for chunk " + delegate);
             continue;
           }
-          if (f.id == 1) {
-            data = inflate(data);
-          } else if (f.id == 2) {
-            data = shuffle(data, f.data[0]);
-          } else if (f.id == 3) {
-            data = checkfletcher32(data);
-            /*
-             * } else if (f.id == 307) {
-             * data = unbzip2(data);
-             */
-          } else
-            throw new RuntimeException("Unknown filter type=" + f.id);
+          int sizeIn = data.length;
+          data = f.decode(data);
+          if (debug || debugFilter)
+            System.out.printf(" %s bytes in= %d bytes out= %d%n", f.getName(), sizeIn, data.length);
         }
 
         ByteBuffer result = ByteBuffer.wrap(data);
         result.order(byteOrder);
         return result;
       } catch (OutOfMemoryError e) {
-        Error oom = new OutOfMemoryError("Ran out of memory trying to read HDF5 filtered chunk. Either increase the "
-            + "JVM's heap size (use the -Xmx switch) or reduce the size of the dataset's chunks (use nccopy -c).");
-        oom.initCause(e); // OutOfMemoryError lacks a constructor with a cause parameter.
-        throw oom;
+        throw outOfMemory(e);
       }
     }
 
-    /**
-     * inflate data
-     *
-     * @param compressed compressed data
-     * @return uncompressed data
-     * @throws IOException on I/O error
-     */
-    private byte[] inflate(byte[] compressed) throws IOException {
-      // run it through the Inflator
-      ByteArrayInputStream in = new ByteArrayInputStream(compressed);
-      java.util.zip.Inflater inflater = new java.util.zip.Inflater();
-      java.util.zip.InflaterInputStream inflatestream =
-          new java.util.zip.InflaterInputStream(in, inflater, inflatebuffersize);
-      int len = Math.min(8 * compressed.length, MAX_ARRAY_LEN);
-      ByteArrayOutputStream out = new ByteArrayOutputStream(len); // Fixes KXL-349288
-      IO.copyB(inflatestream, out, len);
-
-      byte[] uncomp = out.toByteArray();
-      if (debug || debugFilter)
-        System.out.println(" inflate bytes in= " + compressed.length + " bytes out= " + uncomp.length);
-      return uncomp;
-    }
-
-    /*
-     * private byte[] unbzip2(byte[] compressed) throws IOException {
-     * int max = 20 * compressed.length;
-     * byte[] buffer = new byte[max];
-     * ByteArrayOutputStream out = new ByteArrayOutputStream(20 * compressed.length);
-     * ByteArrayInputStream in = new ByteArrayInputStream(compressed);
-     * try (org.itadaki.bzip2.BZip2InputStream bzIn = new org.itadaki.bzip2.BZip2InputStream(in, false)) {
-     * int bytesRead;
-     * int totRead = 0;
-     * while ((bytesRead = bzIn.read (buffer)) != -1) {
-     * out.write (buffer, 0, bytesRead) ; // LOOK unneeded copy
-     * totRead += bytesRead;
-     * }
-     * out.close();
-     * //System.out.printf("unbzip2=%d%n", totRead);
-     * } catch (Exception e) {
-     * e.printStackTrace();
-     * }
-     * 
-     * return out.toByteArray();
-     * }
-     */
-
-    // just strip off the 4-byte fletcher32 checksum at the end
-    private byte[] checkfletcher32(byte[] org) {
-      byte[] result = new byte[org.length - 4];
-      System.arraycopy(org, 0, result, 0, result.length);
-      if (debug)
-        System.out.println(" checkfletcher32 bytes in= " + org.length + " bytes out= " + result.length);
-      return result;
-    }
-
-    private byte[] shuffle(byte[] data, int n) {
-      if (debug)
-        System.out.println(" shuffle bytes in= " + data.length + " n= " + n);
-
-      assert data.length % n == 0;
-      if (n <= 1)
-        return data;
-
-      int m = data.length / n;
-      int[] count = new int[n];
-      for (int k = 0; k < n; k++)
-        count[k] = k * m;
-
-      byte[] result = new byte[data.length];
-      for (int i = 0; i < m; i++) {
-        for (int j = 0; j < n; j++) {
-          result[i * n + j] = data[i + count[j]];
-        }
-      }
-
-      return result;
+    private Error outOfMemory(OutOfMemoryError e) {
+      Error oom = new OutOfMemoryError("Ran out of memory trying to read HDF5 filtered chunk. Either increase the "
+          + "JVM's heap size (use the -Xmx switch) or reduce the size of the dataset's chunks (use nccopy -c).");
+      oom.initCause(e); // OutOfMemoryError lacks a constructor with a cause parameter.
+      return oom;
     }
 
     boolean isBitSet(int val, int bitno) {
@@ -8,6 +8,8 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import ucar.ma2.*;
 import ucar.nc2.*;
+import com.google.common.collect.ImmutableList;
+import ucar.nc2.iosp.MagicNumber;
 import ucar.nc2.iosp.NetcdfFileFormat;
 import ucar.unidata.io.RandomAccessFile;
 import java.util.*;
@@ -23,6 +25,8 @@ public class N3header {
   static final int MAGIC_DIM = 10;
   static final int MAGIC_VAR = 11;
   static final int MAGIC_ATT = 12;
+  static final List<MagicNumber> MAGIC_NUMBERS =
+      ImmutableList.of(MagicNumber.conclusive(0, MAGIC), MagicNumber.conclusive(0, MAGIC_LONG));
 
   public static boolean disallowFileTruncation; // see NetcdfFile.setDebugFlags
   public static boolean debugHeaderSize; // see NetcdfFile.setDebugFlags
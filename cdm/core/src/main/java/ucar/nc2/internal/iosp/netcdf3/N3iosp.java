@@ -8,7 +8,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Formatter;
+import java.util.List;
 import java.util.Optional;
 import ucar.array.Storage;
 import ucar.array.StructureData;
@@ -30,6 +32,7 @@ import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.iosp.Layout;
 import ucar.nc2.iosp.LayoutRegular;
 import ucar.nc2.iosp.LayoutRegularSegmented;
+import ucar.nc2.iosp.MagicNumber;
 import ucar.nc2.internal.iosp.netcdf3.N3header.Vinfo;
 import ucar.nc2.iosp.NetcdfFileFormat;
 import ucar.nc2.util.CancelTask;
@@ -88,6 +91,11 @@ public class N3iosp extends AbstractIOServiceProvider implements IOServiceProvid
     return N3header.isValidFile(raf);
   }
 
+  @Override
+  public List<MagicNumber> getMagicNumbers() {
+    return N3header.MAGIC_NUMBERS;
+  }
+
   @Override
   public String getDetailInfo() {
     Formatter f = new Formatter();
@@ -183,6 +191,12 @@ public class N3iosp extends AbstractIOServiceProvider implements IOServiceProvid
     return "1";
   }
 
+  /** The data is read only with positional reads, see IospHelper.readData() and readRecords(). */
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   //////////////////////////////////////////////////////////////////////////////////////
   // open existing file
 
@@ -278,23 +292,7 @@ public class N3iosp extends AbstractIOServiceProvider implements IOServiceProvid
     members.setStructureSize((int) header.recsize);
     ArrayStructureBB structureArray = new ArrayStructureBB(members, new int[] {recordRange.length()});
 
-    // loop over records
-    byte[] result = structureArray.getByteBuffer().array();
-    int count = 0;
-    for (int recnum : recordRange) {
-      if (debugRecord)
-        System.out.println(" read record " + recnum);
-      raf.seek(header.recStart + recnum * header.recsize); // where the record starts
-
-      if (recnum != header.numrecs - 1) {
-        raf.readFully(result, (int) (count * header.recsize), (int) header.recsize);
-      } else {
-        // "wart" allows file to be one byte short. since its always padding, we allow
-        raf.read(result, (int) (count * header.recsize), (int) header.recsize);
-      }
-      count++;
-    }
-
+    readRecords(recordRange, structureArray.getByteBuffer().array());
     return structureArray;
   }
 
@@ -324,23 +322,35 @@ public class N3iosp extends AbstractIOServiceProvider implements IOServiceProvid
     membersb.setStructureSize((int) header.recsize);
 
     byte[] result = new byte[(int) (nrecs * header.recsize)];
-    int rcount = 0;
-    // loop over records
-    for (int recnum : recordRange) {
-      raf.seek(header.recStart + recnum * header.recsize); // where the record starts
-
-      if (recnum != header.numrecs - 1) {
-        raf.readFully(result, (int) (rcount * header.recsize), (int) header.recsize);
-      } else {
-        // "wart" allows file to be one byte short. since its always padding, we allow
-        raf.read(result, (int) (rcount * header.recsize), (int) header.recsize);
-      }
-      rcount++;
-    }
+    readRecords(recordRange, result);
 
     ucar.array.StructureMembers members = membersb.build();
     Storage<StructureData> storage =
         new ucar.array.StructureDataStorageBB(members, ByteBuffer.wrap(result), (int) section.getSize());
     return new ucar.array.StructureDataArray(members, section.getShape(), storage);
   }
+
+  // read the records into result, with RandomAccessFile.readRanges(), so nearby records are read together
+  private void readRecords(Range recordRange, byte[] result) throws IOException {
+    int recsize = (int) header.recsize;
+    long fileLength = raf.length();
+    List<RandomAccessFile.Range> ranges = new ArrayList<>(recordRange.length());
+    for (int recnum : recordRange) {
+      if (debugRecord)
+        System.out.println(" read record " + recnum);
+      long start = header.recStart + recnum * header.recsize; // where the record starts
+      int len = recsize;
+      if (recnum == header.numrecs - 1) {
+        // "wart" allows file to be one byte short. since its always padding, we allow
+        len = (int) Math.max(0, Math.min(len, fileLength - start));
+      }
+      ranges.add(new RandomAccessFile.Range(start, len));
+    }
+
+    List<ByteBuffer> records = raf.readRanges(ranges);
+    for (int i = 0; i < records.size(); i++) {
+      ByteBuffer record = records.get(i);
+      record.get(result, i * recsize, record.remaining());
+    }
+  }
 }
@@ -45,6 +45,12 @@ public class N3iospWriter extends N3iosp implements IospFileCreator, IospFileUpd
     this.iosp = iosp; // WHY ?
   }
 
+  /** The file is being written. */
+  @Override
+  public boolean isThreadSafe() {
+    return false;
+  }
+
   @Override
   public NetcdfFile create(String filename, Group.Builder rootGroup, int extra, long preallocateSize, boolean largeFile)
       throws IOException {
@@ -58,11 +58,35 @@ public abstract class Aggregation {
 
   // experimental multithreading
   protected static Executor executor;
+  protected static int maxConcurrentReads = 8;
 
+  /**
+   * Use this Executor to read the nested datasets, both for reading all of a variable and for reading a section of a
+   * variable of an outer aggregation.
+   * 
+   * @param exec read nested datasets on this executor, or null to read them serially.
+   */
   public static void setExecutor(Executor exec) {
     executor = exec;
   }
 
+  /**
+   * Use this Executor to read the nested datasets, with at most maxConcurrentReads of one variable read at a time.
+   * This includes reading a section of a variable of an outer aggregation. There, datasets that the executor rejects,
+   * or has not started when they are needed, are read on the calling thread, so the executor may be bounded, and may
+   * be shared by nested aggregations.
+   * 
+   * @param exec read nested datasets on this executor, or null to read them serially.
+   * @param maxConcurrentReads maximum number of nested datasets that a section read has in flight at one time.
+   */
+  public static void setExecutor(Executor exec, int maxConcurrentReads) {
+    if (maxConcurrentReads < 1) {
+      throw new IllegalArgumentException("maxConcurrentReads must be > 0");
+    }
+    Aggregation.maxConcurrentReads = maxConcurrentReads;
+    executor = exec;
+  }
+
   public static void setTypicalDatasetMode(String mode) {
     if (mode.equalsIgnoreCase("random"))
       typicalDatasetMode = TypicalDataset.RANDOM;
@@ -323,7 +347,7 @@ public abstract class Aggregation {
   public void persistWrite() throws IOException {}
 
   /**
-   * read info from the persistent XML file, if it exists; overridden in AggregationExisting
+   * read info from the persistent cache file, if it exists; overridden in AggregationExisting
    */
   protected void persistRead() {}
 
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.ncml;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+import ucar.nc2.stream.NcStream;
+
+/**
+ * The persistent information of a joinExisting aggregation: for each nested dataset, its ncoords, lastModified,
+ * and the values of the cached variables. Stored as protobuf messages, see aggCache.proto.
+ * <p>
+ * The file is only appended to when nested datasets are added, changed or removed, and is rewritten when most of
+ * it has been superseded. The cached variable values are only decoded when asked for.
+ * <p>
+ * Writers hold a lock on a separate ".lock" file, so the lock still protects the cache file after it is replaced by a
+ * rewrite. A rewrite keeps the datasets that other writers have added since this one read the file.
+ */
+class AggregationCache {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AggregationCache.class);
+
+  static final String MAGIC_START = "NcmlAggCache";
+  private static final int version = 1; // cache must be this version, or else rewrite.
+
+  private final File file;
+  private final String type;
+  private final String dimName;
+  private final Map<String, AggCacheProto.Dataset> datasets = new HashMap<>(); // latest message for each id
+  private int nmessages; // Dataset messages in the file, including superseded ones
+  private boolean needsRewrite = true; // file is missing, or not something we can append to
+
+  AggregationCache(File file, String type, @Nullable String dimName) {
+    this.file = file;
+    this.type = type;
+    this.dimName = dimName == null ? "" : dimName;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  boolean exists() {
+    return file.exists();
+  }
+
+  /** Read the file, if it exists. A missing, old or damaged file is ignored, and rewritten on the next write. */
+  void read() {
+    datasets.clear();
+    nmessages = 0;
+    needsRewrite = true;
+    if (!file.exists()) {
+      return;
+    }
+
+    byte[] bytes;
+    try {
+      bytes = Files.readAllBytes(file.toPath());
+    } catch (IOException e) {
+      logger.warn("Cant read aggregation cache {}", file.getPath(), e);
+      return;
+    }
+
+    try (ByteArrayInputStream in = new ByteArrayInputStream(bytes)) {
+      if (!NcStream.readAndTest(in, MAGIC_START.getBytes(StandardCharsets.UTF_8))) {
+        logger.debug("Not an aggregation cache {}", file.getPath());
+        return;
+      }
+      int v = NcStream.readVInt(in);
+      if (v != version) {
+        logger.debug("Aggregation cache {} has version {}, want {}", file.getPath(), v, version);
+        return;
+      }
+      AggCacheProto.Header header = readMessage(in, bytes, AggCacheProto.Header.parser());
+      if (header == null || !header.getType().equals(type) || !header.getDimName().equals(dimName)) {
+        return;
+      }
+
+      boolean damaged = false;
+      while (in.available() > 0) {
+        AggCacheProto.Dataset dataset;
+        try {
+          dataset = readMessage(in, bytes, AggCacheProto.Dataset.parser());
+        } catch (InvalidProtocolBufferException e) {
+          dataset = null;
+        }
+        if (dataset == null) { // eg a partial append; keep what we have
+          logger.warn("Aggregation cache {} is damaged after {} datasets", file.getPath(), nmessages);
+          damaged = true;
+          break;
+        }
+        nmessages++;
+        if (dataset.getRemoved()) {
+          datasets.remove(dataset.getId());
+        } else {
+          datasets.put(dataset.getId(), dataset);
+        }
+      }
+      needsRewrite = damaged;
+
+    } catch (IOException e) {
+      logger.warn("Cant read aggregation cache {}", file.getPath(), e);
+      datasets.clear();
+    }
+  }
+
+  @Nullable
+  private static <T> T readMessage(ByteArrayInputStream in, byte[] bytes, com.google.protobuf.Parser<T> parser)
+      throws IOException {
+    int size = NcStream.readVInt(in);
+    int pos = bytes.length - in.available();
+    if (size < 0 || size > in.available()) {
+      return null;
+    }
+    T result = parser.parseFrom(bytes, pos, size);
+    in.skip(size);
+    return result;
+  }
+
+  /** The persisted info for this dataset, or null if none. */
+  @Nullable
+  AggCacheProto.Dataset get(String id) {
+    return datasets.get(id);
+  }
+
+  /** Forget the persisted info for this dataset, eg because it has changed since it was written. */
+  void remove(String id) {
+    datasets.remove(id);
+  }
+
+  /** The values of this cached variable for this dataset, or null if not persisted. */
+  @Nullable
+  Array getData(String id, String varName) {
+    AggCacheProto.CacheVar cacheVar = getCacheVar(datasets.get(id), varName);
+    return cacheVar == null ? null : decode(cacheVar);
+  }
+
+  @Nullable
+  static AggCacheProto.CacheVar getCacheVar(@Nullable AggCacheProto.Dataset dataset, String varName) {
+    if (dataset == null) {
+      return null;
+    }
+    for (AggCacheProto.CacheVar cacheVar : dataset.getVarsList()) {
+      if (cacheVar.getVarName().equals(varName)) {
+        return cacheVar;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Make the file hold exactly these datasets, plus any that other writers have added since this read it. Only the
+   * datasets that are new, changed or removed since the file was read or last written are appended, unless the file
+   * needs to be rewritten.
+   *
+   * @return true if the file now holds these datasets, including when there was nothing to write. False if it was
+   *         not written, because another writer holds its lock.
+   */
+  boolean write(List<AggCacheProto.Dataset> current) throws IOException {
+    List<AggCacheProto.Dataset> changes = new ArrayList<>();
+    Set<String> currentIds = new HashSet<>();
+    for (AggCacheProto.Dataset dataset : current) {
+      currentIds.add(dataset.getId());
+      if (!dataset.equals(datasets.get(dataset.getId()))) {
+        changes.add(dataset);
+      }
+    }
+    for (String id : datasets.keySet()) {
+      if (!currentIds.contains(id)) {
+        changes.add(AggCacheProto.Dataset.newBuilder().setId(id).setRemoved(true).build());
+      }
+    }
+
+    boolean rewrite = needsRewrite || !file.exists() || (nmessages + changes.size() > 2 * current.size() + 16);
+    if (!rewrite && changes.isEmpty()) {
+      return true;
+    }
+
+    File dir = file.getParentFile();
+    if (dir != null && !dir.exists() && !dir.mkdirs()) {
+      logger.error("Cant make cache directory= " + file);
+    }
+
+    try (FileOutputStream lockOut = new FileOutputStream(getLockFile(), true);
+        FileChannel lockChannel = lockOut.getChannel()) {
+      FileLock lock = tryLock(lockChannel);
+      if (lock == null) {
+        return false; // someone else is writing it
+      }
+
+      if (rewrite) {
+        List<AggCacheProto.Dataset> merged = new ArrayList<>(current);
+        AggregationCache onDisk = new AggregationCache(file, type, dimName);
+        onDisk.read();
+        for (AggCacheProto.Dataset dataset : onDisk.datasets.values()) {
+          // added by another writer, not one that this has removed
+          if (!currentIds.contains(dataset.getId()) && !datasets.containsKey(dataset.getId())) {
+            merged.add(dataset);
+          }
+        }
+
+        // write a new file, then replace the old one with it, so readers never see a partial file
+        File tmp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+          fos.write(MAGIC_START.getBytes(StandardCharsets.UTF_8));
+          NcStream.writeVInt(fos, version);
+          writeMessage(fos, AggCacheProto.Header.newBuilder().setVersion(version).setType(type).setDimName(dimName)
+              .build().toByteArray());
+          for (AggCacheProto.Dataset dataset : merged) {
+            writeMessage(fos, dataset.toByteArray());
+          }
+        }
+        try {
+          Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+          Files.deleteIfExists(tmp.toPath());
+        }
+        nmessages = merged.size();
+
+      } else {
+        try (FileOutputStream fos = new FileOutputStream(file, true)) {
+          for (AggCacheProto.Dataset dataset : changes) {
+            writeMessage(fos, dataset.toByteArray());
+          }
+        }
+        nmessages += changes.size();
+      }
+    }
+
+    datasets.clear();
+    for (AggCacheProto.Dataset dataset : current) {
+      datasets.put(dataset.getId(), dataset);
+    }
+    needsRewrite = false;
+    return true;
+  }
+
+  /** Writers lock this file, which is never replaced or deleted. */
+  File getLockFile() {
+    return new File(file.getPath() + ".lock");
+  }
+
+  @Nullable
+  private static FileLock tryLock(FileChannel channel) throws IOException {
+    // returns null or throws an exception if the file is already locked
+    try {
+      return channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      return null; // already locked in this thread or virtual machine
+    }
+  }
+
+  private static void writeMessage(OutputStream out, byte[] b) throws IOException {
+    NcStream.writeVInt(out, b.length); // message size
+    out.write(b);
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////////////
+  // cached variable values
+
+  static AggCacheProto.CacheVar encode(String varName, Array data) {
+    AggCacheProto.CacheVar.Builder builder = AggCacheProto.CacheVar.newBuilder();
+    builder.setVarName(varName);
+    DataType dtype = data.getDataType();
+    builder.setDataType(dtype.toString());
+    IndexIterator iter = data.getIndexIterator();
+    if (dtype.isFloatingPoint()) {
+      while (iter.hasNext()) {
+        builder.addDvals(iter.getDoubleNext());
+      }
+    } else if (dtype.isIntegral()) {
+      // unsigned values are stored as their bit pattern
+      while (iter.hasNext()) {
+        builder.addLvals(iter.getLongNext());
+      }
+    } else {
+      while (iter.hasNext()) {
+        builder.addSvals(iter.next().toString());
+      }
+    }
+    return builder.build();
+  }
+
+  static Array decode(AggCacheProto.CacheVar cacheVar) {
+    DataType dtype = DataType.getType(cacheVar.getDataType());
+    if (dtype == null) {
+      dtype = DataType.STRING;
+    }
+    if (dtype.isFloatingPoint()) {
+      Array data = Array.factory(dtype, new int[] {cacheVar.getDvalsCount()});
+      IndexIterator iter = data.getIndexIterator();
+      for (double val : cacheVar.getDvalsList()) {
+        iter.setDoubleNext(val);
+      }
+      return data;
+    }
+    if (dtype.isIntegral()) {
+      Array data = Array.factory(dtype, new int[] {cacheVar.getLvalsCount()});
+      IndexIterator iter = data.getIndexIterator();
+      for (long val : cacheVar.getLvalsList()) {
+        iter.setLongNext(val);
+      }
+      return data;
+    }
+    List<String> svals = cacheVar.getSvalsList();
+    return Array.makeArray(dtype, svals.toArray(new String[0]));
+  }
+
+}
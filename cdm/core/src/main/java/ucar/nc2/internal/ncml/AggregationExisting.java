@@ -6,23 +6,15 @@
 package ucar.nc2.internal.ncml;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
-import java.nio.channels.OverlappingFileLockException;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import org.jdom2.Element;
-import thredds.client.catalog.Catalog;
+import javax.annotation.Nullable;
 import thredds.inventory.MFile;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
+import ucar.ma2.MAMath;
 import ucar.nc2.Attribute;
 import ucar.nc2.Dimension;
 import ucar.nc2.Group;
@@ -42,6 +34,9 @@ import ucar.nc2.util.CancelTask;
  * sum of the the component lengths. The dimensions must be the outer dimension.
  */
 class AggregationExisting extends AggregationOuter {
+  private static final String CACHE_SUFFIX = ".ncagg";
+
+  private AggregationCache persistCache; // read once, then kept in sync with the file by persistWrite()
 
   AggregationExisting(NetcdfDataset.Builder<?> ncd, String dimName, String recheckS) {
     super(ncd, dimName, Type.joinExisting, recheckS);
@@ -172,168 +167,83 @@ class AggregationExisting extends AggregationOuter {
    * recreate.
    */
   public void persistWrite() throws IOException {
-    if (diskCache2 == null) {
-      return;
-    }
-
-    String cacheName = getCacheName();
-    if (cacheName == null) {
+    AggregationCache cache = getPersistCache();
+    if (cache == null) {
       return;
     }
-    if (cacheName.startsWith("file:")) { // LOOK HACK
-      cacheName = cacheName.substring(5);
-    }
-    File cacheFile = diskCache2.getCacheFile(cacheName);
-    if (cacheFile == null) {
-      throw new IllegalStateException();
-    }
 
     // only write out if something changed after the cache file was last written, or if the file has been deleted
-    if (!cacheDirty && cacheFile.exists()) {
+    if (!cacheDirty && cache.exists()) {
       return;
     }
 
-    File dir = cacheFile.getParentFile();
-    if (!dir.exists()) {
-      if (!dir.mkdirs()) {
-        logger.error("Cant make cache directory= " + cacheFile);
-      }
-    }
-
-    // Get a file channel for the file
-    try (FileOutputStream fos = new FileOutputStream(cacheFile);
-        FileChannel channel = fos.getChannel();
-        PrintWriter out = new PrintWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
-
-      // Try acquiring the lock without blocking. This method returns
-      // null or throws an exception if the file is already locked.
-      FileLock lock;
-      try {
-        lock = channel.tryLock();
-      } catch (OverlappingFileLockException e) {
-        // File is already locked in this thread or virtual machine
-        return; // give up
-      }
-      if (lock == null) {
-        return;
+    List<AggCacheProto.Dataset> current = new ArrayList<>();
+    for (AggDataset dataset : getDatasets()) {
+      AggDatasetOuter dod = (AggDatasetOuter) dataset;
+      if (dod.getId() == null) {
+        logger.warn("id is null");
+        continue;
       }
 
-      out.print("<?xml version='1.0' encoding='UTF-8'?>\n");
-      out.print("<aggregation xmlns='http://www.unidata.ucar.edu/namespaces/netcdf/ncml-2.2' version='3' ");
-      out.print("type='" + type + "' ");
-      if (dimName != null) {
-        out.print("dimName='" + dimName + "' ");
-      }
-      if (datasetManager.getRecheck() != null) {
-        out.print("recheckEvery='" + datasetManager.getRecheck() + "' ");
+      AggCacheProto.Dataset.Builder builder = AggCacheProto.Dataset.newBuilder();
+      builder.setId(dod.getId());
+      builder.setNcoords(dod.getNcoords(null));
+      MFile mfile = dod.getMFile();
+      if (mfile != null) {
+        builder.setLastModified(mfile.getLastModified());
       }
-      out.print(">\n");
 
-      List<AggDataset> nestedDatasets = getDatasets();
-      for (AggDataset dataset : nestedDatasets) {
-        AggDatasetOuter dod = (AggDatasetOuter) dataset;
-        if (dod.getId() == null) {
-          logger.warn("id is null");
-        }
-
-        out.print("  <netcdf id='" + dod.getId() + "' ");
-        out.print("ncoords='" + dod.getNcoords(null) + "' >\n");
-
-        for (CacheVar pv : cacheList) {
-          Array data = pv.getData(dod.getId());
-          if (data != null) {
-            out.print("    <cache varName='" + pv.varName + "' >");
-            while (data.hasNext()) {
-              out.printf("%s ", data.next());
-            }
-            out.print("</cache>\n");
-            if (logger.isDebugEnabled()) {
-              logger.debug(
-                  " wrote array = " + pv.varName + " nelems= " + data.getSize() + " for " + dataset.getLocation());
-            }
+      AggCacheProto.Dataset persisted = cache.get(dod.getId());
+      for (CacheVar pv : cacheList) {
+        Array data = pv.getLoadedData(dod.getId());
+        if (data != null) {
+          builder.addVars(AggregationCache.encode(pv.varName, data));
+          if (logger.isDebugEnabled()) {
+            logger.debug(" wrote array = " + pv.varName + " nelems= " + data.getSize() + " for " + dataset.getLocation());
+          }
+        } else { // not read this time, but still good
+          AggCacheProto.CacheVar cacheVar = AggregationCache.getCacheVar(persisted, pv.varName);
+          if (cacheVar != null) {
+            builder.addVars(cacheVar);
           }
         }
-        out.print("  </netcdf>\n");
-      }
-
-      out.print("</aggregation>\n");
-
-      long time = datasetManager.getLastScanned();
-      if (time == 0) {
-        time = System.currentTimeMillis(); // no scans (eg all static) will have a 0
-      }
-
-      if (!cacheFile.setLastModified(time)) {
-        logger.warn("FAIL to set lastModified on {}", cacheFile.getPath());
-      }
-      cacheDirty = false;
-
-      if (logger.isDebugEnabled()) {
-        logger.debug("Aggregation persisted = " + cacheFile.getPath() + " lastModified= "
-            + CalendarDate.of(datasetManager.getLastScanned()));
       }
+      current.add(builder.build());
     }
-  }
 
-  // read info from the persistent XML file, if it exists
-  protected void persistRead() {
-    if (diskCache2 == null) {
-      return;
+    if (!cache.write(current)) {
+      logger.debug("Aggregation cache {} is locked by another writer, will try again", cache.getFile());
+      return; // still dirty
     }
+    cacheDirty = false;
 
-    String cacheName = getCacheName();
-    if (cacheName == null) {
-      return;
-    }
-    if (cacheName.startsWith("file:")) // LOOK
-    {
-      cacheName = cacheName.substring(5);
+    long time = datasetManager.getLastScanned();
+    if (time == 0) {
+      time = System.currentTimeMillis(); // no scans (eg all static) will have a 0
     }
-
-    File cacheFile = diskCache2.getCacheFile(cacheName);
-    if (cacheFile == null) {
-      throw new IllegalStateException();
-    }
-    if (!cacheFile.exists()) {
-      return;
+    if (!cache.getFile().setLastModified(time)) {
+      logger.warn("FAIL to set lastModified on {}", cache.getFile().getPath());
     }
-    long lastWritten = cacheFile.lastModified();
 
     if (logger.isDebugEnabled()) {
-      logger.debug(" Try to Read cache {} " + cacheFile.getPath());
+      logger.debug("Aggregation persisted = " + cache.getFile().getPath() + " lastModified= "
+          + CalendarDate.of(datasetManager.getLastScanned()));
     }
+  }
 
-    Element aggElem;
-    try {
-      aggElem = ucar.nc2.internal.util.xml.Parse.readRootElement("file:" + cacheFile.getPath());
-    } catch (IOException e) {
-      if (debugCache) {
-        System.out.println(" No cache for " + cacheName + " - " + e.getMessage());
-      }
+  // read info from the persistent cache file, if it exists
+  protected void persistRead() {
+    AggregationCache cache = getPersistCache();
+    if (cache == null) {
       return;
     }
 
-    String version = aggElem.getAttributeValue("version");
-    if (!"3".equals(version)) {
-      return; // dont read old cache files, recreate
-    }
 
-    // use a map to find datasets to avoid O(n**2) searching
-    Map<String, AggDataset> map = new HashMap<>();
     for (AggDataset ds : getDatasets()) {
-      map.put(ds.getId(), ds);
-    }
-
-    List<Element> ncList = aggElem.getChildren("netcdf", Catalog.ncmlNS);
-    for (Element netcdfElemNested : ncList) {
-      String id = netcdfElemNested.getAttributeValue("id");
-      AggDatasetOuter dod = (AggDatasetOuter) map.get(id);
-
-      if (null == dod) {
-        // this should mean that the dataset has been deleted. so not a problem
-        if (logger.isDebugEnabled()) {
-          logger.debug(" have cache but no dataset= {}", id);
-        }
+      AggDatasetOuter dod = (AggDatasetOuter) ds;
+      String id = dod.getId();
+      AggCacheProto.Dataset persisted = cache.get(id);
+      if (persisted == null) {
         continue;
       }
       if (logger.isDebugEnabled()) {
@@ -341,64 +251,83 @@ class AggregationExisting extends AggregationOuter {
       }
 
       MFile mfile = dod.getMFile();
-      if (mfile != null && mfile.getLastModified() > lastWritten) { // skip datasets that have changed
+      if (mfile != null && mfile.getLastModified() > persisted.getLastModified()) { // skip datasets that have changed
         if (logger.isDebugEnabled()) {
           logger.debug(" dataset was changed= {}", mfile);
         }
+        cache.remove(id);
         continue;
       }
 
       if (dod.ncoord == 0) {
-        String ncoordsS = netcdfElemNested.getAttributeValue("ncoords");
-        try {
-          dod.ncoord = Integer.parseInt(ncoordsS);
-          if (logger.isDebugEnabled()) {
-            logger.debug(" Read the cache; ncoords = {}", dod.ncoord);
-          }
-        } catch (NumberFormatException e) {
-          logger.error("bad ncoord attribute on dataset=" + id);
+        dod.ncoord = persisted.getNcoords();
+        if (logger.isDebugEnabled()) {
+          logger.debug(" Read the cache; ncoords = {}", dod.ncoord);
         }
       }
 
-      // if (dod.coordValue != null) continue; // allow ncml to override
-
-      List<Element> cacheElemList = netcdfElemNested.getChildren("cache", Catalog.ncmlNS);
-      for (Element cacheElemNested : cacheElemList) {
-        String varName = cacheElemNested.getAttributeValue("varName");
-        CacheVar pv = findCacheVariable(varName);
-        if (pv != null) {
-          String sdata = cacheElemNested.getText();
-          if (sdata.isEmpty()) {
-            continue;
-          }
-          if (logger.isDebugEnabled()) {
-            logger.debug(" read data for var = " + varName + " size= " + sdata.length());
-          }
-
-          // long start = System.nanoTime();
-          String[] vals = sdata.split(" ");
-
-          try {
-            Array data = Array.makeArray(pv.dtype, vals);
-            pv.putData(id, data);
-            countCacheUse++;
-
-          } catch (Exception e) {
-            logger.warn("Error reading cached data ", e);
-          }
-
+      // the values are only decoded when they are needed, see readPersisted()
+      for (AggCacheProto.CacheVar cacheVar : persisted.getVarsList()) {
+        if (findCacheVariable(cacheVar.getVarName()) != null) {
+          countCacheUse++;
         } else {
-          logger.warn("not a cache var=" + varName);
+          logger.warn("not a cache var=" + cacheVar.getVarName());
         }
       }
     }
+  }
 
+  @Override
+  protected Array readPersisted(String id, String varName) {
+    if (persistCache == null) {
+      return null;
+    }
+    Array data;
+    try {
+      data = persistCache.getData(id, varName);
+    } catch (RuntimeException e) {
+      logger.warn("Error reading cached data ", e);
+      return null;
+    }
+    if (data == null) {
+      return null;
+    }
+    CacheVar pv = findCacheVariable(varName);
+    if (pv != null && pv.dtype != null && pv.dtype != data.getDataType()) {
+      data = MAMath.convert(data, pv.dtype);
+    }
+    return data;
   }
 
-  // name to use in the DiskCache2 for the persistent XML info.
-  // Document root is aggregation
+  @Nullable
+  private AggregationCache getPersistCache() {
+    if (persistCache != null) {
+      return persistCache;
+    }
+    if (diskCache2 == null) {
+      return null;
+    }
+
+    String cacheName = getCacheName();
+    if (cacheName == null) {
+      return null;
+    }
+    if (cacheName.startsWith("file:")) { // LOOK HACK
+      cacheName = cacheName.substring(5);
+    }
+    File cacheFile = diskCache2.getCacheFile(cacheName + CACHE_SUFFIX);
+    if (cacheFile == null) {
+      throw new IllegalStateException();
+    }
+    if (logger.isDebugEnabled()) {
+      logger.debug(" Try to Read cache {} " + cacheFile.getPath());
+    }
+    persistCache = new AggregationCache(cacheFile, type.toString(), dimName);
+    persistCache.read();
+    return persistCache;
+  }
 
-  // has the name getCacheName()
+  // name to use in the DiskCache2 for the persistent info, before adding CACHE_SUFFIX.
   private String getCacheName() {
     String cacheName = ncDataset.location;
     // if (cacheName == null) { LOOK
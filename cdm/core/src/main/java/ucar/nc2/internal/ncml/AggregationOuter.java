@@ -15,6 +15,11 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import thredds.inventory.MFile;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
@@ -393,8 +398,11 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
     if (debug)
       System.out.println("   agg wants range=" + mainv.getFullName() + "(" + joinRange + ")");
 
-    // LOOK: could multithread here
     List<AggDataset> nestedDatasets = getDatasets();
+    if (executor != null) {
+      return readSectionConcurrently(mainv, dtype, sectionData, joinRange, nestedSection, innerSection, cancelTask);
+    }
+
     for (AggDataset nested : nestedDatasets) {
       AggDatasetOuter dod = (AggDatasetOuter) nested;
       Range nestedJoinRange = dod.getNestedJoinRange(joinRange);
@@ -499,6 +507,166 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
     return allData;
   }
 
+  /**
+   * Read a section of an aggregation variable, reading the nested datasets on the executor.
+   * At most maxConcurrentReads nested datasets are in flight at once, submitted and waited for in dataset order.
+   * Each task copies its data directly into its own slot of sectionData.
+   * A dataset the executor rejects, or has not started when it is waited for, is read on the calling thread,
+   * so nested aggregations that read on the same executor can't starve it.
+   *
+   * @return sectionData, or null if cancelled.
+   */
+  private Array readSectionConcurrently(Variable mainv, DataType dtype, Array sectionData, Range joinRange,
+      List<Range> nestedSection, List<Range> innerSection, CancelTask cancelTask)
+      throws IOException, InvalidRangeException {
+
+    // find the nested datasets that are wanted, and where their data goes
+    List<SectionReaderTask> tasks = new ArrayList<>();
+    SectionCancelTask sectionCancel = new SectionCancelTask(cancelTask);
+    int destPos = 0;
+    for (AggDataset nested : getDatasets()) {
+      AggDatasetOuter dod = (AggDatasetOuter) nested;
+      Range nestedJoinRange = dod.getNestedJoinRange(joinRange);
+      if (nestedJoinRange == null)
+        continue;
+
+      List<Range> wantSection;
+      if ((type == Type.joinNew) || (type == Type.forecastModelRunCollection)) {
+        wantSection = innerSection;
+      } else {
+        wantSection = new ArrayList<>(nestedSection);
+        wantSection.set(0, nestedJoinRange);
+      }
+      tasks.add(new SectionReaderTask(dod, mainv, wantSection, dtype, sectionData, destPos, sectionCancel));
+      destPos += (int) new Section(wantSection).computeSize();
+    }
+
+    List<FutureTask<Boolean>> futures = new ArrayList<>(tasks.size());
+    int done = 0;
+    try {
+      for (SectionReaderTask task : tasks) {
+        if (futures.size() - done >= maxConcurrentReads) {
+          if (!await(futures.get(done++), cancelTask)) {
+            sectionCancel.cancel();
+            return null;
+          }
+        }
+        FutureTask<Boolean> future = new FutureTask<>(task);
+        futures.add(future);
+        try {
+          executor.execute(future);
+        } catch (RejectedExecutionException e) {
+          future.run(); // eg the executor was shut down
+        }
+      }
+      while (done < futures.size()) {
+        if (!await(futures.get(done++), cancelTask)) {
+          sectionCancel.cancel();
+          return null;
+        }
+      }
+
+    } catch (RuntimeException | Error e) {
+      sectionCancel.cancel();
+      throw e;
+
+    } catch (InterruptedException e) {
+      sectionCancel.cancel();
+      Thread.currentThread().interrupt();
+      return null;
+
+    } catch (ExecutionException e) {
+      sectionCancel.cancel();
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof InvalidRangeException)
+        throw (InvalidRangeException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      throw new IOException(cause);
+
+    } finally {
+      if (sectionCancel.isCancel()) {
+        for (Future<Boolean> f : futures)
+          f.cancel(true);
+      }
+    }
+
+    return sectionCancel.isCancel() ? null : sectionData;
+  }
+
+  /**
+   * Wait for a task to complete, running it on this thread if the executor has not started it.
+   * Return false if the read was cancelled.
+   */
+  private static boolean await(FutureTask<Boolean> task, CancelTask cancelTask)
+      throws InterruptedException, ExecutionException {
+    task.run(); // if the executor has not started it yet, dont wait for it
+    while (true) {
+      if ((cancelTask != null) && cancelTask.isCancel())
+        return false;
+      try {
+        return task.get(100, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        // check cancelTask again
+      }
+    }
+  }
+
+  /** Cancelled when the application cancels, or when the section read gives up. */
+  private static class SectionCancelTask implements CancelTask {
+    private final CancelTask parent;
+    private volatile boolean cancel;
+
+    SectionCancelTask(CancelTask parent) {
+      this.parent = parent;
+    }
+
+    @Override
+    public void cancel() {
+      this.cancel = true;
+    }
+
+    @Override
+    public boolean isCancel() {
+      return cancel || ((parent != null) && parent.isCancel());
+    }
+  }
+
+  private static class SectionReaderTask implements Callable<Boolean> {
+    final AggDatasetOuter ds;
+    final Variable mainv;
+    final List<Range> section;
+    final DataType dtype;
+    final Array sectionData;
+    final int destPos;
+    final CancelTask cancelTask;
+
+    SectionReaderTask(AggDatasetOuter ds, Variable mainv, List<Range> section, DataType dtype, Array sectionData,
+        int destPos, CancelTask cancelTask) {
+      this.ds = ds;
+      this.mainv = mainv;
+      this.section = section;
+      this.dtype = dtype;
+      this.sectionData = sectionData;
+      this.destPos = destPos;
+      this.cancelTask = cancelTask;
+    }
+
+    /** Return false if cancelled. */
+    public Boolean call() throws Exception {
+      if (cancelTask.isCancel())
+        return false;
+      Array varData = ds.read(mainv, cancelTask, section);
+      if ((varData == null) || cancelTask.isCancel())
+        return false;
+      varData = MAMath.convert(varData, dtype); // just in case it need to be converted
+      Array.arraycopy(varData, 0, sectionData, destPos, (int) varData.getSize());
+      return true;
+    }
+  }
+
   private static class ReaderTask implements Callable<Result> {
     AggDataset ds;
     Variable mainv;
@@ -539,6 +707,16 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
     return new AggDatasetOuter(this, dset);
   }
 
+  /**
+   * Get the values of a cached variable that were persisted by an earlier open of this aggregation.
+   * Overridden in AggregationExisting.
+   *
+   * @return the values, or null if there are none.
+   */
+  protected Array readPersisted(String id, String varName) {
+    return null;
+  }
+
   /////////////////////////////////////////////
   // vars that should be cached across the agg for efficiency
   class CacheVar {
@@ -639,6 +817,18 @@ abstract class AggregationOuter extends Aggregation implements ProxyReader {
     }
 
     protected Array getData(String id) {
+      Array data = dataMap.get(id);
+      if (data == null) {
+        data = readPersisted(id, varName);
+        if (data != null) {
+          dataMap.put(id, data);
+        }
+      }
+      return data;
+    }
+
+    // the data that has been read or set, but not any that is only in the persisted cache
+    protected Array getLoadedData(String id) {
       return dataMap.get(id);
     }
 
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp;
+
+import com.google.common.base.Preconditions;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Unpacks bit packed data that has been read into memory, a 64 bit word at a time.
+ * Use instead of {@link BitReader}, which goes to the file for every byte, when all of the packed data is read.
+ * Runs of values with the same width are unpacked into an int[] with {@link #unpack}, which has specialized loops
+ * for byte aligned 8, 12, 16 and 24 bit values.
+ * <p/>
+ * Bits are numbered from the start of the data, most significant bit first.
+ * Reading past the end of the data throws an EOFException, as BitReader does.
+ */
+public class BitUnpacker {
+  private static final int PAD = Long.BYTES; // so a word can always be read from the last byte
+
+  private final byte[] bytes;
+  private final ByteBuffer data; // the same bytes, for reading big endian words
+  private final int length; // number of bytes of data
+  private final long startPos; // position of the data in the file
+  private long bitPos; // next bit to read
+
+  /**
+   * Read the packed data from a file.
+   *
+   * @param raf read from this file
+   * @param startPos starting position of the packed data
+   * @param nbytes number of bytes of packed data. If the file is shorter, the bits past its end are missing.
+   */
+  public static BitUnpacker read(RandomAccessFile raf, long startPos, int nbytes) throws IOException {
+    byte[] buff = new byte[nbytes + PAD];
+    raf.seek(startPos);
+    int nread = 0;
+    while (nread < nbytes) {
+      int n = raf.read(buff, nread, nbytes - nread);
+      if (n < 0)
+        break;
+      nread += n;
+    }
+    return new BitUnpacker(buff, nread, startPos);
+  }
+
+  /** Unpack the bits in data. */
+  public BitUnpacker(byte[] data) {
+    this(data, data.length, 0);
+  }
+
+  private BitUnpacker(byte[] data, int length, long startPos) {
+    this.bytes = data;
+    this.data = ByteBuffer.wrap(data);
+    this.length = length;
+    this.startPos = startPos;
+  }
+
+  /** Position at bitOffset from the start of the data. */
+  public void setBitOffset(long bitOffset) {
+    Preconditions.checkArgument(bitOffset >= 0);
+    this.bitPos = bitOffset;
+  }
+
+  /** The offset in bits of the next value from the start of the data. */
+  public long getBitOffset() {
+    return bitPos;
+  }
+
+  /** Skip to the start of the next byte, unless already at the start of a byte. */
+  public void incrByte() {
+    bitPos = (bitPos + 7) & ~7L;
+  }
+
+  /** The file position of the byte holding the next bit. */
+  public long getPos() {
+    return startPos + (bitPos >>> 3);
+  }
+
+  /**
+   * Read the next nb bits and return the value as an unsigned long.
+   *
+   * @param nb the number of bits to read, 0 <= nb <= 64.
+   */
+  public long bits2UInt(int nb) throws IOException {
+    Preconditions.checkArgument(nb >= 0 && nb <= 64);
+    checkAvailable(nb);
+    long result;
+    if (nb <= 57) { // always fits in the word at the current byte
+      result = extract(bitPos, nb);
+    } else {
+      result = (extract(bitPos, nb - 32) << 32) | extract(bitPos + nb - 32, 32);
+    }
+    bitPos += nb;
+    return result;
+  }
+
+  /**
+   * Unpack the next n values of nb bits each into dest[offset, offset + n).
+   * Values wider than 31 bits are truncated to their low 32 bits, so must be masked with 0xffffffffL if unsigned.
+   *
+   * @param nb the number of bits of each value, 0 <= nb <= 64.
+   */
+  public void unpack(int nb, int[] dest, int offset, int n) throws IOException {
+    Preconditions.checkArgument(nb >= 0 && nb <= 64);
+    checkAvailable((long) nb * n);
+    if (nb == 0) {
+      for (int i = offset; i < offset + n; i++)
+        dest[i] = 0;
+      return;
+    }
+    if (nb > 32) {
+      for (int i = offset; i < offset + n; i++)
+        dest[i] = (int) bits2UInt(nb);
+      return;
+    }
+    if ((bitPos & 7) == 0 && unpackAligned(nb, dest, offset, n)) {
+      bitPos += (long) nb * n;
+      return;
+    }
+
+    // keep the unread bits of the current word in the low bits of acc, and read the next word when they run out
+    int index = (int) (bitPos >>> 3);
+    long acc = word(index);
+    int avail = 64 - (int) (bitPos & 7);
+    index += 8;
+    long mask = (1L << nb) - 1;
+    for (int i = offset; i < offset + n; i++) {
+      if (avail >= nb) {
+        avail -= nb;
+        dest[i] = (int) ((acc >>> avail) & mask);
+      } else {
+        int rest = nb - avail;
+        long high = acc & ((1L << avail) - 1);
+        acc = word(index);
+        index += 8;
+        avail = 64 - rest;
+        dest[i] = (int) ((high << rest) | (acc >>> avail));
+      }
+    }
+    bitPos += (long) nb * n;
+  }
+
+  // the common widths, when the values start on a byte boundary
+  private boolean unpackAligned(int nb, int[] dest, int offset, int n) {
+    int index = (int) (bitPos >>> 3);
+    int end = offset + n;
+    switch (nb) {
+      case 8:
+        for (int i = offset; i < end; i++)
+          dest[i] = bytes[index++] & 0xff;
+        return true;
+      case 12: {
+        int i = offset;
+        for (; i + 1 < end; i += 2) { // two values in every 3 bytes
+          int b1 = bytes[index + 1] & 0xff;
+          dest[i] = ((bytes[index] & 0xff) << 4) | (b1 >>> 4);
+          dest[i + 1] = ((b1 & 0x0f) << 8) | (bytes[index + 2] & 0xff);
+          index += 3;
+        }
+        if (i < end)
+          dest[i] = ((bytes[index] & 0xff) << 4) | ((bytes[index + 1] & 0xff) >>> 4);
+        return true;
+      }
+      case 16:
+        for (int i = offset; i < end; i++) {
+          dest[i] = ((bytes[index] & 0xff) << 8) | (bytes[index + 1] & 0xff);
+          index += 2;
+        }
+        return true;
+      case 24:
+        for (int i = offset; i < end; i++) {
+          dest[i] = ((bytes[index] & 0xff) << 16) | ((bytes[index + 1] & 0xff) << 8) | (bytes[index + 2] & 0xff);
+          index += 3;
+        }
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  // nb <= 57 bits starting at bitOffset
+  private long extract(long bitOffset, int nb) {
+    if (nb == 0)
+      return 0;
+    long word = word((int) (bitOffset >>> 3));
+    return (word << (bitOffset & 7)) >>> (64 - nb);
+  }
+
+  // the 8 bytes starting at index, with zeros past the end of the array
+  private long word(int index) {
+    if (index + 8 <= bytes.length)
+      return data.getLong(index);
+    long result = 0;
+    for (int i = index; i < index + 8; i++) {
+      result = (result << 8) | (i < bytes.length ? bytes[i] & 0xff : 0);
+    }
+    return result;
+  }
+
+  private void checkAvailable(long nbits) throws EOFException {
+    if (bitPos + nbits > 8L * length)
+      throw new EOFException("Reading " + nbits + " bits at bit " + bitPos + " past the end of " + length + " bytes");
+  }
+}
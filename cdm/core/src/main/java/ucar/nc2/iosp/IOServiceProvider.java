@@ -7,7 +7,9 @@ package ucar.nc2.iosp;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import javax.annotation.Nullable;
 import ucar.array.StructureData;
 import ucar.ma2.Section;
@@ -48,6 +50,17 @@ public interface IOServiceProvider extends Closeable {
    */
   boolean isValidFile(RandomAccessFile raf) throws IOException;
 
+  /**
+   * The magic numbers of the files this IOServiceProvider can read, used by NetcdfFiles to avoid calling
+   * isValidFile() on files of other formats. If not empty, isValidFile() must return false for files that match
+   * none of them.
+   *
+   * @return the magic numbers, or empty (the default) if isValidFile() must always be called.
+   */
+  default List<MagicNumber> getMagicNumbers() {
+    return Collections.emptyList();
+  }
+
   /**
    * Read an existing RandomAccessFile, and populate rootGroup.
    * Note that you cannot reference the NetcdfFile within this routine, since it hasnt been created yet.
@@ -147,6 +160,17 @@ public interface IOServiceProvider extends Closeable {
   /** Get last time the file was modified. */
   long getLastModified();
 
+  /**
+   * Whether data may be read by many threads at once, so that one open NetcdfFile can be shared by concurrent readers.
+   * Typically because the data is read with the positional reads of RandomAccessFile, which dont use its buffer.
+   * Only applies while the file is not being written.
+   *
+   * @return false (the default) if reads must be confined to one thread at a time.
+   */
+  default boolean isThreadSafe() {
+    return false;
+  }
+
   /**
    * A way to communicate arbitrary information to and from an iosp.
    * 
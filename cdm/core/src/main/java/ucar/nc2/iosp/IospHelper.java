@@ -16,8 +16,10 @@ import java.io.OutputStream;
 import java.nio.*;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.ArrayList;
+import javax.annotation.Nullable;
 
 /** Helper methods for IOSP's for reading data. */
 public class IospHelper {
@@ -32,7 +34,7 @@ public class IospHelper {
    * @param dataType dataType of the variable
    * @param fillValue must be Number if dataType.isNumeric(), or String for STRING, byte[] for Structure, or null for
    *        none
-   * @param byteOrder if equal to RandomAccessFile.ORDER_XXXX, set the byte order just before reading
+   * @param byteOrder byte order of the data, or null to use the byte order of raf. Does not change raf.
    * @return primitive array with data read in
    * @throws java.io.IOException on read error
    */
@@ -58,7 +60,7 @@ public class IospHelper {
    * @param layout handles skipping around in the file.
    * @param dataType dataType of the variable
    * @param arr primitive array to read data into
-   * @param byteOrder if equal to RandomAccessFile.ORDER_XXXX, set the byte order just before reading
+   * @param byteOrder byte order of the data, or null to use the byte order of raf. Does not change raf.
    * @param convertChar true if bytes should be converted to char for dataType CHAR
    * @return primitive array with data read in
    * @throws java.io.IOException on read error
@@ -70,12 +72,7 @@ public class IospHelper {
 
     if (dataType.getPrimitiveClassType() == byte.class || dataType == DataType.CHAR) {
       byte[] pa = (byte[]) arr;
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readFully(pa, (int) chunk.getDestElem(), chunk.getNelems());
-      }
+      readChunks(raf, layout, 1, byteOrder, pa, (destElem, nelems, bb) -> bb.get(pa, (int) destElem, nelems));
       if (convertChar && dataType == DataType.CHAR)
         return convertByteToChar(pa);
       else
@@ -83,63 +80,39 @@ public class IospHelper {
 
     } else if (dataType.getPrimitiveClassType() == short.class) {
       short[] pa = (short[]) arr;
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readShort(pa, (int) chunk.getDestElem(), chunk.getNelems());
-      }
+      readChunks(raf, layout, 2, byteOrder, null,
+          (destElem, nelems, bb) -> bb.asShortBuffer().get(pa, (int) destElem, nelems));
       return pa;
 
     } else if (dataType.getPrimitiveClassType() == int.class) {
       int[] pa = (int[]) arr;
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readInt(pa, (int) chunk.getDestElem(), chunk.getNelems());
-      }
+      readChunks(raf, layout, 4, byteOrder, null,
+          (destElem, nelems, bb) -> bb.asIntBuffer().get(pa, (int) destElem, nelems));
       return pa;
 
     } else if (dataType == DataType.FLOAT) {
       float[] pa = (float[]) arr;
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readFloat(pa, (int) chunk.getDestElem(), chunk.getNelems());
-      }
+      readChunks(raf, layout, 4, byteOrder, null,
+          (destElem, nelems, bb) -> bb.asFloatBuffer().get(pa, (int) destElem, nelems));
       return pa;
 
     } else if (dataType == DataType.DOUBLE) {
       double[] pa = (double[]) arr;
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readDouble(pa, (int) chunk.getDestElem(), chunk.getNelems());
-      }
+      readChunks(raf, layout, 8, byteOrder, null,
+          (destElem, nelems, bb) -> bb.asDoubleBuffer().get(pa, (int) destElem, nelems));
       return pa;
 
     } else if (dataType.getPrimitiveClassType() == long.class) {
       long[] pa = (long[]) arr;
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readLong(pa, (int) chunk.getDestElem(), chunk.getNelems());
-      }
+      readChunks(raf, layout, 8, byteOrder, null,
+          (destElem, nelems, bb) -> bb.asLongBuffer().get(pa, (int) destElem, nelems));
       return pa;
 
     } else if (dataType == DataType.STRUCTURE) {
       byte[] pa = (byte[]) arr;
       int recsize = layout.getElemSize();
-      while (layout.hasNext()) {
-        Layout.Chunk chunk = layout.next();
-        raf.order(byteOrder);
-        raf.seek(chunk.getSrcPos());
-        raf.readFully(pa, (int) chunk.getDestElem() * recsize, chunk.getNelems() * recsize);
-      }
+      readChunks(raf, layout, recsize, byteOrder, pa,
+          (destElem, nelems, bb) -> bb.get(pa, (int) destElem * recsize, nelems * recsize));
       return pa;
 
     } else if (dataType == DataType.STRING) {
@@ -161,6 +134,77 @@ public class IospHelper {
     throw new IllegalStateException("unknown type= " + dataType);
   }
 
+  private static final int maxBytesPerReadRanges = 8 * 1000 * 1000; // limits memory used by readChunks
+  private static final int minLargeChunk = 1000 * 1000; // chunks this big are read by themselves
+
+  private interface ChunkReader {
+    void read(long destElem, int nelems, ByteBuffer bb);
+  }
+
+  // Read the chunks of the layout with RandomAccessFile.readRanges(), so nearby chunks are read together.
+  // Large chunks are read by themselves: straight into bytes when it is the destination, otherwise in pieces of at
+  // most maxBytesPerReadRanges, so converting never doubles the memory of a large read.
+  // Only uses positional reads, so is thread-safe.
+  private static void readChunks(RandomAccessFile raf, Layout layout, int elemSize, ByteOrder byteOrder,
+      @Nullable byte[] bytes, ChunkReader reader) throws IOException {
+    List<RandomAccessFile.Range> ranges = new ArrayList<>();
+    List<long[]> dests = new ArrayList<>(); // destElem, nelems; the Chunk may be reused by the Layout
+    long nbytes = 0;
+    while (layout.hasNext()) {
+      Layout.Chunk chunk = layout.next();
+      if (chunk == null)
+        continue;
+      long len = (long) chunk.getNelems() * elemSize;
+      if (len >= minLargeChunk) {
+        readLargeChunk(raf, chunk.getSrcPos(), chunk.getDestElem(), chunk.getNelems(), elemSize, byteOrder, bytes,
+            reader);
+        continue;
+      }
+      ranges.add(new RandomAccessFile.Range(chunk.getSrcPos(), (int) len));
+      dests.add(new long[] {chunk.getDestElem(), chunk.getNelems()});
+      nbytes += len;
+      if (nbytes >= maxBytesPerReadRanges) {
+        readChunks(raf, ranges, dests, byteOrder, reader);
+        nbytes = 0;
+      }
+    }
+    readChunks(raf, ranges, dests, byteOrder, reader);
+  }
+
+  private static void readLargeChunk(RandomAccessFile raf, long srcPos, long destElem, int nelems, int elemSize,
+      ByteOrder byteOrder, @Nullable byte[] bytes, ChunkReader reader) throws IOException {
+    if (bytes != null) {
+      long len = (long) nelems * elemSize; // fits, since the destination holds it
+      raf.readFullyAt(srcPos, bytes, (int) (destElem * elemSize), (int) len);
+      return;
+    }
+    int maxElems = Math.max(1, maxBytesPerReadRanges / elemSize);
+    for (int done = 0; done < nelems;) {
+      int n = Math.min(nelems - done, maxElems);
+      RandomAccessFile.Range range = new RandomAccessFile.Range(srcPos + (long) done * elemSize, n * elemSize);
+      ByteBuffer bb = raf.readRanges(Collections.singletonList(range)).get(0);
+      if (byteOrder != null)
+        bb.order(byteOrder);
+      reader.read(destElem + done, n, bb);
+      done += n;
+    }
+  }
+
+  private static void readChunks(RandomAccessFile raf, List<RandomAccessFile.Range> ranges, List<long[]> dests,
+      ByteOrder byteOrder, ChunkReader reader) throws IOException {
+    if (ranges.isEmpty())
+      return;
+    List<ByteBuffer> bbs = raf.readRanges(ranges);
+    for (int i = 0; i < bbs.size(); i++) {
+      ByteBuffer bb = bbs.get(i);
+      if (byteOrder != null)
+        bb.order(byteOrder);
+      reader.read(dests.get(i)[0], (int) dests.get(i)[1], bb);
+    }
+    ranges.clear();
+    dests.clear();
+  }
+
   /**
    * Read data subset from PositioningDataInputStream, create primitive array of size Layout.getTotalNelems.
    * Reading is controlled by the Layout object.
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A sequence of bytes at a fixed position in a file that identifies the file's format.
+ * An IOServiceProvider declares its magic numbers with getMagicNumbers(), so that NetcdfFiles can choose
+ * the IOSP for a file by matching them against one read of the file's header, instead of calling isValidFile()
+ * on each IOSP in turn.
+ */
+@Immutable
+public class MagicNumber {
+
+  /** A magic number that only files the IOSP can read have, so isValidFile() need not be called. */
+  public static MagicNumber conclusive(long offset, byte[] bytes) {
+    return new MagicNumber(offset, bytes, true);
+  }
+
+  /** A magic number that the IOSP's files have, but isValidFile() must still be called to decide. */
+  public static MagicNumber candidate(long offset, byte[] bytes) {
+    return new MagicNumber(offset, bytes, false);
+  }
+
+  /**
+   * Make the magic numbers for a format whose signature may be at position 0, 512, 1024, 2048, ... up to maxOffset,
+   * like HDF4 and HDF5.
+   *
+   * @param bytes the signature
+   * @param maxOffset the signature must start before this position
+   * @param conclusiveAtZero is a match at position 0 conclusive
+   * @param conclusiveElsewhere is a match at the other positions conclusive
+   */
+  public static ImmutableList<MagicNumber> doublingOffsets(byte[] bytes, long maxOffset, boolean conclusiveAtZero,
+      boolean conclusiveElsewhere) {
+    ImmutableList.Builder<MagicNumber> result = ImmutableList.builder();
+    result.add(new MagicNumber(0, bytes, conclusiveAtZero));
+    for (long offset = 512; offset < maxOffset; offset *= 2) {
+      result.add(new MagicNumber(offset, bytes, conclusiveElsewhere));
+    }
+    return result.build();
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+  private final long offset;
+  private final byte[] bytes;
+  private final boolean conclusive;
+
+  private MagicNumber(long offset, byte[] bytes, boolean conclusive) {
+    Preconditions.checkArgument(offset >= 0);
+    Preconditions.checkArgument(bytes.length > 0);
+    this.offset = offset;
+    this.bytes = bytes.clone();
+    this.conclusive = conclusive;
+  }
+
+  /** Position in the file of the first byte. */
+  public long getOffset() {
+    return offset;
+  }
+
+  /** Number of bytes. */
+  public int getLength() {
+    return bytes.length;
+  }
+
+  /** If true, a matching file can be read by the IOSP, otherwise its isValidFile() must be called. */
+  public boolean isConclusive() {
+    return conclusive;
+  }
+
+  /**
+   * Does this magic number match the file's bytes?
+   *
+   * @param buff some of the file's bytes
+   * @param buffOffset the position in the file of buff[0]
+   * @param buffLength number of valid bytes in buff
+   * @return true if buff contains all of the magic number's positions and they match.
+   */
+  public boolean matches(byte[] buff, long buffOffset, int buffLength) {
+    long start = offset - buffOffset;
+    if (start < 0 || start + bytes.length > buffLength)
+      return false;
+    for (int i = 0; i < bytes.length; i++) {
+      if (buff[(int) start + i] != bytes[i])
+        return false;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o)
+      return true;
+    if (o == null || getClass() != o.getClass())
+      return false;
+    MagicNumber that = (MagicNumber) o;
+    return offset == that.offset && conclusive == that.conclusive && Arrays.equals(bytes, that.bytes);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * Long.hashCode(offset) + Arrays.hashCode(bytes)) + Boolean.hashCode(conclusive);
+  }
+
+  @Override
+  public String toString() {
+    return "MagicNumber{offset=" + offset + ", length=" + bytes.length + ", conclusive=" + conclusive + '}';
+  }
+}
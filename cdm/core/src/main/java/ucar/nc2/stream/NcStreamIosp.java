@@ -5,6 +5,8 @@
 
 package ucar.nc2.stream;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Bytes;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -29,6 +31,7 @@ import ucar.nc2.Group;
 import ucar.nc2.Structure;
 import ucar.nc2.Variable;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.MagicNumber;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.IO;
 import ucar.unidata.io.RandomAccessFile;
@@ -50,6 +53,15 @@ public class NcStreamIosp extends AbstractIOServiceProvider {
     return test(b, NcStream.MAGIC_HEADER) || test(b, NcStream.MAGIC_DATA); // immed followed by one of these
   }
 
+  private static final List<MagicNumber> magicNumbers =
+      ImmutableList.of(MagicNumber.conclusive(0, Bytes.concat(NcStream.MAGIC_START, NcStream.MAGIC_HEADER)),
+          MagicNumber.conclusive(0, Bytes.concat(NcStream.MAGIC_START, NcStream.MAGIC_DATA)));
+
+  @Override
+  public List<MagicNumber> getMagicNumbers() {
+    return magicNumbers;
+  }
+
   public String getFileTypeId() {
     return "ncstream";
   }
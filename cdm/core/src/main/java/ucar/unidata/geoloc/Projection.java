@@ -5,6 +5,7 @@
 
 package ucar.unidata.geoloc;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import ucar.unidata.util.Parameter;
 
@@ -39,6 +40,46 @@ public interface Projection {
   /** Convert projection coordinates to a LatLonPoint. */
   LatLonPoint projToLatLon(ProjectionPoint ppt);
 
+  /**
+   * Convert arrays of lat, lon to projection coordinates, without creating a ProjectionPoint for each point.
+   * The result is the same as calling latLonToProj(lat[i], lon[i]) for each i.
+   * The output arrays may be the same arrays as the input arrays.
+   *
+   * @param lat latitudes in degrees
+   * @param lon longitudes in degrees, same length as lat
+   * @param xOut put the x coordinates here, at least as long as lat
+   * @param yOut put the y coordinates here, at least as long as lat
+   */
+  default void latLonToProj(double[] lat, double[] lon, double[] xOut, double[] yOut) {
+    Preconditions.checkArgument(lon.length == lat.length, "lat and lon must have the same length");
+    Preconditions.checkArgument(xOut.length >= lat.length && yOut.length >= lat.length, "output arrays too short");
+    for (int i = 0; i < lat.length; i++) {
+      ProjectionPoint pt = latLonToProj(lat[i], lon[i]);
+      xOut[i] = pt.getX();
+      yOut[i] = pt.getY();
+    }
+  }
+
+  /**
+   * Convert arrays of projection coordinates to lat, lon, without creating a LatLonPoint for each point.
+   * The result is the same as calling projToLatLon(x[i], y[i]) for each i.
+   * The output arrays may be the same arrays as the input arrays.
+   *
+   * @param x x coordinates
+   * @param y y coordinates, same length as x
+   * @param latOut put the latitudes here, at least as long as x
+   * @param lonOut put the longitudes here, at least as long as x
+   */
+  default void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    Preconditions.checkArgument(y.length == x.length, "x and y must have the same length");
+    Preconditions.checkArgument(latOut.length >= x.length && lonOut.length >= x.length, "output arrays too short");
+    for (int i = 0; i < x.length; i++) {
+      LatLonPoint pt = projToLatLon(x[i], y[i]);
+      latOut[i] = pt.getLatitude();
+      lonOut[i] = pt.getLongitude();
+    }
+  }
+
   /**
    * Does the line between these two points cross the projection "seam", which
    * is a discontinuity in the function latlon <-> projection plane
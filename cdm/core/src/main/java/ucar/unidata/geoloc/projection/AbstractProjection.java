@@ -296,6 +296,16 @@ public abstract class AbstractProjection implements Projection {
     return new ProjectionRect(minx, miny, maxx, maxy);
   }
 
+  /** Check the arguments of the batch latLonToProj / projToLatLon methods. */
+  protected static void checkBatchLengths(double[] from1, double[] from2, double[] to1, double[] to2) {
+    if (from1.length != from2.length) {
+      throw new IllegalArgumentException("input arrays must have the same length");
+    }
+    if (to1.length < from1.length || to2.length < from1.length) {
+      throw new IllegalArgumentException("output arrays too short");
+    }
+  }
+
   protected static double getMinOrMaxLon(double lon1, double lon2, boolean wantMin) {
     double midpoint = (lon1 + lon2) / 2;
     lon1 = LatLonPoints.lonNormal(lon1, midpoint);
@@ -348,5 +348,38 @@ public class AlbersEqualArea extends AbstractProjection {
     return LatLonPoint.create(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] xOut, double[] yOut) {
+    checkBatchLengths(lat, lon, xOut, yOut);
+    for (int i = 0; i < lat.length; i++) {
+      double fromLat = Math.toRadians(LatLonPoints.latNormal(lat[i]));
+      double fromLon = Math.toRadians(LatLonPoints.lonNormal(lon[i]));
+      double rho = computeRho(fromLat);
+      double theta = computeTheta(fromLon);
+
+      xOut[i] = rho * Math.sin(theta) + falseEasting;
+      yOut[i] = rho0 - rho * Math.cos(theta) + falseNorthing;
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    checkBatchLengths(x, y, latOut, lonOut);
+    double sign = (n < 0) ? -1.0 : 1.0;
+    double rrho0 = sign * rho0;
+    for (int i = 0; i < x.length; i++) {
+      double fromX = sign * (x[i] - falseEasting);
+      double fromY = sign * (y[i] - falseNorthing);
+
+      double yd = rrho0 - fromY;
+      double rho = sign * Math.sqrt(fromX * fromX + yd * yd);
+      double theta = Math.atan2(fromX, yd);
+
+      double toLat = Math.toDegrees(Math.asin((C - Math.pow((rho * n / earth_radius), 2)) / (2 * n)));
+      latOut[i] = LatLonPoints.latNormal(toLat);
+      lonOut[i] = LatLonPoints.lonNormal(Math.toDegrees(theta / n + lon0));
+    }
+  }
+
 }
 
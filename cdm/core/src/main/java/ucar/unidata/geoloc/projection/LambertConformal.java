@@ -410,6 +410,45 @@ public class LambertConformal extends AbstractProjection {
     return LatLonPoint.create(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] xOut, double[] yOut) {
+    checkBatchLengths(lat, lon, xOut, yOut);
+    for (int i = 0; i < lat.length; i++) {
+      double fromLat = Math.toRadians(LatLonPoints.latNormal(lat[i]));
+      double dlon = LatLonPoints.lonNormal(LatLonPoints.lonNormal(lon[i]) - lon0Degrees);
+      double theta = n * Math.toRadians(dlon);
+      double tn = Math.pow(Math.tan(PI_OVER_4 + fromLat / 2), n);
+      double r = earthRadiusTimesF / tn;
+      xOut[i] = r * Math.sin(theta) + falseEasting;
+      yOut[i] = rho - r * Math.cos(theta) + falseNorthing;
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    checkBatchLengths(x, y, latOut, lonOut);
+    double rhop = (n < 0) ? -rho : rho;
+    double sign = (n < 0) ? -1.0 : 1.0;
+    for (int i = 0; i < x.length; i++) {
+      double fromX = sign * (x[i] - falseEasting);
+      double fromY = sign * (y[i] - falseNorthing);
+
+      double yd = (rhop - fromY);
+      double theta = Math.atan2(fromX, yd);
+      double r = sign * Math.sqrt(fromX * fromX + yd * yd);
+
+      double toLat;
+      if (Math.abs(r) < TOLERANCE) {
+        toLat = ((n < 0.0) ? -90.0 : 90.0);
+      } else {
+        double rn = Math.pow(earth_radius * F / r, 1 / n);
+        toLat = Math.toDegrees(2.0 * Math.atan(rn) - Math.PI / 2);
+      }
+      latOut[i] = LatLonPoints.latNormal(toLat);
+      lonOut[i] = LatLonPoints.lonNormal(Math.toDegrees(theta / n + lon0));
+    }
+  }
+
 }
 
 
@@ -243,5 +243,39 @@ public class Mercator extends AbstractProjection {
     return LatLonPoint.create(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] xOut, double[] yOut) {
+    checkBatchLengths(lat, lon, xOut, yOut);
+    for (int i = 0; i < lat.length; i++) {
+      double fromLat = LatLonPoints.latNormal(lat[i]);
+      double fromLon = LatLonPoints.lonNormal(lon[i]);
+
+      // infinite projection
+      if ((Math.abs(90.0 - Math.abs(fromLat))) < TOLERANCE) {
+        xOut[i] = Double.POSITIVE_INFINITY;
+        yOut[i] = Double.POSITIVE_INFINITY;
+      } else {
+        xOut[i] = A * Math.toRadians(LatLonPoints.range180(fromLon - this.lon0)) + falseEasting;
+        yOut[i] = A * SpecialMathFunction.atanh(Math.sin(Math.toRadians(fromLat))) + falseNorthing;
+      }
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    checkBatchLengths(x, y, latOut, lonOut);
+    for (int i = 0; i < x.length; i++) {
+      double fromX = x[i] - falseEasting;
+      double fromY = y[i] - falseNorthing;
+
+      double toLon = Math.toDegrees(fromX / A) + lon0;
+      double e = Math.exp(-fromY / A);
+      double toLat = Math.toDegrees(Math.PI / 2 - 2 * Math.atan(e)); // Snyder p 44
+
+      latOut[i] = LatLonPoints.latNormal(toLat);
+      lonOut[i] = LatLonPoints.lonNormal(toLon);
+    }
+  }
+
 }
 
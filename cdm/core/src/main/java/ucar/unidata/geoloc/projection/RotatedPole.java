@@ -208,4 +208,58 @@ public class RotatedPole extends AbstractProjection {
   public int hashCode() {
     return northPole.hashCode();
   }
+
+  @Override
+  public void latLonToProj(double[] lat, double[] lon, double[] xOut, double[] yOut) {
+    checkBatchLengths(lat, lon, xOut, yOut);
+    for (int i = 0; i < lat.length; i++) {
+      double lonRad = Math.toRadians(LatLonPoints.lonNormal(lon[i]));
+      double latRad = Math.toRadians(LatLonPoints.latNormal(lat[i]));
+
+      // same as latLonToProj(LatLonPoint), with the vectors unrolled
+      double p0x = Math.cos(latRad) * Math.cos(lonRad);
+      double p0y = Math.cos(latRad) * Math.sin(lonRad);
+      double p0z = Math.sin(latRad);
+
+      double p1x = rotZ[0][0] * p0x + rotZ[0][1] * p0y;
+      double p1y = rotZ[1][0] * p0x + rotZ[1][1] * p0y;
+
+      double p2x = rotY[0][0] * p1x + rotY[0][2] * p0z;
+      double p2z = rotY[2][0] * p1x + rotY[2][2] * p0z;
+
+      xOut[i] = LatLonPoints.range180(Math.atan2(p1y, p2x) * DEG_PER_RAD);
+      yOut[i] = Math.asin(p2z) * DEG_PER_RAD;
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    checkBatchLengths(x, y, latOut, lonOut);
+    for (int i = 0; i < x.length; i++) {
+      double lonR = LatLonPoints.range180(x[i]);
+      double latR = y[i];
+
+      if (Math.abs(latR) > 90.) {
+        throw new IllegalArgumentException("ProjectionPoint y must be in range [-90,90].");
+      }
+
+      double lonRRad = Math.toRadians(lonR);
+      double latRRad = Math.toRadians(latR);
+
+      // same as projToLatLon(ProjectionPoint), with the vectors unrolled
+      double p0x = Math.cos(latRRad) * Math.cos(lonRRad);
+      double p0y = Math.cos(latRRad) * Math.sin(lonRRad);
+      double p0z = Math.sin(latRRad);
+
+      double p1x = rotY[0][0] * p0x + rotY[2][0] * p0z;
+      double p1z = rotY[0][2] * p0x + rotY[2][2] * p0z;
+
+      double p2x = rotZ[0][0] * p1x + rotZ[1][0] * p0y;
+      double p2y = rotZ[0][1] * p1x + rotZ[1][1] * p0y;
+
+      latOut[i] = LatLonPoints.latNormal(Math.asin(p1z) * DEG_PER_RAD);
+      lonOut[i] = LatLonPoints.lonNormal(Math.atan2(p2y, p2x) * DEG_PER_RAD);
+    }
+  }
+
 }
@@ -387,4 +387,58 @@ public class Stereographic extends AbstractProjection {
     return LatLonPoint.create(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] latIn, double[] lonIn, double[] xOut, double[] yOut) {
+    checkBatchLengths(latIn, lonIn, xOut, yOut);
+    for (int i = 0; i < latIn.length; i++) {
+      double lat = Math.toRadians(LatLonPoints.latNormal(latIn[i]));
+      double lon = Math.toRadians(LatLonPoints.lonNormal(lonIn[i]));
+      // keep away from the singular point
+      if ((Math.abs(lat + latt) <= TOLERANCE)) {
+        lat = -latt * (1.0 - TOLERANCE);
+      }
+
+      double sdlon = Math.sin(lon - lont);
+      double cdlon = Math.cos(lon - lont);
+      double sinlat = Math.sin(lat);
+      double coslat = Math.cos(lat);
+
+      double k = 2.0 * scale / (1.0 + sinlatt * sinlat + coslatt * coslat * cdlon);
+      xOut[i] = k * coslat * sdlon + falseEasting;
+      yOut[i] = k * (coslatt * sinlat - sinlatt * coslat * cdlon) + falseNorthing;
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] x, double[] y, double[] latOut, double[] lonOut) {
+    checkBatchLengths(x, y, latOut, lonOut);
+    for (int i = 0; i < x.length; i++) {
+      double fromX = x[i] - falseEasting;
+      double fromY = y[i] - falseNorthing;
+      double phi, lam;
+
+      double rho = Math.sqrt(fromX * fromX + fromY * fromY);
+      double c = 2.0 * Math.atan2(rho, 2.0 * scale);
+      double sinc = Math.sin(c);
+      double cosc = Math.cos(c);
+
+      if (Math.abs(rho) < TOLERANCE) {
+        phi = latt;
+      } else {
+        phi = Math.asin(cosc * sinlatt + fromY * sinc * coslatt / rho);
+      }
+
+      if ((Math.abs(fromX) < TOLERANCE) && (Math.abs(fromY) < TOLERANCE)) {
+        lam = lont;
+      } else if (Math.abs(coslatt) < TOLERANCE) {
+        lam = lont + Math.atan2(fromX, ((latt > 0) ? -fromY : fromY));
+      } else {
+        lam = lont + Math.atan2(fromX * sinc, rho * coslatt * cosc - fromY * sinc * sinlatt);
+      }
+
+      latOut[i] = LatLonPoints.latNormal(Math.toDegrees(phi));
+      lonOut[i] = LatLonPoints.lonNormal(Math.toDegrees(lam));
+    }
+  }
+
 }
@@ -279,6 +279,38 @@ public class TransverseMercator extends AbstractProjection {
     return LatLonPoint.create(toLat, toLon);
   }
 
+  @Override
+  public void latLonToProj(double[] latIn, double[] lonIn, double[] xOut, double[] yOut) {
+    checkBatchLengths(latIn, lonIn, xOut, yOut);
+    for (int i = 0; i < latIn.length; i++) {
+      double lon = Math.toRadians(LatLonPoints.lonNormal(lonIn[i]));
+      double lat = Math.toRadians(LatLonPoints.latNormal(latIn[i]));
+      double dlon = lon - lon0;
+      double b = Math.cos(lat) * Math.sin(dlon);
+
+      if ((Math.abs(Math.abs(b) - 1.0)) < TOLERANCE) { // infinite projection
+        xOut[i] = Double.POSITIVE_INFINITY;
+        yOut[i] = Double.POSITIVE_INFINITY;
+      } else {
+        xOut[i] = scale * SpecialMathFunction.atanh(b) + falseEasting;
+        yOut[i] = scale * (Math.atan2(Math.tan(lat), Math.cos(dlon)) - lat0) + falseNorthing;
+      }
+    }
+  }
+
+  @Override
+  public void projToLatLon(double[] xIn, double[] yIn, double[] latOut, double[] lonOut) {
+    checkBatchLengths(xIn, yIn, latOut, lonOut);
+    for (int i = 0; i < xIn.length; i++) {
+      double x = (xIn[i] - falseEasting) / scale;
+      double d = (yIn[i] - falseNorthing) / scale + lat0;
+      double toLon = Math.toDegrees(lon0 + Math.atan2(Math.sinh(x), Math.cos(d)));
+      double toLat = Math.toDegrees(Math.asin(Math.sin(d) / Math.cosh(x)));
+      latOut[i] = LatLonPoints.latNormal(toLat);
+      lonOut[i] = LatLonPoints.lonNormal(toLon);
+    }
+  }
+
   /**
    * Convert lat/lon coordinates to projection coordinates.
    *
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import ucar.unidata.io.spi.RandomAccessFileProvider;
+
+/**
+ * A read-only RandomAccessFile on a local file, that memory maps the file rather than reading it with system calls.
+ * The file is mapped in segments of 1 GB, so files larger than 2 GB can be read.
+ * The arrays of primitives, eg readFloat(float[], int, int), are copied straight out of the mapping through the typed
+ * views of ByteBuffer, and readRanges() returns slices of the mapping without copying.
+ * Open with NetcdfFiles.open("mmap:" + filename), or construct directly.
+ * <p/>
+ * The mapping is only released when it is garbage collected, which on Windows means the file cannot be deleted until
+ * then.
+ */
+public class MappedRandomAccessFile extends RandomAccessFile {
+  /** Location prefix that selects this class in NetcdfFiles.open() */
+  public static final String PREFIX = "mmap:";
+  private static final int defaultSegmentSize = 1 << 30;
+
+  private final MappedByteBuffer[] segments;
+  private final int segmentSize;
+
+  /**
+   * Constructor.
+   *
+   * @param location local filename
+   * @throws IOException on open or map error
+   */
+  public MappedRandomAccessFile(String location) throws IOException {
+    this(location, defaultBufferSize, defaultSegmentSize);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param location local filename
+   * @param bufferSize size of the buffer, used only by the single value reads, like readInt()
+   * @throws IOException on open or map error
+   */
+  public MappedRandomAccessFile(String location, int bufferSize) throws IOException {
+    this(location, bufferSize, defaultSegmentSize);
+  }
+
+  // segmentSize may be set small for testing
+  MappedRandomAccessFile(String location, int bufferSize, int segmentSize) throws IOException {
+    super(location, "r", bufferSize);
+    this.segmentSize = segmentSize;
+    FileChannel channel = file.getChannel();
+    long size = channel.size();
+    int nsegs = (int) ((size + segmentSize - 1) / segmentSize);
+    this.segments = new MappedByteBuffer[nsegs];
+    for (int i = 0; i < nsegs; i++) {
+      long start = (long) i * segmentSize;
+      segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, size - start));
+    }
+  }
+
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    int n = copy(pos, b, offset, len);
+    if (n < len) { // past the end of the mapping, eg extendMode
+      int more = super.read_(pos + n, b, offset + n, len - n);
+      if (more > 0) {
+        n += more;
+      }
+    }
+    return (n == 0 && len > 0) ? -1 : n;
+  }
+
+  @Override
+  protected void readDirect(long pos, byte[] b, int offset, int len) throws IOException {
+    int n = copy(pos, b, offset, len);
+    if (n < len) {
+      super.readDirect(pos + n, b, offset + n, len - n);
+    }
+  }
+
+  @Override
+  public List<ByteBuffer> readRanges(List<Range> ranges) throws IOException {
+    List<ByteBuffer> result = new ArrayList<>(ranges.size());
+    for (Range range : ranges) {
+      ByteBuffer bb = slice(range.getPosition(), range.getLength());
+      if (bb == null) {
+        return super.readRanges(ranges);
+      }
+      result.add(bb);
+    }
+    return result;
+  }
+
+  @Override
+  public void readShort(short[] pa, int start, int n) throws IOException {
+    ByteBuffer bb = view(2L * n);
+    if (bb == null) {
+      super.readShort(pa, start, n);
+    } else {
+      bb.asShortBuffer().get(pa, start, n);
+    }
+  }
+
+  @Override
+  public void readInt(int[] pa, int start, int n) throws IOException {
+    ByteBuffer bb = view(4L * n);
+    if (bb == null) {
+      super.readInt(pa, start, n);
+    } else {
+      bb.asIntBuffer().get(pa, start, n);
+    }
+  }
+
+  @Override
+  public void readLong(long[] pa, int start, int n) throws IOException {
+    ByteBuffer bb = view(8L * n);
+    if (bb == null) {
+      super.readLong(pa, start, n);
+    } else {
+      bb.asLongBuffer().get(pa, start, n);
+    }
+  }
+
+  @Override
+  public void readFloat(float[] pa, int start, int n) throws IOException {
+    ByteBuffer bb = view(4L * n);
+    if (bb == null) {
+      super.readFloat(pa, start, n);
+    } else {
+      bb.asFloatBuffer().get(pa, start, n);
+    }
+  }
+
+  @Override
+  public void readDouble(double[] pa, int start, int n) throws IOException {
+    ByteBuffer bb = view(8L * n);
+    if (bb == null) {
+      super.readDouble(pa, start, n);
+    } else {
+      bb.asDoubleBuffer().get(pa, start, n);
+    }
+  }
+
+  // copy from the mapping, crossing segments as needed; return number of bytes copied
+  private int copy(long pos, byte[] b, int offset, int len) {
+    int done = 0;
+    while (done < len) {
+      long p = pos + done;
+      int seg = (int) (p / segmentSize);
+      if (seg >= segments.length) {
+        break;
+      }
+      int segPos = (int) (p % segmentSize);
+      int n = Math.min(len - done, segments[seg].limit() - segPos);
+      if (n <= 0) {
+        break;
+      }
+      ByteBuffer bb = segments[seg].duplicate(); // so its safe to use from many threads
+      ((Buffer) bb).position(segPos);
+      bb.get(b, offset + done, n);
+      done += n;
+    }
+    return done;
+  }
+
+  // the mapped bytes, in the current byte order, or null if they are not all in one segment
+  private ByteBuffer slice(long pos, long nbytes) {
+    int seg = (int) (pos / segmentSize);
+    int segPos = (int) (pos % segmentSize);
+    if (seg >= segments.length || segPos + nbytes > segments[seg].limit()) {
+      if (nbytes == 0 && pos <= (long) segmentSize * segments.length) {
+        return ByteBuffer.allocate(0).order(byteOrder());
+      }
+      return null;
+    }
+    ByteBuffer bb = segments[seg].duplicate();
+    ((Buffer) bb).limit(segPos + (int) nbytes).position(segPos); // cast for Java 8 compatibility
+    return bb.slice().order(byteOrder());
+  }
+
+  // the mapped bytes at the file position, which is then moved past them; or null if not all in one segment
+  private ByteBuffer view(long nbytes) throws IOException {
+    ByteBuffer bb = slice(filePosition, nbytes);
+    if (bb != null) {
+      moveTo(filePosition + nbytes);
+    }
+    return bb;
+  }
+
+  // move the file position without reading; the buffer is refilled on the next single value read if needed
+  private void moveTo(long pos) {
+    if (pos >= bufferStart && pos < dataEnd) {
+      filePosition = pos;
+    } else {
+      bufferStart = pos;
+      dataEnd = pos;
+      dataSize = 0;
+      filePosition = pos;
+    }
+    endOfFile = false;
+  }
+
+  private ByteOrder byteOrder() {
+    return bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+  }
+
+  /** Hook for service provider interface RandomAccessFileProvider */
+  public static class Provider implements RandomAccessFileProvider {
+
+    @Override
+    public boolean isOwnerOf(String location) {
+      return location.startsWith(PREFIX);
+    }
+
+    @Override
+    public RandomAccessFile open(String location) throws IOException {
+      return new MappedRandomAccessFile(location.substring(PREFIX.length()));
+    }
+  }
+
+}
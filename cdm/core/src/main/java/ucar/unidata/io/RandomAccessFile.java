@@ -17,6 +17,7 @@ import ucar.nc2.internal.cache.FileFactory;
 import ucar.unidata.util.StringUtil2;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.WritableByteChannel;
 import java.util.*;
@@ -42,6 +43,8 @@ import java.util.concurrent.atomic.AtomicLong;
  * Freeware Java Classes</a>.
  * <p/>
  * Must be thread confined - that is, can only be used by a single thread at a time..
+ * The exception is the positional reads readRanges() and readFullyAt(), which do not use the buffer or the file
+ * position, and so may be called from many threads at once, on a file that is not being written.
  *
  * @author Alex McManus
  * @author Russ Rew
@@ -58,6 +61,9 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
   public static final int LITTLE_ENDIAN = 1;
 
   protected static final int defaultBufferSize = 8092; // The default buffer size, in bytes.
+  protected static final int defaultMaxRangeGap = 8 * 1024; // readRanges() reads through gaps this small
+  private static final int maxCoalescedRange = 64 * 1024 * 1024; // readRanges() reads at most this much at once
+  private static final int maxJoinedRange = 1024 * 1024; // readRanges() reads larger ranges by themselves
 
   ///////////////////////////////////////////////////////////////////////
   // debug leaks - keep track of open files
@@ -272,6 +278,8 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    */
   private boolean extendMode;
 
+  private int maxRangeGap = defaultMaxRangeGap;
+
   /**
    * Constructor, for subclasses
    *
@@ -713,6 +721,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
   /**
    * Read directly from file, without going through the buffer.
    * All reading goes through here or readToByteChannel;
+   * Subclasses not backed by a local file must make this thread-safe, since the positional reads call it.
    *
    * @param pos start here in the file
    * @param b put data into this buffer
@@ -737,6 +746,220 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     return n;
   }
 
+  /** A range of bytes in the file, for readRanges(). */
+  public static final class Range {
+    private final long position;
+    private final int length;
+
+    /**
+     * @param position start of the range in the file
+     * @param length number of bytes
+     */
+    public Range(long position, int length) {
+      if (position < 0 || length < 0)
+        throw new IllegalArgumentException("Illegal range " + position + " length " + length);
+      this.position = position;
+      this.length = length;
+    }
+
+    public long getPosition() {
+      return position;
+    }
+
+    public int getLength() {
+      return length;
+    }
+
+    /** The position after the end of the range. */
+    public long getEnd() {
+      return position + length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+      Range range = (Range) o;
+      return position == range.position && length == range.length;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(position, length);
+    }
+
+    @Override
+    public String toString() {
+      return position + ":" + length;
+    }
+  }
+
+  /**
+   * Set the largest gap between ranges that readRanges() reads through, in order to read the ranges together.
+   * Default is 8K. Remote files may want it larger, since each read is a request.
+   */
+  public void setMaxRangeGap(int maxRangeGap) {
+    this.maxRangeGap = Math.max(0, maxRangeGap);
+  }
+
+  public int getMaxRangeGap() {
+    return maxRangeGap;
+  }
+
+  /**
+   * Read many ranges of the file, in as few reads as possible.
+   * The ranges are sorted, and ranges that overlap or are within getMaxRangeGap() of each other are read together.
+   * Ranges larger than 1 MB are read by themselves, and their ByteBuffer wraps its own array.
+   * This does not use the buffer, and does not change the file position. A modified buffer is flushed first.
+   * On a file that is not being written, this is thread-safe, and may be called while another thread uses
+   * the buffered methods.
+   *
+   * @param ranges read these ranges, which may be in any order, and may overlap.
+   * @return for each range, in the same order, a ByteBuffer with its bytes, in the byte order of this file.
+   * @throws EOFException if a range extends past the end of the file.
+   * @throws IOException on read error.
+   */
+  public List<ByteBuffer> readRanges(List<Range> ranges) throws IOException {
+    if (bufferModified) {
+      flush();
+    }
+    long length = length();
+    for (Range range : ranges) {
+      if (range.getEnd() > length && !extendMode)
+        throw new EOFException("Range " + range + " is past the end of " + location + " length " + length);
+    }
+
+    Integer[] sorted = new Integer[ranges.size()];
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = i;
+    }
+    Arrays.sort(sorted, Comparator.comparingLong(i -> ranges.get(i).getPosition()));
+
+    // coalesce the sorted ranges
+    List<Range> coalesced = new ArrayList<>();
+    int[] coalescedIndex = new int[ranges.size()];
+    long start = 0, end = 0;
+    boolean joinable = false; // only small ranges are joined, a large one gains little and is read into its own array
+    for (int i : sorted) {
+      Range range = ranges.get(i);
+      boolean small = range.getLength() <= maxJoinedRange;
+      boolean join = joinable && small && range.getPosition() <= end + maxRangeGap
+          && Math.max(end, range.getEnd()) - start <= maxCoalescedRange;
+      if (!join) {
+        if (!coalesced.isEmpty()) {
+          coalesced.set(coalesced.size() - 1, new Range(start, (int) (end - start)));
+        }
+        coalesced.add(range);
+        start = range.getPosition();
+        end = range.getEnd();
+        joinable = small;
+      } else {
+        end = Math.max(end, range.getEnd());
+      }
+      coalescedIndex[i] = coalesced.size() - 1;
+    }
+    if (!coalesced.isEmpty()) {
+      coalesced.set(coalesced.size() - 1, new Range(start, (int) (end - start)));
+    }
+
+    byte[][] data = readCoalesced(coalesced);
+
+    ByteOrder order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+    List<ByteBuffer> result = new ArrayList<>(ranges.size());
+    for (int i = 0; i < ranges.size(); i++) {
+      Range range = ranges.get(i);
+      Range from = coalesced.get(coalescedIndex[i]);
+      ByteBuffer bb = ByteBuffer.wrap(data[coalescedIndex[i]], (int) (range.getPosition() - from.getPosition()),
+          range.getLength());
+      result.add(bb.slice().order(order));
+    }
+    return result;
+  }
+
+  /**
+   * Read len bytes at pos, without using the buffer or changing the file position, like pread().
+   * A modified buffer is flushed first. On a file that is not being written, this is thread-safe, and may be called
+   * while another thread uses the buffered methods.
+   *
+   * @param pos start here in the file
+   * @param b put data into this buffer
+   * @param offset buffer offset
+   * @param len this number of bytes
+   * @throws EOFException if the end of file is reached before len bytes are read.
+   * @throws IOException on io error
+   */
+  public void readFullyAt(long pos, byte[] b, int offset, int len) throws IOException {
+    if (len < 0 || offset < 0 || offset + len > b.length)
+      throw new IndexOutOfBoundsException();
+    if (bufferModified) {
+      flush();
+    }
+    readDirect(pos, b, offset, len);
+  }
+
+  /**
+   * Read the sorted ranges that readRanges() has coalesced.
+   * Subclasses may override this to read the ranges concurrently.
+   *
+   * @param ranges the ranges to read
+   * @return the bytes of each range
+   * @throws IOException on read error
+   */
+  protected byte[][] readCoalesced(List<Range> ranges) throws IOException {
+    byte[][] result = new byte[ranges.size()][];
+    for (int i = 0; i < ranges.size(); i++) {
+      Range range = ranges.get(i);
+      result[i] = new byte[range.getLength()];
+      readDirect(range.getPosition(), result[i], 0, range.getLength());
+    }
+    return result;
+  }
+
+  /**
+   * Read len bytes at pos, without using the buffer or changing the file position.
+   * Uses positional reads of the FileChannel for local files, which are thread-safe. Otherwise uses read_(),
+   * which subclasses must make thread-safe.
+   *
+   * @param pos start here in the file
+   * @param b put data into this buffer
+   * @param offset buffer offset
+   * @param len this number of bytes
+   * @throws EOFException if the end of file is reached before len bytes are read, unless in extend mode
+   * @throws IOException on io error
+   */
+  protected void readDirect(long pos, byte[] b, int offset, int len) throws IOException {
+    int done = 0;
+    if (file == null) {
+      while (done < len) {
+        int n = read_(pos + done, b, offset + done, len - done);
+        if (n <= 0)
+          break;
+        done += n;
+      }
+
+    } else {
+      java.nio.channels.FileChannel channel = file.getChannel(); // the same one every time
+      ByteBuffer bb = ByteBuffer.wrap(b, offset, len);
+      while (bb.hasRemaining()) {
+        int n = channel.read(bb, pos + done);
+        if (n < 0)
+          break;
+        done += n;
+      }
+      if (debugAccess) {
+        if (showRead)
+          System.out.printf(" **readDirect %s = %d bytes at %d%n", location, len, pos);
+        debug_nseeks.incrementAndGet();
+        debug_nbytes.addAndGet(len);
+      }
+    }
+
+    if (done < len && !extendMode) // in extendMode, the rest is zeroes
+      throw new EOFException("Reading " + location + " at " + pos + " length " + len + " is past the end of file");
+  }
+
   /**
    * Read up to <code>len</code> bytes into an array, at a specified
    * offset. This will block until at least one byte has been read.
@@ -1097,7 +1320,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @param n read this many elements
    * @throws IOException on read error
    */
-  public final void readShort(short[] pa, int start, int n) throws IOException {
+  public void readShort(short[] pa, int start, int n) throws IOException {
     for (int i = 0; i < n; i++) {
       pa[start + i] = readShort();
     }
@@ -1256,7 +1479,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @param n read this many elements
    * @throws IOException on read error
    */
-  public final void readInt(int[] pa, int start, int n) throws IOException {
+  public void readInt(int[] pa, int start, int n) throws IOException {
     for (int i = 0; i < n; i++) {
       pa[start + i] = readInt();
     }
@@ -1330,7 +1553,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @param n read this many elements
    * @throws IOException on read error
    */
-  public final void readLong(long[] pa, int start, int n) throws IOException {
+  public void readLong(long[] pa, int start, int n) throws IOException {
     for (int i = 0; i < n; i++) {
       pa[start + i] = readLong();
     }
@@ -1367,7 +1590,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @param n read this many elements
    * @throws IOException on read error
    */
-  public final void readFloat(float[] pa, int start, int n) throws IOException {
+  public void readFloat(float[] pa, int start, int n) throws IOException {
     for (int i = 0; i < n; i++) {
       pa[start + i] = Float.intBitsToFloat(readInt());
     }
@@ -1404,7 +1627,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @param n read this many elements
    * @throws IOException on read error
    */
-  public final void readDouble(double[] pa, int start, int n) throws IOException {
+  public void readDouble(double[] pa, int start, int n) throws IOException {
     for (int i = 0; i < n; i++) {
       pa[start + i] = Double.longBitsToDouble(readLong());
     }
@@ -8,12 +8,19 @@ package ucar.unidata.io;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,6 +43,16 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
   private final int readCacheBlockSize;
   private final LoadingCache<Long, byte[]> readCache;
 
+  private static Executor rangeExecutor;
+
+  /**
+   * Use this Executor to make the requests of readRanges() concurrently.
+   * If null (the default), they are made one after another.
+   */
+  public static void setRangeExecutor(@Nullable Executor executor) {
+    rangeExecutor = executor;
+  }
+
   protected RemoteRandomAccessFile(String url, int bufferSize, long maxRemoteCacheSize) {
     super(bufferSize);
 
@@ -147,6 +164,56 @@ public abstract class RemoteRandomAccessFile extends ucar.unidata.io.RandomAcces
     return buffer;
   }
 
+  /** Make a request for each range, concurrently if setRangeExecutor() has been called. */
+  @Override
+  protected byte[][] readCoalesced(List<Range> ranges) throws IOException {
+    Executor executor = rangeExecutor;
+    if (executor == null || ranges.size() < 2) {
+      return super.readCoalesced(ranges);
+    }
+
+    List<FutureTask<byte[]>> tasks = new ArrayList<>(ranges.size());
+    for (Range range : ranges) {
+      FutureTask<byte[]> task = new FutureTask<>(() -> readRemoteFully(range));
+      tasks.add(task);
+      executor.execute(task);
+    }
+
+    byte[][] result = new byte[ranges.size()][];
+    try {
+      for (int i = 0; i < tasks.size(); i++) {
+        result[i] = tasks.get(i).get();
+      }
+    } catch (InterruptedException e) {
+      tasks.forEach(t -> t.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("readRanges was interrupted");
+    } catch (ExecutionException e) {
+      tasks.forEach(t -> t.cancel(true));
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    }
+    return result;
+  }
+
+  private byte[] readRemoteFully(Range range) throws IOException {
+    byte[] buff = new byte[range.getLength()];
+    int done = 0;
+    while (done < buff.length) {
+      int n = readRemote(range.getPosition() + done, buff, done, buff.length - done);
+      if (n <= 0) {
+        throw new EOFException("Reading " + url + " range " + range + " is past the end of file");
+      }
+      done += n;
+    }
+    return buff;
+  }
+
   @Override
   public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
     int n = (int) nbytes;
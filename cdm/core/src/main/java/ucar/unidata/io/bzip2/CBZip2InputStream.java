@@ -133,6 +133,10 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
   private int[] minLens = new int[N_GROUPS];
 
   private InputStream bsStream;
+  private long bsBytesRead; // number of bytes read from bsStream
+  private long nread; // number of uncompressed bytes returned by read()
+  private boolean checkCombinedCRC = true; // false when starting in the middle of the stream
+  private BlockListener blockListener;
 
   private boolean streamEnd;
   private int currentChar = -1;
@@ -170,6 +174,55 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
    * by this object. This saves in memory allocation costs
    */
   public void setStream(InputStream zStream) {
+    resetState(zStream);
+    initialize();
+    if (!streamEnd) { // Handle if initialize does not detect valid bz2 stream
+      initBlock();
+      setupBlock();
+    }
+  }
+
+  /**
+   * Start decompressing at a block in the middle of a stream, for random access.
+   * Decompression continues to the end of the stream, but the combined CRC of the stream is not checked.
+   *
+   * @param zStream positioned at the byte containing the first bit of the block header
+   * @param blockSize100k the block size from the stream header, 1 - 9
+   * @param bitOffset the bit of that byte where the block header starts, 0 - 7
+   */
+  public void setStreamAtBlock(InputStream zStream, int blockSize100k, int bitOffset) {
+    resetState(zStream);
+    checkCombinedCRC = false;
+    setDecompressStructureSizes(blockSize100k);
+    if (bitOffset > 0) {
+      bsR(bitOffset);
+    }
+    initBlock();
+    if (!streamEnd) {
+      setupBlock();
+    }
+  }
+
+  /** Notified at the start of each block, to make an index of the blocks for random access. */
+  public interface BlockListener {
+    /**
+     * @param bitOffset position of the block header, in bits from the start of the input stream
+     * @param uncompressedOffset position of the first byte of the block in the uncompressed data
+     */
+    void blockStart(long bitOffset, long uncompressedOffset);
+  }
+
+  /** Set the BlockListener. Must be called before setStream(). */
+  public void setBlockListener(BlockListener blockListener) {
+    this.blockListener = blockListener;
+  }
+
+  /** The number of bytes read from the input stream so far. At the end of the stream, its length in bytes. */
+  public long getBytesRead() {
+    return bsBytesRead;
+  }
+
+  private void resetState(InputStream zStream) {
     last = 0;
     origPtr = 0;
     blockSize100k = 0;
@@ -190,13 +243,10 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
     rTPos = 0;
     j2 = 0;
     z = 0;
+    nread = 0;
+    checkCombinedCRC = true;
 
     bsSetStream(zStream);
-    initialize();
-    if (!streamEnd) { // Handle if initialize does not detect valid bz2 stream
-      initBlock();
-      setupBlock();
-    }
   }
 
 
@@ -212,6 +262,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
       return -1;
     } else {
       int retChar = currentChar;
+      nread++; // before the next block is started
       switch (currentState) {
         case RAND_PART_B_STATE:
           setupRandPartB();
@@ -232,6 +283,95 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
     }
   }
 
+  /**
+   * Reads up to len bytes of the stream into b. Blocks that are not randomised are decoded directly into b,
+   * without going through read() for each byte.
+   *
+   * @throws BZip2ReadException if there is a problem.
+   */
+  @Override
+  public int read(byte[] b, int off, int len) {
+    if (off < 0 || len < 0 || len > b.length - off) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (streamEnd) {
+      return -1;
+    }
+    int n = 0;
+    while (n < len && !streamEnd) {
+      if (currentState == NO_RAND_PART_B_STATE || currentState == NO_RAND_PART_C_STATE) {
+        n += readNoRand(b, off + n, len - n);
+      } else {
+        b[off + n] = (byte) read();
+        n++;
+      }
+    }
+    return n;
+  }
+
+  /*
+   * The same as calling read() up to len times, while in a block that is not randomised.
+   * Does setupNoRandPartB(), setupNoRandPartC() and setupNoRandPartA() inline, and returns at the end of the block.
+   */
+  private int readNoRand(byte[] b, int off, int len) {
+    int n = 0;
+    while (n < len) {
+      b[off + n] = (byte) currentChar;
+      n++;
+      nread++;
+
+      boolean runOfFour = false;
+      if (currentState == NO_RAND_PART_B_STATE) {
+        if (ch2 != chPrev) {
+          count = 1;
+        } else {
+          count++;
+          if (count >= 4) {
+            z = ll8[tPos];
+            tPos = tt[tPos];
+            j2 = 0;
+            runOfFour = true;
+          }
+        }
+      } else { // NO_RAND_PART_C_STATE
+        runOfFour = true;
+      }
+
+      if (runOfFour) {
+        if (j2 < (int) z) { // repeat the last char
+          currentChar = ch2;
+          currentState = NO_RAND_PART_C_STATE;
+          mCrc.updateCRC(ch2);
+          j2++;
+          continue;
+        }
+        i2++;
+        count = 0;
+      }
+
+      // the next char of the block
+      if (i2 <= last) {
+        chPrev = ch2;
+        ch2 = ll8[tPos];
+        tPos = tt[tPos];
+        i2++;
+        currentChar = ch2;
+        currentState = NO_RAND_PART_B_STATE;
+        mCrc.updateCRC(ch2);
+      } else {
+        currentState = NO_RAND_PART_A_STATE;
+        endBlock();
+        initBlock();
+        setupBlock();
+        return n;
+      }
+    }
+    return n;
+  }
+
   private void initialize() {
     char magic3, magic4;
     magic3 = bsGetUChar();
@@ -249,6 +389,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
   private void initBlock() {
     char magic1, magic2, magic3, magic4;
     char magic5, magic6;
+    long blockStart = 8 * bsBytesRead - bsLive;
     magic1 = bsGetUChar();
     magic2 = bsGetUChar();
     magic3 = bsGetUChar();
@@ -266,6 +407,10 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
       return;
     }
 
+    if (blockListener != null) {
+      blockListener.blockStart(blockStart, nread);
+    }
+
     storedBlockCRC = bsGetInt32();
 
     blockRandomised = bsR(1) == 1;
@@ -291,7 +436,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
 
   private void complete() {
     storedCombinedCRC = bsGetInt32();
-    if (storedCombinedCRC != computedCombinedCRC) {
+    if (checkCombinedCRC && storedCombinedCRC != computedCombinedCRC) {
       // crcError();
       cadvise("CRC error: storedCombinedCRC != computedCombinedCRC");
     }
@@ -323,6 +468,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
 
   private void bsSetStream(InputStream f) {
     bsStream = f;
+    bsBytesRead = 0;
     bsLive = 0;
     bsBuff = 0;
   }
@@ -339,6 +485,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
       if (zzi == -1) {
         compressedStreamEOF();
       }
+      bsBytesRead++;
       bsBuff = (bsBuff << 8) | (zzi & 0xff);
       bsLive += 8;
     }
@@ -553,6 +700,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
               if (zzi == -1) {
                 compressedStreamEOF();
               }
+              bsBytesRead++;
               bsBuff = (bsBuff << 8) | (zzi & 0xff);
               bsLive += 8;
             }
@@ -606,6 +754,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
                     if (zzi == -1) {
                       compressedStreamEOF();
                     }
+                    bsBytesRead++;
                     bsBuff = (bsBuff << 8) | (zzi & 0xff);
                     bsLive += 8;
                   }
@@ -685,6 +834,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
                     compressedStreamEOF();
                   }
                   zzi = thech;
+                  bsBytesRead++;
                   bsBuff = (bsBuff << 8) | (zzi & 0xff);
                   bsLive += 8;
                 }
@@ -0,0 +1,490 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io.compress;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import ucar.nc2.internal.util.DiskCache;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.io.bzip2.BZip2ReadException;
+import ucar.unidata.io.bzip2.CBZip2InputStream;
+
+/**
+ * A read-only RandomAccessFile over the uncompressed contents of a gzip or bzip2 file.
+ * Instead of decompressing the whole file to disk, it keeps an index of seek points, where decompression can start,
+ * and decompresses only the chunks that are read, keeping the most recent ones in memory.
+ * <p>
+ * The seek points of bzip2 are its blocks (at most 900K uncompressed), so any position can be read quickly.
+ * The seek points of gzip are its members: a gzip file made of many members (eg by bgzip or pigz --independent)
+ * can be read quickly anywhere, while in a file with a single member, reading backwards may mean decompressing
+ * from the start again. Reading forwards always continues where the last read stopped.
+ * <p>
+ * Making the index needs one pass through the file, so it is persisted to the location + ".zidx",
+ * or to the DiskCache if that is not writeable, and used again if the compressed file has not changed.
+ */
+public class CompressedRandomAccessFile extends RandomAccessFile {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CompressedRandomAccessFile.class);
+
+  public static final String INDEX_SUFFIX = ".zidx";
+  private static final int compressedBufferSize = 64 * 1024;
+  private static final int chunkSize = 256 * 1024;
+  private static final int defaultMaxChunks = 32; // 8 Mbytes
+
+  /** A suggested limit on getMaxSeekDistance(), for a file to be read in place. */
+  public static final long DEFAULT_MAX_SEEK_DISTANCE = 16 * 1024 * 1024;
+
+  private static boolean persistIndex = true;
+
+  /** Set whether the seek index is written to disk, so that it is made only once. Default is true. */
+  public static void setPersistIndex(boolean b) {
+    persistIndex = b;
+  }
+
+  /** The compression formats that can be read. */
+  public enum Format {
+    GZIP("gz", "gzip") {
+      @Override
+      long makeIndex(RandomAccessFile raf, SeekIndex.Builder builder) throws IOException {
+        long length = 0;
+        long pos = 0;
+        while (GzipMemberInputStream.isGzipHeader(raf, pos)) {
+          builder.addSeekPoint(8 * pos, length, 0);
+          try (GzipMemberInputStream member = new GzipMemberInputStream(raf, pos)) {
+            length += drain(member);
+            pos = member.getEnd();
+          }
+        }
+        if (pos == 0) {
+          throw new IOException("Not a gzip file " + raf.getLocation());
+        }
+        return length;
+      }
+
+      @Override
+      Segment open(RandomAccessFile raf, SeekIndex index, int point) throws IOException {
+        GzipMemberInputStream member = new GzipMemberInputStream(raf, index.getCompressedBit(point) / 8);
+        return new Segment(member) {
+          long getEndBit() {
+            return 8 * member.getEnd();
+          }
+        };
+      }
+    },
+
+    BZIP2("bz2") {
+      @Override
+      long makeIndex(RandomAccessFile raf, SeekIndex.Builder builder) throws IOException {
+        long length = 0;
+        long pos = 0;
+        while (true) { // may be several streams, eg from pbzip2
+          int blockSize100k = readBzip2Header(raf, pos);
+          if (blockSize100k < 0) {
+            break;
+          }
+          final long streamStart = pos + 2; // CBZip2InputStream starts after the "BZ"
+          final long streamOffset = length;
+          CBZip2InputStream bzip = new CBZip2InputStream();
+          bzip.setBlockListener((bitOffset, uncompressedOffset) -> builder.addSeekPoint(8 * streamStart + bitOffset,
+              streamOffset + uncompressedOffset, blockSize100k));
+          try {
+            bzip.setStream(new BufferedInputStream(new RafInputStream(raf, streamStart)));
+            length += drain(bzip);
+          } catch (BZip2ReadException e) {
+            throw new IOException(e.getMessage(), e);
+          }
+          pos = streamStart + bzip.getBytesRead();
+        }
+        if (pos == 0) {
+          throw new IOException("Not a bzip2 file " + raf.getLocation());
+        }
+        return length;
+      }
+
+      @Override
+      Segment open(RandomAccessFile raf, SeekIndex index, int point) throws IOException {
+        long bit = index.getCompressedBit(point);
+        CBZip2InputStream bzip = new CBZip2InputStream();
+        InputStream in = new BufferedInputStream(new RafInputStream(raf, bit / 8));
+        try {
+          bzip.setStreamAtBlock(in, index.getBlockSize100k(point), (int) (bit % 8));
+        } catch (BZip2ReadException e) {
+          throw new IOException(e.getMessage(), e);
+        }
+        return new Segment(bzip) {
+          long getEndBit() {
+            return 8 * (bit / 8 + bzip.getBytesRead());
+          }
+        };
+      }
+
+      // return the block size, or -1 if there is no stream header at pos
+      private int readBzip2Header(RandomAccessFile raf, long pos) throws IOException {
+        if (pos + 4 > raf.length()) {
+          return -1;
+        }
+        raf.seek(pos);
+        if (raf.read() != 'B' || raf.read() != 'Z' || raf.read() != 'h') {
+          return -1;
+        }
+        int blockSize = raf.read() - '0';
+        return (blockSize >= 1 && blockSize <= 9) ? blockSize : -1;
+      }
+    };
+
+    private final String[] suffixes;
+
+    Format(String... suffixes) {
+      this.suffixes = suffixes;
+    }
+
+    /** Add the seek points to the builder, return the uncompressed length. */
+    abstract long makeIndex(RandomAccessFile raf, SeekIndex.Builder builder) throws IOException;
+
+    /** Start decompressing at a seek point. */
+    abstract Segment open(RandomAccessFile raf, SeekIndex index, int point) throws IOException;
+
+    /** Find the Format from the suffix of the location, or null if its not one of these. */
+    @Nullable
+    public static Format fromLocation(String location) {
+      int pos = location.lastIndexOf('.');
+      if (pos < 0) {
+        return null;
+      }
+      String suffix = location.substring(pos + 1);
+      for (Format format : values()) {
+        for (String s : format.suffixes) {
+          if (s.equalsIgnoreCase(suffix)) {
+            return format;
+          }
+        }
+      }
+      return null;
+    }
+  }
+
+  /** Can the location be opened as a CompressedRandomAccessFile, based on its suffix. */
+  public static boolean isCompressed(String location) {
+    return Format.fromLocation(location) != null;
+  }
+
+  /** The decompressed bytes from a seek point to the end of its gzip member or bzip2 stream. */
+  abstract static class Segment {
+    private final InputStream in;
+
+    Segment(InputStream in) {
+      this.in = in;
+    }
+
+    int read(byte[] b, int off, int len) throws IOException {
+      try {
+        return in.read(b, off, len);
+      } catch (BZip2ReadException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    }
+
+    /** The position in the compressed file after the end, in bits. Only valid after read() has returned -1. */
+    abstract long getEndBit();
+
+    void close() throws IOException {
+      in.close();
+    }
+  }
+
+  /** Reads a RandomAccessFile from a starting position, without changing the RandomAccessFile's position. */
+  static class RafInputStream extends InputStream {
+    private final RandomAccessFile raf;
+    private long pos;
+
+    RafInputStream(RandomAccessFile raf, long pos) {
+      this.raf = raf;
+      this.pos = pos;
+    }
+
+    @Override
+    public int read() throws IOException {
+      raf.seek(pos);
+      int b = raf.read();
+      if (b >= 0) {
+        pos++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      raf.seek(pos);
+      int n = raf.read(b, off, len);
+      if (n > 0) {
+        pos += n;
+      }
+      return n;
+    }
+
+    @Override
+    public void close() {
+      // the RandomAccessFile is closed by its owner
+    }
+  }
+
+  private static long drain(InputStream in) throws IOException {
+    byte[] buff = new byte[chunkSize];
+    long total = 0;
+    int n;
+    while ((n = in.read(buff, 0, buff.length)) >= 0) {
+      total += n;
+    }
+    return total;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////////////
+
+  private final RandomAccessFile compressed;
+  private final SeekIndex index;
+  private final Map<Long, byte[]> chunks; // the most recently used chunks of the uncompressed data
+  private final int maxChunks;
+
+  // decompression continues from here, if it can
+  private Segment live;
+  private long livePos; // position in the uncompressed data of the next byte of live
+
+  /**
+   * Open a compressed file, making its seek index if needed.
+   *
+   * @param location the compressed file, whose suffix determines the Format
+   * @param bufferSize size of the read buffer for the uncompressed data
+   * @throws IOException on read error, or if the file is not in the Format of its suffix
+   */
+  public CompressedRandomAccessFile(String location, int bufferSize) throws IOException {
+    this(location, bufferSize, defaultMaxChunks);
+  }
+
+  /**
+   * Open a compressed file, making its seek index if needed.
+   *
+   * @param location the compressed file, whose suffix determines the Format
+   * @param bufferSize size of the read buffer for the uncompressed data
+   * @param maxChunks maximum number of 256K chunks of uncompressed data to keep in memory
+   * @throws IOException on read error, or if the file is not in the Format of its suffix
+   */
+  public CompressedRandomAccessFile(String location, int bufferSize, int maxChunks) throws IOException {
+    super(bufferSize > 0 ? bufferSize : defaultBufferSize);
+    Format format = Format.fromLocation(location);
+    if (format == null) {
+      throw new IllegalArgumentException("Not a compressed file suffix " + location);
+    }
+    this.location = location;
+    this.maxChunks = Math.max(1, maxChunks);
+    this.chunks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+        return size() > CompressedRandomAccessFile.this.maxChunks;
+      }
+    };
+
+    this.compressed = new RandomAccessFile(location, "r", compressedBufferSize);
+    try {
+      this.index = readOrMakeIndex(format);
+    } catch (IOException | RuntimeException e) {
+      compressed.close();
+      throw e;
+    }
+
+    if (debugLeaks) {
+      openFiles.add(location);
+    }
+  }
+
+  private SeekIndex readOrMakeIndex(Format format) throws IOException {
+    File sourceFile = new File(location);
+    long sourceLength = sourceFile.length();
+    long sourceLastModified = sourceFile.lastModified();
+
+    File indexFile = DiskCache.getFileStandardPolicy(location + INDEX_SUFFIX);
+    if (indexFile.exists()) {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+        SeekIndex index = SeekIndex.read(in);
+        if (index.format == format && index.isValidFor(sourceLength, sourceLastModified)) {
+          return index;
+        }
+      } catch (IOException e) {
+        log.debug("Failed to read seek index {}, will remake it", indexFile, e);
+      }
+    }
+
+    SeekIndex.Builder builder = SeekIndex.builder(format).setSource(sourceLength, sourceLastModified);
+    builder.setLength(format.makeIndex(compressed, builder));
+    SeekIndex index = builder.build();
+    log.debug("Made seek index for {} with {} seek points", location, index.getNumberOfSeekPoints());
+
+    if (persistIndex) {
+      writeIndex(index, indexFile);
+    }
+    return index;
+  }
+
+  // write to a temporary file, so readers never see a partial index
+  private void writeIndex(SeekIndex index, File indexFile) {
+    File tempFile = null;
+    try {
+      tempFile = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile());
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        index.write(out);
+      }
+      Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      log.warn("Failed to write seek index {}: {}", indexFile, e.getMessage());
+      if (tempFile != null && tempFile.exists() && !tempFile.delete()) {
+        log.warn("Failed to delete {}", tempFile);
+      }
+    }
+  }
+
+  /** The number of seek points in the index. */
+  public int getNumberOfSeekPoints() {
+    return index.getNumberOfSeekPoints();
+  }
+
+  /**
+   * The most uncompressed data that follows a seek point, before the next one or the end.
+   * Reading backwards may mean decompressing this much again.
+   */
+  public long getMaxSeekDistance() {
+    long max = 0;
+    int npoints = index.getNumberOfSeekPoints();
+    for (int point = 0; point < npoints; point++) {
+      long next = (point + 1 < npoints) ? index.getUncompressed(point + 1) : index.length;
+      max = Math.max(max, next - index.getUncompressed(point));
+    }
+    return max;
+  }
+
+  @Override
+  public long length() {
+    return index.length;
+  }
+
+  // synchronized, since the chunks and the decoder are shared by the positional reads
+  @Override
+  protected synchronized int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    if (pos >= index.length) {
+      return -1;
+    }
+    int done = 0;
+    while (done < len && pos < index.length) {
+      long chunkno = pos / chunkSize;
+      byte[] chunk = getChunk(chunkno);
+      int chunkOffset = (int) (pos - chunkno * chunkSize);
+      int n = Math.min(len - done, chunk.length - chunkOffset);
+      System.arraycopy(chunk, chunkOffset, b, offset + done, n);
+      done += n;
+      pos += n;
+    }
+    return done;
+  }
+
+  @Override
+  public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    byte[] buff = new byte[(int) nbytes];
+    int done = read_(offset, buff, 0, buff.length);
+    if (done <= 0) {
+      return 0;
+    }
+    dest.write(ByteBuffer.wrap(buff, 0, done));
+    return done;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    super.close();
+    if (live != null) {
+      live.close();
+      live = null;
+    }
+    chunks.clear();
+    compressed.close();
+  }
+
+  private byte[] getChunk(long chunkno) throws IOException {
+    byte[] chunk = chunks.get(chunkno);
+    if (chunk != null) {
+      return chunk;
+    }
+
+    // continue decompressing if live is before the chunk, and no further back than the closest seek point
+    long start = chunkno * chunkSize;
+    int point = index.findSeekPoint(start);
+    if (point < 0) {
+      throw new IOException("No seek point before " + start + " in " + location);
+    }
+    if (live == null || livePos > start || livePos < index.getUncompressed(point)) {
+      startLive(point);
+    }
+
+    byte[] skip = null;
+    while (true) {
+      long liveChunkno = livePos / chunkSize;
+      long chunkStart = liveChunkno * chunkSize;
+      int size = (int) Math.min(chunkSize, index.length - chunkStart);
+
+      if (livePos == chunkStart && chunkno - liveChunkno < maxChunks) { // keep the chunks read along the way
+        byte[] buff = new byte[size];
+        readLive(buff, size);
+        chunks.put(liveChunkno, buff);
+        if (liveChunkno == chunkno) {
+          return buff;
+        }
+      } else { // skip to the next chunk
+        if (skip == null) {
+          skip = new byte[chunkSize];
+        }
+        readLive(skip, (int) (chunkStart + size - livePos));
+      }
+    }
+  }
+
+  private void startLive(int point) throws IOException {
+    if (live != null) {
+      live.close();
+      live = null;
+    }
+    live = index.format.open(compressed, index, point);
+    livePos = index.getUncompressed(point);
+  }
+
+  // read exactly len bytes, continuing into the next gzip member or bzip2 stream as needed
+  private void readLive(byte[] buff, int len) throws IOException {
+    int done = 0;
+    while (done < len) {
+      int n = live.read(buff, done, len - done);
+      if (n < 0) {
+        int next = index.findSeekPointAfter(live.getEndBit());
+        if (next < 0 || index.getUncompressed(next) != livePos) {
+          throw new EOFException("Unexpected end of compressed data at " + livePos + " in " + location);
+        }
+        startLive(next);
+        continue;
+      }
+      done += n;
+      livePos += n;
+    }
+  }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Decompresses one member of a gzip file, starting at its header.
+ * Unlike java.util.zip.GZIPInputStream, it stops at the end of the member, and knows where that is in the file,
+ * so the members can be used as seek points.
+ */
+class GzipMemberInputStream extends InputStream {
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  /** Is there a gzip header at this position? */
+  static boolean isGzipHeader(RandomAccessFile raf, long pos) throws IOException {
+    if (pos + 10 > raf.length()) {
+      return false;
+    }
+    raf.seek(pos);
+    return raf.read() == 0x1f && raf.read() == 0x8b && raf.read() == 8;
+  }
+
+  private final RandomAccessFile raf;
+  private final Inflater inflater = new Inflater(true);
+  private final CRC32 crc = new CRC32();
+  private final byte[] buf = new byte[64 * 1024];
+  private long bufStart; // position in the file of buf[0]
+  private int bufPos, bufLen;
+  private long count; // number of uncompressed bytes
+  private boolean done;
+
+  /**
+   * @param raf the gzip file
+   * @param start position of the member header
+   */
+  GzipMemberInputStream(RandomAccessFile raf, long start) throws IOException {
+    this.raf = raf;
+    this.bufStart = start;
+    readHeader();
+  }
+
+  /** The position in the file after the end of the member. Only valid after read() has returned -1. */
+  long getEnd() {
+    return bufStart + bufPos;
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] b = new byte[1];
+    return (read(b, 0, 1) < 0) ? -1 : b[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (done) {
+      return -1;
+    }
+    if (len == 0) {
+      return 0;
+    }
+    try {
+      while (true) {
+        int n = inflater.inflate(b, off, len);
+        if (n > 0) {
+          crc.update(b, off, n);
+          count += n;
+          return n;
+        }
+        if (inflater.finished()) {
+          bufPos = bufLen - inflater.getRemaining();
+          readTrailer();
+          done = true;
+          return -1;
+        }
+        if (inflater.needsDictionary()) {
+          throw new ZipException("gzip member needs a preset dictionary");
+        }
+        if (inflater.needsInput()) {
+          if (bufPos == bufLen) {
+            fill();
+          }
+          inflater.setInput(buf, bufPos, bufLen - bufPos);
+          bufPos = bufLen;
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new ZipException(e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() {
+    inflater.end();
+  }
+
+  private void readHeader() throws IOException {
+    if (readByte() != 0x1f || readByte() != 0x8b) {
+      throw new ZipException("Not in GZIP format");
+    }
+    if (readByte() != 8) {
+      throw new ZipException("Unsupported compression method");
+    }
+    int flags = readByte();
+    for (int i = 0; i < 6; i++) { // MTIME, XFL, OS
+      readByte();
+    }
+    if ((flags & FEXTRA) != 0) {
+      int xlen = readByte() | (readByte() << 8);
+      for (int i = 0; i < xlen; i++) {
+        readByte();
+      }
+    }
+    if ((flags & FNAME) != 0) {
+      skipZeroTerminated();
+    }
+    if ((flags & FCOMMENT) != 0) {
+      skipZeroTerminated();
+    }
+    if ((flags & FHCRC) != 0) {
+      readByte();
+      readByte();
+    }
+  }
+
+  private void skipZeroTerminated() throws IOException {
+    int b;
+    do {
+      b = readByte();
+    } while (b != 0);
+  }
+
+  private void readTrailer() throws IOException {
+    long storedCrc = readIntLittleEndian();
+    long storedSize = readIntLittleEndian();
+    if (storedCrc != crc.getValue() || storedSize != (count & 0xffffffffL)) {
+      throw new ZipException("Corrupt GZIP trailer");
+    }
+  }
+
+  private long readIntLittleEndian() throws IOException {
+    long result = 0;
+    for (int i = 0; i < 4; i++) {
+      result |= ((long) readByte()) << (8 * i);
+    }
+    return result;
+  }
+
+  private int readByte() throws IOException {
+    if (bufPos == bufLen) {
+      fill();
+    }
+    return buf[bufPos++] & 0xff;
+  }
+
+  // only called when all of buf has been used
+  private void fill() throws IOException {
+    bufStart += bufLen;
+    bufPos = 0;
+    bufLen = 0;
+    raf.seek(bufStart);
+    int n = raf.read(buf, 0, buf.length);
+    if (n <= 0) {
+      throw new EOFException("Unexpected end of gzip file " + raf.getLocation());
+    }
+    bufLen = n;
+  }
+}
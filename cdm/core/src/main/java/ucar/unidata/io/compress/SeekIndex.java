@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io.compress;
+
+import com.google.common.base.Preconditions;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The seek points of a compressed file: positions where decompression can start without reading what comes before.
+ * For gzip, these are the starts of the members; for bzip2, the starts of the blocks.
+ * The index is persisted next to the compressed file, or in the DiskCache, so it is made only once.
+ */
+@Immutable
+class SeekIndex {
+  private static final int MAGIC = 0x5a494458; // "ZIDX"
+  private static final int VERSION = 1;
+
+  final CompressedRandomAccessFile.Format format;
+  final long sourceLength; // length of the compressed file
+  final long sourceLastModified; // so we can tell if the index is out of date
+  final long length; // length of the uncompressed data
+
+  // one for each seek point, in file order
+  private final long[] compressedBit; // position in the compressed file, in bits
+  private final long[] uncompressed; // position in the uncompressed data
+  private final int[] blockSize100k; // bzip2 only
+
+  private SeekIndex(Builder builder) {
+    this.format = builder.format;
+    this.sourceLength = builder.sourceLength;
+    this.sourceLastModified = builder.sourceLastModified;
+    this.length = builder.length;
+    this.compressedBit = Arrays.copyOf(builder.compressedBit, builder.npoints);
+    this.uncompressed = Arrays.copyOf(builder.uncompressed, builder.npoints);
+    this.blockSize100k = Arrays.copyOf(builder.blockSize100k, builder.npoints);
+  }
+
+  int getNumberOfSeekPoints() {
+    return compressedBit.length;
+  }
+
+  long getCompressedBit(int point) {
+    return compressedBit[point];
+  }
+
+  long getUncompressed(int point) {
+    return uncompressed[point];
+  }
+
+  int getBlockSize100k(int point) {
+    return blockSize100k[point];
+  }
+
+  /** The last seek point at or before the uncompressed position, or -1 if none. */
+  int findSeekPoint(long pos) {
+    int idx = Arrays.binarySearch(uncompressed, pos);
+    if (idx < 0) {
+      return -idx - 2;
+    }
+    while (idx < uncompressed.length - 1 && uncompressed[idx + 1] == pos) { // empty blocks
+      idx++;
+    }
+    return idx;
+  }
+
+  /** The first seek point at or after the compressed position in bits, or -1 if none. */
+  int findSeekPointAfter(long bit) {
+    int idx = Arrays.binarySearch(compressedBit, bit);
+    if (idx < 0) {
+      idx = -idx - 1;
+    }
+    return (idx < compressedBit.length) ? idx : -1;
+  }
+
+  boolean isValidFor(long sourceLength, long sourceLastModified) {
+    return this.sourceLength == sourceLength && this.sourceLastModified == sourceLastModified;
+  }
+
+  void write(DataOutputStream out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeUTF(format.name());
+    out.writeLong(sourceLength);
+    out.writeLong(sourceLastModified);
+    out.writeLong(length);
+    out.writeInt(compressedBit.length);
+    for (int i = 0; i < compressedBit.length; i++) {
+      out.writeLong(compressedBit[i]);
+      out.writeLong(uncompressed[i]);
+      out.writeByte(blockSize100k[i]);
+    }
+  }
+
+  static SeekIndex read(DataInputStream in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a seek index");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unknown seek index version " + version);
+    }
+    Builder builder;
+    try {
+      builder = builder(CompressedRandomAccessFile.Format.valueOf(in.readUTF()));
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Unknown seek index format", e);
+    }
+    builder.setSource(in.readLong(), in.readLong());
+    builder.setLength(in.readLong());
+    int n = in.readInt();
+    for (int i = 0; i < n; i++) {
+      builder.addSeekPoint(in.readLong(), in.readLong(), in.readByte());
+    }
+    return builder.build();
+  }
+
+  static Builder builder(CompressedRandomAccessFile.Format format) {
+    return new Builder(format);
+  }
+
+  static class Builder {
+    private final CompressedRandomAccessFile.Format format;
+    private long sourceLength;
+    private long sourceLastModified;
+    private long length = -1;
+    private long[] compressedBit = new long[16];
+    private long[] uncompressed = new long[16];
+    private int[] blockSize100k = new int[16];
+    private int npoints;
+
+    private Builder(CompressedRandomAccessFile.Format format) {
+      this.format = format;
+    }
+
+    Builder setSource(long sourceLength, long sourceLastModified) {
+      this.sourceLength = sourceLength;
+      this.sourceLastModified = sourceLastModified;
+      return this;
+    }
+
+    Builder setLength(long length) {
+      this.length = length;
+      return this;
+    }
+
+    Builder addSeekPoint(long compressedBit, long uncompressed, int blockSize100k) {
+      if (npoints > 0) {
+        Preconditions.checkArgument(compressedBit > this.compressedBit[npoints - 1]);
+        Preconditions.checkArgument(uncompressed >= this.uncompressed[npoints - 1]);
+      }
+      if (npoints == this.compressedBit.length) {
+        this.compressedBit = Arrays.copyOf(this.compressedBit, 2 * npoints);
+        this.uncompressed = Arrays.copyOf(this.uncompressed, 2 * npoints);
+        this.blockSize100k = Arrays.copyOf(this.blockSize100k, 2 * npoints);
+      }
+      this.compressedBit[npoints] = compressedBit;
+      this.uncompressed[npoints] = uncompressed;
+      this.blockSize100k[npoints] = blockSize100k;
+      npoints++;
+      return this;
+    }
+
+    SeekIndex build() {
+      Preconditions.checkState(length >= 0, "length not set");
+      return new SeekIndex(this);
+    }
+  }
+}
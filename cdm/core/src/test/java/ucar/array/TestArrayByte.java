@@ -110,5 +110,18 @@ public class TestArrayByte {
     assertThat(array.get(index.set(0, 1, 2))).isEqualTo(0);
   }
 
+  @Test
+  public void testLargeIndex() {
+    byte[] data = new byte[300];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i % 100);
+    }
+    Array<Byte> array = Arrays.factory(DataType.BYTE, new int[] {300}, data);
+    assertThat(array.get(250)).isEqualTo(50);
+
+    double[] result = new double[300];
+    array.copyTo(result, 0);
+    assertThat(result[299]).isEqualTo(99.0);
+  }
 
 }
@@ -10,6 +10,8 @@ import static org.junit.Assert.fail;
 import com.google.common.collect.ImmutableList;
 import org.junit.Test;
 import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
 
 /** Test {@link ArrayDouble} */
 public class TestArrayDouble {
@@ -147,4 +149,26 @@ public class TestArrayDouble {
     assertThat(result).isEqualTo(new double[] {5, 6, 7, 8, 9});
   }
 
+  @Test
+  public void testCopyTo() throws InvalidRangeException {
+    int[] shape = new int[] {2, 3};
+    Array<Double> array = Arrays.factory(DataType.DOUBLE, shape, new double[] {1, 2, 3, 4, 5, 6});
+
+    double[] result = new double[6];
+    array.copyTo(result, 0);
+    assertThat(result).isEqualTo(new double[] {1, 2, 3, 4, 5, 6});
+
+    Array<Double> section = Arrays.section(array, ImmutableList.of(new Range(0, 1), new Range(0, 2, 2)));
+    result = new double[4];
+    section.copyTo(result, 0);
+    assertThat(result).isEqualTo(new double[] {1, 3, 4, 6});
+
+    try {
+      array.copyTo(new double[5], 0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
 }
@@ -8,6 +8,7 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.fail;
 
 import com.google.common.collect.ImmutableList;
+import java.util.PrimitiveIterator;
 import org.junit.Test;
 import ucar.ma2.DataType;
 
@@ -147,4 +148,53 @@ public class TestArrayFloat {
     assertThat(result).isEqualTo(new float[] {5, 6, 7, 8, 9});
   }
 
+  @Test
+  public void testPrimitiveDouble() {
+    int[] shape = new int[] {1, 2, 3};
+    Array<Float> array = Arrays.factory(DataType.FLOAT, shape, new float[] {1, 2, 3, 4, 5, 6});
+    Array<Float> flipped = Arrays.flip(array, 1);
+
+    double[] result = new double[7];
+    array.copyTo(result, 1);
+    assertThat(result).isEqualTo(new double[] {0, 1, 2, 3, 4, 5, 6});
+    flipped.copyTo(result, 0);
+    assertThat(result).isEqualTo(new double[] {4, 5, 6, 1, 2, 3, 6});
+
+    double[] expected = new double[] {4, 5, 6, 1, 2, 3};
+    PrimitiveIterator.OfDouble iter = flipped.doubleIterator();
+    int count = 0;
+    while (iter.hasNext()) {
+      assertThat(iter.nextDouble()).isEqualTo(expected[count++]);
+    }
+    assertThat(count).isEqualTo(6);
+
+    double[] sum = new double[1];
+    array.forEachDouble(val -> sum[0] += val);
+    assertThat(sum[0]).isEqualTo(21.0);
+
+    Index index = flipped.getIndex();
+    assertThat(flipped.getDouble(index.set(0, 1, 2))).isEqualTo(3.0);
+  }
+
+  @Test
+  public void testPrimitiveDoubleFactoryArrays() {
+    int[] shape1 = new int[] {1, 2, 3};
+    Array<Float> array1 = Arrays.factory(DataType.FLOAT, shape1, new float[] {1, 2, 3, 4, 5, 6});
+    Array<Float> array2 = Arrays.factory(DataType.FLOAT, shape1, new float[] {7, 8, 9, 10, 11, 12});
+    Array<Float> array = Arrays.factoryArrays(DataType.FLOAT, new int[] {2, 2, 3}, ImmutableList.of(array1, array2));
+
+    double[] result = new double[12];
+    array.copyTo(result, 0);
+    for (int i = 0; i < 12; i++) {
+      assertThat(result[i]).isEqualTo(i + 1);
+    }
+
+    PrimitiveIterator.OfDouble iter = array.doubleIterator();
+    int count = 0;
+    while (iter.hasNext()) {
+      assertThat(iter.nextDouble()).isEqualTo(++count);
+    }
+    assertThat(count).isEqualTo(12);
+  }
+
 }
@@ -12,6 +12,7 @@ import org.junit.Before;
 import org.junit.Test;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.IsMissingEvaluator;
 import ucar.ma2.Range;
 
 /** Test {@link Arrays} */
@@ -322,4 +323,45 @@ public class TestArrays {
     assertThat(total).isEqualTo(21.0);
   }
 
+  @Test
+  public void testToDouble() {
+    Array<Integer> iarray = Arrays.factory(DataType.INT, new int[] {2, 3}, new int[] {1, 2, 3, 4, 5, 6});
+    Array<Double> darray = Arrays.toDouble(Arrays.flip(iarray, 0));
+    assertThat(darray.getShape()).isEqualTo(new int[] {6});
+    double[] expected = new double[] {4, 5, 6, 1, 2, 3};
+    for (int i = 0; i < expected.length; i++) {
+      assertThat(darray.get(i)).isEqualTo(expected[i]);
+    }
+
+    assertThat(Arrays.toDouble(array)).isSameInstanceAs(array);
+  }
+
+  @Test
+  public void testMinMaxSkipMissingData() {
+    Array<Short> sarray = Arrays.factory(DataType.SHORT, new int[] {2, 3}, new short[] {-99, 2, 3, 4, 5, 6});
+    IsMissingEvaluator eval = new IsMissingEvaluator() {
+      @Override
+      public boolean hasMissing() {
+        return true;
+      }
+
+      @Override
+      public boolean isMissing(double val) {
+        return val == -99;
+      }
+    };
+
+    Arrays.MinMax minmax = Arrays.getMinMaxSkipMissingData(sarray, eval);
+    assertThat(minmax.min()).isEqualTo(2.0);
+    assertThat(minmax.max()).isEqualTo(6.0);
+
+    minmax = Arrays.getMinMaxSkipMissingData(sarray, null);
+    assertThat(minmax.min()).isEqualTo(-99.0);
+    assertThat(minmax.max()).isEqualTo(6.0);
+
+    minmax = Arrays.getMinMaxSkipMissingData(Arrays.flip(array, 1), eval);
+    assertThat(minmax.min()).isEqualTo(1.0);
+    assertThat(minmax.max()).isEqualTo(6.0);
+  }
+
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import ucar.array.Array;
+import ucar.array.Arrays;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
+import ucar.nc2.internal.util.CompareArrayToArray;
+import ucar.unidata.util.test.TestDir;
+
+/** Many threads reading from one open NetcdfFile, for the IOSPs that say they are thread-safe. */
+@RunWith(Parameterized.class)
+public class TestConcurrentRead {
+  private static final int nthreads = 8;
+  private static final int nreads = 200; // per thread
+
+  @Parameterized.Parameters(name = "{0}")
+  public static List<Object[]> getTestParameters() {
+    List<Object[]> result = new ArrayList<>();
+    // netCDF-3
+    result.add(new Object[] {TestDir.cdmLocalTestDataDir + "testWriteRecord.nc"});
+    result.add(new Object[] {TestDir.cdmLocalTestDataDir + "longOffset.nc"});
+    result.add(new Object[] {TestDir.cdmLocalTestDataDir + "jan.nc"});
+    // HDF5, including strings and structures, which lock the file
+    result.add(new Object[] {TestDir.cdmLocalTestDataDir + "chunked.h5"});
+    result.add(new Object[] {TestDir.cdmLocalTestDataDir + "hdf5/test_atomic_types.nc"});
+    result.add(new Object[] {TestDir.cdmLocalTestDataDir + "testCFGridWriter.nc4"});
+    result.add(new Object[] {TestDir.cdmLocalTestDataDir + "pointPre1.6/problem/kunicki.structs.nc4"});
+    return result;
+  }
+
+  private final String filename;
+
+  public TestConcurrentRead(String filename) {
+    this.filename = filename;
+  }
+
+  @Test
+  public void readConcurrently() throws Exception {
+    try (NetcdfFile ncfile = NetcdfFiles.open(filename)) {
+      assertThat(ncfile.isThreadSafe()).isTrue();
+
+      // read everything serially first
+      List<Variable> vars = new ArrayList<>();
+      Map<Variable, Array<?>> expected = new HashMap<>();
+      for (Variable v : ncfile.getVariables()) {
+        if (v.getDataType() == DataType.OPAQUE) {
+          continue; // CompareArrayToArray cant compare these
+        }
+        v.setCaching(false); // so every read goes to the iosp
+        vars.add(v);
+        expected.put(v, v.readArray());
+      }
+
+      ExecutorService executor = Executors.newFixedThreadPool(nthreads);
+      try {
+        List<Future<Void>> results = new ArrayList<>();
+        for (int t = 0; t < nthreads; t++) {
+          Random random = new Random(t);
+          Callable<Void> reader = () -> {
+            for (int i = 0; i < nreads; i++) {
+              Variable v = vars.get(random.nextInt(vars.size()));
+              Section section = randomSection(v, random);
+              Array<?> want =
+                  (section == null) ? expected.get(v) : Arrays.section(expected.get(v), section.getRanges());
+              Array<?> got = (section == null) ? v.readArray() : v.readArray(section);
+              compare(v.getFullName() + " " + section, want, got);
+            }
+            return null;
+          };
+          results.add(executor.submit(reader));
+        }
+        for (Future<Void> result : results) {
+          result.get(); // rethrows a failed comparison
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  // a random section with strides, or null to read everything
+  private Section randomSection(Variable v, Random random) throws InvalidRangeException {
+    if (v.getRank() == 0 || v.isVariableLength() || v.getDataType() == DataType.STRUCTURE || random.nextInt(4) == 0) {
+      return null;
+    }
+    Section.Builder sb = Section.builder();
+    for (int len : v.getShape()) {
+      if (len == 0) {
+        return null;
+      }
+      int first = random.nextInt(len);
+      int last = first + random.nextInt(len - first);
+      sb.appendRange(new Range(first, last, 1 + random.nextInt(3)));
+    }
+    return sb.build();
+  }
+
+  private void compare(String name, Array<?> want, Array<?> got) throws Exception {
+    Formatter f = new Formatter();
+    boolean ok = CompareArrayToArray.compareData(f, name, want, got, false, true);
+    if (!ok) {
+      System.out.printf("%s%n", f);
+    }
+    assertThat(ok).isTrue();
+  }
+}
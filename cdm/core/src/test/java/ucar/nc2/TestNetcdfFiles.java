@@ -137,5 +137,29 @@ public class TestNetcdfFiles {
     }
   }
 
-
+  @Test
+  public void testCompressionInPlace() throws IOException {
+    File uncompressedGzip = new File(TestDir.cdmLocalTestDataDir + "compress/testGzip.nc");
+    File uncompressedBzip = new File(TestDir.cdmLocalTestDataDir + "compress/testBzip.nc");
+    uncompressedGzip.delete();
+    uncompressedBzip.delete();
+
+    try {
+      NetcdfFiles.setReadCompressedInPlace(true);
+      try (NetcdfFile ncfile = NetcdfFiles.open(TestDir.cdmLocalTestDataDir + "compress/testBzip.nc.bz2")) {
+        assertThat(ncfile.getRootGroup().findAttributeString("yo", "barf")).isEqualTo("face");
+      }
+      assertThat(uncompressedBzip.exists()).isFalse();
+
+      // a single gzip member is too far to seek through, so it is uncompressed
+      NetcdfFiles.setReadCompressedInPlace(true, 100);
+      try (NetcdfFile ncfile = NetcdfFiles.open(TestDir.cdmLocalTestDataDir + "compress/testGzip.nc.gz")) {
+        assertThat(ncfile.getRootGroup().findAttributeString("yo", "barf")).isEqualTo("face");
+      }
+      assertThat(uncompressedGzip.exists()).isTrue();
+
+    } finally {
+      NetcdfFiles.setReadCompressedInPlace(false);
+    }
+  }
 }
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.net.URISyntaxException;
 import java.util.EnumSet;
+import java.util.Objects;
 import java.util.Set;
 
 public class TestScaleOffsetMissingUnsigned {
@@ -394,4 +395,56 @@ public class TestScaleOffsetMissingUnsigned {
       Assert.assertEquals(106, var.read().getByte(0)); // -50 + 156 == 106
     }
   }
+
+  // readArray() converts natively, read() goes through ucar.ma2; they must agree exactly.
+  @Test
+  public void testReadArrayMatchesRead() throws IOException, URISyntaxException {
+    File testResource = new File(getClass().getResource("testScaleOffsetMissingUnsigned.ncml").toURI());
+
+    try (NetcdfDataset ncd = NetcdfDatasets.openDataset(testResource.getAbsolutePath(), true, null)) {
+      for (Variable v : ncd.getVariables()) {
+        Array ma2 = v.read();
+        ucar.array.Array<?> array = v.readArray();
+        Assert.assertEquals(v.getShortName(), v.getDataType(), array.getDataType());
+        Assert.assertArrayEquals(v.getShortName(), ma2.getShape(), array.getShape());
+        Assert.assertTrue(v.getShortName(),
+            Objects.deepEquals(ma2.get1DJavaArray(v.getDataType()), ucar.array.Arrays.copyPrimitiveArray(array)));
+      }
+    }
+  }
+
+  // a double cant hold every long, so long data must be converted exactly
+  @Test
+  public void testLongValuesExact() {
+    long[] values = {Long.MIN_VALUE, -1, (1L << 53) + 1, Long.MAX_VALUE};
+    for (DataType dataType : new DataType[] {DataType.LONG, DataType.ULONG}) {
+      VariableDS var = VariableDS.builder().setName("name").setDataType(dataType)
+          .addAttribute(new Attribute(CDM.FILL_VALUE, 7L)).build(TestUtils.makeDummyGroup());
+      EnhanceScaleMissingUnsignedImpl impl = new EnhanceScaleMissingUnsignedImpl(var, NetcdfDataset.getEnhanceAll());
+
+      ucar.array.Array<?> in = ucar.array.Arrays.factory(dataType, new int[] {values.length}, values.clone());
+      ucar.array.Array<?> out = impl.convertArray(in, false, true, true);
+      Assert.assertEquals(dataType, out.getDataType());
+      Assert.assertArrayEquals((long[]) ucar.array.Arrays.copyPrimitiveArray(out), values);
+
+      Array ma2 = impl.convert(Array.factory(dataType, new int[] {values.length}, values.clone()), false, true, true);
+      Assert.assertArrayEquals((long[]) ma2.get1DJavaArray(dataType), values);
+    }
+  }
+
+  @Test
+  public void testUnsignedIntToLongExact() {
+    int[] values = {Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE};
+    long[] expected = {1L << 31, 0xffffffffL, 0, Integer.MAX_VALUE};
+    for (DataType dataType : new DataType[] {DataType.INT, DataType.UINT}) {
+      VariableDS var = VariableDS.builder().setName("name").setDataType(dataType)
+          .addAttribute(new Attribute(CDM.UNSIGNED, "true")).build(TestUtils.makeDummyGroup());
+      EnhanceScaleMissingUnsignedImpl impl = new EnhanceScaleMissingUnsignedImpl(var, NetcdfDataset.getEnhanceAll());
+
+      ucar.array.Array<?> in = ucar.array.Arrays.factory(dataType, new int[] {values.length}, values.clone());
+      ucar.array.Array<?> out = impl.convertArray(in, true, true, true);
+      Assert.assertEquals(DataType.ULONG, out.getDataType());
+      Assert.assertArrayEquals((long[]) ucar.array.Arrays.copyPrimitiveArray(out), expected);
+    }
+  }
 }
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+import java.util.zip.Deflater;
+import org.junit.Test;
+
+/** Test {@link Filters} and the built-in filters */
+public class TestFilters {
+  // compressed with the reference zstd, lz4 and bzip2 libraries
+  private static final String ZSTD_200 =
+      "KLUv/WBIDVUPALYqUhWwpZIDoF0IMIcZDW3viohIXRCHDAJQAEoASQA9K1pHVRr6Dy9CKWieujlSbmQ9ioixQH8msuBY52M9" +
+      "Tddyn43WprAQI1LkCe2X6GpBRadOYpBkepnGec9Xh500EAAYEDgIUICgIBAYDBBwEBIRhnSXqKMyijjZJZ4g5EQIiSmCfnwc" +
+      "bUPDYBcdRXAImfvyWFzkr/2tH+H13dSl8Mv4F0vD4y2yX3NoyzwhO4KnDKkjOvFaXE4DMo4eKtGMIg3+F0s1qW9EW6DqEZFY" +
+      "+BcHt0N2GrVh+gwtU4Q4aU93ipMWQYpOJwzJe0970tulCUGdkUyI0aee6Vwcb3NqpmH6kQPeXDLRy6FiN7rCyJtTptFfYrZj" +
+      "dBJaEImziyfIh/BUmp+10oQQOx0JDrnvWEVYb9NIuPQxRQrLf0s7UrSLEyzLTIgjzrCjE3SBjKghWPz6HbG7BhEkSIG+xxig" +
+      "LvfMybBLo0CoMxRjSACzYIEVgfkJ0RYKNJOpdoSnGnUyxZsGaqs4MtocYAE0rwkMJGBiYBYu8DVCJ11q0qhCYroGuhdhWaAi" +
+      "wi7UERYyI8O2bCRLSp6QkKQtG8mSknVhBSFTIjNDtdQ0EmVkyMiUGWFHjIkKFVUqLyvum17zl1WVCaaUqzmOsRmgqgI=";
+
+  private static final String LZ4_50 =
+      "8QFsaW5lIDA6IHZhbHVlPTAKEAAUMRAAEjEQABQyEAASNBAAFDMQABI5EAAUNBAAIjE2EQAUNREAIjI1EQAUNhEAEzMiABQ3" +
+      "EQATNEQAFDgRABM2ZQAUOREAEziGABUxpwASM1UAFTGoABMyNAAWMaoAEzckAAWsACM3MhIABa4ABBEABa4AFDNqAAWvABQ2" +
+      "JAAFsAATOdIAFTGxABQzjwAFsgAiNzBrABUysgATMUgAFTKzABM1NgAVMrMAEzkbARUyswATNNcAFTKzABM5ogAVMrQAFDRI" +
+      "AAW0ABQ5NgAFtAAUNZAABbQAEzihAAWzABM21wAVM7MAEzJCARUzswATODYAFTOzABM1awAVM7MAEzLpABUzswATOOEBFTOz" +
+      "ABM2xQAVM7MAFDN+AAWzABQxJAAGswADHwEWM7QAAxIAFTS0ABM0ogAVNLQAEzOQABU0tAAUMSQABbQABEcABbMAEzlUARU0" +
+      "swATOKEAFTSzABM31wAVNLMAFDckAAWzABQ3SAADswBQZT03Mwo=";
+
+  private static final String BZIP2_50 =
+      "QlpoOTFBWSZTWa2CmWUAATxZgAAQQAB/8iIlAwAwAOFg09U0wSKaYBE09MVNDQAIqmDUAGJGycpbLi0+sqX1HN1bxfUyZBMm" +
+      "smjWnc1P+mSb+TJN46rx1zvO36zubcBIEDaq65NTEUoEAIGojcVL8rIuQAQAlNTe3errJbQDAAKru7rfOTjZjzmXl1OmRb1Y" +
+      "QmgiiWALRJBSwzNoJdPId6Uo7GJvjWHSutSJ0raOGmkopKdZRtGhaNehByIOBByIORBuIOBByIMxBuIP4u5IpwoSFbBTLKA=";
+
+  private static byte[] lines(int n) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < n; i++) {
+      sb.append("line ").append(i).append(": value=").append(i * i % 97).append('\n');
+    }
+    return sb.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static byte[] randomBytes(int n) {
+    byte[] result = new byte[n];
+    new Random(42).nextBytes(result);
+    return result;
+  }
+
+  @Test
+  public void testRegistry() {
+    for (int id : new int[] {Deflate.ID, Shuffle.ID, Fletcher32.ID, Bzip2.ID, Lz4.ID, Bitshuffle.ID, Zstd.ID}) {
+      assertThat(Filters.isKnown(id)).isTrue();
+    }
+    assertThat(Filters.isKnown(4)).isFalse(); // szip
+    try {
+      Filters.getFilter(4, new int[0], 4, 100);
+      fail();
+    } catch (Filters.UnknownFilterException e) {
+      assertThat(e.getMessage()).contains("4");
+    }
+
+    assertThat(Filters.getFilter(Deflate.ID, new int[] {5}, 4, 100)).isInstanceOf(Deflate.class);
+    assertThat(Filters.getFilter(Zstd.ID, new int[0], 4, 100).getName()).isEqualTo("zstd");
+  }
+
+  @Test
+  public void testRegisterFilter() throws IOException {
+    final int id = 32999;
+    assertThat(Filters.isKnown(id)).isFalse();
+    Filters.registerFilter(new FilterProvider() {
+      @Override
+      public int getId() {
+        return id;
+      }
+
+      @Override
+      public String getName() {
+        return "reverse";
+      }
+
+      @Override
+      public Filter create(int[] clientData, int elemSize, int chunkSize) {
+        return new Filter() {
+          @Override
+          public int getId() {
+            return id;
+          }
+
+          @Override
+          public String getName() {
+            return "reverse";
+          }
+
+          @Override
+          public byte[] decode(byte[] dataIn) {
+            byte[] result = new byte[dataIn.length];
+            for (int i = 0; i < dataIn.length; i++) {
+              result[i] = dataIn[dataIn.length - 1 - i];
+            }
+            return result;
+          }
+        };
+      }
+    });
+    assertThat(Filters.isKnown(id)).isTrue();
+    assertThat(Filters.getFilter(id, new int[0], 1, 3).decode(new byte[] {1, 2, 3})).isEqualTo(new byte[] {3, 2, 1});
+  }
+
+  @Test
+  public void testDeflate() throws IOException {
+    byte[] org = lines(1000);
+    Deflater deflater = new Deflater();
+    deflater.setInput(org);
+    deflater.finish();
+    byte[] buff = new byte[org.length];
+    int n = deflater.deflate(buff);
+    assertThat(deflater.finished()).isTrue();
+    deflater.end();
+    byte[] compressed = Arrays.copyOf(buff, n);
+
+    // exact, too small, and unknown size hints
+    assertThat(new Deflate(org.length).decode(compressed)).isEqualTo(org);
+    assertThat(new Deflate(1).decode(compressed)).isEqualTo(org);
+    assertThat(new Deflate(0).decode(compressed)).isEqualTo(org);
+    assertThat(new Deflate(2 * org.length).decode(compressed)).isEqualTo(org);
+
+    try {
+      new Deflate(org.length).decode(Arrays.copyOf(compressed, compressed.length / 2));
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testShuffle() throws IOException {
+    int elemSize = 4;
+    int nelems = 10;
+    byte[] org = randomBytes(elemSize * nelems + 3); // partial element at the end is not shuffled
+    byte[] shuffled = Arrays.copyOf(org, org.length);
+    for (int i = 0; i < nelems; i++) {
+      for (int j = 0; j < elemSize; j++) {
+        shuffled[j * nelems + i] = org[i * elemSize + j];
+      }
+    }
+    Filter filter = Filters.getFilter(Shuffle.ID, new int[] {elemSize}, 8, org.length);
+    assertThat(filter.decode(shuffled)).isEqualTo(org);
+  }
+
+  @Test
+  public void testFletcher32() throws IOException {
+    byte[] org = randomBytes(100);
+    byte[] withChecksum = Arrays.copyOf(org, org.length + 4);
+    assertThat(new Fletcher32().decode(withChecksum)).isEqualTo(org);
+  }
+
+  @Test
+  public void testBzip2() throws IOException {
+    byte[] compressed = Base64.getDecoder().decode(BZIP2_50);
+    assertThat(new Bzip2(0).decode(compressed)).isEqualTo(lines(50));
+    assertThat(new Bzip2(10).decode(compressed)).isEqualTo(lines(50));
+
+    try {
+      new Bzip2(0).decode(new byte[] {1, 2, 3, 4});
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testLz4Block() throws IOException {
+    byte[] compressed = Base64.getDecoder().decode(LZ4_50);
+    byte[] expected = lines(50);
+    byte[] result = new byte[expected.length];
+    int n = Lz4.decompressBlock(compressed, 0, compressed.length, result, 0, result.length);
+    assertThat(n).isEqualTo(expected.length);
+    assertThat(result).isEqualTo(expected);
+
+    try {
+      Lz4.decompressBlock(compressed, 0, compressed.length, new byte[10], 0, 10);
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testLz4CompressBlock() throws IOException {
+    Random random = new Random(42);
+    byte[] noise = new byte[5000];
+    random.nextBytes(noise);
+    for (byte[] data : new byte[][] {new byte[0], "short".getBytes(StandardCharsets.UTF_8), lines(500), noise,
+        new byte[100000]}) {
+      byte[] compressed = new byte[Lz4.maxCompressedLength(data.length) + 7];
+      int len = Lz4.compressBlock(data, 0, data.length, compressed, 7);
+      byte[] result = new byte[data.length];
+      int n = Lz4.decompressBlock(compressed, 7, len, result, 0, result.length);
+      assertThat(n).isEqualTo(data.length);
+      assertThat(result).isEqualTo(data);
+    }
+
+    byte[] zeros = new byte[100000];
+    byte[] compressed = new byte[Lz4.maxCompressedLength(zeros.length)];
+    assertThat(Lz4.compressBlock(zeros, 0, zeros.length, compressed, 0)).isLessThan(1000);
+  }
+
+  @Test
+  public void testLz4() throws IOException {
+    // HDF5 lz4 plugin: total size, block size, then each block preceded by its compressed size.
+    // First block is compressed, the second is stored as is because it did not compress.
+    byte[] first = lines(50);
+    byte[] second = randomBytes(first.length);
+    byte[] compressed = Base64.getDecoder().decode(LZ4_50);
+
+    ByteBuffer bb = ByteBuffer.allocate(12 + 4 + compressed.length + 4 + second.length);
+    bb.putLong(2 * first.length);
+    bb.putInt(first.length);
+    bb.putInt(compressed.length);
+    bb.put(compressed);
+    bb.putInt(second.length);
+    bb.put(second);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    expected.write(first);
+    expected.write(second);
+
+    Filter filter = Filters.getFilter(Lz4.ID, new int[0], 1, 2 * first.length);
+    assertThat(filter.decode(bb.array())).isEqualTo(expected.toByteArray());
+  }
+
+  @Test
+  public void testZstd() throws IOException {
+    byte[] compressed = Base64.getDecoder().decode(ZSTD_200);
+    byte[] expected = lines(200);
+    assertThat(new Zstd(expected.length).decode(compressed)).isEqualTo(expected);
+    assertThat(new Zstd(0).decode(compressed)).isEqualTo(expected);
+
+    try {
+      new Zstd(0).decode(Arrays.copyOf(compressed, compressed.length - 10));
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  // forward bit transpose of one block, see Bitshuffle.untransposeBits()
+  private static void transposeBits(byte[] in, int inPos, byte[] out, int outPos, int n, int elemSize) {
+    int rowBytes = n / 8;
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < elemSize; j++) {
+        int b = in[inPos + i * elemSize + j];
+        for (int k = 0; k < 8; k++) {
+          if ((b & (1 << k)) != 0) {
+            out[outPos + (8 * j + k) * rowBytes + i / 8] |= 1 << (i % 8);
+          }
+        }
+      }
+    }
+  }
+
+  private static byte[] bitshuffle(byte[] org, int elemSize, int block) {
+    byte[] result = new byte[org.length];
+    int size = org.length / elemSize;
+    int pos = 0;
+    while (size - pos / elemSize >= 8) {
+      int n = Math.min(block, size - pos / elemSize);
+      n -= n % 8;
+      transposeBits(org, pos, result, pos, n, elemSize);
+      pos += n * elemSize;
+    }
+    System.arraycopy(org, pos, result, pos, org.length - pos);
+    return result;
+  }
+
+  @Test
+  public void testBitshuffle() throws IOException {
+    int elemSize = 4;
+    int block = 64;
+    // 3 full blocks, a partial block of 40 elements, 5 leftover elements and a partial element
+    byte[] org = randomBytes(elemSize * (3 * block + 45) + 2);
+    byte[] shuffled = bitshuffle(org, elemSize, block);
+    assertThat(shuffled).isNotEqualTo(org);
+
+    Filter filter = Filters.getFilter(Bitshuffle.ID, new int[] {0, 3, elemSize, block, Bitshuffle.NO_COMPRESS}, 8,
+        org.length);
+    assertThat(filter.decode(shuffled)).isEqualTo(org);
+  }
+
+  // an lz4 block with no matches, only literals
+  private static byte[] lz4Literals(byte[] data, int start, int len) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    if (len < 15) {
+      out.write(len << 4);
+    } else {
+      out.write(0xf0);
+      int rest = len - 15;
+      while (rest >= 255) {
+        out.write(255);
+        rest -= 255;
+      }
+      out.write(rest);
+    }
+    out.write(data, start, len);
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testBitshuffleLz4() throws IOException {
+    int elemSize = 2;
+    int block = 128;
+    byte[] org = randomBytes(elemSize * (2 * block + 20));
+    byte[] shuffled = bitshuffle(org, elemSize, block);
+
+    // bitshuffle plugin: total size, block size in bytes, then each block preceded by its compressed size
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteBuffer header = ByteBuffer.allocate(12);
+    header.putLong(org.length);
+    header.putInt(block * elemSize);
+    out.write(header.array());
+    int pos = 0;
+    for (int n : new int[] {block, block, 16}) {
+      byte[] compressed = lz4Literals(shuffled, pos, n * elemSize);
+      out.write(ByteBuffer.allocate(4).putInt(compressed.length).array());
+      out.write(compressed);
+      pos += n * elemSize;
+    }
+    out.write(shuffled, pos, shuffled.length - pos); // leftover elements are not compressed
+
+    Filter filter = Filters.getFilter(Bitshuffle.ID, new int[] {0, 3, elemSize, block, Bitshuffle.LZ4_COMPRESS}, 8,
+        org.length);
+    assertThat(filter.decode(out.toByteArray())).isEqualTo(org);
+  }
+
+}
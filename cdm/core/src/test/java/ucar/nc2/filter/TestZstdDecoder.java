@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.filter;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import org.junit.Test;
+
+/**
+ * Test {@link ZstdDecoder} on frames that use each part of the format.
+ * The frames were compressed with the reference zstd library, from the data made by the methods below.
+ */
+public class TestZstdDecoder {
+  // skewed(1000, 1) at level 19: Huffman compressed literals, and a few sequences with the predefined FSE tables
+  private static final String HUFFMAN =
+      "KLUv/WDoAgURAKY9hBSgKR2gtbLl7zaSl83SP6qqxvo7DH4AfQB8ADdsd7imuzEqBCSyxiXhXg5JQYRmTtgVuMKekgAbfHDD" +
+      "Wbf4xhZsgC2lhKyxp09VyGnrczRWH45fgpifnZrSXt1g/4CMDuJ1bxuEAbOMI45iR0qzsIFjMyH0qkCsikJx+JMfChN36cdS" +
+      "KRESIFBTG+ZW1gHK/U+CakueCC4JA4+tYoCEMKnPzW6cIB0lmpoq4bFdykhhxdJAFI/CgRV0GArvEPU5yskBvVbfbjQVLUzN" +
+      "42YdP8fAIu4O2iBi9tgQxRrvBvgYcYAT40f4XYm/5DoBIBBodbVoTyNYVI0udXDS8qnrZb1uYzpngFVhK4Nselh5qzvlpOmQ" +
+      "v40DPWdkK1JFBQtuDiELef2qh9RaakPAgo42t6EcWQK0O6hKZRMMIeVWnVJASe663ayOH7RTuZpvaPDJQqhSOVRBWT2gHQMp" +
+      "nM86YtUuHlql5TuIf7DIf7VY2JUieJoHqJL3RVWsuvHbqnVpqljktaAhyYZ3EaeQhCi0wNthnIP5aoo0/Pxn1ElEWBZEIyYs" +
+      "4UBRCT65nEz76vJ4etLQ2vsUaRtyGtfmTvTHPLIDlzsAKl2NIjpUsFSZe5wlR11WDRnbge4PsSXA2XeCeLniT50qEA9SDWSn" +
+      "7tTm7oFKxmJyNzEjiwolDAzZhFABvbXbGm5eRiVyu0CMZQDsFQMAc5SY9C8honmBOgM=";
+
+  // records(50) at level 1: FSE compressed tables for all three sequence codes, and repeat offsets
+  private static final String RECORDS =
+      "KLUv/WACB10EAMKIGRigJ23AkubNPhk7LUvw3C4iu7t7c1PDUyPFHuqbLdO4r3hbtYf6Zss07iveVu2hvtkyjfuKt1V7qG+2" +
+      "TOO+4m3VHuqbLdO4r3hblCkcRqLc6+YkCIROgpQyiOGkMhAAAuY4GImQUGKoEeDv/x3gNwMR/CuEP6WqUlVVSlWVqqpSqSqG" +
+      "mDAgVQE=";
+
+  // multiBlock() at level 3: two compressed blocks, the second matching into the first, then an RLE and a raw block
+  private static final String MULTI_BLOCK =
+      "KLUv/aAsAQYAPCgA1t05FKAnxWLmX4JQ1XJ52d3dO1G44qkYQQA6AC4AIU2cSXyEzGFm1EPQbTZMCcUoIkF3jO/wUBdhc0UU" +
+      "I5floXZCdlIUNA8pF7IWCA4KDAAGAQIEg4GEQsBQIDgoMAhkYxK2aYNdWVUNFU1JGXVZQx0ZFRENCV0QTdJAZyM1NDJhnzPD" +
+      "xIVVXdHYxEmIuRyKDEJ0QWahFRMUV3cOp0lmqaFYms5MiaKqqnquu2S7+6mqqkquDg7G4ODgYAwOesN5dTR3d2dWFjKfXIjD" +
+      "//////////////8vy7L8/////////////f/DMXwWgtSoUlx9/zNCCxyEwTkQvwESELGoXV877f//d+3lqFWTOBFN/Bw+ivuf" +
+      "W3HP3lncu8qL+2aOcf9hM27XMhvcF3PMlEzHKmA9turw4595gxxYRSffkIlyEZkqxyNDxK6BLrs8V6knk1SMsvlzU6aWojLV" +
+      "iFcGCDnXK5aPcaVlh2Zcni/4ZV6FYRaZOma+yB6ZrXSZ+YcB2X4N9Ht8xApzDKabYyCJnj914bPaGdSmw7uvUZ06PiNc1s/I" +
+      "hAtolFwHzbRTN+JEn7BFW1K+0Y07bcWsJZW0oTwe5lxRNFILckhe0gOL0WKmm/vJwS1xvgmdM3Z9Uue6pL/1Hq/9rq6jqmv5" +
+      "ukaVrregawPGa9v6GnewWQX7ENg2YPv6OurrZb8GE9hK0tcafn3ytSaAbaiCTRbsabDvgd0I7G9gqwAbCtjUwC5znJb+dcuv" +
+      "qX3dAgC7HthfEdjNLthmYJcDey/Y0cA+ATYy2OyCjR7sZF/b+po2QHd0sDoDJwBsV+oAbEoIbIJgPwJ75+vovj75GirBpgEb" +
+      "MrBPgk0FNjlgg4OdFuzbYIdFYO96YDsP0Eb5NfyvR7/WGdiewI4C9hCwpYBtC2zHYBcFmxrYMsA2W2Ve+lro13kydRQhsEf0" +
+      "8eu58Aisr4nLuWCbpUKwBSwdbKFBqToPXW2UI+ZvqTheRG8SjI5bGSGnYY2WYvwF5GU1VJLl10k8UzOG1I+diXqW3kC6j8nT" +
+      "Ca3b6YXBoHvTIz/TK01ZWrHiKx01SQOMhPTVQR9dKXhGR9w3RX+d6DfRPvQs3w8andUGGj3MKCz2zxPmXJ9jzT1bnXjGoYM7" +
+      "H8GUzsgLCTkbBMAE6tzkZmjbb/MA5Kx5qvYDyCQSMlM9xIFGfOvTDnPm0i/rCANItCXx2t1Icx8RMOZlDDx5t5OZEzE5ndTm" +
+      "Div5BnKSUXhqZOLNiPx1gSFTLgxkmkI+tigtj2kg6ZiWjGNB4I2Rkqtx33AHTCXmAVWC81y5QUR3meCOu3kQnAw8KLi4xP+k" +
+      "LuLXlgU0+9cFhGsD/dNqLfyokEr/wDUwf0ASlkPE2sUXyGb7BtNpZbd5j6uw7ZfbIUcvc6yI2M3W36ldCtFW0Oy3VCovYxO9" +
+      "T6KWs2tyvnUbjBSR7XHkrX2Fq5rkg1DDc8A1ZA1MYhOOaAyl+0eP9lGmJrZaLkYiuQ3jSWhUQnEAf56VUEFlxBFJm3ZFSgYp" +
+      "+Cs2b9avZ9/0q3e6agqCv+jxOQbyhhHNp4z31srSs+PsQ3brj43at7sSDWXoPFYhwm8kTlTP1JbLmdL6rL29TqnrO0Q0nYGU" +
+      "/JgkxN8gwX4GUsLXjt4eWLJDueBO9JXYuKP/8JX+tNza2yd3b8OIDrtW9oU6vKAVcvewsqCp/j+xkHAf8SSCjYegxOY4JGBh" +
+      "nIlWTAAACGEBAPz/ORACAgAQAGEJAGxOdJITJSIuMaHNE74S7UJpZs4k/CPX2o0gl2FqBpVuworUAxNoKNRXHjxd7m5ewEqR" +
+      "EV9dO1E+wlOkFq1u5TiUEdAomqNM9cA0fFnK8ISV82EbC1Bo1ZgE+S63KZlVV3mZvnjAEGaHApnlf2zSNbz7j0Sd7uI74ezM" +
+      "jL/1v77CC9v4a5zlT4W2B89G6UpLKvvU5Y9P4VwREoIYoysY93Lfj9V6R1ve5HQ0kyZckZ3Zi+ZUWYqdDx8O1Crd4NzYXpBu" +
+      "rRzZq+qe09qImNvgA8FCfutyuE0sA3d7GOUvQzl/tC7ZymoLTatsrwYTf21V2blUAVLxK4u25S08Mi6F88zkiLD7EbTfAtZs" +
+      "ZRBfcWwZiCDvckxuBC/yo+w89tncPrg0iSfn3nabq8n9Bg==";
+
+  private static byte[] lcg(int n, int seed) {
+    byte[] result = new byte[n];
+    long x = seed;
+    for (int i = 0; i < n; i++) {
+      x = (x * 1103515245 + 12345) & 0x7fffffff;
+      result[i] = (byte) (x >>> 16);
+    }
+    return result;
+  }
+
+  // letters with an English like distribution and few repeated strings
+  private static byte[] skewed(int n, int seed) {
+    byte[] alpha = "eeeeeeeetttttaaaaooooiinnnsshhrdlcumwfgypbvk ".getBytes(StandardCharsets.US_ASCII);
+    byte[] result = lcg(n, seed);
+    for (int i = 0; i < n; i++) {
+      result[i] = alpha[(result[i] & 0xff) % alpha.length];
+    }
+    return result;
+  }
+
+  // fixed width records that differ in two fields, so the matches keep reusing the same offsets
+  private static byte[] records(int n) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < n; i++) {
+      sb.append("station=KBOU temp=").append(i * 7 % 10).append(" pressure=1013 wind=").append(i * 3 % 10).append('\n');
+    }
+    return sb.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static byte[] lines(int n) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < n; i++) {
+      sb.append("line ").append(i).append(": value=").append(i * i % 97).append('\n');
+    }
+    return sb.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  // 256K of text in two blocks, a block of zeros, and 300 bytes that don't compress
+  private static byte[] multiBlock() {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    byte[] text = lines(300);
+    for (int i = 0; i < 80; i++) {
+      bos.write(text, 0, text.length);
+    }
+    byte[] result = new byte[3 * 131072 + 300];
+    System.arraycopy(bos.toByteArray(), 0, result, 0, 2 * 131072);
+    System.arraycopy(lcg(300, 7), 0, result, 3 * 131072, 300);
+    return result;
+  }
+
+  private static byte[] decompress(String base64, int sizeHint) throws IOException {
+    byte[] compressed = Base64.getDecoder().decode(base64);
+    return new ZstdDecoder().decompress(compressed, 0, compressed.length, sizeHint);
+  }
+
+  private static void assertCorrupt(byte[] compressed, String message) {
+    try {
+      new ZstdDecoder().decompress(compressed, 0, compressed.length, 0);
+      fail();
+    } catch (IOException e) {
+      assertThat(e.getMessage()).contains(message);
+    }
+  }
+
+  @Test
+  public void testHuffmanLiterals() throws IOException {
+    byte[] expected = skewed(1000, 1);
+    assertThat(decompress(HUFFMAN, expected.length)).isEqualTo(expected);
+    assertThat(decompress(HUFFMAN, 0)).isEqualTo(expected);
+  }
+
+  @Test
+  public void testFseSequencesAndRepeatOffsets() throws IOException {
+    byte[] expected = records(50);
+    assertThat(decompress(RECORDS, expected.length)).isEqualTo(expected);
+    assertThat(decompress(RECORDS, 0)).isEqualTo(expected);
+  }
+
+  @Test
+  public void testMultiBlock() throws IOException {
+    byte[] expected = multiBlock();
+    assertThat(decompress(MULTI_BLOCK, expected.length)).isEqualTo(expected);
+    assertThat(decompress(MULTI_BLOCK, 100)).isEqualTo(expected);
+  }
+
+  @Test
+  public void testConcatenatedFrames() throws IOException {
+    byte[] huffman = Base64.getDecoder().decode(HUFFMAN);
+    byte[] records = Base64.getDecoder().decode(RECORDS);
+    byte[] compressed = Arrays.copyOf(huffman, huffman.length + records.length);
+    System.arraycopy(records, 0, compressed, huffman.length, records.length);
+
+    byte[] expected = Arrays.copyOf(skewed(1000, 1), 1000 + records(50).length);
+    System.arraycopy(records(50), 0, expected, 1000, records(50).length);
+    assertThat(new ZstdDecoder().decompress(compressed, 0, compressed.length, 0)).isEqualTo(expected);
+  }
+
+  @Test
+  public void testCorruptFrame() {
+    byte[] compressed = Base64.getDecoder().decode(HUFFMAN);
+
+    byte[] corrupt = compressed.clone();
+    corrupt[0] = 0;
+    assertCorrupt(corrupt, "Not a Zstd frame");
+
+    // the block header follows the 4 byte magic, the frame header descriptor and the 2 byte content size
+    corrupt = compressed.clone();
+    corrupt[7] |= 0x06;
+    assertCorrupt(corrupt, "reserved block type");
+
+    // the last byte of a compressed block ends the sequences bitstream, and must hold its end mark
+    corrupt = Base64.getDecoder().decode(RECORDS);
+    corrupt[corrupt.length - 1] = 0;
+    assertCorrupt(corrupt, "missing end mark");
+
+    assertCorrupt(Arrays.copyOf(compressed, compressed.length / 2), "corrupt");
+  }
+}
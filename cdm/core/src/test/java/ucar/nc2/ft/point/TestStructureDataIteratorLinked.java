@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.ft.point;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureDataIterator;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Structure;
+import ucar.nc2.write.NetcdfFormatWriter;
+
+/** Test {@link StructureDataIteratorLinked} reading in blocks. */
+public class TestStructureDataIteratorLinked {
+  private static final int nrecs = 100;
+  private static final int nlists = 3; // record i is in list i % nlists, linked from last to first
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private String filename;
+  private int[] links = new int[nrecs];
+
+  @Before
+  public void writeFile() throws IOException, InvalidRangeException {
+    filename = tempFolder.newFile().getAbsolutePath();
+    NetcdfFormatWriter.Builder writerb = NetcdfFormatWriter.createNewNetcdf3(filename).setFill(false);
+    writerb.addUnlimitedDimension("obs");
+    writerb.addVariable("val", DataType.DOUBLE, "obs");
+    writerb.addVariable("next", DataType.INT, "obs");
+
+    double[] vals = new double[nrecs];
+    for (int i = 0; i < nrecs; i++) {
+      vals[i] = 10 * i;
+      links[i] = (i < nlists) ? -1 : i - nlists;
+    }
+    try (NetcdfFormatWriter writer = writerb.build()) {
+      writer.write("val", Array.makeFromJavaArray(vals));
+      writer.write("next", Array.makeFromJavaArray(links));
+    }
+  }
+
+  @Test
+  public void testContiguous() throws IOException {
+    try (NetcdfFile ncfile = openRecordStructure()) {
+      Structure record = (Structure) ncfile.findVariable("record");
+      assertThat(record).isNotNull();
+
+      StructureDataIterator iter = new StructureDataIteratorLinked(record, 5, 50, null);
+      iter.setBufferSize(1); // blocks of 10 records
+      List<Integer> recnos = check(record, iter);
+      assertThat(recnos).hasSize(50);
+      assertThat(recnos.get(0)).isEqualTo(5);
+      assertThat(recnos.get(49)).isEqualTo(54);
+
+      assertThat(check(record, iter.reset())).isEqualTo(recnos);
+    }
+  }
+
+  @Test
+  public void testLinked() throws IOException {
+    try (NetcdfFile ncfile = openRecordStructure()) {
+      Structure record = (Structure) ncfile.findVariable("record");
+
+      for (int list = 0; list < nlists; list++) {
+        int first = nrecs - nlists + list;
+        List<Integer> expected = check(record, new StructureDataIteratorLinked(record, first, -1, "next"));
+
+        StructureDataIterator iter = new StructureDataIteratorLinked(record, first, links);
+        iter.setBufferSize(1);
+        assertThat(check(record, iter)).isEqualTo(expected);
+        assertThat(expected.get(expected.size() - 1)).isEqualTo(first % nlists);
+      }
+    }
+  }
+
+  private NetcdfFile openRecordStructure() throws IOException {
+    return NetcdfFiles.open(filename, -1, null, NetcdfFile.IOSP_MESSAGE_ADD_RECORD_STRUCTURE);
+  }
+
+  // check each record against a single record read, return the record numbers
+  private List<Integer> check(Structure record, StructureDataIterator iter) throws IOException {
+    List<Integer> recnos = new ArrayList<>();
+    while (iter.hasNext()) {
+      StructureData sdata = iter.next();
+      int recno = iter.getCurrentRecno();
+      assertThat(sdata.getScalarDouble("val")).isEqualTo(10.0 * recno);
+      try {
+        assertThat(sdata.getScalarInt("next")).isEqualTo(record.readStructure(recno).getScalarInt("next"));
+      } catch (InvalidRangeException e) {
+        throw new IOException(e);
+      }
+      recnos.add(recno);
+    }
+    return recnos;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.iosp.hdf5;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.After;
+import org.junit.Test;
+
+/** Test {@link H5chunkCache} */
+public class TestH5chunkCache {
+
+  @After
+  public void cleanup() {
+    H5chunkCache.disable();
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    H5chunkCache.disable();
+    assertThat(H5chunkCache.getInstance()).isNull();
+  }
+
+  @Test
+  public void testHitAndMiss() {
+    H5chunkCache.enable(1000);
+    H5chunkCache cache = H5chunkCache.getInstance();
+    assertThat(cache).isNotNull();
+
+    H5chunkCache.Key key = new H5chunkCache.Key("file", 42, "var", new int[] {0, 10, 0});
+    assertThat(cache.get(key, ByteOrder.BIG_ENDIAN)).isNull();
+
+    ByteBuffer bb = ByteBuffer.allocate(100);
+    bb.order(ByteOrder.LITTLE_ENDIAN).putInt(0, 99);
+    cache.put(key, bb);
+
+    // equal key, different instance
+    H5chunkCache.Key same = new H5chunkCache.Key("file", 42, "var", new int[] {0, 10, 0});
+    ByteBuffer got = cache.get(same, ByteOrder.LITTLE_ENDIAN);
+    assertThat(got).isNotNull();
+    assertThat(got).isNotSameInstanceAs(bb);
+    assertThat(got.getInt(0)).isEqualTo(99);
+
+    // file was modified
+    assertThat(cache.get(new H5chunkCache.Key("file", 43, "var", new int[] {0, 10, 0}), ByteOrder.BIG_ENDIAN))
+        .isNull();
+
+    assertThat(cache.getStats().hitCount()).isEqualTo(1);
+    assertThat(cache.getStats().missCount()).isEqualTo(2);
+    assertThat(cache.getCount()).isEqualTo(1);
+    assertThat(cache.getBytes()).isEqualTo(100);
+  }
+
+  @Test
+  public void testByteBudget() {
+    H5chunkCache.enable(1000);
+    H5chunkCache cache = H5chunkCache.getInstance();
+    assertThat(cache).isNotNull();
+
+    for (int i = 0; i < 20; i++) {
+      cache.put(new H5chunkCache.Key("file", 0, "var", new int[] {i}), ByteBuffer.allocate(100));
+    }
+    assertThat(cache.getBytes()).isAtMost(1000);
+    assertThat(cache.getStats().evictionCount()).isAtLeast(10);
+  }
+
+  @Test
+  public void testInvalidate() {
+    H5chunkCache.enable(1000);
+    H5chunkCache cache = H5chunkCache.getInstance();
+    assertThat(cache).isNotNull();
+
+    cache.put(new H5chunkCache.Key("file1", 0, "var", new int[] {0}), ByteBuffer.allocate(10));
+    cache.put(new H5chunkCache.Key("file2", 0, "var", new int[] {0}), ByteBuffer.allocate(10));
+    cache.invalidate("file1");
+    assertThat(cache.getCount()).isEqualTo(1);
+    assertThat(cache.get(new H5chunkCache.Key("file2", 0, "var", new int[] {0}), ByteOrder.BIG_ENDIAN)).isNotNull();
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.ncml;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
+import ucar.ma2.Section;
+import ucar.nc2.Variable;
+import ucar.nc2.dataset.NetcdfDataset;
+import ucar.nc2.dataset.NetcdfDatasets;
+
+/** Test that section reads of an outer aggregation give the same answer when read on an executor. */
+public class TestAggConcurrentRead {
+  private ExecutorService exec;
+
+  @Before
+  public void setup() {
+    exec = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    Aggregation.setExecutor(null);
+    exec.shutdownNow();
+  }
+
+  @Test
+  public void testJoinExisting() throws IOException, InvalidRangeException {
+    compare("aggExisting.xml", "T", exec);
+  }
+
+  @Test
+  public void testJoinNew() throws IOException, InvalidRangeException {
+    compare("aggSynthetic.xml", "T", exec);
+  }
+
+  @Test
+  public void testRejectingExecutor() throws IOException, InvalidRangeException {
+    Executor rejecting = task -> {
+      throw new RejectedExecutionException("shut down");
+    };
+    compare("aggExisting.xml", "T", rejecting);
+  }
+
+  // the reader has the only thread of the pool, as a nested aggregation may, so it must read the datasets itself
+  @Test
+  public void testFromPoolThread() throws Exception {
+    ExecutorService single = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> f = single.submit(() -> {
+        compare("aggExisting.xml", "T", single);
+        return null;
+      });
+      f.get(60, TimeUnit.SECONDS);
+    } finally {
+      single.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadMaxConcurrentReads() {
+    Aggregation.setExecutor(exec, 0);
+  }
+
+  private static void compare(String ncml, String varName, Executor executor)
+      throws IOException, InvalidRangeException {
+    String filename = "file:./" + TestNcmlRead.topDir + ncml;
+
+    List<Section> sections = new ArrayList<>();
+    List<Array> expected = new ArrayList<>();
+    Aggregation.setExecutor(null);
+    try (NetcdfDataset ncd = NetcdfDatasets.openDataset(filename, true, null)) {
+      Variable v = ncd.findVariable(varName);
+      assertThat(v).isNotNull();
+      int[] shape = v.getShape();
+      int n = shape[0];
+      // spans the nested datasets, strided, a single index, and one not starting at 0
+      sections.add(new Section(String.format("1:%d,:,1:%d", n - 1, shape[2] - 1)));
+      sections.add(new Section(String.format("0:%d:2,1,:", n - 1)));
+      sections.add(new Section(String.format("%d,:,:", n - 1)));
+      sections.add(new Section(String.format("%d:%d,0:1,:", n / 2, n - 1)));
+      for (Section s : sections) {
+        expected.add(v.read(s));
+      }
+    }
+
+    for (int maxConcurrentReads : new int[] {1, 2, 4}) {
+      Aggregation.setExecutor(executor, maxConcurrentReads);
+      try (NetcdfDataset ncd = NetcdfDatasets.openDataset(filename, true, null)) {
+        Variable v = ncd.findVariable(varName);
+        for (int i = 0; i < sections.size(); i++) {
+          Array data = v.read(sections.get(i));
+          assertThat(data.getShape()).isEqualTo(expected.get(i).getShape());
+          assertThat(MAMath.nearlyEquals(data, expected.get(i))).isTrue();
+        }
+      }
+    }
+  }
+}
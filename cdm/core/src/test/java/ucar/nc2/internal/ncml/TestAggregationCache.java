@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.internal.ncml;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.MAMath;
+import ucar.nc2.Variable;
+import ucar.nc2.dataset.NetcdfDataset;
+import ucar.nc2.dataset.NetcdfDatasets;
+import ucar.nc2.internal.util.DiskCache2;
+
+/** Test {@link AggregationCache} and its use by joinExisting aggregations. */
+public class TestAggregationCache {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void tearDown() {
+    Aggregation.setPersistenceCache(null);
+  }
+
+  @Test
+  public void testCacheIsUsed() throws IOException {
+    DiskCache2 cache = new DiskCache2(tempFolder.newFolder().getAbsolutePath(), false, 0, 0);
+    Aggregation.setPersistenceCache(cache);
+    String filename = "file:./" + TestNcmlRead.topDir + "aggExisting.xml";
+
+    Aggregation.countCacheUse = 0;
+    Array expected;
+    try (NetcdfDataset ncd = NetcdfDatasets.openDataset(filename, true, null)) {
+      Variable time = ncd.findVariable("time");
+      assertThat(time).isNotNull();
+      expected = time.read();
+    }
+    assertThat(Aggregation.countCacheUse).isEqualTo(0);
+
+    try (NetcdfDataset ncd = NetcdfDatasets.openDataset(filename, true, null)) {
+      Array data = ncd.findVariable("time").read();
+      assertThat(data.getShape()).isEqualTo(expected.getShape());
+      assertThat(MAMath.nearlyEquals(data, expected)).isTrue();
+    }
+    assertThat(Aggregation.countCacheUse).isGreaterThan(0);
+  }
+
+  @Test
+  public void testAppendAndRemove() throws IOException {
+    File file = new File(tempFolder.getRoot(), "test.ncagg");
+    AggCacheProto.Dataset ds1 = makeDataset("ds1", 3, 10.0);
+    AggCacheProto.Dataset ds2 = makeDataset("ds2", 2, 20.0);
+
+    AggregationCache cache = new AggregationCache(file, "joinExisting", "time");
+    cache.read();
+    assertThat(cache.write(ImmutableList.of(ds1, ds2))).isTrue();
+    long size = file.length();
+    assertThat(cache.write(ImmutableList.of(ds1, ds2))).isTrue(); // nothing changed, so nothing written
+    assertThat(file.length()).isEqualTo(size);
+
+    // ds1 changed, ds2 removed, ds3 added: appended
+    AggCacheProto.Dataset ds1b = makeDataset("ds1", 4, 11.0);
+    AggCacheProto.Dataset ds3 = makeDataset("ds3", 1, 30.0);
+    assertThat(cache.write(ImmutableList.of(ds1b, ds3))).isTrue();
+    assertThat(file.length()).isGreaterThan(size);
+
+    AggregationCache reread = new AggregationCache(file, "joinExisting", "time");
+    reread.read();
+    assertThat(reread.get("ds1")).isEqualTo(ds1b);
+    assertThat(reread.get("ds2")).isNull();
+    assertThat(reread.get("ds3")).isEqualTo(ds3);
+    Array data = reread.getData("ds1", "time");
+    assertThat(data.getDataType()).isEqualTo(DataType.DOUBLE);
+    assertThat(data.getSize()).isEqualTo(4);
+    assertThat(data.getDouble(3)).isEqualTo(14.0);
+    assertThat(reread.getData("ds1", "other")).isNull();
+
+    // different dimension: ignored
+    AggregationCache other = new AggregationCache(file, "joinExisting", "other");
+    other.read();
+    assertThat(other.get("ds1")).isNull();
+  }
+
+  @Test
+  public void testLocked() throws IOException {
+    File file = new File(tempFolder.getRoot(), "locked.ncagg");
+    AggCacheProto.Dataset ds1 = makeDataset("ds1", 3, 10.0);
+    AggCacheProto.Dataset ds2 = makeDataset("ds2", 2, 20.0);
+    AggregationCache cache = new AggregationCache(file, "joinExisting", "time");
+    cache.read();
+    assertThat(cache.write(ImmutableList.of(ds1))).isTrue();
+
+    // another writer is writing
+    try (FileOutputStream fos = new FileOutputStream(cache.getLockFile(), true);
+        FileLock lock = fos.getChannel().lock()) {
+      assertThat(lock.isValid()).isTrue();
+      assertThat(cache.write(ImmutableList.of(ds1, ds2))).isFalse();
+
+      // a rewrite also waits for the lock
+      AggregationCache rewriter = new AggregationCache(file, "joinExisting", "time");
+      assertThat(rewriter.write(ImmutableList.of(ds2))).isFalse();
+    }
+    assertThat(cache.write(ImmutableList.of(ds1, ds2))).isTrue();
+
+    AggregationCache reread = new AggregationCache(file, "joinExisting", "time");
+    reread.read();
+    assertThat(reread.get("ds2")).isEqualTo(ds2);
+  }
+
+  @Test
+  public void testRewriteKeepsOtherWriters() throws IOException {
+    File file = new File(tempFolder.getRoot(), "merged.ncagg");
+    AggCacheProto.Dataset ds1 = makeDataset("ds1", 3, 10.0);
+    AggCacheProto.Dataset ds2 = makeDataset("ds2", 2, 20.0);
+    AggCacheProto.Dataset ds3 = makeDataset("ds3", 1, 30.0);
+
+    // read before the file exists, so its next write is a rewrite
+    AggregationCache cache = new AggregationCache(file, "joinExisting", "time");
+    cache.read();
+
+    // meanwhile another writer writes ds3
+    AggregationCache other = new AggregationCache(file, "joinExisting", "time");
+    other.read();
+    assertThat(other.write(ImmutableList.of(ds3))).isTrue();
+
+    assertThat(cache.write(ImmutableList.of(ds1, ds2))).isTrue();
+    AggregationCache reread = new AggregationCache(file, "joinExisting", "time");
+    reread.read();
+    assertThat(reread.get("ds1")).isEqualTo(ds1);
+    assertThat(reread.get("ds2")).isEqualTo(ds2);
+    assertThat(reread.get("ds3")).isEqualTo(ds3);
+  }
+
+  @Test
+  public void testRewriteDoesNotKeepRemoved() throws IOException {
+    File file = new File(tempFolder.getRoot(), "removed.ncagg");
+    List<AggCacheProto.Dataset> all = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      all.add(makeDataset("ds" + i, 1, i));
+    }
+    AggregationCache first = new AggregationCache(file, "joinExisting", "time");
+    first.read();
+    assertThat(first.write(all)).isTrue();
+
+    AggregationCache cache = new AggregationCache(file, "joinExisting", "time");
+    cache.read();
+    // another writer adds ds20
+    AggCacheProto.Dataset ds20 = makeDataset("ds20", 1, 20.0);
+    List<AggCacheProto.Dataset> more = new ArrayList<>(all);
+    more.add(ds20);
+    assertThat(first.write(more)).isTrue();
+
+    // removing most of the datasets rewrites the file
+    assertThat(cache.write(ImmutableList.of(all.get(0)))).isTrue();
+    AggregationCache reread = new AggregationCache(file, "joinExisting", "time");
+    reread.read();
+    assertThat(reread.get("ds0")).isEqualTo(all.get(0));
+    assertThat(reread.get("ds1")).isNull();
+    assertThat(reread.get("ds19")).isNull();
+    assertThat(reread.get("ds20")).isEqualTo(ds20);
+  }
+
+  @Test
+  public void testDamagedFile() throws IOException {
+    File file = new File(tempFolder.getRoot(), "damaged.ncagg");
+    AggCacheProto.Dataset ds1 = makeDataset("ds1", 3, 10.0);
+    AggCacheProto.Dataset ds2 = makeDataset("ds2", 2, 20.0);
+    AggregationCache cache = new AggregationCache(file, "joinExisting", "time");
+    cache.read();
+    cache.write(ImmutableList.of(ds1));
+    cache.write(ImmutableList.of(ds1, ds2));
+
+    // lose the end of the last message, as if the append was interrupted
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(raf.length() - 3);
+    }
+
+    AggregationCache reread = new AggregationCache(file, "joinExisting", "time");
+    reread.read();
+    assertThat(reread.get("ds1")).isEqualTo(ds1);
+    assertThat(reread.get("ds2")).isNull();
+
+    // the next write makes a good file
+    assertThat(reread.write(ImmutableList.of(ds1, ds2))).isTrue();
+    AggregationCache fixed = new AggregationCache(file, "joinExisting", "time");
+    fixed.read();
+    assertThat(fixed.get("ds1")).isEqualTo(ds1);
+    assertThat(fixed.get("ds2")).isEqualTo(ds2);
+  }
+
+  private AggCacheProto.Dataset makeDataset(String id, int ncoords, double start) {
+    Array data = Array.factory(DataType.DOUBLE, new int[] {ncoords});
+    for (int i = 0; i < ncoords; i++) {
+      data.setDouble(i, start + i);
+    }
+    return AggCacheProto.Dataset.newBuilder().setId(id).setNcoords(ncoords).setLastModified(1000)
+        .addVars(AggregationCache.encode("time", data)).build();
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.unidata.io.RandomAccessFile;
+
+/** Test {@link ucar.nc2.iosp.BitUnpacker} against {@link ucar.nc2.iosp.BitReader} */
+public class TestBitUnpacker {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testUnpackAllWidths() throws IOException {
+    Random random = new Random(1);
+    byte[] bytes = new byte[1001];
+    random.nextBytes(bytes);
+
+    for (int nb = 0; nb <= 32; nb++) {
+      for (int start : new int[] {0, 3, 8, 13, 64, 71}) {
+        int n = (int) ((8L * bytes.length - start) / Math.max(nb, 1));
+        n = Math.min(n, 500);
+
+        BitReader reader = new BitReader(bytes);
+        reader.bits2UInt(start % 8); // BitReader(byte[]) cant setBitOffset
+        for (int i = 0; i < start / 8; i++)
+          reader.bits2UInt(8);
+        BitUnpacker unpacker = new BitUnpacker(bytes);
+        unpacker.setBitOffset(start);
+
+        // unpack in uneven runs, with single values in between
+        int[] result = new int[n];
+        int count = 0;
+        while (count < n) {
+          int run = Math.min(n - count, random.nextInt(20));
+          unpacker.unpack(nb, result, count, run);
+          for (int i = 0; i < run; i++) {
+            assertThat(result[count + i]).isEqualTo((int) reader.bits2UInt(nb));
+          }
+          count += run;
+          if (count < n) {
+            // BitReader sign extends 32 bit values
+            assertThat((int) unpacker.bits2UInt(nb)).isEqualTo((int) reader.bits2UInt(nb));
+            count++;
+          }
+        }
+        assertThat(unpacker.getBitOffset()).isEqualTo(start + (long) n * nb);
+      }
+    }
+  }
+
+  @Test
+  public void testWideValues() throws IOException {
+    // BitReader gets values wider than 32 bits wrong, so compare with one bit at a time
+    Random random = new Random(2);
+    byte[] bytes = new byte[100];
+    random.nextBytes(bytes);
+    for (int nb = 33; nb <= 64; nb++) {
+      for (int start = 0; start < 16; start++) {
+        BitUnpacker unpacker = new BitUnpacker(bytes);
+        unpacker.setBitOffset(start);
+        long value = unpacker.bits2UInt(nb);
+
+        BitUnpacker bits = new BitUnpacker(bytes);
+        bits.setBitOffset(start);
+        long expected = 0;
+        for (int i = 0; i < nb; i++)
+          expected = (expected << 1) | bits.bits2UInt(1);
+        assertThat(value).isEqualTo(expected);
+      }
+    }
+  }
+
+  @Test
+  public void testIncrByte() throws IOException {
+    BitUnpacker unpacker = new BitUnpacker(new byte[] {(byte) 0xff, 0x12, 0x34});
+    unpacker.incrByte();
+    assertThat(unpacker.getBitOffset()).isEqualTo(0);
+    assertThat(unpacker.bits2UInt(3)).isEqualTo(7);
+    unpacker.incrByte();
+    assertThat(unpacker.bits2UInt(8)).isEqualTo(0x12);
+    unpacker.incrByte();
+    assertThat(unpacker.bits2UInt(8)).isEqualTo(0x34);
+  }
+
+  @Test
+  public void testEndOfData() throws IOException {
+    BitUnpacker unpacker = new BitUnpacker(new byte[] {1, 2, 3});
+    int[] result = new int[2];
+    unpacker.unpack(12, result, 0, 2);
+    assertThat(result).isEqualTo(new int[] {0x010, 0x203});
+    try {
+      unpacker.bits2UInt(1);
+      fail();
+    } catch (EOFException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testRead() throws IOException {
+    byte[] bytes = new byte[100];
+    new Random(3).nextBytes(bytes);
+    File file = tempFolder.newFile();
+    Files.write(file.toPath(), bytes);
+
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+      BitUnpacker unpacker = BitUnpacker.read(raf, 10, 90);
+      assertThat(unpacker.getPos()).isEqualTo(10);
+      assertThat(unpacker.bits2UInt(16)).isEqualTo(((bytes[10] & 0xff) << 8) | (bytes[11] & 0xff));
+      assertThat(unpacker.getPos()).isEqualTo(12);
+
+      // past the end of the file
+      unpacker = BitUnpacker.read(raf, 96, 10);
+      int[] result = new int[4];
+      unpacker.unpack(8, result, 0, 4);
+      assertThat(result[3]).isEqualTo(bytes[99] & 0xff);
+      try {
+        unpacker.bits2UInt(8);
+        fail();
+      } catch (EOFException e) {
+        // expected
+      }
+    }
+  }
+}
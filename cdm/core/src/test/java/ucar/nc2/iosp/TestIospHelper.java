@@ -11,15 +11,20 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
+import java.util.Random;
 import org.junit.Test;
 import ucar.ma2.Array;
 import ucar.ma2.ArrayObject;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
 import ucar.nc2.stream.NcStream;
+import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
 
 /** Test {@link ucar.nc2.iosp.IospHelper} */
 public class TestIospHelper {
@@ -163,4 +168,30 @@ public class TestIospHelper {
     }
   }
 
+
+  // a 10 MB variable, so whole rows are large chunks, and all of it is more than one piece
+  @Test
+  public void testReadDataLargeChunks() throws IOException, InvalidRangeException {
+    int nrows = 5;
+    int ncols = 1000 * 1000;
+    byte[] bytes = new byte[nrows * ncols * 2];
+    new Random(17).nextBytes(bytes);
+    short[] all = new short[nrows * ncols];
+    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(all);
+
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("testReadDataLargeChunks", bytes)) {
+      for (String spec : new String[] {":,:", "1:3,:", "0:4:2,10:20", "2,999990:999999"}) {
+        Section section = new Section(spec);
+        Layout layout = new LayoutRegular(0, 2, new int[] {nrows, ncols}, section);
+        short[] got = (short[]) IospHelper.readDataFill(raf, layout, DataType.SHORT, null, ByteOrder.LITTLE_ENDIAN);
+        Array want = Array.factory(DataType.SHORT, new int[] {nrows, ncols}, all).section(section.getRanges());
+        assertThat(got).isEqualTo((short[]) want.copyTo1DJavaArray());
+
+        layout = new LayoutRegular(0, 1, new int[] {nrows, 2 * ncols}, section);
+        byte[] gotBytes = (byte[]) IospHelper.readDataFill(raf, layout, DataType.BYTE, null, null);
+        want = Array.factory(DataType.BYTE, new int[] {nrows, 2 * ncols}, bytes).section(section.getRanges());
+        assertThat(gotBytes).isEqualTo((byte[]) want.copyTo1DJavaArray());
+      }
+    }
+  }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Test;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.internal.iosp.hdf4.H4iosp;
+import ucar.nc2.internal.iosp.hdf5.H5iosp;
+import ucar.nc2.internal.iosp.netcdf3.N3iosp;
+import ucar.nc2.stream.NcStreamIosp;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.TestDir;
+
+/** Test {@link MagicNumber} and the magic numbers of the core IOSPs. */
+public class TestMagicNumber {
+
+  @Test
+  public void testMatches() {
+    MagicNumber magic = MagicNumber.conclusive(4, new byte[] {'C', 'D', 'F'});
+    byte[] buff = {0, 0, 0, 0, 'C', 'D', 'F', 1};
+    assertThat(magic.matches(buff, 0, buff.length)).isTrue();
+    assertThat(magic.matches(buff, 0, 6)).isFalse(); // not all read
+    assertThat(magic.matches(new byte[] {'C', 'D', 'F'}, 4, 3)).isTrue();
+    assertThat(magic.matches(new byte[] {'C', 'D', 'F'}, 3, 3)).isFalse();
+    assertThat(magic.matches(new byte[] {'C', 'D', 'F'}, 5, 3)).isFalse();
+    assertThat(magic.isConclusive()).isTrue();
+    assertThat(MagicNumber.candidate(4, new byte[] {'C', 'D', 'F'}).isConclusive()).isFalse();
+  }
+
+  @Test
+  public void testDoublingOffsets() {
+    List<MagicNumber> magics = MagicNumber.doublingOffsets(new byte[] {1, 2}, 3000, true, false);
+    assertThat(magics.stream().map(MagicNumber::getOffset).collect(Collectors.toList()))
+        .isEqualTo(ImmutableList.of(0L, 512L, 1024L, 2048L));
+    assertThat(magics.get(0).isConclusive()).isTrue();
+    assertThat(magics.get(1).isConclusive()).isFalse();
+  }
+
+  // valid files must match a magic number, and files that match a conclusive one must be valid
+  @Test
+  public void testCoreIospsAgreeWithIsValidFile() throws IOException {
+    List<IOServiceProvider> iosps = ImmutableList.of(new N3iosp(), new H5iosp(), new H4iosp(), new NcStreamIosp());
+    List<Path> files;
+    try (Stream<Path> stream = Files.walk(Paths.get(TestDir.cdmLocalTestDataDir))) {
+      files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+    assertThat(files).isNotEmpty();
+
+    int nvalid = 0;
+    for (Path path : files) {
+      try (RandomAccessFile raf = new RandomAccessFile(path.toString(), "r")) {
+        for (IOServiceProvider iosp : iosps) {
+          String what = path + " " + iosp.getClass().getSimpleName();
+          boolean valid = iosp.isValidFile(raf);
+          if (valid) {
+            nvalid++;
+            assertWithMessage(what).that(matches(iosp.getMagicNumbers(), raf, false)).isTrue();
+          }
+          if (matches(iosp.getMagicNumbers(), raf, true))
+            assertWithMessage(what).that(valid).isTrue();
+        }
+      }
+    }
+    assertThat(nvalid).isGreaterThan(0);
+  }
+
+  private boolean matches(List<MagicNumber> magics, RandomAccessFile raf, boolean conclusiveOnly) throws IOException {
+    for (MagicNumber magic : magics) {
+      if (conclusiveOnly && !magic.isConclusive())
+        continue;
+      if (magic.getOffset() + magic.getLength() > raf.length())
+        continue;
+      byte[] bytes = new byte[magic.getLength()];
+      raf.seek(magic.getOffset());
+      raf.readFully(bytes);
+      if (magic.matches(bytes, magic.getOffset(), bytes.length))
+        return true;
+    }
+    return false;
+  }
+
+  @Test
+  public void testOpenWithMagicNumbers() throws IOException {
+    try (NetcdfFile ncfile = NetcdfFiles.open(TestDir.cdmLocalTestDataDir + "testWrite.nc")) {
+      assertThat(ncfile.getFileTypeId()).isEqualTo("NetCDF-3");
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.geoloc.projection;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import ucar.nc2.util.Misc;
+import ucar.unidata.geoloc.LatLonPoint;
+import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.ProjectionPoint;
+
+/** Test that the batch latLonToProj / projToLatLon give the same answer as the single point methods. */
+@RunWith(Parameterized.class)
+public class TestProjectionBatch {
+  private static final int ny = 31;
+  private static final int nx = 41;
+
+  @Parameterized.Parameters(name = "{0}")
+  public static Collection<Object[]> getTestParameters() {
+    return Arrays.asList(new Object[][] {{new LambertConformal(25.0, -95.0, 25.0, 25.0)},
+        {new LambertConformal(-25.0, 135.0, -30.0, -20.0, 100.0, 200.0)}, {new Stereographic(90.0, -105.0, 0.933)},
+        {new Stereographic(-90.0, 0.0, 1.0)}, {new Mercator(-95.0, 20.0)}, {new Mercator(100.0, 0.0, 500.0, 500.0)},
+        {new TransverseMercator(0.0, -95.0, 0.9996)}, {new AlbersEqualArea(23.0, -96.0, 29.5, 45.5)},
+        {new AlbersEqualArea(-23.0, 130.0, -18.0, -36.0)}, {new RotatedPole(37.0, -153.0)},
+        {new Orthographic(40.0, -100.0)}});
+  }
+
+  private final Projection proj;
+
+  public TestProjectionBatch(Projection proj) {
+    this.proj = proj;
+  }
+
+  @Test
+  public void testLatLonToProj() {
+    double[] lat = new double[ny * nx];
+    double[] lon = new double[ny * nx];
+    // 20N-50N, 130W-60W, and some out of range longitudes
+    for (int j = 0; j < ny; j++) {
+      for (int i = 0; i < nx; i++) {
+        lat[j * nx + i] = 20.0 + 30.0 * j / (ny - 1);
+        lon[j * nx + i] = (i % 10 == 0 ? 230.0 : -130.0) + 70.0 * i / (nx - 1);
+      }
+    }
+
+    double[] x = new double[lat.length];
+    double[] y = new double[lat.length];
+    proj.latLonToProj(lat, lon, x, y);
+    for (int i = 0; i < lat.length; i++) {
+      ProjectionPoint pt = proj.latLonToProj(lat[i], lon[i]);
+      assertNearlyEquals(pt.getX(), x[i], i);
+      assertNearlyEquals(pt.getY(), y[i], i);
+    }
+
+    // in place
+    double[] xy0 = lat.clone();
+    double[] xy1 = lon.clone();
+    proj.latLonToProj(xy0, xy1, xy0, xy1);
+    assertThat(xy0).isEqualTo(x);
+    assertThat(xy1).isEqualTo(y);
+  }
+
+  @Test
+  public void testProjToLatLon() {
+    double[] lat = new double[ny * nx];
+    double[] lon = new double[ny * nx];
+    for (int j = 0; j < ny; j++) {
+      for (int i = 0; i < nx; i++) {
+        lat[j * nx + i] = 20.0 + 30.0 * j / (ny - 1);
+        lon[j * nx + i] = -130.0 + 70.0 * i / (nx - 1);
+      }
+    }
+    double[] x = new double[lat.length];
+    double[] y = new double[lat.length];
+    proj.latLonToProj(lat, lon, x, y);
+
+    double[] latOut = new double[lat.length];
+    double[] lonOut = new double[lat.length];
+    proj.projToLatLon(x, y, latOut, lonOut);
+    for (int i = 0; i < x.length; i++) {
+      if (Double.isNaN(x[i]) || Double.isInfinite(x[i])) {
+        continue;
+      }
+      LatLonPoint pt = proj.projToLatLon(x[i], y[i]);
+      assertNearlyEquals(pt.getLatitude(), latOut[i], i);
+      assertNearlyEquals(pt.getLongitude(), lonOut[i], i);
+    }
+
+    // in place
+    proj.projToLatLon(x, y, x, y);
+    assertThat(x).isEqualTo(latOut);
+    assertThat(y).isEqualTo(lonOut);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLengthMismatch() {
+    proj.latLonToProj(new double[10], new double[9], new double[10], new double[10]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOutputTooShort() {
+    proj.projToLatLon(new double[10], new double[10], new double[10], new double[9]);
+  }
+
+  private void assertNearlyEquals(double expected, double actual, int index) {
+    if (Double.isNaN(expected)) {
+      assertWithMessage("index %s", index).that(actual).isNaN();
+    } else if (expected != actual) {
+      assertWithMessage("index %s expected %s actual %s", index, expected, actual)
+          .that(Misc.nearlyEquals(expected, actual, Misc.defaultMaxRelativeDiffDouble)).isTrue();
+    }
+  }
+}
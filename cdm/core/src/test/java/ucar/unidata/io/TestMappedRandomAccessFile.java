@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.array.Array;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.Variable;
+import ucar.nc2.internal.util.CompareArrayToArray;
+import ucar.unidata.util.test.TestDir;
+
+/** Test {@link MappedRandomAccessFile}, against the buffered RandomAccessFile. */
+public class TestMappedRandomAccessFile {
+  private static final int segmentSize = 1000; // so reads cross the segments
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final byte[] data = makeData(10 * 1000 + 17);
+
+  @Test
+  public void testTypedReads() throws IOException {
+    File file = tempFolder.newFile();
+    Files.write(file.toPath(), data);
+    try (RandomAccessFile want = new RandomAccessFile(file.getPath(), "r", 100);
+        RandomAccessFile got = new MappedRandomAccessFile(file.getPath(), 100, segmentSize)) {
+      Random random = new Random(7);
+      for (int trial = 0; trial < 500; trial++) {
+        int order = random.nextBoolean() ? RandomAccessFile.BIG_ENDIAN : RandomAccessFile.LITTLE_ENDIAN;
+        want.order(order);
+        got.order(order);
+        int pos = random.nextInt(data.length - 8);
+        int n = random.nextInt((data.length - pos) / 8);
+        want.seek(pos);
+        got.seek(pos);
+
+        switch (trial % 6) {
+          case 0:
+            short[] ws = new short[n], gs = new short[n];
+            want.readShort(ws, 0, n);
+            got.readShort(gs, 0, n);
+            assertThat(gs).isEqualTo(ws);
+            break;
+          case 1:
+            int[] wi = new int[n], gi = new int[n];
+            want.readInt(wi, 0, n);
+            got.readInt(gi, 0, n);
+            assertThat(gi).isEqualTo(wi);
+            break;
+          case 2:
+            long[] wl = new long[n], gl = new long[n];
+            want.readLong(wl, 0, n);
+            got.readLong(gl, 0, n);
+            assertThat(gl).isEqualTo(wl);
+            break;
+          case 3:
+            float[] wf = new float[n + 1], gf = new float[n + 1];
+            want.readFloat(wf, 1, n);
+            got.readFloat(gf, 1, n);
+            for (int i = 0; i <= n; i++) {
+              assertThat(Float.floatToRawIntBits(gf[i])).isEqualTo(Float.floatToRawIntBits(wf[i]));
+            }
+            break;
+          case 4:
+            double[] wd = new double[n], gd = new double[n];
+            want.readDouble(wd, 0, n);
+            got.readDouble(gd, 0, n);
+            for (int i = 0; i < n; i++) {
+              assertThat(Double.doubleToRawLongBits(gd[i])).isEqualTo(Double.doubleToRawLongBits(wd[i]));
+            }
+            break;
+          default:
+            byte[] wb = new byte[n * 8], gb = new byte[n * 8];
+            want.readFully(wb);
+            got.readFully(gb);
+            assertThat(gb).isEqualTo(wb);
+        }
+
+        // the file position is the same, and the single value reads still work from there
+        assertThat(got.getFilePointer()).isEqualTo(want.getFilePointer());
+        assertThat(got.read()).isEqualTo(want.read());
+        assertThat(got.readInt()).isEqualTo(want.readInt());
+      }
+    }
+  }
+
+  @Test
+  public void testPositionalReads() throws IOException {
+    File file = tempFolder.newFile();
+    Files.write(file.toPath(), data);
+    try (RandomAccessFile raf = new MappedRandomAccessFile(file.getPath(), 100, segmentSize)) {
+      Random random = new Random(11);
+      for (int trial = 0; trial < 100; trial++) {
+        int pos = random.nextInt(data.length);
+        int len = random.nextInt(Math.min(3000, data.length - pos + 1));
+        byte[] got = new byte[len];
+        raf.readFullyAt(pos, got, 0, len);
+        assertThat(got).isEqualTo(Arrays.copyOfRange(data, pos, pos + len));
+      }
+
+      List<RandomAccessFile.Range> ranges = new ArrayList<>();
+      ranges.add(new RandomAccessFile.Range(10, 100)); // in one segment, not copied
+      ranges.add(new RandomAccessFile.Range(990, 20)); // crosses segments
+      ranges.add(new RandomAccessFile.Range(data.length, 0));
+      List<ByteBuffer> result = raf.readRanges(ranges);
+      for (int i = 0; i < ranges.size(); i++) {
+        RandomAccessFile.Range range = ranges.get(i);
+        byte[] got = new byte[result.get(i).remaining()];
+        result.get(i).get(got);
+        int start = (int) range.getPosition();
+        assertThat(got).isEqualTo(Arrays.copyOfRange(data, start, start + range.getLength()));
+      }
+    }
+  }
+
+  @Test(expected = EOFException.class)
+  public void testPastEnd() throws IOException {
+    File file = tempFolder.newFile();
+    Files.write(file.toPath(), data);
+    try (RandomAccessFile raf = new MappedRandomAccessFile(file.getPath(), 100, segmentSize)) {
+      raf.seek(data.length - 8);
+      raf.readInt(new int[3], 0, 3);
+    }
+  }
+
+  @Test
+  public void testOpenNetcdf() throws IOException {
+    for (String filename : new String[] {"testWriteRecord.nc", "jan.nc", "chunked.h5"}) {
+      String location = TestDir.cdmLocalTestDataDir + filename;
+      try (NetcdfFile want = NetcdfFiles.open(location);
+          NetcdfFile got = NetcdfFiles.open(MappedRandomAccessFile.PREFIX + location)) {
+        for (Variable v : want.getVariables()) {
+          Array<?> wantData = v.readArray();
+          Array<?> gotData = got.findVariable(v.getFullName()).readArray();
+          Formatter f = new Formatter();
+          boolean ok = CompareArrayToArray.compareData(f, v.getFullName(), wantData, gotData, false, true);
+          if (!ok) {
+            System.out.printf("%s%n", f);
+          }
+          assertThat(ok).isTrue();
+        }
+      }
+    }
+  }
+
+  private static byte[] makeData(int n) {
+    byte[] data = new byte[n];
+    new Random(n).nextBytes(data);
+    return data;
+  }
+}
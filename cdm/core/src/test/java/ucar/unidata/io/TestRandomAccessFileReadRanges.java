@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test {@link RandomAccessFile#readRanges} */
+public class TestRandomAccessFileReadRanges {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final byte[] data = makeData(100 * 1000);
+
+  @Test
+  public void testLocalFile() throws IOException {
+    File file = tempFolder.newFile();
+    Files.write(file.toPath(), data);
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+      checkRandomRanges(raf);
+    }
+  }
+
+  @Test
+  public void testInMemory() throws IOException {
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("testInMemory", data)) {
+      checkRandomRanges(raf);
+    }
+  }
+
+  @Test
+  public void testCoalesce() throws IOException {
+    CountingRandomAccessFile raf = new CountingRandomAccessFile(data);
+    raf.setMaxRangeGap(100);
+    List<RandomAccessFile.Range> ranges = ImmutableList.of(new RandomAccessFile.Range(5000, 10),
+        new RandomAccessFile.Range(0, 10), new RandomAccessFile.Range(50, 10), new RandomAccessFile.Range(100, 10),
+        new RandomAccessFile.Range(105, 20), new RandomAccessFile.Range(5200, 1));
+    List<ByteBuffer> result = raf.readRanges(ranges);
+    checkRanges(ranges, result);
+    assertThat(raf.coalesced).containsExactly(new RandomAccessFile.Range(0, 125),
+        new RandomAccessFile.Range(5000, 10), new RandomAccessFile.Range(5200, 1)).inOrder();
+
+    raf.coalesced.clear();
+    raf.setMaxRangeGap(0);
+    checkRanges(ranges, raf.readRanges(ranges));
+    assertThat(raf.coalesced).hasSize(5);
+  }
+
+  @Test
+  public void testLargeRangesReadAlone() throws IOException {
+    byte[] big = makeData(5 * 1000 * 1000);
+    CountingRandomAccessFile raf = new CountingRandomAccessFile(big);
+    List<RandomAccessFile.Range> ranges = ImmutableList.of(new RandomAccessFile.Range(0, 10),
+        new RandomAccessFile.Range(100, 2 * 1000 * 1000), new RandomAccessFile.Range(2000200, 10),
+        new RandomAccessFile.Range(2000300, 10), new RandomAccessFile.Range(3000000, 1000 * 1000));
+    List<ByteBuffer> result = raf.readRanges(ranges);
+    for (int i = 0; i < ranges.size(); i++) {
+      byte[] got = new byte[result.get(i).remaining()];
+      result.get(i).get(got);
+      assertThat(got).isEqualTo(Arrays.copyOfRange(big, (int) ranges.get(i).getPosition(),
+          (int) ranges.get(i).getEnd()));
+    }
+    assertThat(raf.coalesced).containsExactly(new RandomAccessFile.Range(0, 10),
+        new RandomAccessFile.Range(100, 2 * 1000 * 1000), new RandomAccessFile.Range(2000200, 110),
+        new RandomAccessFile.Range(3000000, 1000 * 1000)).inOrder();
+    // the large range is not copied
+    assertThat(result.get(1).hasArray()).isTrue();
+    assertThat(result.get(1).array().length).isEqualTo(2 * 1000 * 1000);
+  }
+
+  @Test
+  public void testPositionAndOrder() throws IOException {
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("testPositionAndOrder", data)) {
+      raf.order(RandomAccessFile.LITTLE_ENDIAN);
+      raf.seek(77);
+      List<ByteBuffer> result = raf.readRanges(ImmutableList.of(new RandomAccessFile.Range(1000, 4)));
+      assertThat(raf.getFilePointer()).isEqualTo(77);
+      assertThat(result.get(0).order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+      assertThat(result.get(0).getInt())
+          .isEqualTo(ByteBuffer.wrap(data, 1000, 4).order(ByteOrder.LITTLE_ENDIAN).getInt());
+    }
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("testEmpty", data)) {
+      assertThat(raf.readRanges(new ArrayList<>())).isEmpty();
+      List<ByteBuffer> result = raf.readRanges(ImmutableList.of(new RandomAccessFile.Range(data.length, 0)));
+      assertThat(result.get(0).remaining()).isEqualTo(0);
+    }
+  }
+
+  @Test(expected = EOFException.class)
+  public void testPastEnd() throws IOException {
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("testPastEnd", data)) {
+      raf.readRanges(ImmutableList.of(new RandomAccessFile.Range(10, 10),
+          new RandomAccessFile.Range(data.length - 10, 11)));
+    }
+  }
+
+  private void checkRandomRanges(RandomAccessFile raf) throws IOException {
+    Random random = new Random(123);
+    for (int trial = 0; trial < 20; trial++) {
+      raf.setMaxRangeGap(random.nextInt(20000));
+      List<RandomAccessFile.Range> ranges = new ArrayList<>();
+      int n = 1 + random.nextInt(50);
+      for (int i = 0; i < n; i++) {
+        int pos = random.nextInt(data.length);
+        ranges.add(new RandomAccessFile.Range(pos, random.nextInt(Math.min(5000, data.length - pos + 1))));
+      }
+      checkRanges(ranges, raf.readRanges(ranges));
+    }
+  }
+
+  private void checkRanges(List<RandomAccessFile.Range> ranges, List<ByteBuffer> result) {
+    assertThat(result).hasSize(ranges.size());
+    for (int i = 0; i < ranges.size(); i++) {
+      RandomAccessFile.Range range = ranges.get(i);
+      ByteBuffer bb = result.get(i);
+      assertThat(bb.remaining()).isEqualTo(range.getLength());
+      byte[] got = new byte[bb.remaining()];
+      bb.get(got);
+      byte[] want = new byte[range.getLength()];
+      System.arraycopy(data, (int) range.getPosition(), want, 0, want.length);
+      assertThat(got).isEqualTo(want);
+    }
+  }
+
+  private static byte[] makeData(int n) {
+    byte[] data = new byte[n];
+    new Random(n).nextBytes(data);
+    return data;
+  }
+
+  // keeps track of the coalesced ranges that are read
+  private static class CountingRandomAccessFile extends InMemoryRandomAccessFile {
+    final List<RandomAccessFile.Range> coalesced = new ArrayList<>();
+
+    CountingRandomAccessFile(byte[] data) {
+      super("CountingRandomAccessFile", data);
+    }
+
+    @Override
+    protected byte[][] readCoalesced(List<Range> ranges) throws IOException {
+      coalesced.addAll(ranges);
+      return super.readCoalesced(ranges);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io.compress;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.nc2.util.IO;
+import ucar.unidata.io.bzip2.CBZip2InputStream;
+import ucar.unidata.util.test.TestDir;
+
+/** Test {@link CompressedRandomAccessFile} */
+public class TestCompressedRandomAccessFile {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testGzipOneMember() throws IOException {
+    byte[] data = makeData(3 * 1000 * 1000);
+    File file = tempFolder.newFile("one.gz");
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+      out.write(data);
+    }
+
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(file.getPath(), -1, 2)) {
+      assertThat(raf.getNumberOfSeekPoints()).isEqualTo(1);
+      assertThat(raf.getMaxSeekDistance()).isEqualTo(data.length);
+      checkRandomReads(raf, data);
+    }
+  }
+
+  @Test
+  public void testGzipMembers() throws IOException {
+    byte[] data = makeData(2 * 1000 * 1000);
+    File file = tempFolder.newFile("members.gz");
+    int[] ends = {0, 100, 700 * 1000, 700 * 1000, 1500 * 1000, data.length}; // includes an empty member
+    try (OutputStream fout = new FileOutputStream(file)) {
+      for (int i = 0; i < ends.length - 1; i++) {
+        GZIPOutputStream out = new GZIPOutputStream(fout);
+        out.write(data, ends[i], ends[i + 1] - ends[i]);
+        out.finish();
+      }
+    }
+
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(file.getPath(), -1, 2)) {
+      assertThat(raf.getNumberOfSeekPoints()).isEqualTo(ends.length - 1);
+      assertThat(raf.getMaxSeekDistance()).isEqualTo(800 * 1000);
+      checkRandomReads(raf, data);
+    }
+  }
+
+  @Test
+  public void testBzip2Streams() throws IOException {
+    File original = new File(TestDir.cdmLocalTestDataDir + "compress/testBzip.nc.bz2");
+    byte[] compressed = Files.readAllBytes(original.toPath());
+    byte[] uncompressed;
+    try (InputStream in = new CBZip2InputStream(new FileInputStream(original), true)) {
+      uncompressed = IO.readContentsToByteArray(in);
+    }
+
+    // two streams, as made by pbzip2
+    File file = tempFolder.newFile("streams.bz2");
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(compressed);
+      out.write(compressed);
+    }
+    byte[] data = new byte[2 * uncompressed.length];
+    System.arraycopy(uncompressed, 0, data, 0, uncompressed.length);
+    System.arraycopy(uncompressed, 0, data, uncompressed.length, uncompressed.length);
+
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(file.getPath(), -1, 1)) {
+      assertThat(raf.getNumberOfSeekPoints()).isEqualTo(2);
+      checkRandomReads(raf, data);
+    }
+  }
+
+  @Test
+  public void testIndexIsReused() throws IOException {
+    byte[] data = makeData(100 * 1000);
+    File file = tempFolder.newFile("reuse.gz");
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+      out.write(data);
+    }
+
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(file.getPath(), -1)) {
+      checkRandomReads(raf, data);
+    }
+    File indexFile = new File(file.getPath() + CompressedRandomAccessFile.INDEX_SUFFIX);
+    assertThat(indexFile.exists()).isTrue();
+
+    // a bad index is remade
+    Files.write(indexFile.toPath(), new byte[] {1, 2, 3});
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(file.getPath(), -1)) {
+      assertThat(raf.length()).isEqualTo(data.length);
+      checkRandomReads(raf, data);
+    }
+    assertThat(indexFile.length()).isGreaterThan(3L);
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotCompressed() throws IOException {
+    File file = tempFolder.newFile("notReally.gz");
+    Files.write(file.toPath(), makeData(1000));
+    new CompressedRandomAccessFile(file.getPath(), -1).close();
+  }
+
+  // compressible, but not too much
+  private byte[] makeData(int n) {
+    Random random = new Random(n);
+    byte[] data = new byte[n];
+    for (int i = 0; i < n; i++) {
+      data[i] = (byte) ((i / 1000) + random.nextInt(4));
+    }
+    return data;
+  }
+
+  private void checkRandomReads(CompressedRandomAccessFile raf, byte[] data) throws IOException {
+    assertThat(raf.length()).isEqualTo(data.length);
+
+    // all of it, in order
+    byte[] all = new byte[data.length];
+    raf.seek(0);
+    raf.readFully(all);
+    assertThat(all).isEqualTo(data);
+
+    // backwards and forwards
+    Random random = new Random(17);
+    for (int i = 0; i < 50; i++) {
+      int len = random.nextInt(100 * 1000);
+      int pos = random.nextInt(data.length - Math.min(len, data.length - 1));
+      len = Math.min(len, data.length - pos);
+      byte[] buff = new byte[len];
+      raf.seek(pos);
+      raf.readFully(buff);
+      for (int j = 0; j < len; j++) {
+        if (buff[j] != data[pos + j]) {
+          assertThat(buff[j]).isEqualTo(data[pos + j]);
+        }
+      }
+    }
+
+    // reading past the end
+    raf.seek(data.length - 1);
+    assertThat(raf.read()).isEqualTo(data[data.length - 1] & 0xff);
+    assertThat(raf.read()).isEqualTo(-1);
+  }
+}
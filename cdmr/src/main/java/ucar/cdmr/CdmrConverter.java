@@ -7,12 +7,17 @@ package ucar.cdmr;
 import com.google.common.base.Preconditions;
 import com.google.common.primitives.Ints;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 import ucar.array.ArrayByte;
 import ucar.array.ArrayVlen;
 import ucar.array.Arrays;
@@ -37,6 +42,7 @@ import ucar.nc2.Group;
 import ucar.nc2.Sequence;
 import ucar.nc2.Structure;
 import ucar.nc2.Variable;
+import ucar.nc2.filter.Lz4;
 
 /** Convert between CdmRemote Protos and Netcdf objects, using ucar.ma2.Array for data. */
 public class CdmrConverter {
@@ -410,6 +416,123 @@ public class CdmrConverter {
     return builder.build();
   }
 
+  /**
+   * Encode fixed size primitive data as a single block of bytes in native byte order (Data.primdata),
+   * optionally compressed. This is much faster than encodeData() for large arrays.
+   * Other kinds of data, and empty arrays, are encoded with encodeData().
+   *
+   * @param compress compress the primdata this way, if it makes it smaller.
+   */
+  public static CdmRemoteProto.Data encodePrimData(DataType dataType, Array<?> data, CdmRemoteProto.Compress compress) {
+    if (data.isVlen() || data instanceof StructureDataArray || !isPrimData(dataType) || data.length() == 0) {
+      return encodeData(dataType, data);
+    }
+
+    ByteOrder order = ByteOrder.nativeOrder();
+    byte[] raw;
+    if (dataType.getSize() == 1) {
+      raw = (byte[]) Arrays.copyPrimitiveArray(data);
+    } else {
+      ByteBuffer bb = ByteBuffer.allocate((int) data.length() * dataType.getSize()).order(order);
+      Object parray = Arrays.copyPrimitiveArray(data);
+      switch (dataType) {
+        case ENUM2:
+        case USHORT:
+        case SHORT:
+          bb.asShortBuffer().put((short[]) parray);
+          break;
+        case ENUM4:
+        case UINT:
+        case INT:
+          bb.asIntBuffer().put((int[]) parray);
+          break;
+        case ULONG:
+        case LONG:
+          bb.asLongBuffer().put((long[]) parray);
+          break;
+        case FLOAT:
+          bb.asFloatBuffer().put((float[]) parray);
+          break;
+        case DOUBLE:
+          bb.asDoubleBuffer().put((double[]) parray);
+          break;
+        default:
+          throw new IllegalStateException("Unkown datatype " + dataType);
+      }
+      raw = bb.array();
+    }
+
+    CdmRemoteProto.Data.Builder builder = CdmRemoteProto.Data.newBuilder();
+    builder.setDataType(convertDataType(dataType));
+    encodeShape(builder, data.getShape());
+    builder.setBigend(order == ByteOrder.BIG_ENDIAN);
+    builder.setUncompressedSize(raw.length);
+
+    ByteString compressed = null;
+    if (compress == CdmRemoteProto.Compress.DEFLATE) {
+      compressed = deflate(raw);
+    } else if (compress == CdmRemoteProto.Compress.LZ4) {
+      compressed = compressLz4(raw);
+    }
+    if (compressed != null) {
+      builder.setCompress(compress);
+      builder.setPrimdata(compressed);
+    } else {
+      // the raw bytes are not used again, so the ByteString can share them
+      builder.setCompress(CdmRemoteProto.Compress.NONE);
+      builder.setPrimdata(UnsafeByteOperations.unsafeWrap(raw));
+    }
+    return builder.build();
+  }
+
+  private static boolean isPrimData(DataType dataType) {
+    switch (dataType) {
+      case BYTE:
+      case UBYTE:
+      case ENUM1:
+      case SHORT:
+      case USHORT:
+      case ENUM2:
+      case INT:
+      case UINT:
+      case ENUM4:
+      case LONG:
+      case ULONG:
+      case FLOAT:
+      case DOUBLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  // return null if it doesnt get smaller
+  private static ByteString deflate(byte[] raw) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(raw);
+      deflater.finish();
+      byte[] out = new byte[raw.length];
+      int n = deflater.deflate(out);
+      if (!deflater.finished()) {
+        return null;
+      }
+      return UnsafeByteOperations.unsafeWrap(out, 0, n);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  // return null if it doesnt get smaller
+  private static ByteString compressLz4(byte[] raw) {
+    byte[] out = new byte[Lz4.maxCompressedLength(raw.length)];
+    int n = Lz4.compressBlock(raw, 0, raw.length, out, 0);
+    if (n >= raw.length) {
+      return null;
+    }
+    return UnsafeByteOperations.unsafeWrap(out, 0, n);
+  }
+
   ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
   public static void decodeGroup(CdmRemoteProto.Group proto, Group.Builder g) {
@@ -563,7 +686,9 @@ public class CdmrConverter {
   ////////////////////////////////////////////////////////////////////////////////////////////////
 
   public static <T> Array<T> decodeData(CdmRemoteProto.Data data) {
-    if (data.getVlenCount() > 0) {
+    if (!data.getPrimdata().isEmpty()) {
+      return decodePrimData(data);
+    } else if (data.getVlenCount() > 0) {
       return (Array<T>) decodeVlenData(data);
     } else if (data.hasMembers()) {
       return (Array<T>) decodeStructureDataArray(data);
@@ -677,6 +802,102 @@ public class CdmrConverter {
     }
   }
 
+  // The inverse of encodePrimData(). The values are copied straight into the Array's storage.
+  private static <T> Array<T> decodePrimData(CdmRemoteProto.Data data) {
+    DataType dataType = convertDataType(data.getDataType());
+    int[] shape = decodeShape(data);
+    ByteBuffer bb = uncompressPrimData(data);
+    bb.order(data.getBigend() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+
+    int n = bb.remaining() / dataType.getSize();
+    if (n != Arrays.computeSize(shape)) {
+      throw new IllegalStateException(
+          String.format("primdata has %d values, shape %s needs %d", n, java.util.Arrays.toString(shape),
+              Arrays.computeSize(shape)));
+    }
+    switch (dataType) {
+      case ENUM1:
+      case UBYTE:
+      case BYTE: {
+        byte[] array = new byte[n];
+        bb.get(array);
+        return Arrays.factory(dataType, shape, array);
+      }
+      case ENUM2:
+      case USHORT:
+      case SHORT: {
+        short[] array = new short[n];
+        bb.asShortBuffer().get(array);
+        return Arrays.factory(dataType, shape, array);
+      }
+      case ENUM4:
+      case UINT:
+      case INT: {
+        int[] array = new int[n];
+        bb.asIntBuffer().get(array);
+        return Arrays.factory(dataType, shape, array);
+      }
+      case ULONG:
+      case LONG: {
+        long[] array = new long[n];
+        bb.asLongBuffer().get(array);
+        return Arrays.factory(dataType, shape, array);
+      }
+      case FLOAT: {
+        float[] array = new float[n];
+        bb.asFloatBuffer().get(array);
+        return Arrays.factory(dataType, shape, array);
+      }
+      case DOUBLE: {
+        double[] array = new double[n];
+        bb.asDoubleBuffer().get(array);
+        return Arrays.factory(dataType, shape, array);
+      }
+      default:
+        throw new IllegalStateException("Unkown datatype " + dataType);
+    }
+  }
+
+  private static ByteBuffer uncompressPrimData(CdmRemoteProto.Data data) {
+    ByteString primdata = data.getPrimdata();
+    int size = data.getUncompressedSize();
+    switch (data.getCompress()) {
+      case NONE:
+        return primdata.asReadOnlyByteBuffer();
+      case DEFLATE: {
+        Inflater inflater = new Inflater();
+        try {
+          inflater.setInput(primdata.toByteArray());
+          byte[] out = new byte[size];
+          int n = inflater.inflate(out);
+          if (n != size || !inflater.finished()) {
+            throw new IllegalStateException("primdata inflated to " + n + " bytes, expected " + size);
+          }
+          return ByteBuffer.wrap(out);
+        } catch (DataFormatException e) {
+          throw new IllegalStateException("primdata is corrupt", e);
+        } finally {
+          inflater.end();
+        }
+      }
+      case LZ4: {
+        try {
+          byte[] out = new byte[size];
+          byte[] src = primdata.toByteArray();
+          int n = Lz4.decompressBlock(src, 0, src.length, out, 0, size);
+          if (n != size) {
+            throw new IllegalStateException("primdata uncompressed to " + n + " bytes, expected " + size);
+          }
+          return ByteBuffer.wrap(out);
+        } catch (IOException e) {
+          throw new IllegalStateException("primdata is corrupt", e);
+        }
+      }
+      default:
+        throw new IllegalStateException("Unknown compression " + data.getCompress());
+    }
+  }
+
   private static StructureDataArray decodeStructureDataArray(CdmRemoteProto.Data arrayStructureProto) {
     int nrows = arrayStructureProto.getRowsCount();
     int[] shape = decodeShape(arrayStructureProto);
@@ -21,6 +21,7 @@ import ucar.array.Arrays;
 import ucar.array.StructureData;
 import ucar.array.StructureDataArray;
 import ucar.cdmr.CdmRemoteGrpc;
+import ucar.cdmr.CdmRemoteProto.Compress;
 import ucar.cdmr.CdmRemoteProto.DataRequest;
 import ucar.cdmr.CdmRemoteProto.DataResponse;
 import ucar.cdmr.CdmRemoteProto.Header;
@@ -42,6 +43,7 @@ public class CdmrNetcdfFile extends NetcdfFile {
   private static final int MAX_DATA_WAIT_SECONDS = 30;
   private static final int MAX_MESSAGE = 51 * 1000 * 1000; // 51 Mb
   private static boolean showRequest = true;
+  private static volatile Compress dataCompress = Compress.NONE;
 
   public static final String PROTOCOL = "cdmr";
   public static final String SCHEME = PROTOCOL + ":";
@@ -50,6 +52,14 @@ public class CdmrNetcdfFile extends NetcdfFile {
     showRequest = debugFlag.isSet("CdmRemote/showRequest");
   }
 
+  /**
+   * Ask the server to compress the data it sends, NONE, DEFLATE or LZ4. Default is NONE.
+   * Worthwhile on slow networks; the server sends uncompressed data when compression doesnt help.
+   */
+  public static void setDataCompression(Compress compress) {
+    dataCompress = Preconditions.checkNotNull(compress);
+  }
+
 
   @Override
   protected ucar.ma2.Array readData(Variable v, Section sectionWanted) throws IOException {
@@ -81,7 +91,8 @@ public class CdmrNetcdfFile extends NetcdfFile {
 
     List<ucar.array.Array<?>> results = new ArrayList<>();
     long size = 0;
-    DataRequest request = DataRequest.newBuilder().setLocation(this.path).setVariableSpec(spec).build();
+    DataRequest request = DataRequest.newBuilder().setLocation(this.path).setVariableSpec(spec).setPrimdata(true)
+        .setCompress(dataCompress).build();
     try {
       Iterator<DataResponse> responses =
           blockingStub.withDeadlineAfter(MAX_DATA_WAIT_SECONDS, TimeUnit.SECONDS).getData(request);
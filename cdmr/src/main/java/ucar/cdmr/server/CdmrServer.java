@@ -8,11 +8,11 @@ import io.grpc.ServerCall;
 import io.grpc.ServerCall.Listener;
 import io.grpc.ServerCallHandler;
 import io.grpc.ServerInterceptor;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
-import ucar.array.Arrays;
 import ucar.array.StructureData;
 import ucar.array.StructureDataArray;
 import ucar.array.StructureMembers;
@@ -28,12 +28,14 @@ import ucar.array.Array;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
+import ucar.nc2.Attribute;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.ParsedSectionSpec;
 import ucar.nc2.Sequence;
 import ucar.nc2.Variable;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.dataset.DatasetUrl;
 import ucar.nc2.dataset.NetcdfDatasets;
-import ucar.nc2.write.ChunkingIndex;
 
 /** Server that manages startup/shutdown of a Cdm Remote server. */
 public class CdmrServer {
@@ -41,9 +43,19 @@ public class CdmrServer {
   private static final int MAX_MESSAGE = 50 * 1000 * 1000; // 50 Mb
   private static final int SEQUENCE_CHUNK = 1000;
 
+  // files stay open between requests
+  private static final int fileCacheMinElements =
+      Integer.parseInt(System.getProperty("ucar.cdmr.server.fileCacheMinElements", "10"));
+  private static final int fileCacheMaxElements =
+      Integer.parseInt(System.getProperty("ucar.cdmr.server.fileCacheMaxElements", "100"));
+  private static final int fileCachePeriodSecs =
+      Integer.parseInt(System.getProperty("ucar.cdmr.server.fileCachePeriodSecs", String.valueOf(15 * 60)));
+
   private Server server;
 
   private void start() throws IOException {
+    NetcdfDatasets.initNetcdfFileCache(fileCacheMinElements, fileCacheMaxElements, fileCachePeriodSecs);
+
     /* The port on which the server should run */
     int port = 16111;
     server = ServerBuilder.forPort(port) //
@@ -70,6 +82,7 @@ public class CdmrServer {
     if (server != null) {
       server.shutdown().awaitTermination(30, TimeUnit.SECONDS);
     }
+    NetcdfDatasets.shutdown();
   }
 
   /** Await termination on the main thread since the grpc library uses daemon threads. */
@@ -106,7 +119,7 @@ public class CdmrServer {
     public void getHeader(HeaderRequest req, StreamObserver<HeaderResponse> responseObserver) {
       System.out.printf("CdmrServer getHeader open %s%n", req.getLocation());
       HeaderResponse.Builder response = HeaderResponse.newBuilder();
-      try (NetcdfFile ncfile = NetcdfDatasets.openFile(req.getLocation(), null)) {
+      try (NetcdfFile ncfile = NetcdfDatasets.acquireFile(DatasetUrl.findDatasetUrl(req.getLocation()), null)) {
         Header.Builder header = Header.newBuilder().setLocation(req.getLocation())
             .setRoot(CdmrConverter.encodeGroup(ncfile.getRootGroup(), 100).build());
         response.setHeader(header);
@@ -126,61 +139,170 @@ public class CdmrServer {
       final Stopwatch stopwatch = Stopwatch.createStarted();
       long size = -1;
 
-      try (NetcdfFile ncfile = NetcdfDatasets.openFile(req.getLocation(), null)) { // LOOK cache ncfile?
+      NetcdfFile ncfile = null;
+      boolean streaming = false; // then the ChunkSender closes the file when it is done
+      try {
+        ncfile = NetcdfDatasets.acquireFile(DatasetUrl.findDatasetUrl(req.getLocation()), null);
         ParsedSectionSpec varSection = ParsedSectionSpec.parseVariableSection(ncfile, req.getVariableSpec());
         Variable var = varSection.getVariable();
         if (var instanceof Sequence) {
           size = getSequenceData(ncfile, varSection, responseObserver);
+          responseObserver.onCompleted();
         } else {
           Section wantSection = varSection.getSection();
           size = var.getElementSize() * wantSection.getSize();
-          getData(ncfile, varSection, responseObserver);
+          if (size > MAX_MESSAGE && varSection.getChild() == null && !var.isVariableLength()
+              && responseObserver instanceof ServerCallStreamObserver) {
+            new ChunkSender(ncfile, varSection, req, (ServerCallStreamObserver<DataResponse>) responseObserver)
+                .start();
+            streaming = true; // only once the ChunkSender has taken over the file
+          } else {
+            getData(ncfile, varSection, req, responseObserver);
+            responseObserver.onCompleted();
+          }
         }
-        responseObserver.onCompleted();
         logger.info("CdmrServer getData " + req.getLocation());
 
       } catch (Throwable t) {
-        logger.warn("CdmrServer getData failed ", t);
-        t.printStackTrace();
-        DataResponse.Builder response =
-            DataResponse.newBuilder().setLocation(req.getLocation()).setVariableSpec(req.getVariableSpec());
-        response.setError(
-            CdmRemoteProto.Error.newBuilder().setMessage(t.getMessage() == null ? "N/A" : t.getMessage()).build());
-        responseObserver.onNext(response.build());
+        sendError(req, responseObserver, t);
+
+      } finally {
+        if (ncfile != null && !streaming) {
+          closeQuietly(ncfile);
+        }
       }
 
       System.out.printf(" ** size=%d took=%s%n", size, stopwatch.stop());
     }
 
-    private void getData(NetcdfFile ncfile, ParsedSectionSpec varSection, StreamObserver<DataResponse> responseObserver)
-        throws IOException, InvalidRangeException {
+    private void sendError(DataRequest req, StreamObserver<DataResponse> responseObserver, Throwable t) {
+      logger.warn("CdmrServer getData failed ", t);
+      t.printStackTrace();
+      DataResponse.Builder response =
+          DataResponse.newBuilder().setLocation(req.getLocation()).setVariableSpec(req.getVariableSpec());
+      response.setError(
+          CdmRemoteProto.Error.newBuilder().setMessage(t.getMessage() == null ? "N/A" : t.getMessage()).build());
+      responseObserver.onNext(response.build());
+    }
+
+    private void closeQuietly(NetcdfFile ncfile) {
+      try {
+        ncfile.close();
+      } catch (IOException e) {
+        logger.warn("CdmrServer failed to close " + ncfile.getLocation(), e);
+      }
+    }
+
+    private void getData(NetcdfFile ncfile, ParsedSectionSpec varSection, DataRequest req,
+        StreamObserver<DataResponse> responseObserver) throws IOException, InvalidRangeException {
       Variable var = varSection.getVariable();
       Section wantSection = varSection.getSection();
       long size = var.getElementSize() * wantSection.getSize();
-      if (size > MAX_MESSAGE) {
-        getDataInChunks(ncfile, varSection, responseObserver);
+      if (size > MAX_MESSAGE && varSection.getChild() == null && !var.isVariableLength()) {
+        getDataInChunks(ncfile, varSection, req, responseObserver);
       } else {
-        getOneChunk(ncfile, varSection, responseObserver);
+        getOneChunk(ncfile, varSection, req, responseObserver);
       }
     }
 
-    private void getDataInChunks(NetcdfFile ncfile, ParsedSectionSpec varSection,
+    // Send the wanted section as a series of messages, each no bigger than MAX_MESSAGE, and aligned with the
+    // storage chunks when possible. Only used without flow control, see ChunkSender.
+    private void getDataInChunks(NetcdfFile ncfile, ParsedSectionSpec varSection, DataRequest req,
         StreamObserver<DataResponse> responseObserver) throws IOException, InvalidRangeException {
+      SectionChunker chunker = makeChunker(varSection.getVariable(), varSection.getSection());
+      while (chunker.hasNext()) {
+        getOneChunk(ncfile, new ParsedSectionSpec(varSection.getVariable(), chunker.next()), req, responseObserver);
+      }
+    }
 
-      Variable var = varSection.getVariable();
-      long maxChunkElems = MAX_MESSAGE / var.getElementSize();
-      // LOOK wrong this assume starts at 0, should start at varSection
-      ChunkingIndex index = new ChunkingIndex(var.getShape());
-      while (index.currentElement() < index.getSize()) {
-        int[] chunkOrigin = index.getCurrentCounter();
-        int[] chunkShape = index.computeChunkShape(maxChunkElems);
-        Section section = new Section(chunkOrigin, chunkShape);
-        getOneChunk(ncfile, new ParsedSectionSpec(var, section), responseObserver);
-        index.setCurrentCounter(index.currentElement() + (int) Arrays.computeSize(chunkShape));
+    private SectionChunker makeChunker(Variable var, Section wantSection) {
+      long maxChunkElems = Math.max(1, MAX_MESSAGE / var.getElementSize());
+      return new SectionChunker(wantSection, getStorageChunk(var), maxChunkElems);
+    }
+
+    /**
+     * Sends the wanted section in chunks, like getDataInChunks(), but only while the client can take them, else they
+     * all end up in the server's memory. gRPC calls run() whenever the call becomes ready again. It runs the
+     * callbacks of a call one at a time, so they must not block: run() returns when the call is not ready, instead
+     * of waiting. Closes the file when done.
+     */
+    private class ChunkSender implements Runnable {
+      private final NetcdfFile ncfile;
+      private final Variable var;
+      private final DataRequest req;
+      private final ServerCallStreamObserver<DataResponse> responseObserver;
+      private final SectionChunker chunker;
+      private boolean done;
+
+      ChunkSender(NetcdfFile ncfile, ParsedSectionSpec varSection, DataRequest req,
+          ServerCallStreamObserver<DataResponse> responseObserver) {
+        this.ncfile = ncfile;
+        this.var = varSection.getVariable();
+        this.req = req;
+        this.responseObserver = responseObserver;
+        this.chunker = makeChunker(var, varSection.getSection());
+      }
+
+      /** If this throws, the caller still owns the file and must close it. */
+      void start() {
+        try {
+          responseObserver.setOnCancelHandler(() -> {
+            logger.info("CdmrServer getData cancelled by the client " + req.getLocation());
+            finish();
+          });
+          responseObserver.setOnReadyHandler(this);
+        } catch (RuntimeException e) {
+          synchronized (this) {
+            done = true; // so a handler that was set does not close the file too
+          }
+          throw e;
+        }
+        run(); // the call may already be ready; catches all failures
+      }
+
+      @Override
+      public synchronized void run() {
+        if (done) {
+          return;
+        }
+        try {
+          while (responseObserver.isReady() && chunker.hasNext()) {
+            getOneChunk(ncfile, new ParsedSectionSpec(var, chunker.next()), req, responseObserver);
+          }
+          if (!chunker.hasNext()) {
+            finish();
+            responseObserver.onCompleted();
+          }
+        } catch (Throwable t) {
+          finish();
+          if (!responseObserver.isCancelled()) {
+            sendError(req, responseObserver, t);
+          }
+        }
+      }
+
+      private synchronized void finish() {
+        if (!done) {
+          done = true;
+          closeQuietly(ncfile);
+        }
       }
     }
 
-    private void getOneChunk(NetcdfFile ncfile, ParsedSectionSpec varSection,
+    // the shape of the storage chunks, or null if not known
+    private int[] getStorageChunk(Variable var) {
+      Attribute att = var.findAttribute(CDM.CHUNK_SIZES);
+      if (att == null || att.isString() || att.getLength() != var.getRank()) {
+        return null;
+      }
+      int[] result = new int[att.getLength()];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = att.getNumericValue(i).intValue();
+      }
+      return result;
+    }
+
+    private void getOneChunk(NetcdfFile ncfile, ParsedSectionSpec varSection, DataRequest req,
         StreamObserver<DataResponse> responseObserver) throws IOException, InvalidRangeException {
 
       String spec = varSection.makeSectionSpecString();
@@ -191,7 +313,11 @@ public class CdmrServer {
           .setVarFullName(var.getFullName()).setSection(CdmrConverter.encodeSection(wantSection));
 
       Array<?> data = var.readArray(wantSection);
-      response.setData(CdmrConverter.encodeData(data.getDataType(), data));
+      if (req.getPrimdata()) {
+        response.setData(CdmrConverter.encodePrimData(data.getDataType(), data, req.getCompress()));
+      } else {
+        response.setData(CdmrConverter.encodeData(data.getDataType(), data));
+      }
 
       responseObserver.onNext(response.build());
       System.out.printf(" Send one chunk %s size=%d bytes%n", spec,
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.cdmr.server;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
+
+/**
+ * Splits a wanted Section into subsections of at most maxElems elements, in canonical order.
+ * The inner dimensions are kept whole as long as they fit. The first dimension that does not fit is split, and the
+ * outer dimensions are iterated over one index at a time. Where possible, the split dimension is cut at the
+ * boundaries of the variable's storage chunks, so that each storage chunk is read for only one subsection.
+ */
+class SectionChunker implements Iterator<Section> {
+  private final List<Range> ranges;
+  private final Section want;
+  private final int splitDim; // -1 if the whole section fits
+  private final long maxCount; // max number of wanted indices in the split dimension
+  private final int chunkLen; // storage chunk length in the split dimension, 1 if not chunked
+  private final int[] counter; // current position in the wanted index space, for dims <= splitDim
+  private boolean done;
+
+  /**
+   * @param want the wanted section, must be filled (no null ranges).
+   * @param storageChunk the shape of the variable's storage chunks, or null if not chunked.
+   * @param maxElems the maximum number of elements in each subsection.
+   */
+  SectionChunker(Section want, @Nullable int[] storageChunk, long maxElems) {
+    Preconditions.checkArgument(maxElems > 0);
+    this.want = want;
+    this.ranges = want.getRanges();
+    int rank = ranges.size();
+
+    int dim = rank - 1;
+    long inner = 1;
+    if (want.computeSize() > maxElems) {
+      while (dim >= 0 && inner * ranges.get(dim).length() <= maxElems) {
+        inner *= ranges.get(dim).length();
+        dim--;
+      }
+    } else {
+      dim = -1; // it all fits
+    }
+    this.splitDim = dim;
+    this.maxCount = (dim < 0) ? 0 : Math.max(1, maxElems / inner);
+    this.chunkLen = (dim >= 0 && storageChunk != null && storageChunk.length == rank && storageChunk[dim] > 0)
+        ? storageChunk[dim]
+        : 1;
+    this.counter = new int[rank];
+  }
+
+  @Override
+  public boolean hasNext() {
+    return !done;
+  }
+
+  @Override
+  public Section next() {
+    if (done) {
+      throw new NoSuchElementException();
+    }
+    if (splitDim < 0) {
+      done = true;
+      return want;
+    }
+
+    try {
+      List<Range> section = new ArrayList<>(ranges.size());
+      for (int dim = 0; dim < splitDim; dim++) {
+        int index = element(ranges.get(dim), counter[dim]);
+        section.add(new Range(ranges.get(dim).getName(), index, index));
+      }
+      Range split = ranges.get(splitDim);
+      int start = counter[splitDim];
+      int end = pieceEnd(split, start);
+      section.add(new Range(split.getName(), element(split, start), element(split, end), split.stride()));
+      for (int dim = splitDim + 1; dim < ranges.size(); dim++) {
+        section.add(ranges.get(dim));
+      }
+
+      incr(end + 1);
+      return new Section(section);
+
+    } catch (InvalidRangeException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // the index of the last wanted index in this piece, starting at start.
+  private int pieceEnd(Range split, int start) {
+    int len = split.length();
+    int end = (int) Math.min(len - 1, start + maxCount - 1);
+    if (end < len - 1 && chunkLen > 1) {
+      // back up to the last wanted index before a chunk boundary, if there is one in this piece
+      int next = element(split, end + 1);
+      int boundary = (next / chunkLen) * chunkLen;
+      if (boundary > element(split, start)) {
+        int stride = split.stride();
+        int aligned = (boundary - split.first() + stride - 1) / stride - 1;
+        end = Math.max(start, aligned);
+      }
+    }
+    return end;
+  }
+
+  private void incr(int nextStart) {
+    if (nextStart < ranges.get(splitDim).length()) {
+      counter[splitDim] = nextStart;
+      return;
+    }
+    counter[splitDim] = 0;
+    int dim = splitDim - 1;
+    while (dim >= 0) {
+      counter[dim]++;
+      if (counter[dim] < ranges.get(dim).length()) {
+        return;
+      }
+      counter[dim] = 0; // carry
+      dim--;
+    }
+    done = true;
+  }
+
+  private static int element(Range r, int i) {
+    return r.first() + i * r.stride();
+  }
+}
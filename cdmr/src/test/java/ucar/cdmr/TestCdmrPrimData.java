@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.cdmr;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import ucar.array.Array;
+import ucar.array.Arrays;
+import ucar.cdmr.CdmRemoteProto.Compress;
+import ucar.ma2.DataType;
+
+/** Test {@link CdmrConverter#encodePrimData} round trips through {@link CdmrConverter#decodeData}. */
+public class TestCdmrPrimData {
+  private static final int[] shape = new int[] {3, 4, 50};
+  private static final int n = 600;
+
+  @Test
+  public void testFloat() {
+    float[] values = new float[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = i / 7.0f;
+    }
+    roundtrip(Arrays.factory(DataType.FLOAT, shape, values));
+  }
+
+  @Test
+  public void testDouble() {
+    double[] values = new double[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = Math.sin(i);
+    }
+    roundtrip(Arrays.factory(DataType.DOUBLE, shape, values));
+  }
+
+  @Test
+  public void testIntegral() {
+    byte[] bvalues = new byte[n];
+    short[] svalues = new short[n];
+    int[] ivalues = new int[n];
+    long[] lvalues = new long[n];
+    for (int i = 0; i < n; i++) {
+      bvalues[i] = (byte) i;
+      svalues[i] = (short) (i * 100);
+      ivalues[i] = i * 1000000;
+      lvalues[i] = i * 1000000000000L;
+    }
+    roundtrip(Arrays.factory(DataType.BYTE, shape, bvalues));
+    roundtrip(Arrays.factory(DataType.USHORT, shape, svalues));
+    roundtrip(Arrays.factory(DataType.INT, shape, ivalues));
+    roundtrip(Arrays.factory(DataType.ULONG, shape, lvalues));
+  }
+
+  @Test
+  public void testNotCanonical() {
+    int[] values = new int[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = i;
+    }
+    Array<Integer> org = Arrays.factory(DataType.INT, shape, values);
+    roundtrip(Arrays.flip(Arrays.transpose(org, 0, 2), 1));
+  }
+
+  @Test
+  public void testNotPrimitive() {
+    Array<String> org = Arrays.factory(DataType.STRING, new int[] {2}, new String[] {"one", "two"});
+    CdmRemoteProto.Data data = CdmrConverter.encodePrimData(DataType.STRING, org, Compress.LZ4);
+    assertThat(data.getPrimdata().isEmpty()).isTrue();
+    Array<String> result = CdmrConverter.decodeData(data);
+    assertThat(result.get(1)).isEqualTo("two");
+  }
+
+  @Test
+  public void testCompressionIsSkippedWhenNoSmaller() {
+    byte[] values = new byte[n];
+    new java.util.Random(1).nextBytes(values);
+    CdmRemoteProto.Data data =
+        CdmrConverter.encodePrimData(DataType.BYTE, Arrays.factory(DataType.BYTE, shape, values), Compress.DEFLATE);
+    assertThat(data.getCompress()).isEqualTo(Compress.NONE);
+  }
+
+  private void roundtrip(Array<?> org) {
+    for (Compress compress : new Compress[] {Compress.NONE, Compress.DEFLATE, Compress.LZ4}) {
+      CdmRemoteProto.Data data = CdmrConverter.encodePrimData(org.getDataType(), org, compress);
+      assertThat(data.getPrimdata().isEmpty()).isFalse();
+      assertThat(data.getUncompressedSize()).isEqualTo(org.length() * org.getDataType().getSize());
+      Array<?> result = CdmrConverter.decodeData(data);
+      assertThat(result.getDataType()).isEqualTo(org.getDataType());
+      assertThat(result.getShape()).isEqualTo(org.getShape());
+      assertThat(Arrays.copyPrimitiveArray(result)).isEqualTo(Arrays.copyPrimitiveArray(org));
+    }
+  }
+}
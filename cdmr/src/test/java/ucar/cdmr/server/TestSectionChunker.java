@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.cdmr.server;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import ucar.ma2.Section;
+
+/** Test {@link SectionChunker} */
+public class TestSectionChunker {
+
+  @Test
+  public void testAllFits() throws Exception {
+    Section want = new Section("0:9,0:19");
+    SectionChunker chunker = new SectionChunker(want, null, 200);
+    assertThat(chunker.hasNext()).isTrue();
+    assertThat(chunker.next()).isEqualTo(want);
+    assertThat(chunker.hasNext()).isFalse();
+  }
+
+  @Test
+  public void testSplitOuter() throws Exception {
+    List<Section> pieces = check(new Section("0:9,0:19"), null, 45);
+    // two rows of 20 fit in 45
+    assertThat(pieces).hasSize(5);
+    assertThat(pieces.get(0)).isEqualTo(new Section("0:1,0:19"));
+    assertThat(pieces.get(4)).isEqualTo(new Section("8:9,0:19"));
+  }
+
+  @Test
+  public void testSplitInner() throws Exception {
+    List<Section> pieces = check(new Section("0:2,0:3,0:99"), null, 30);
+    for (Section s : pieces) {
+      assertThat(s.computeSize()).isAtMost(30L);
+    }
+    assertThat(pieces.get(0)).isEqualTo(new Section("0:0,0:0,0:29"));
+    assertThat(pieces.get(3)).isEqualTo(new Section("0:0,0:0,90:99"));
+    assertThat(pieces.get(4)).isEqualTo(new Section("0:0,1:1,0:29"));
+  }
+
+  @Test
+  public void testChunkAligned() throws Exception {
+    // storage chunks of 3 rows, 7 rows fit in a message: cut at rows 6, 12, ...
+    List<Section> pieces = check(new Section("0:19,0:9"), new int[] {3, 10}, 70);
+    for (Section s : pieces.subList(0, pieces.size() - 1)) {
+      assertThat(s.getRange(0).first() % 3).isEqualTo(0);
+      assertThat((s.getRange(0).last() + 1) % 3).isEqualTo(0);
+    }
+    assertThat(pieces.get(0)).isEqualTo(new Section("0:5,0:9"));
+  }
+
+  @Test
+  public void testChunkAlignedOffset() throws Exception {
+    // want starts in the middle of a chunk
+    List<Section> pieces = check(new Section("4:30,0:9"), new int[] {5, 10}, 120);
+    assertThat(pieces.get(0)).isEqualTo(new Section("4:14,0:9"));
+    assertThat(pieces.get(1)).isEqualTo(new Section("15:24,0:9"));
+  }
+
+  @Test
+  public void testChunkBiggerThanMessage() throws Exception {
+    // cant align, just split
+    List<Section> pieces = check(new Section("0:19,0:9"), new int[] {10, 10}, 30);
+    assertThat(pieces.get(0)).isEqualTo(new Section("0:2,0:9"));
+  }
+
+  @Test
+  public void testStrided() throws Exception {
+    List<Section> pieces = check(new Section("1:40:3,2:8:2"), new int[] {6, 4}, 13);
+    for (Section s : pieces) {
+      assertThat(s.getRange(0).stride()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  public void testSingleElements() throws Exception {
+    List<Section> pieces = check(new Section("0:2,0:3"), null, 1);
+    assertThat(pieces).hasSize(12);
+  }
+
+  // check that the pieces cover the wanted section exactly, in canonical order
+  private List<Section> check(Section want, int[] storageChunk, long maxElems) throws Exception {
+    List<Section> pieces = new ArrayList<>();
+    SectionChunker chunker = new SectionChunker(want, storageChunk, maxElems);
+    while (chunker.hasNext()) {
+      pieces.add(chunker.next());
+    }
+
+    List<String> expected = new ArrayList<>();
+    addIndices(want, expected);
+    List<String> actual = new ArrayList<>();
+    for (Section s : pieces) {
+      assertThat(s.computeSize()).isAtMost(maxElems);
+      addIndices(s, actual);
+    }
+    assertThat(actual).isEqualTo(expected);
+    return pieces;
+  }
+
+  private void addIndices(Section s, List<String> result) {
+    // the shape only matters for the 1D position, which isnt used
+    Section.Iterator iter = s.getIterator(s.getShape());
+    int[] index = new int[s.getRank()];
+    while (iter.hasNext()) {
+      iter.next(index);
+      result.add(java.util.Arrays.toString(index));
+    }
+  }
+}
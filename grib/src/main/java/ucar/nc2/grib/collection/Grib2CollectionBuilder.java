@@ -6,6 +6,7 @@
 package ucar.nc2.grib.collection;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import thredds.featurecollection.FeatureCollectionConfig;
 import thredds.inventory.CollectionUpdateType;
 import thredds.inventory.MCollection;
@@ -29,7 +30,9 @@ import ucar.nc2.time.CalendarPeriod;
 import thredds.inventory.CloseableIterator;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Builds indexes for collections of Grib2 files.
@@ -57,82 +60,21 @@ class Grib2CollectionBuilder extends GribCollectionBuilder {
   @Override
   public List<Grib2CollectionWriter.Group> makeGroups(List<MFile> allFiles, boolean singleRuntime, Formatter errlog)
       throws IOException {
-    Map<GroupAndRuntime, Grib2CollectionWriter.Group> gdsMap = new HashMap<>();
-
     logger.debug("Grib2CollectionBuilder {}: makeGroups", name);
-    int fileno = 0;
     GribRecordStats statsAll = new GribRecordStats(); // debugging
 
     logger.debug(" dcm={}", dcm);
 
     // place each record into its group
-    int totalRecords = 0;
+    GroupMaker groupMaker = new GroupMaker(allFiles, singleRuntime, statsAll);
     try (CloseableIterator<MFile> iter = dcm.getFileIterator()) { // not sorted
       if (iter == null)
         return new ArrayList<>(); // empty
 
-      while (iter.hasNext()) {
-        MFile mfile = iter.next();
-        Grib2Index index;
-
-        try {
-          if (Grib.debugGbxIndexOnly) {
-            index = (Grib2Index) GribIndex.open(false, mfile);
-          } else {
-            // this is where gbx9 files get recreated
-            index =
-                (Grib2Index) GribIndex.readOrCreateIndexFromSingleFile(false, mfile, CollectionUpdateType.test, logger);
-          }
-          allFiles.add(mfile); // add on success
-
-        } catch (IOException ioe) {
-          logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
-              + " failed", ioe);
-          continue;
-        }
-        if (index == null) {
-          logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
-              + " failed");
-          continue;
-        }
-        int n = index.getNRecords();
-        totalRecords += n;
-
-        for (Grib2Record gr : index.getRecords()) { // we are using entire Grib2Record - memory limitations
-          if (this.cust == null) {
-            this.cust = Grib2Tables.factory(gr);
-            cust.setTimeUnitConverter(gribConfig.getTimeUnitConverter());
-          }
-          if (filterIntervals(gr, gribConfig.intvFilter)) {
-            statsAll.filter++;
-            continue; // skip
-          }
-
-          gr.setFile(fileno); // each record tracks which file it belongs to
-          Grib2Gds gds = gr.getGDS(); // use GDS to group records
-          int hashCode = gribConfig.convertGdsHash(gds.hashCode()); // allow external config to muck with gdsHash. Why?
-                                                                    // because of error in encoding and we need exact
-                                                                    // hash matching
-          if (0 == hashCode)
-            continue; // skip this group
-          // GdsHashObject gdsHashObject = new GdsHashObject(gr.getGDS(), hashCode);
-
-          CalendarDate runtimeDate = gr.getReferenceDate();
-          long runtime = singleRuntime ? runtimeDate.getMillis() : 0; // seperate Groups for each runtime, if
-                                                                      // singleRuntime is true
-          GroupAndRuntime gar = new GroupAndRuntime(hashCode, runtime);
-          Grib2CollectionWriter.Group g = gdsMap.get(gar);
-          if (g == null) {
-            g = new Grib2CollectionWriter.Group(gr.getGDSsection(), hashCode, runtimeDate);
-            gdsMap.put(gar, g);
-          }
-          g.records.add(gr);
-          g.runtimes.add(runtimeDate.getMillis());
-        }
-        fileno++;
-        statsAll.recordsTotal += index.getRecords().size();
-      }
+      indexFiles(iter, this::readRecords, groupMaker);
     }
+    Map<GroupAndRuntime, Grib2CollectionWriter.Group> gdsMap = groupMaker.gdsMap;
+    int totalRecords = groupMaker.totalRecords;
 
     if (totalRecords == 0) {
       logger.warn("No records found in files. Check Grib1/Grib2 for collection {}. If wrong, delete gbx9.", name);
@@ -158,6 +100,110 @@ class Grib2CollectionBuilder extends GribCollectionBuilder {
     return groups;
   }
 
+  // Called on the index executor: read or create the gbx9 index of the file, and reduce its records to what
+  // makeGroups and the collection index need
+  @Nullable
+  private List<Grib2Record> readRecords(MFile mfile) {
+    Grib2Index index;
+    try {
+      if (Grib.debugGbxIndexOnly) {
+        index = (Grib2Index) GribIndex.open(false, mfile);
+      } else {
+        // this is where gbx9 files get recreated
+        index = (Grib2Index) GribIndex.readOrCreateIndexFromSingleFile(false, mfile, CollectionUpdateType.test, logger);
+      }
+
+    } catch (IOException ioe) {
+      logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
+          + " failed", ioe);
+      return null;
+    }
+    if (index == null) {
+      logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath()
+          + " failed");
+      return null;
+    }
+
+    List<Grib2Record> result = new ArrayList<>(index.getNRecords());
+    for (Grib2Record gr : index.getRecords()) {
+      result.add(slim(gr));
+    }
+    return result;
+  }
+
+  // The GDS and identification sections are usually the same in all the files, so share them.
+  private final Map<ByteBuffer, Grib2SectionGridDefinition> sharedGds = new ConcurrentHashMap<>();
+  private final Map<Grib2SectionIdentification, Grib2SectionIdentification> sharedIds = new ConcurrentHashMap<>();
+  private static final byte[] noHeader = new byte[0];
+
+  // A copy of the record without the header and local use section, which building the collection does not use,
+  // and with the shared GDS and identification sections.
+  private Grib2Record slim(Grib2Record gr) {
+    Grib2SectionGridDefinition gdss = gr.getGDSsection();
+    gdss = sharedGds.computeIfAbsent(ByteBuffer.wrap(gdss.getRawBytes()), k -> gr.getGDSsection());
+    Grib2SectionIdentification ids = sharedIds.computeIfAbsent(gr.getId(), k -> k);
+    return new Grib2Record(noHeader, gr.getIs(), ids, null, gdss, gr.getPDSsection(), gr.getDataRepresentationSection(),
+        gr.getBitmapSection(), gr.getDataSection(), gr.isBmsReplaced(), gr.getScanMode());
+  }
+
+  // Called in file order: place each record of the file into its group
+  private class GroupMaker implements FileConsumer<List<Grib2Record>> {
+    final Map<GroupAndRuntime, Grib2CollectionWriter.Group> gdsMap = new HashMap<>();
+    final List<MFile> allFiles;
+    final boolean singleRuntime;
+    final GribRecordStats statsAll;
+    int fileno;
+    int totalRecords;
+
+    GroupMaker(List<MFile> allFiles, boolean singleRuntime, GribRecordStats statsAll) {
+      this.allFiles = allFiles;
+      this.singleRuntime = singleRuntime;
+      this.statsAll = statsAll;
+    }
+
+    @Override
+    public void accept(MFile mfile, @Nullable List<Grib2Record> records) {
+      if (records == null)
+        return; // failed, already logged
+      allFiles.add(mfile); // add on success
+      totalRecords += records.size();
+
+      for (Grib2Record gr : records) {
+        if (cust == null) {
+          cust = Grib2Tables.factory(gr);
+          cust.setTimeUnitConverter(gribConfig.getTimeUnitConverter());
+        }
+        if (filterIntervals(gr, gribConfig.intvFilter)) {
+          statsAll.filter++;
+          continue; // skip
+        }
+
+        gr.setFile(fileno); // each record tracks which file it belongs to
+        Grib2Gds gds = gr.getGDS(); // use GDS to group records
+        int hashCode = gribConfig.convertGdsHash(gds.hashCode()); // allow external config to muck with gdsHash. Why?
+                                                                  // because of error in encoding and we need exact
+                                                                  // hash matching
+        if (0 == hashCode)
+          continue; // skip this group
+        // GdsHashObject gdsHashObject = new GdsHashObject(gr.getGDS(), hashCode);
+
+        CalendarDate runtimeDate = gr.getReferenceDate();
+        long runtime = singleRuntime ? runtimeDate.getMillis() : 0; // seperate Groups for each runtime, if
+                                                                    // singleRuntime is true
+        GroupAndRuntime gar = new GroupAndRuntime(hashCode, runtime);
+        Grib2CollectionWriter.Group g = gdsMap.get(gar);
+        if (g == null) {
+          g = new Grib2CollectionWriter.Group(gr.getGDSsection(), hashCode, runtimeDate);
+          gdsMap.put(gar, g);
+        }
+        g.records.add(gr);
+        g.runtimes.add(runtimeDate.getMillis());
+      }
+      fileno++;
+      statsAll.recordsTotal += records.size();
+    }
+  }
+
   // true means discard
   private boolean filterIntervals(Grib2Record gr, FeatureCollectionConfig.GribIntvFilter intvFilter) {
     // hack a whack - filter out records with unknown time units
@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Formatter;
 import java.util.List;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,8 +32,10 @@ import ucar.nc2.grib.grib1.Grib1Parameter;
 import ucar.nc2.grib.grib1.Grib1Record;
 import ucar.nc2.grib.grib1.Grib1SectionProductDefinition;
 import ucar.nc2.grib.grib1.tables.Grib1Customizer;
+import ucar.nc2.grib.grib2.Grib2DataWindow;
 import ucar.nc2.grib.grib2.Grib2Record;
 import ucar.nc2.grib.grib2.Grib2RecordScanner;
+import ucar.nc2.grib.grib2.Grib2SectionIndicator;
 import ucar.nc2.grib.grib2.table.Grib2Tables;
 import ucar.unidata.io.RandomAccessFile;
 
@@ -55,19 +58,46 @@ public abstract class GribArrayReader {
       return new Grib2ArrayReader(gribCollection, vindex);
   }
 
-  protected abstract float[] readData(RandomAccessFile rafData, GribReaderRecord dr) throws IOException;
+  /** Read and unpack the data of a record, whose message starts at startPos in rafData. Must be thread-safe. */
+  protected abstract float[] readData(RandomAccessFile rafData, long startPos, GribReaderRecord dr)
+      throws IOException;
+
+  /** The length of the GRIB message starting at startPos. */
+  protected abstract long readMessageLength(RandomAccessFile rafData, long startPos) throws IOException;
 
   protected abstract void show(RandomAccessFile rafData, long dataPos) throws IOException;
 
   /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-  public static GribCollectionImmutable.Record currentDataRecord;
   public static GribDataValidator validator;
-  public static String currentDataRafFilename;
   private static final boolean show = false; // debug
 
+  // debugging with Grib.debugIndexOnly: the last record found, per thread so concurrent readers dont interfere
+  private static final ThreadLocal<GribCollectionImmutable.Record> currentDataRecord = new ThreadLocal<>();
+  private static final ThreadLocal<String> currentDataRafFilename = new ThreadLocal<>();
+
+  /** Debugging with Grib.debugIndexOnly: the last record found by a read on the calling thread, or null. */
+  @Nullable
+  public static GribCollectionImmutable.Record getCurrentDataRecord() {
+    return currentDataRecord.get();
+  }
+
+  /** Debugging with Grib.debugIndexOnly: the data file of getCurrentDataRecord(), or null. */
+  @Nullable
+  public static String getCurrentDataRafFilename() {
+    return currentDataRafFilename.get();
+  }
+
+  /** Debugging with Grib.debugIndexOnly: forget the last record found on the calling thread. */
+  public static void clearCurrentDataRecord() {
+    currentDataRecord.remove();
+    currentDataRafFilename.remove();
+  }
+
   protected final GribCollectionImmutable gribCollection;
   private final GribCollectionImmutable.VariableIndex vindex;
   private final List<GribReaderRecord> records = new ArrayList<>();
+  // the horizontal part wanted by the current read, so GRIB2 records need only unpack that part
+  protected RangeIterator yRange, xRange;
 
   protected GribArrayReader(GribCollectionImmutable gribCollection, GribCollectionImmutable.VariableIndex vindex) {
     this.gribCollection = gribCollection;
@@ -118,7 +148,9 @@ public abstract class GribArrayReader {
     }
 
     // sort by file and position, then read
-    DataReceiverIF dataReceiver = new DataReceiver(want.getShape(), want.getRange(rank - 2), want.getRange(rank - 1));
+    this.yRange = want.getRange(rank - 2);
+    this.xRange = want.getRange(rank - 1);
+    DataReceiverIF dataReceiver = new DataReceiver(want.getShape(), yRange, xRange);
     read(dataReceiver);
     return dataReceiver.getArray();
   }
@@ -170,8 +202,9 @@ public abstract class GribArrayReader {
     }
 
     // sort by file and position, then read
-    DataReceiverIF dataReceiver =
-        new DataReceiver(section.getShape(), section.getRange(rank - 2), section.getRange(rank - 1));
+    this.yRange = section.getRange(rank - 2);
+    this.xRange = section.getRange(rank - 1);
+    DataReceiverIF dataReceiver = new DataReceiver(section.getShape(), yRange, xRange);
     readPartitioned(dataReceiver);
 
     return dataReceiver.getArray();
@@ -206,6 +239,8 @@ public abstract class GribArrayReader {
       resultIndex++;
     }
 
+    this.yRange = yRange;
+    this.xRange = xRange;
     DataReceiverIF dataReceiver = new DataReceiver(want.getShape(yRange, xRange), yRange, xRange);
     read(dataReceiver);
     return dataReceiver.getArray();
@@ -226,6 +261,8 @@ public abstract class GribArrayReader {
     }
 
     // sort by file and position, then read
+    this.yRange = yRange;
+    this.xRange = xRange;
     DataReceiverIF dataReceiver = new DataReceiver(want.getShape(yRange, xRange), yRange, xRange);
     readPartitioned(dataReceiver);
 
@@ -245,12 +282,13 @@ public abstract class GribArrayReader {
 
     int currFile = -1;
     RandomAccessFile rafData = null;
+    GribParallelDecoder decoder = makeDecoder(dataReceiver::addData);
     try {
       for (GribReaderRecord dr : records) {
         if (Grib.debugIndexOnly || Grib.debugGbxIndexOnly) {
           GribIosp.debugIndexOnlyCount++;
-          currentDataRecord = dr.record;
-          currentDataRafFilename = gribCollection.getDataRafFilename(dr.record.fileno);
+          currentDataRecord.set(dr.record);
+          currentDataRafFilename.set(gribCollection.getDataRafFilename(dr.record.fileno));
           if (Grib.debugIndexOnlyShow)
             dr.show(gribCollection);
           dataReceiver.setDataToZero();
@@ -276,12 +314,13 @@ public abstract class GribArrayReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
         GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        decoder.add(rafData, dr, hcs.nx);
       }
+      decoder.finish();
 
     } finally {
+      decoder.cancel(); // nothing to cancel unless there was an exception
       if (rafData != null)
         rafData.close(); // make sure its closed even on exception
     }
@@ -298,6 +337,7 @@ public abstract class GribArrayReader {
 
     PartitionCollectionImmutable.DataRecord lastRecord = null;
     RandomAccessFile rafData = null;
+    GribParallelDecoder decoder = makeDecoder(dataReceiver::addData);
     try {
 
       for (GribReaderRecord dr : records) {
@@ -328,17 +368,33 @@ public abstract class GribArrayReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
         GdsHorizCoordSys hcs = dr.hcs;
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        decoder.add(rafData, dr, hcs.nx);
       }
+      decoder.finish();
 
     } finally {
+      decoder.cancel(); // nothing to cancel unless there was an exception
       if (rafData != null)
         rafData.close(); // make sure its closed even on exception
     }
   }
 
+  private GribParallelDecoder makeDecoder(GribParallelDecoder.DataSink sink) {
+    GribParallelDecoder.RecordReader reader = new GribParallelDecoder.RecordReader() {
+      @Override
+      public long readMessageLength(RandomAccessFile raf, long startPos) throws IOException {
+        return GribArrayReader.this.readMessageLength(raf, startPos);
+      }
+
+      @Override
+      public float[] readData(RandomAccessFile raf, long startPos, GribReaderRecord dr) throws IOException {
+        return GribArrayReader.this.readData(raf, startPos, dr);
+      }
+    };
+    return GribParallelDecoder.create(reader, sink);
+  }
+
   public interface DataReceiverIF {
     void addData(float[] data, int resultIndex, int nx);
 
@@ -407,12 +463,19 @@ public abstract class GribArrayReader {
     }
 
     @Override
-    protected float[] readData(RandomAccessFile rafData, GribReaderRecord dr) throws IOException {
+    protected float[] readData(RandomAccessFile rafData, long startPos, GribReaderRecord dr) throws IOException {
       GdsHorizCoordSys hcs = dr.hcs;
-      long dataPos = dr.record.pos + dr.record.drsOffset;
-      long bmsPos = (dr.record.bmsOffset > 0) ? dr.record.pos + dr.record.bmsOffset : 0;
+      long dataPos = startPos + dr.record.drsOffset;
+      long bmsPos = (dr.record.bmsOffset > 0) ? startPos + dr.record.bmsOffset : 0;
+      Grib2DataWindow window = (yRange == null) ? null : Grib2DataWindow.of(yRange, xRange);
       return Grib2Record.readData(rafData, dataPos, bmsPos, hcs.gdsNumberPoints, hcs.getScanMode(), hcs.nxRaw,
-          hcs.nyRaw, hcs.nptsInLine);
+          hcs.nyRaw, hcs.nptsInLine, window);
+    }
+
+    @Override
+    protected long readMessageLength(RandomAccessFile rafData, long startPos) throws IOException {
+      rafData.seek(startPos);
+      return new Grib2SectionIndicator(rafData).getMessageLength();
     }
 
     @Override
@@ -443,8 +506,13 @@ public abstract class GribArrayReader {
     }
 
     @Override
-    protected float[] readData(RandomAccessFile rafData, GribReaderRecord dr) throws IOException {
-      return Grib1Record.readData(rafData, dr.record.pos);
+    protected float[] readData(RandomAccessFile rafData, long startPos, GribReaderRecord dr) throws IOException {
+      return Grib1Record.readData(rafData, startPos);
+    }
+
+    @Override
+    protected long readMessageLength(RandomAccessFile rafData, long startPos) throws IOException {
+      return Grib1Record.readMessageLength(rafData, startPos);
     }
 
     @Override
@@ -37,6 +37,7 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -71,6 +72,23 @@ public class GribCdmIndex implements IndexReader {
     gribCollectionCache = null;
   }
 
+  /**
+   * Opt-in parallel reading and creating of the gbx9 indexes of the files, when building a GRIB2 collection index.
+   * On a cold collection of many files, where every file has to be scanned, this is most of the time it takes.
+   * The records are still added to the collection in file order, so the result is the same as the serial build.
+   *
+   * @param executor index the files on this executor, or null (the default) to index them on the calling thread.
+   * @param maxFilesInFlight maximum number of files indexed but not yet added to the collection. Bounds memory use.
+   */
+  public static void setIndexExecutor(@Nullable Executor executor, int maxFilesInFlight) {
+    GribCollectionBuilder.setIndexExecutor(executor, maxFilesInFlight);
+  }
+
+  /** Same as setIndexExecutor(executor, 64). */
+  public static void setIndexExecutor(@Nullable Executor executor) {
+    GribCollectionBuilder.setIndexExecutor(executor, GribCollectionBuilder.DEFAULT_FILES_IN_FLIGHT);
+  }
+
   public static void setGribCollectionCache(FileCacheIF cache) {
     if (null != gribCollectionCache)
       gribCollectionCache.disable();
@@ -5,6 +5,8 @@
 
 package ucar.nc2.grib.collection;
 
+import com.google.common.base.Preconditions;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import thredds.featurecollection.FeatureCollectionConfig;
 import thredds.inventory.CollectionManager;
@@ -25,7 +27,12 @@ import thredds.inventory.CloseableIterator;
 import ucar.unidata.util.StringUtil2;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Superclass to build indexes for collections of Grib files.
@@ -34,6 +41,17 @@ import java.util.*;
  * @since 2/19/14
  */
 abstract class GribCollectionBuilder {
+  static final int DEFAULT_FILES_IN_FLIGHT = 64;
+
+  private static volatile Executor indexExecutor;
+  private static volatile int filesInFlight = DEFAULT_FILES_IN_FLIGHT;
+
+  /** Set by GribCdmIndex.setIndexExecutor(). */
+  static void setIndexExecutor(@Nullable Executor executor, int maxFilesInFlight) {
+    Preconditions.checkArgument(maxFilesInFlight > 0, "maxFilesInFlight must be > 0");
+    filesInFlight = maxFilesInFlight;
+    indexExecutor = executor;
+  }
 
   protected final MCollection dcm;
   protected final org.slf4j.Logger logger;
@@ -260,6 +278,84 @@ abstract class GribCollectionBuilder {
     Set<Long> getCoordinateRuntimes();
   }
 
+  /** Reads or creates the gbx9 index of one file, and keeps only what makeGroups needs. Must be thread-safe. */
+  protected interface FileIndexer<T> {
+    /** @return the file's records, or null if the index could not be read or created. */
+    @Nullable
+    T index(MFile mfile) throws IOException;
+  }
+
+  /** Receives the records of each file, on the calling thread, in the order of the files. */
+  protected interface FileConsumer<T> {
+    void accept(MFile mfile, @Nullable T records) throws IOException;
+  }
+
+  /**
+   * Index each file, on the executor set by GribCdmIndex.setIndexExecutor() if any, and pass the results to the
+   * consumer in the order of the files. At most filesInFlight files are indexed but not yet consumed, which bounds
+   * memory use. With no executor, each file is indexed and consumed in turn on the calling thread.
+   * A file the executor rejects, or has not started when its turn comes, is indexed on the calling thread,
+   * so this may be called from a thread of the same executor.
+   */
+  protected static <T> void indexFiles(Iterator<MFile> files, FileIndexer<T> indexer, FileConsumer<T> consumer)
+      throws IOException {
+    Executor executor = indexExecutor;
+    if (executor == null) {
+      while (files.hasNext()) {
+        MFile mfile = files.next();
+        consumer.accept(mfile, indexer.index(mfile));
+      }
+      return;
+    }
+
+    int maxInFlight = filesInFlight;
+    Deque<MFile> pendingFiles = new ArrayDeque<>();
+    Deque<FutureTask<T>> pending = new ArrayDeque<>();
+    try {
+      while (files.hasNext()) {
+        MFile mfile = files.next();
+        FutureTask<T> task = new FutureTask<>(() -> indexer.index(mfile));
+        try {
+          executor.execute(task);
+        } catch (RejectedExecutionException e) {
+          task.run(); // eg the executor was shut down
+        }
+        pendingFiles.add(mfile);
+        pending.add(task);
+        if (pending.size() >= maxInFlight) {
+          consumer.accept(pendingFiles.remove(), await(pending.remove()));
+        }
+      }
+      while (!pending.isEmpty()) {
+        consumer.accept(pendingFiles.remove(), await(pending.remove()));
+      }
+    } finally {
+      pending.forEach(t -> t.cancel(true)); // only if something failed
+    }
+  }
+
+  private static <T> T await(FutureTask<T> task) throws IOException {
+    try {
+      task.run(); // if the executor has not started it yet, dont wait for it
+      return task.get();
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("GribCollectionBuilder was interrupted");
+
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
   @Immutable
   protected static class GroupAndRuntime {
     private final int hashCode;
@@ -510,14 +510,15 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
         for (int i = 0; i < ntrack; i++)
           track[i] = proto.getTrack(i);
 
+        // stored by column, the Records are made on demand
         int n = proto.getRecordsCount();
-        List<Record> records = new ArrayList<>(n);
+        RecordTable.Builder records = RecordTable.builder(n);
         for (int i = 0; i < n; i++) {
           GribCollectionProto.Record pr = proto.getRecords(i);
-          records.add(new Record(pr.getFileno(), pr.getStartPos(), pr.getBmsOffset(), pr.getDrsOffset()));
+          records.add(pr.getFileno(), pr.getStartPos(), pr.getBmsOffset(), pr.getDrsOffset());
         }
         int ndups = proto.getNdups();
-        this.sa = new SparseArray<>(size, track, records, ndups);
+        this.sa = new SparseArray<>(size, track, records.build(), ndups);
 
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
         logger.error(" file={} recordsLen={} recordPos={}", indexFilename, recordsLen, recordsPos);
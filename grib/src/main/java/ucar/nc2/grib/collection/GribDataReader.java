@@ -19,13 +19,17 @@ import ucar.nc2.grib.grib1.Grib1Parameter;
 import ucar.nc2.grib.grib1.Grib1Record;
 import ucar.nc2.grib.grib1.Grib1SectionProductDefinition;
 import ucar.nc2.grib.grib1.tables.Grib1Customizer;
+import ucar.nc2.grib.grib2.Grib2DataWindow;
 import ucar.nc2.grib.grib2.Grib2Record;
 import ucar.nc2.grib.grib2.Grib2RecordScanner;
+import ucar.nc2.grib.grib2.Grib2SectionIndicator;
 import ucar.nc2.grib.grib2.table.Grib2Tables;
 import ucar.unidata.io.RandomAccessFile;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executor;
 
 /**
  * Grib Data Reader.
@@ -47,19 +51,64 @@ public abstract class GribDataReader {
       return new Grib2DataReader(gribCollection, vindex);
   }
 
-  protected abstract float[] readData(RandomAccessFile rafData, GribReaderRecord dr) throws IOException;
+  /** Read and unpack the data of a record, whose message starts at startPos in rafData. Must be thread-safe. */
+  protected abstract float[] readData(RandomAccessFile rafData, long startPos, GribReaderRecord dr)
+      throws IOException;
+
+  /** The length of the GRIB message starting at startPos. */
+  protected abstract long readMessageLength(RandomAccessFile rafData, long startPos) throws IOException;
 
   protected abstract void show(RandomAccessFile rafData, long dataPos) throws IOException;
 
   /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-  public static GribCollectionImmutable.Record currentDataRecord;
   public static GribDataValidator validator;
-  public static String currentDataRafFilename;
+
+  /**
+   * Opt-in parallel unpacking of GRIB records, for GribDataReader and GribArrayReader.
+   * The records are still read from the files sequentially, in file order, but unpacking the data is done on the
+   * given executor, typically a fixed size thread pool owned by the application. The result is the same as the
+   * serial read. Worthwhile when reading many records, eg all the forecast times of a large grid.
+   *
+   * @param executor unpack on this executor, or null (the default) to unpack on the calling thread.
+   * @param maxRecordsInFlight maximum number of records read but not yet unpacked, per read call. Bounds memory use.
+   */
+  public static void setDecodeExecutor(@Nullable Executor executor, int maxRecordsInFlight) {
+    GribParallelDecoder.setExecutor(executor, maxRecordsInFlight);
+  }
+
+  /** Same as setDecodeExecutor(executor, 16). */
+  public static void setDecodeExecutor(@Nullable Executor executor) {
+    GribParallelDecoder.setExecutor(executor, GribParallelDecoder.DEFAULT_RECORDS_IN_FLIGHT);
+  }
   private static final boolean show = false; // debug
 
+  // debugging with Grib.debugIndexOnly: the last record found, per thread so concurrent readers dont interfere
+  private static final ThreadLocal<GribCollectionImmutable.Record> currentDataRecord = new ThreadLocal<>();
+  private static final ThreadLocal<String> currentDataRafFilename = new ThreadLocal<>();
+
+  /** Debugging with Grib.debugIndexOnly: the last record found by a read on the calling thread, or null. */
+  @Nullable
+  public static GribCollectionImmutable.Record getCurrentDataRecord() {
+    return currentDataRecord.get();
+  }
+
+  /** Debugging with Grib.debugIndexOnly: the data file of getCurrentDataRecord(), or null. */
+  @Nullable
+  public static String getCurrentDataRafFilename() {
+    return currentDataRafFilename.get();
+  }
+
+  /** Debugging with Grib.debugIndexOnly: forget the last record found on the calling thread. */
+  public static void clearCurrentDataRecord() {
+    currentDataRecord.remove();
+    currentDataRafFilename.remove();
+  }
+
   protected final GribCollectionImmutable gribCollection;
   private final GribCollectionImmutable.VariableIndex vindex;
   private final List<GribReaderRecord> records = new ArrayList<>();
+  // the horizontal part wanted by the current read, so GRIB2 records need only unpack that part
+  protected RangeIterator yRange, xRange;
 
   protected GribDataReader(GribCollectionImmutable gribCollection, GribCollectionImmutable.VariableIndex vindex) {
     this.gribCollection = gribCollection;
@@ -110,7 +159,9 @@ public abstract class GribDataReader {
     }
 
     // sort by file and position, then read
-    DataReceiverIF dataReceiver = new DataReceiver(want.getShape(), want.getRange(rank - 2), want.getRange(rank - 1));
+    this.yRange = want.getRange(rank - 2);
+    this.xRange = want.getRange(rank - 1);
+    DataReceiverIF dataReceiver = new DataReceiver(want.getShape(), yRange, xRange);
     read(dataReceiver);
     return dataReceiver.getArray();
   }
@@ -162,8 +213,9 @@ public abstract class GribDataReader {
     }
 
     // sort by file and position, then read
-    DataReceiverIF dataReceiver =
-        new DataReceiver(section.getShape(), section.getRange(rank - 2), section.getRange(rank - 1));
+    this.yRange = section.getRange(rank - 2);
+    this.xRange = section.getRange(rank - 1);
+    DataReceiverIF dataReceiver = new DataReceiver(section.getShape(), yRange, xRange);
     readPartitioned(dataReceiver);
 
     return dataReceiver.getArray();
@@ -198,6 +250,8 @@ public abstract class GribDataReader {
       resultIndex++;
     }
 
+    this.yRange = yRange;
+    this.xRange = xRange;
     DataReceiverIF dataReceiver = new DataReceiver(want.getShape(yRange, xRange), yRange, xRange);
     read(dataReceiver);
     return dataReceiver.getArray();
@@ -218,6 +272,8 @@ public abstract class GribDataReader {
     }
 
     // sort by file and position, then read
+    this.yRange = yRange;
+    this.xRange = xRange;
     DataReceiverIF dataReceiver = new DataReceiver(want.getShape(yRange, xRange), yRange, xRange);
     readPartitioned(dataReceiver);
 
@@ -237,12 +293,13 @@ public abstract class GribDataReader {
 
     int currFile = -1;
     RandomAccessFile rafData = null;
+    GribParallelDecoder decoder = makeDecoder(dataReceiver::addData);
     try {
       for (GribReaderRecord dr : records) {
         if (Grib.debugIndexOnly || Grib.debugGbxIndexOnly) {
           GribIosp.debugIndexOnlyCount++;
-          currentDataRecord = dr.record;
-          currentDataRafFilename = gribCollection.getDataRafFilename(dr.record.fileno);
+          currentDataRecord.set(dr.record);
+          currentDataRafFilename.set(gribCollection.getDataRafFilename(dr.record.fileno));
           if (Grib.debugIndexOnlyShow)
             dr.show(gribCollection);
           dataReceiver.setDataToZero();
@@ -268,12 +325,13 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
         GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        decoder.add(rafData, dr, hcs.nx);
       }
+      decoder.finish();
 
     } finally {
+      decoder.cancel(); // nothing to cancel unless there was an exception
       if (rafData != null)
         rafData.close(); // make sure its closed even on exception
     }
@@ -290,6 +348,7 @@ public abstract class GribDataReader {
 
     PartitionCollectionImmutable.DataRecord lastRecord = null;
     RandomAccessFile rafData = null;
+    GribParallelDecoder decoder = makeDecoder(dataReceiver::addData);
     try {
 
       for (GribReaderRecord dr : records) {
@@ -320,17 +379,33 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
         GdsHorizCoordSys hcs = dr.hcs;
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        decoder.add(rafData, dr, hcs.nx);
       }
+      decoder.finish();
 
     } finally {
+      decoder.cancel(); // nothing to cancel unless there was an exception
       if (rafData != null)
         rafData.close(); // make sure its closed even on exception
     }
   }
 
+  private GribParallelDecoder makeDecoder(GribParallelDecoder.DataSink sink) {
+    GribParallelDecoder.RecordReader reader = new GribParallelDecoder.RecordReader() {
+      @Override
+      public long readMessageLength(RandomAccessFile raf, long startPos) throws IOException {
+        return GribDataReader.this.readMessageLength(raf, startPos);
+      }
+
+      @Override
+      public float[] readData(RandomAccessFile raf, long startPos, GribReaderRecord dr) throws IOException {
+        return GribDataReader.this.readData(raf, startPos, dr);
+      }
+    };
+    return GribParallelDecoder.create(reader, sink);
+  }
+
   public interface DataReceiverIF {
     void addData(float[] data, int resultIndex, int nx);
 
@@ -398,12 +473,19 @@ public abstract class GribDataReader {
     }
 
     @Override
-    protected float[] readData(RandomAccessFile rafData, GribReaderRecord dr) throws IOException {
+    protected float[] readData(RandomAccessFile rafData, long startPos, GribReaderRecord dr) throws IOException {
       GdsHorizCoordSys hcs = dr.hcs;
-      long dataPos = dr.record.pos + dr.record.drsOffset;
-      long bmsPos = (dr.record.bmsOffset > 0) ? dr.record.pos + dr.record.bmsOffset : 0;
+      long dataPos = startPos + dr.record.drsOffset;
+      long bmsPos = (dr.record.bmsOffset > 0) ? startPos + dr.record.bmsOffset : 0;
+      Grib2DataWindow window = (yRange == null) ? null : Grib2DataWindow.of(yRange, xRange);
       return Grib2Record.readData(rafData, dataPos, bmsPos, hcs.gdsNumberPoints, hcs.getScanMode(), hcs.nxRaw,
-          hcs.nyRaw, hcs.nptsInLine);
+          hcs.nyRaw, hcs.nptsInLine, window);
+    }
+
+    @Override
+    protected long readMessageLength(RandomAccessFile rafData, long startPos) throws IOException {
+      rafData.seek(startPos);
+      return new Grib2SectionIndicator(rafData).getMessageLength();
     }
 
     @Override
@@ -434,8 +516,13 @@ public abstract class GribDataReader {
     }
 
     @Override
-    protected float[] readData(RandomAccessFile rafData, GribReaderRecord dr) throws IOException {
-      return Grib1Record.readData(rafData, dr.record.pos);
+    protected float[] readData(RandomAccessFile rafData, long startPos, GribReaderRecord dr) throws IOException {
+      return Grib1Record.readData(rafData, startPos);
+    }
+
+    @Override
+    protected long readMessageLength(RandomAccessFile rafData, long startPos) throws IOException {
+      return Grib1Record.readMessageLength(rafData, startPos);
     }
 
     @Override
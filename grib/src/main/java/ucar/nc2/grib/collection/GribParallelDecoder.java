@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import javax.annotation.Nullable;
+import ucar.unidata.io.RandomAccessFile;
+
+/**
+ * Unpacks GRIB records on an Executor, for GribDataReader and GribArrayReader.
+ * The records are added in file order, and each GRIB message is read into memory on the calling thread,
+ * so the files are still read sequentially. Unpacking the data and placing it in the result is done on the executor.
+ * Each record goes to its own resultIndex, so the result is the same as reading serially.
+ * While waiting for the executor, the calling thread unpacks records that have not been started, so it may be a thread
+ * of the same executor. A record the executor rejects is unpacked on the calling thread.
+ * With a null executor, each record is read and unpacked immediately on the calling thread.
+ * Not thread-safe: use one for each read call.
+ */
+class GribParallelDecoder {
+  static final int DEFAULT_RECORDS_IN_FLIGHT = 16;
+
+  private static volatile Executor defaultExecutor;
+  private static volatile int defaultRecordsInFlight = DEFAULT_RECORDS_IN_FLIGHT;
+
+  /** Set by GribDataReader.setDecodeExecutor(). */
+  static void setExecutor(@Nullable Executor executor, int maxRecordsInFlight) {
+    Preconditions.checkArgument(maxRecordsInFlight > 0, "maxRecordsInFlight must be > 0");
+    defaultRecordsInFlight = maxRecordsInFlight;
+    defaultExecutor = executor;
+  }
+
+  /** Use the executor set by GribDataReader.setDecodeExecutor(), if any. */
+  static GribParallelDecoder create(RecordReader reader, DataSink sink) {
+    return new GribParallelDecoder(reader, sink, defaultExecutor, defaultRecordsInFlight);
+  }
+
+  /** Reads one record. Must be thread-safe. */
+  interface RecordReader {
+    /** The length of the GRIB message starting at startPos. */
+    long readMessageLength(RandomAccessFile raf, long startPos) throws IOException;
+
+    /** Read and unpack the data of a record, whose message starts at startPos in raf. */
+    float[] readData(RandomAccessFile raf, long startPos, GribReaderRecord dr) throws IOException;
+  }
+
+  /** Receives the unpacked data. May be called from multiple threads at once, always for different resultIndex. */
+  interface DataSink {
+    void addData(float[] data, int resultIndex, int nx);
+  }
+
+  private final RecordReader reader;
+  private final DataSink sink;
+  @Nullable
+  private final Executor executor;
+  private final Semaphore inFlight;
+  private final List<FutureTask<Void>> tasks = new ArrayList<>();
+  private int helpFrom; // the first task that may not have started
+
+  /**
+   * @param reader reads the records.
+   * @param sink send the data here.
+   * @param executor unpack on this executor, or null to unpack on the calling thread.
+   * @param maxRecordsInFlight maximum number of messages read but not yet unpacked. Bounds memory use.
+   */
+  GribParallelDecoder(RecordReader reader, DataSink sink, @Nullable Executor executor, int maxRecordsInFlight) {
+    Preconditions.checkArgument(maxRecordsInFlight > 0);
+    this.reader = reader;
+    this.sink = sink;
+    this.executor = executor;
+    this.inFlight = new Semaphore(maxRecordsInFlight);
+  }
+
+  /** Read the record's message from raf, and unpack it now or later. */
+  void add(RandomAccessFile raf, GribReaderRecord dr, int nx) throws IOException {
+    long startPos = dr.record.pos;
+    if (executor == null) {
+      sink.addData(reader.readData(raf, startPos, dr), dr.resultIndex, nx);
+      return;
+    }
+
+    long len = reader.readMessageLength(raf, startPos);
+    if (len <= 0 || len > Integer.MAX_VALUE || dr.record.drsOffset >= len || dr.record.bmsOffset < 0
+        || dr.record.bmsOffset >= len) {
+      // not a message we can read into memory: unpack it directly from the file
+      sink.addData(reader.readData(raf, startPos, dr), dr.resultIndex, nx);
+      return;
+    }
+
+    try {
+      acquire();
+    } catch (InterruptedException e) {
+      cancel();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("GribParallelDecoder was interrupted");
+    }
+    byte[] message = new byte[(int) len];
+    try {
+      raf.seek(startPos);
+      raf.readFully(message);
+    } catch (IOException e) {
+      inFlight.release();
+      throw e;
+    }
+
+    String location = raf.getLocation();
+    FutureTask<Void> task = new FutureTask<>(() -> {
+      try (RandomAccessFile messageRaf = new MessageRandomAccessFile(location, startPos, message)) {
+        messageRaf.order(RandomAccessFile.BIG_ENDIAN); // same as GribCollectionImmutable.getDataRaf()
+        sink.addData(reader.readData(messageRaf, startPos, dr), dr.resultIndex, nx);
+      } finally {
+        inFlight.release();
+      }
+      return null;
+    });
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      task.run(); // eg the executor was shut down
+    }
+    tasks.add(task);
+  }
+
+  // Take a permit. While there are none, unpack the records that have not been started on this thread,
+  // so that waiting on a thread of the executor can't deadlock.
+  private void acquire() throws InterruptedException {
+    while (!inFlight.tryAcquire()) {
+      if (helpFrom < tasks.size()) {
+        tasks.get(helpFrom++).run(); // does nothing if it has already started
+      } else {
+        inFlight.acquire(); // the remaining tasks are running, and will release theirs
+        return;
+      }
+    }
+  }
+
+  /** Wait until all records have been unpacked. Rethrows the first failure. */
+  void finish() throws IOException {
+    try {
+      for (FutureTask<Void> task : tasks) {
+        task.run(); // if the executor has not started it yet, dont wait for it
+        task.get();
+      }
+
+    } catch (InterruptedException e) {
+      cancel();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("GribParallelDecoder was interrupted");
+
+    } catch (ExecutionException e) {
+      cancel();
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /** Cancel any unpacking not yet started. */
+  void cancel() {
+    tasks.forEach(t -> t.cancel(true));
+  }
+
+  /**
+   * A GRIB message read into memory, at its position in the file it was read from.
+   * Grib2DataReader caches data by raf location and position, so this gets the same cache entries as reading the file.
+   */
+  private static class MessageRandomAccessFile extends RandomAccessFile {
+    private final long startPos;
+
+    MessageRandomAccessFile(String location, long startPos, byte[] message) {
+      super(1);
+      this.location = location;
+      this.startPos = startPos;
+      buffer = message;
+      bufferStart = startPos;
+      dataSize = message.length;
+      dataEnd = startPos + message.length;
+      filePosition = startPos;
+    }
+
+    @Override
+    public long length() {
+      return dataEnd;
+    }
+
+    @Override
+    public void setBufferSize(int bufferSize) {
+      // do nothing
+    }
+
+    // outside of the message: leave the buffer alone, so seeking back into the message still works
+    @Override
+    protected void readBuffer(long pos) {
+      filePosition = pos;
+      endOfFile = true;
+    }
+
+    @Override
+    protected int read_(long pos, byte[] b, int offset, int len) {
+      if (pos < startPos || pos >= dataEnd) {
+        return -1;
+      }
+      len = (int) Math.min(len, dataEnd - pos);
+      System.arraycopy(buffer, (int) (pos - startPos), b, offset, len);
+      return len;
+    }
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The records of a GribCollectionImmutable.VariableIndex, stored by column rather than as one Record object each.
+ * The Records are made on demand in get(), so this is a drop-in List for the SparseArray content.
+ * <p/>
+ * Positions are stored as a 32 bit offset from the smallest position in each block of 64 records, and fileno,
+ * bmsOffset and drsOffset in a byte, char or int per record, whichever is the smallest that holds them all,
+ * or not at all when they are all the same. A partitioned collection with millions of records needs about a quarter
+ * of the heap of a List&lt;Record&gt;.
+ */
+@Immutable
+public class RecordTable extends AbstractList<GribCollectionImmutable.Record> implements RandomAccess {
+  private static final int BLOCK_SHIFT = 6; // 64 records per block
+  private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+  private final int size;
+  private final IntColumn fileno;
+  private final long[] blockBase; // smallest position in each block
+  private final IntColumn posOffset; // position - blockBase, as an unsigned int
+  private final long[][] wideBlocks; // positions of the blocks whose offsets dont fit in 32 bits; null if none
+  private final IntColumn bmsOffset;
+  private final IntColumn drsOffset;
+
+  private RecordTable(Builder builder) {
+    this.size = builder.size;
+    this.fileno = IntColumn.of(builder.fileno, size);
+    this.bmsOffset = IntColumn.of(builder.bmsOffset, size);
+    this.drsOffset = IntColumn.of(builder.drsOffset, size);
+
+    int nblocks = (size + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+    this.blockBase = new long[nblocks];
+    int[] offset = new int[size];
+    long[][] wide = null;
+    for (int block = 0; block < nblocks; block++) {
+      int start = block << BLOCK_SHIFT;
+      int end = Math.min(size, start + BLOCK_SIZE);
+      long min = Long.MAX_VALUE;
+      long max = Long.MIN_VALUE;
+      for (int i = start; i < end; i++) {
+        min = Math.min(min, builder.pos[i]);
+        max = Math.max(max, builder.pos[i]);
+      }
+      blockBase[block] = min;
+      if (max - min > 0xffffffffL) { // eg the block crosses from the end of one large file to the start of the next
+        if (wide == null)
+          wide = new long[nblocks][];
+        wide[block] = Arrays.copyOfRange(builder.pos, start, end);
+      } else {
+        for (int i = start; i < end; i++)
+          offset[i] = (int) (builder.pos[i] - min);
+      }
+    }
+    this.posOffset = IntColumn.of(offset, size);
+    this.wideBlocks = wide;
+  }
+
+  @Override
+  public GribCollectionImmutable.Record get(int index) {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    return new GribCollectionImmutable.Record(getFileno(index), getPos(index), bmsOffset.get(index),
+        drsOffset.get(index));
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** The fileno of the index-th record, without making the Record. */
+  public int getFileno(int index) {
+    return fileno.get(index);
+  }
+
+  /** The starting position of the index-th record, without making the Record. */
+  public long getPos(int index) {
+    int block = index >>> BLOCK_SHIFT;
+    if (wideBlocks != null && wideBlocks[block] != null)
+      return wideBlocks[block][index & (BLOCK_SIZE - 1)];
+    return blockBase[block] + (posOffset.get(index) & 0xffffffffL);
+  }
+
+  /** Approximate number of bytes of heap used by the columns. */
+  public long getHeapSize() {
+    long result = fileno.getHeapSize() + bmsOffset.getHeapSize() + drsOffset.getHeapSize();
+    result += 8L * blockBase.length + posOffset.getHeapSize();
+    if (wideBlocks != null) {
+      result += 4L * wideBlocks.length;
+      for (long[] wide : wideBlocks)
+        result += (wide == null) ? 0 : 8L * wide.length;
+    }
+    return result;
+  }
+
+  public static Builder builder(int capacity) {
+    return new Builder(capacity);
+  }
+
+  public static class Builder {
+    private int size;
+    private int[] fileno;
+    private long[] pos;
+    private int[] bmsOffset;
+    private int[] drsOffset;
+
+    private Builder(int capacity) {
+      capacity = Math.max(capacity, 1);
+      fileno = new int[capacity];
+      pos = new long[capacity];
+      bmsOffset = new int[capacity];
+      drsOffset = new int[capacity];
+    }
+
+    public Builder add(int fileno, long pos, int bmsOffset, int drsOffset) {
+      if (size == this.pos.length) {
+        int capacity = 2 * size;
+        this.fileno = Arrays.copyOf(this.fileno, capacity);
+        this.pos = Arrays.copyOf(this.pos, capacity);
+        this.bmsOffset = Arrays.copyOf(this.bmsOffset, capacity);
+        this.drsOffset = Arrays.copyOf(this.drsOffset, capacity);
+      }
+      this.fileno[size] = fileno;
+      this.pos[size] = pos;
+      this.bmsOffset[size] = bmsOffset;
+      this.drsOffset[size] = drsOffset;
+      size++;
+      return this;
+    }
+
+    public RecordTable build() {
+      return new RecordTable(this);
+    }
+  }
+
+  // A column of ints, stored in the narrowest array that holds them
+  private static final class IntColumn {
+    private final int constant; // when all values are the same
+    private final byte[] bytes; // 0..255
+    private final char[] chars; // 0..65535
+    private final int[] ints;
+
+    private IntColumn(int constant, byte[] bytes, char[] chars, int[] ints) {
+      this.constant = constant;
+      this.bytes = bytes;
+      this.chars = chars;
+      this.ints = ints;
+    }
+
+    static IntColumn of(int[] values, int n) {
+      int min = (n == 0) ? 0 : Integer.MAX_VALUE;
+      int max = (n == 0) ? 0 : Integer.MIN_VALUE;
+      for (int i = 0; i < n; i++) {
+        min = Math.min(min, values[i]);
+        max = Math.max(max, values[i]);
+      }
+      if (min == max)
+        return new IntColumn(min, null, null, null);
+
+      if (min >= 0 && max <= 0xff) {
+        byte[] bytes = new byte[n];
+        for (int i = 0; i < n; i++)
+          bytes[i] = (byte) values[i];
+        return new IntColumn(0, bytes, null, null);
+      }
+
+      if (min >= 0 && max <= 0xffff) {
+        char[] chars = new char[n];
+        for (int i = 0; i < n; i++)
+          chars[i] = (char) values[i];
+        return new IntColumn(0, null, chars, null);
+      }
+
+      return new IntColumn(0, null, null, Arrays.copyOf(values, n));
+    }
+
+    int get(int index) {
+      if (bytes != null)
+        return bytes[index] & 0xff;
+      if (chars != null)
+        return chars[index];
+      if (ints != null)
+        return ints[index];
+      return constant;
+    }
+
+    long getHeapSize() {
+      if (bytes != null)
+        return bytes.length;
+      if (chars != null)
+        return 2L * chars.length;
+      if (ints != null)
+        return 4L * ints.length;
+      return 0;
+    }
+  }
+}
@@ -196,6 +196,19 @@ public class Grib1Record {
     return gr.readData(raf);
   }
 
+  /**
+   * Read the length of the GRIB-1 message starting at startPos, allowing for ECMWF large messages.
+   *
+   * @param raf from this RandomAccessFile
+   * @param startPos message starts here
+   * @return length of the message in bytes
+   * @throws IOException on read error
+   */
+  public static long readMessageLength(RandomAccessFile raf, long startPos) throws IOException {
+    raf.seek(startPos);
+    return new Grib1SectionIndicator(raf).getMessageLength();
+  }
+
   // debugging, do not use
   public static Grib1Record lastRecordRead;
 
@@ -8,9 +8,12 @@ package ucar.nc2.grib.grib2;
 import javax.annotation.Nullable;
 
 import javafx.util.Pair;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
 import ucar.nc2.grib.GribNumbers;
 import ucar.nc2.grib.GribUtils;
 import ucar.nc2.iosp.BitReader;
+import ucar.nc2.iosp.BitUnpacker;
 import ucar.unidata.io.RandomAccessFile;
 import java.awt.image.DataBuffer;
 import java.io.ByteArrayInputStream;
@@ -62,6 +65,11 @@ public class Grib2DataReader {
   private int bitmapIndicator;
   private byte[] bitmap;
 
+  // the part of the grid to unpack, as the points [firstPoint, endPoint); all of it unless there is a window
+  private Grib2DataWindow window;
+  private int firstPoint;
+  private int endPoint;
+
   Grib2DataReader(int dataTemplate, int totalNPoints, int dataNPoints, int scanMode, int nx, long startPos,
       int dataLength) {
     this.dataTemplate = dataTemplate;
@@ -90,6 +98,19 @@ public class Grib2DataReader {
    */
 
   public float[] getData(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs) throws IOException {
+    return getData(raf, bitmapSection, gdrs, null);
+  }
+
+  /**
+   * Unpack the data, or just the part of it in the window.
+   * Only simple and complex packing (templates 0, 2 and 3) and JPEG2000 without a bitmap (template 40, which decodes
+   * only the tiles of the image that overlap the window) use the window, the others unpack all of the data.
+   * When only the window is unpacked, the points outside of it are not set, and the data is not cached.
+   *
+   * @param window the part of the grid that is wanted, or null for all of it.
+   */
+  public float[] getData(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs,
+      @Nullable Grib2DataWindow window) throws IOException {
     this.bitmap = bitmapSection.getBitmap(raf);
     this.bitmapIndicator = bitmapSection.getBitMapIndicator();
 
@@ -106,6 +127,30 @@ public class Grib2DataReader {
     Pair datOfInterest = new Pair(raf.getLocation(), raf.getFilePointer());
 
     float[] data = dataCache.get(datOfInterest);
+    if (data == null && useWindow(window)) {
+      this.window = window;
+      this.firstPoint = window.yFirst * nx;
+      this.endPoint = (window.yLast + 1) * nx;
+      switch (dataTemplate) {
+        case 0:
+          data = getData0(raf, (Grib2Drs.Type0) gdrs);
+          break;
+        case 2:
+          data = getData2(raf, (Grib2Drs.Type2) gdrs);
+          break;
+        case 40:
+          data = getData40(raf, (Grib2Drs.Type40) gdrs);
+          break;
+        default:
+          data = getData3(raf, (Grib2Drs.Type3) gdrs);
+      }
+      scanningModeCheck(data, scanMode, nx);
+      return data; // only part of it, so not cached
+    }
+
+    this.window = null;
+    this.firstPoint = 0;
+    this.endPoint = totalNPoints;
     if(data == null) {
       switch (dataTemplate) {
         case 0:
@@ -139,6 +184,49 @@ public class Grib2DataReader {
     return data;
   }
 
+  private boolean useWindow(@Nullable Grib2DataWindow window) {
+    if (window == null || nx <= 0 || totalNPoints % nx != 0)
+      return false;
+    if (dataTemplate == 40 && bitmap != null)
+      return false; // the image is just the values that are present, not the grid
+    if (dataTemplate != 0 && dataTemplate != 2 && dataTemplate != 3 && dataTemplate != 40)
+      return false;
+    return window.isPartOf(nx, totalNPoints / nx);
+  }
+
+  // does scanningModeCheck() reverse any of the rows
+  private boolean flipsRows() {
+    if (scanMode == 0 || scanMode == 64)
+      return false;
+    return !GribUtils.scanModeXisPositive(scanMode) || !GribUtils.scanModeSameDirection(scanMode);
+  }
+
+  // the number of points before point n that have a value, according to the bitmap
+  private int countBitmap(int n) {
+    int count = 0;
+    int nbytes = n / 8;
+    for (int i = 0; i < nbytes; i++) {
+      count += Integer.bitCount(bitmap[i] & 0xff);
+    }
+    for (int i = nbytes * 8; i < n; i++) {
+      if (GribNumbers.testBitIsSet(bitmap[i / 8], i % 8))
+        count++;
+    }
+    return count;
+  }
+
+  // the packed data of section 7, after its 5 byte header
+  private BitUnpacker readDataSection(RandomAccessFile raf) throws IOException {
+    return BitUnpacker.read(raf, startPos + 5, dataLength - 5);
+  }
+
+  // the number of packed values to unpack, for the complex packings
+  private int countPackedValues() {
+    if (window == null)
+      return totalNPoints;
+    return (bitmap == null) ? endPoint : countBitmap(endPoint);
+  }
+
   @Nullable
   int[] getRawData(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs) throws IOException {
     this.bitmap = bitmapSection.getBitmap(raf);
@@ -242,16 +330,41 @@ public class Grib2DataReader {
     // X2 = scaled encoded value
     // data[ i ] = (R + ( X1 + X2) * EE)/DD ;
 
-    BitReader reader = new BitReader(raf, startPos + 5);
+    // read just the bytes that hold the packed values of the points [firstPoint, endPoint)
+    int firstValue = (bitmap == null) ? firstPoint : countBitmap(firstPoint);
+    int endValue = (bitmap == null) ? endPoint : countBitmap(endPoint);
+    long firstByte = (long) firstValue * nb / 8;
+    long endByte = ((long) endValue * nb + 7) / 8;
+    BitUnpacker unpacker = BitUnpacker.read(raf, startPos + 5 + firstByte, Math.toIntExact(endByte - firstByte));
+
+    if (bitmap == null && window != null && !flipsRows()) {
+      // every point is at a known bit offset, so just unpack the window
+      int n = window.xLast - window.xFirst + 1;
+      int[] packed = new int[n];
+      for (int y = window.yFirst; y <= window.yLast; y++) {
+        int start = y * nx + window.xFirst;
+        unpacker.setBitOffset((long) start * nb - 8 * firstByte);
+        unpacker.unpack(nb, packed, 0, n);
+        for (int i = 0; i < n; i++) {
+          data[start + i] = (R + (packed[i] & 0xffffffffL) * EE) / DD;
+        }
+      }
+      return data;
+    }
+
+    int[] packed = new int[endValue - firstValue];
+    unpacker.setBitOffset((long) firstValue * nb - 8 * firstByte);
+    unpacker.unpack(nb, packed, 0, packed.length);
     if (bitmap == null) {
-      for (int i = 0; i < totalNPoints; i++) {
+      for (int i = firstPoint; i < endPoint; i++) {
         // data[ i ] = (R + ( X1 + X2) * EE)/DD ;
-        data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+        data[i] = (R + (packed[i - firstPoint] & 0xffffffffL) * EE) / DD;
       }
     } else {
-      for (int i = 0; i < totalNPoints; i++) {
+      int idx = 0;
+      for (int i = firstPoint; i < endPoint; i++) {
         if (GribNumbers.testBitIsSet(bitmap[i / 8], i % 8)) {
-          data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+          data[i] = (R + (packed[idx++] & 0xffffffffL) * EE) / DD;
         } else {
           data[i] = staticMissingValue;
           // data[i] = R / DD;
@@ -303,25 +416,21 @@ public class Grib2DataReader {
       return nGroups0(bitmapIndicator, ref_val, mv);
     }
 
-    BitReader reader = new BitReader(raf, startPos + 5);
+    BitUnpacker unpacker = readDataSection(raf);
 
     // 6-xx Get reference values for groups (X1's)
     int[] X1 = new int[NG];
     int nb = gdrs.numberOfBits;
     if (nb != 0) {
-      for (int i = 0; i < NG; i++) {
-        X1[i] = (int) reader.bits2UInt(nb);
-      }
+      unpacker.unpack(nb, X1, 0, NG);
     }
 
     // [xx +1 ]-yy Get number of bits used to encode each group
     int[] NB = new int[NG];
     nb = gdrs.bitsGroupWidths;
     if (nb != 0) {
-      reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        NB[i] = (int) reader.bits2UInt(nb);
-      }
+      unpacker.incrByte();
+      unpacker.unpack(nb, NB, 0, NG);
     }
 
     // [yy +1 ]-zz Get the scaled group lengths using formula
@@ -333,11 +442,15 @@ public class Grib2DataReader {
     int len_inc = gdrs.lengthIncrement;
     nb = gdrs.bitsScaledGroupLength;
 
-    reader.incrByte();
+    unpacker.incrByte();
+    unpacker.unpack(nb, L, 0, NG);
+    int maxL = 0;
     for (int i = 0; i < NG; i++) {
-      L[i] = ref + (int) reader.bits2UInt(nb) * len_inc;
+      L[i] = ref + L[i] * len_inc;
+      maxL = Math.max(maxL, L[i]);
     }
     L[NG - 1] = gdrs.lengthLastGroup; // enter Length of Last Group
+    maxL = Math.max(maxL, L[NG - 1]);
 
     float[] data = new float[totalNPoints];
 
@@ -352,35 +465,39 @@ public class Grib2DataReader {
     // E = THE BINARY SCALE FACTOR
     // D = THE DECIMAL SCALE FACTOR
     int count = 0;
-    reader.incrByte();
-    for (int i = 0; i < NG; i++) {
-      for (int j = 0; j < L[i]; j++) {
-        if (NB[i] == 0) {
+    int need = countPackedValues(); // stop after the last row of the window
+    int[] X2 = new int[Math.min(maxL, totalNPoints)];
+    unpacker.incrByte();
+    for (int i = 0; i < NG && count < need; i++) {
+      if (NB[i] == 0) {
+        for (int j = 0; j < L[i]; j++) {
           if (mvm == 0) { // X2 = 0
             data[count++] = (R + X1[i] * EE) / DD;
           } else { // if (mvm == 1) || (mvm == 2 )
             data[count++] = mv;
           }
-        } else {
-          int X2 = (int) reader.bits2UInt(NB[i]);
+        }
+      } else {
+        unpacker.unpack(NB[i], X2, 0, L[i]);
+        for (int j = 0; j < L[i]; j++) {
           if (mvm == 0) {
-            data[count++] = (R + (X1[i] + X2) * EE) / DD;
+            data[count++] = (R + (X1[i] + X2[j]) * EE) / DD;
           } else { // if (mvm == 1) || (mvm == 2 )
             // X2 is also set to missing value if all bits set to 1's
-            if (X2 == bitsmv1[NB[i]]) {
+            if (X2[j] == bitsmv1[NB[i]]) {
               data[count++] = mv;
             } else {
-              data[count++] = (R + (X1[i] + X2) * EE) / DD;
+              data[count++] = (R + (X1[i] + X2[j]) * EE) / DD;
             }
           }
         }
-      } // end for j
+      }
     } // end for i
 
     if (bitmap != null) {
       int idx = 0;
       float[] tmp = new float[totalNPoints];
-      for (int i = 0; i < totalNPoints; i++) {
+      for (int i = 0; i < endPoint; i++) {
         if (GribNumbers.testBitIsSet(bitmap[i / 8], i % 8)) {
           tmp[i] = data[idx++];
         } else {
@@ -489,7 +606,7 @@ public class Grib2DataReader {
       return nGroups0(bitmapIndicator, ref_val, mv);
     }
 
-    BitReader reader = new BitReader(raf, startPos + 5);
+    BitUnpacker unpacker = readDataSection(raf);
 
     int ival1;
     int ival2 = 0;
@@ -502,20 +619,20 @@ public class Grib2DataReader {
     // ds is number of bytes, convert to bits -1 for sign bit
     nbitsd = nbitsd * 8;
     if (nbitsd > 0) { // first order spatial differencing g1 and gMin
-      sign = (int) reader.bits2UInt(1);
-      ival1 = (int) reader.bits2UInt(nbitsd - 1);
+      sign = (int) unpacker.bits2UInt(1);
+      ival1 = (int) unpacker.bits2UInt(nbitsd - 1);
       if (sign == 1) {
         ival1 = -ival1;
       }
       if (os == 2) { // second order spatial differencing h1, h2, hMin
-        sign = (int) reader.bits2UInt(1);
-        ival2 = (int) reader.bits2UInt(nbitsd - 1);
+        sign = (int) unpacker.bits2UInt(1);
+        ival2 = (int) unpacker.bits2UInt(nbitsd - 1);
         if (sign == 1) {
           ival2 = -ival2;
         }
       }
-      sign = (int) reader.bits2UInt(1);
-      minsd = (int) reader.bits2UInt(nbitsd - 1);
+      sign = (int) unpacker.bits2UInt(1);
+      minsd = (int) unpacker.bits2UInt(nbitsd - 1);
       if (sign == 1) {
         minsd = -minsd;
       }
@@ -533,10 +650,8 @@ public class Grib2DataReader {
     int[] X1 = new int[NG]; // initialized to zero
     int nb = gdrs.numberOfBits;
     if (nb != 0) {
-      reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        X1[i] = (int) reader.bits2UInt(nb);
-      }
+      unpacker.incrByte();
+      unpacker.unpack(nb, X1, 0, NG);
     }
 
     // [xx +1 ]-yy Get number of bits used to encode each group
@@ -544,10 +659,8 @@ public class Grib2DataReader {
     int[] NB = new int[NG]; // initialized to zero
     nb = gdrs.bitsGroupWidths;
     if (nb != 0) {
-      reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        NB[i] = (int) reader.bits2UInt(nb);
-      }
+      unpacker.incrByte();
+      unpacker.unpack(nb, NB, 0, NG);
     }
 
     int referenceGroupWidths = gdrs.referenceGroupWidths;
@@ -565,10 +678,8 @@ public class Grib2DataReader {
     int len_inc = gdrs.lengthIncrement;
 
     if (nb != 0) {
-      reader.incrByte();
-      for (int i = 0; i < NG; i++) {
-        L[i] = (int) reader.bits2UInt(nb);
-      }
+      unpacker.incrByte();
+      unpacker.unpack(nb, L, 0, NG);
     }
 
     int totalL = 0;
@@ -617,14 +728,21 @@ public class Grib2DataReader {
     // E = THE BINARY SCALE FACTOR
     // D = THE DECIMAL SCALE FACTOR
     int count = 0;
-    reader.incrByte();
+    int need = countPackedValues(); // stop after the last row of the window
+    unpacker.incrByte();
     int dataSize = 0;
     boolean[] dataBitMap = null;
+    int maxL = 0;
+    for (int i = 0; i < NG; i++) {
+      maxL = Math.max(maxL, L[i]);
+    }
+    int[] X2 = new int[Math.min(maxL, totalNPoints)];
     if (mvm == 0) {
-      for (int i = 0; i < NG; i++) {
+      for (int i = 0; i < NG && count < need; i++) {
         if (NB[i] != 0) {
+          unpacker.unpack(NB[i], X2, 0, L[i]);
           for (int j = 0; j < L[i]; j++) {
-            data[count++] = (int) reader.bits2UInt(NB[i]) + X1[i];
+            data[count++] = X2[j] + X1[i];
           }
         } else {
           for (int j = 0; j < L[i]; j++) {
@@ -637,12 +755,13 @@ public class Grib2DataReader {
       // don't add missing values into data but keep track of them in dataBitMap
       dataBitMap = new boolean[totalNPoints];
       dataSize = 0;
-      for (int i = 0; i < NG; i++) {
+      for (int i = 0; i < NG && count < need; i++) {
         if (NB[i] != 0) {
           int msng1 = bitsmv1[NB[i]];
           int msng2 = msng1 - 1;
+          unpacker.unpack(NB[i], X2, 0, L[i]);
           for (int j = 0; j < L[i]; j++) {
-            data[count] = (int) reader.bits2UInt(NB[i]);
+            data[count] = X2[j];
             if (data[count] == msng1 || mvm == 2 && data[count] == msng2) {
               dataBitMap[count] = false;
             } else {
@@ -682,7 +801,7 @@ public class Grib2DataReader {
       data[0] = ival1;
       int itemp;
       if (mvm == 0) { // no missing values
-        itemp = totalNPoints;
+        itemp = Math.min(totalNPoints, need);
       } else {
         itemp = dataSize;
       }
@@ -695,7 +814,7 @@ public class Grib2DataReader {
       data[1] = ival2;
       int itemp;
       if (mvm == 0) { // no missing values
-        itemp = totalNPoints;
+        itemp = Math.min(totalNPoints, need);
       } else {
         itemp = dataSize;
       }
@@ -717,7 +836,8 @@ public class Grib2DataReader {
     // D = THE DECIMAL SCALE FACTOR
 
     if (mvm == 0) { // no missing values
-      for (int i = 0; i < data.length; i++) {
+      int n = Math.min(data.length, need);
+      for (int i = 0; i < n; i++) {
         data[i] = (R + (data[i] * EE)) / DD;
       }
     } else if (mvm == 1 || mvm == 2) { // missing value == 1 || missing value == 2
@@ -737,7 +857,7 @@ public class Grib2DataReader {
     if (bitmap != null) {
       int idx = 0;
       float[] tmp = new float[totalNPoints];
-      for (int i = 0; i < totalNPoints; i++) {
+      for (int i = 0; i < endPoint; i++) {
         if (GribNumbers.testBitIsSet(bitmap[i / 8], i % 8)) {
           tmp[i] = data[idx++];
         } else {
@@ -769,10 +889,10 @@ public class Grib2DataReader {
     Grib2JpegDecoder g2j = null;
     // try {
     if (nb != 0) { // there's data to decode
-      g2j = new Grib2JpegDecoder(nb, false);
-      byte[] buf = new byte[dataLength - 5];
-      raf.readFully(buf);
-      g2j.decode(buf);
+      g2j = Grib2JpegDecoder.getThreadDecoder(nb);
+      if (window != null) // the rows may be reversed, so decode the whole of each row
+        g2j.setWindow(flipsRows() ? new Grib2DataWindow(window.yFirst, window.yLast, 0, nx - 1) : window);
+      decode40(raf, g2j);
       gdrs.hasSignedProblem = g2j.hasSignedProblem();
     }
 
@@ -792,8 +912,11 @@ public class Grib2DataReader {
         logger.debug("Number of points in the data record {} != {} expected from GDS", idata.length, dataNPoints);
         throw new IllegalStateException("Number of points in the data record {} != expected from GDS");
       }
+      if (window != null && g2j.getWidth() != nx) // then the window is not where we think it is
+        throw new IllegalStateException("JPEG2000 image width " + g2j.getWidth() + " != nx " + nx);
 
-      for (int i = 0; i < dataNPoints; i++) {
+      int end = Math.min(endPoint, dataNPoints);
+      for (int i = firstPoint; i < end; i++) {
         // Y * 10^D = R + (X1 + X2) * 2^E ; // regulation 92.9.4
         // Y = (R + ( 0 + X2) * EE)/DD ;
         result[i] = (R + idata[i] * EE) / DD;
@@ -841,11 +964,8 @@ public class Grib2DataReader {
     }
     int missing_value = (2 << nb - 1) - 1; // all ones - reserved for missing value
 
-    Grib2JpegDecoder g2j;
-    g2j = new Grib2JpegDecoder(nb, false);
-    byte[] buf = new byte[dataLength - 5];
-    raf.readFully(buf);
-    g2j.decode(buf);
+    Grib2JpegDecoder g2j = Grib2JpegDecoder.getThreadDecoder(nb);
+    decode40(raf, g2j);
     gdrs.hasSignedProblem = g2j.hasSignedProblem();
 
     int[] idata = g2j.getGdata();
@@ -878,6 +998,60 @@ public class Grib2DataReader {
 
   }
 
+  // read the codestream into the decoder's buffer, and decode it
+  private void decode40(RandomAccessFile raf, Grib2JpegDecoder g2j) throws IOException {
+    int length = dataLength - 5;
+    byte[] buf = g2j.getInputBuffer(length);
+    raf.readFully(buf, 0, length);
+    g2j.decode(buf, length);
+  }
+
+  /**
+   * Decode a JPEG2000 packed grid (template 40) at a lower resolution, for a quick look at it.
+   * Each level halves the number of rows and columns, rounding up, and makes decoding about four times faster.
+   * The values are in the order of the packed data, except that rows are reversed as the scan mode says.
+   *
+   * @param reduce number of resolution levels to drop, 0 for the full resolution.
+   * @return the values as an Array of (rows, columns), or null if the grid is not JPEG2000 packed,
+   *         or has a bitmap, so that the image is not the grid.
+   */
+  @Nullable
+  Array getReducedData(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs, int reduce)
+      throws IOException {
+    if (dataTemplate != 40 || bitmapSection.getBitmap(raf) != null || nx <= 0 || totalNPoints % nx != 0)
+      return null;
+    raf.seek(startPos + 5); // skip past first 5 bytes in data section, now ready to read
+
+    Grib2Drs.Type40 gdrs40 = (Grib2Drs.Type40) gdrs;
+    int nb = gdrs40.numberOfBits;
+    float DD = (float) java.lang.Math.pow((double) 10, (double) gdrs40.decimalScaleFactor);
+    float R = gdrs40.referenceValue;
+    float EE = (float) java.lang.Math.pow(2.0, (double) gdrs40.binaryScaleFactor);
+
+    if (nb == 0) { // no data to decode, set to reference value
+      int scale = 1 << Math.min(reduce, 30);
+      int w = (nx + scale - 1) / scale;
+      int h = (totalNPoints / nx + scale - 1) / scale;
+      float[] result = new float[w * h];
+      Arrays.fill(result, R / DD);
+      return Array.factory(DataType.FLOAT, new int[] {h, w}, result);
+    }
+
+    Grib2JpegDecoder g2j = Grib2JpegDecoder.getThreadDecoder(nb);
+    g2j.setReduce(reduce);
+    decode40(raf, g2j);
+    gdrs40.hasSignedProblem = g2j.hasSignedProblem();
+
+    int[] idata = g2j.getGdata();
+    int w = g2j.getWidth();
+    float[] result = new float[idata.length];
+    for (int i = 0; i < idata.length; i++) {
+      result[i] = (R + idata[i] * EE) / DD;
+    }
+    scanningModeCheck(result, scanMode, w);
+    return Array.factory(DataType.FLOAT, new int[] {g2j.getHeight(), w}, result);
+  }
+
   // Loosely based on code by earl.barker.ctr AT us.af.mil, but moved from
   // anceient version of Grib support.
   // Code taken from esupport ticket ZVT-415274
@@ -910,22 +1084,35 @@ public class Grib2DataReader {
 
     byte[] buf = new byte[dataLength - 5];
     raf.readFully(buf);
-    InputStream in = new ByteArrayInputStream(buf);
-    BufferedImage image = ImageIO.read(in);
+    int[] packed;
+    int pixelSize;
+    Grib2PngDecoder png = Grib2PngDecoder.of(buf);
+    if (png != null) {
+      packed = png.decode();
+      pixelSize = png.getBitsPerPixel();
+    } else { // interlaced or palette
+      InputStream in = new ByteArrayInputStream(buf);
+      BufferedImage image = ImageIO.read(in);
+      DataBuffer db = image.getRaster().getDataBuffer();
+      packed = new int[db.getSize()];
+      for (int i = 0; i < packed.length; i++) {
+        packed[i] = db.getElem(i);
+      }
+      pixelSize = image.getColorModel().getPixelSize();
+    }
 
-    if (nb != image.getColorModel().getPixelSize()) {
-      logger.debug("PNG pixel size {} disagrees with grib number of bits {}", image.getColorModel().getPixelSize(), nb);
+    if (nb != pixelSize) {
+      logger.debug("PNG pixel size {} disagrees with grib number of bits {}", pixelSize, nb);
     }
 
-    DataBuffer db = image.getRaster().getDataBuffer();
     if (bitmap == null) {
       for (int i = 0; i < dataNPoints; i++) {
-        data[i] = (R + db.getElem(i) * EE) / DD;
+        data[i] = (R + (packed[i] & 0xffffffffL) * EE) / DD;
       }
     } else {
       for (int bitPt = 0, dataPt = 0; bitPt < totalNPoints; bitPt++) {
         if (GribNumbers.testBitIsSet(bitmap[bitPt / 8], bitPt % 8)) {
-          data[bitPt] = (R + db.getElem(dataPt++) * EE) / DD;
+          data[bitPt] = (R + (packed[dataPt++] & 0xffffffffL) * EE) / DD;
         } else {
           data[bitPt] = staticMissingValue;
         }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.grib2;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import ucar.ma2.RangeIterator;
+
+/**
+ * The part of a GRIB2 grid that is wanted, as the bounding box of the wanted rows (y) and columns (x), inclusive.
+ * Grib2DataReader uses it to unpack only as much of the data as it needs:
+ * simple packing seeks straight to the wanted points, complex packing stops after the last wanted row.
+ * The other points of the returned data are not set.
+ */
+@Immutable
+public class Grib2DataWindow {
+  final int yFirst, yLast, xFirst, xLast;
+
+  public Grib2DataWindow(int yFirst, int yLast, int xFirst, int xLast) {
+    if (yFirst < 0 || xFirst < 0 || yLast < yFirst || xLast < xFirst)
+      throw new IllegalArgumentException(
+          "Illegal window y=" + yFirst + ":" + yLast + " x=" + xFirst + ":" + xLast);
+    this.yFirst = yFirst;
+    this.yLast = yLast;
+    this.xFirst = xFirst;
+    this.xLast = xLast;
+  }
+
+  /** The bounding box of the ranges, or null if either is empty. */
+  @Nullable
+  public static Grib2DataWindow of(RangeIterator yRange, RangeIterator xRange) {
+    if (yRange.length() == 0 || xRange.length() == 0)
+      return null;
+    int yFirst = Integer.MAX_VALUE, yLast = Integer.MIN_VALUE;
+    for (int y : yRange) {
+      yFirst = Math.min(yFirst, y);
+      yLast = Math.max(yLast, y);
+    }
+    int xFirst = Integer.MAX_VALUE, xLast = Integer.MIN_VALUE;
+    for (int x : xRange) {
+      xFirst = Math.min(xFirst, x);
+      xLast = Math.max(xLast, x);
+    }
+    return new Grib2DataWindow(yFirst, yLast, xFirst, xLast);
+  }
+
+  /** Is this a part of, but not all of, a grid with ny rows of nx points? */
+  boolean isPartOf(int nx, int ny) {
+    if (yLast >= ny || xLast >= nx)
+      return false;
+    return yFirst > 0 || xFirst > 0 || yLast < ny - 1 || xLast < nx - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "Grib2DataWindow{y=" + yFirst + ":" + yLast + ", x=" + xFirst + ":" + xLast + '}';
+  }
+}
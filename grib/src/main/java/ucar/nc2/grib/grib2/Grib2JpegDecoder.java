@@ -5,6 +5,8 @@
 package ucar.nc2.grib.grib2;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import javax.annotation.Nullable;
 import ucar.jpeg.jj2000.j2k.quantization.dequantizer.*;
 import ucar.jpeg.jj2000.j2k.image.invcomptransf.*;
 import ucar.jpeg.jj2000.j2k.fileformat.reader.*;
@@ -29,6 +31,10 @@ import java.io.ByteArrayInputStream;
 
 /**
  * Adaptation of jj2000.j2k.decoder.Decoder, in order to read input from memory.
+ * <p/>
+ * Besides the whole image, it can decode just the tiles that overlap a window (see setWindow), or decode at a lower
+ * resolution level (see setReduce), which only does the inverse wavelet transform of the lower resolution subbands.
+ * Decoders are not thread-safe; use getThreadDecoder() to reuse one per thread.
  *
  * @author robb kambic
  * @author caron rewritten Aug 2014
@@ -36,8 +42,38 @@ import java.io.ByteArrayInputStream;
 public class Grib2JpegDecoder {
   private static final Logger logger = LoggerFactory.getLogger(Grib2JpegDecoder.class);
 
+  // Setting up a decoder's parameters is expensive, so each thread keeps one, with its input buffer
+  private static final ThreadLocal<Grib2JpegDecoder> threadDecoder = new ThreadLocal<>();
+  // larger input buffers are used for one decode only
+  static final int MAX_RETAINED_INPUT = 4 * 1024 * 1024;
+
+  /**
+   * The decoder of the calling thread, set up to decode all of an image of nbits wide values at full resolution.
+   * It must not be used after the thread's next call to getThreadDecoder().
+   */
+  static Grib2JpegDecoder getThreadDecoder(int nbits) {
+    Grib2JpegDecoder decoder = threadDecoder.get();
+    if (decoder == null) {
+      decoder = new Grib2JpegDecoder(nbits, false);
+      threadDecoder.set(decoder);
+    }
+    decoder.setRate(nbits);
+    decoder.setWindow(null);
+    decoder.setReduce(0);
+    return decoder;
+  }
+
   private boolean debug;
-  private final int rate;
+  private int rate;
+
+  // decode only the tiles that overlap the window, in full resolution image coordinates; all of them if null
+  private Grib2DataWindow window;
+  // the number of resolution levels to drop
+  private int reduce;
+  // size of the decoded image, at the decoded resolution
+  private int width, height;
+  // reused to read the codestream into, up to MAX_RETAINED_INPUT bytes
+  private byte[] inputBuffer = new byte[0];
 
   /**
    * Return the packBytes ie number bytes / number 1,2 or 4
@@ -122,6 +158,56 @@ public class Grib2JpegDecoder {
     return hasSignedProblem;
   }
 
+  /** Decode values that are nbits wide. */
+  void setRate(int nbits) {
+    this.rate = nbits;
+    pl.put("rate", Integer.toString(nbits));
+  }
+
+  /**
+   * Decode only the tiles of the image that overlap the window, in full resolution image coordinates.
+   * The points of the other tiles are 0. GRIB2 encoders usually write a single tile, which is then decoded anyway.
+   *
+   * @param window rows and columns of the image, or null for all of it.
+   */
+  void setWindow(@Nullable Grib2DataWindow window) {
+    this.window = window;
+  }
+
+  /**
+   * Decode at a lower resolution: each level halves the width and height of the image, rounding up.
+   * If the codestream has fewer levels, the lowest resolution it has is decoded.
+   *
+   * @param levels number of resolution levels to drop, 0 for the full resolution.
+   */
+  void setReduce(int levels) {
+    Preconditions.checkArgument(levels >= 0, "levels must be >= 0");
+    this.reduce = levels;
+  }
+
+  /**
+   * A buffer of at least size bytes to read the codestream into.
+   * It is reused by this decoder unless it is larger than MAX_RETAINED_INPUT, so that a thread's decoder doesn't
+   * hold on to the largest codestream it has ever seen.
+   */
+  byte[] getInputBuffer(int size) {
+    if (size > MAX_RETAINED_INPUT)
+      return new byte[size];
+    if (inputBuffer.length < size)
+      inputBuffer = new byte[size];
+    return inputBuffer;
+  }
+
+  /** Width of the decoded image, at the decoded resolution. */
+  public int getWidth() {
+    return width;
+  }
+
+  /** Height of the decoded image, at the decoded resolution. */
+  public int getHeight() {
+    return height;
+  }
+
   /**
    * Runs the decoder. After completion the exit code is set, a non-zero
    * value indicates that an error occurred.
@@ -129,6 +215,15 @@ public class Grib2JpegDecoder {
    * @see #getExitCode
    */
   public void decode(byte[] buf) throws IOException {
+    decode(buf, buf.length);
+  }
+
+  /**
+   * Decode the codestream in the first length bytes of buf.
+   *
+   * @see #decode(byte[])
+   */
+  public void decode(byte[] buf, int length) throws IOException {
     // int dataSize = buf.length;
     boolean verbose = false;
     int res; // resolution level to reconstruct
@@ -149,11 +244,19 @@ public class Grib2JpegDecoder {
     int i;
     int[] depth;
 
+    // nothing is kept from the last image
+    exitCode = 0;
+    csMap = null;
+    data = null;
+    hasSignedProblem = false;
+    width = 0;
+    height = 0;
+
     try {
 
       // create a ByteArrayInputStream from byte array for ISRandomAccessIO
-      ByteArrayInputStream bais = new ByteArrayInputStream(buf);
-      RandomAccessIO in = new ISRandomAccessIO(bais, buf.length, 1, buf.length);
+      ByteArrayInputStream bais = new ByteArrayInputStream(buf, 0, length);
+      RandomAccessIO in = new ISRandomAccessIO(bais, length, 1, length);
 
       // **** File Format ****
       // If the codestream is wrapped in the jp2 fileformat, Read the
@@ -191,6 +294,12 @@ public class Grib2JpegDecoder {
         depth[i] = hd.getOriginalBitDepth(i);
       }
 
+      // the resolution level to reconstruct, read by the bit stream reader. The highest level is the full image.
+      if (reduce > 0)
+        pl.put("res", Integer.toString(Math.max(0, decSpec.dls.getMin() - reduce)));
+      else
+        pl.remove("res");
+
       // **** Bit stream reader ****
       BitstreamReaderAgent breader = BitstreamReaderAgent.createInstance(in, hd, pl, decSpec, false, hi);
 
@@ -290,9 +399,11 @@ public class Grib2JpegDecoder {
         }
 
         try {
-          imwriter[i].writeAll(); // write data to array
           ImgWriterArray iwa = (ImgWriterArray) imwriter[i];
+          iwa.writeWindow(window, reduce); // write data to array
           data = iwa.getGdata();
+          width = iwa.getWidth();
+          height = iwa.getHeight();
           // unSigned data processing here
           if (!isSigned) {
             // float unSignIt = (float) java.lang.Math.pow((double) 2.0, fnb - 1); // LOOK WTF ?
@@ -472,6 +583,11 @@ public class Grib2JpegDecoder {
      */
     private DataBlkInt db = new DataBlkInt();
 
+    /**
+     * The decoded image, w by h, when not just the data block of a single tile
+     */
+    private int[] gdata;
+
     // The number of fractional bits in the source data */
     // private int fb;
 
@@ -507,8 +623,8 @@ public class Grib2JpegDecoder {
       this.c = c;
       this.isSigned = isSigned;
       src = imgSrc;
-      w = src.getImgWidth();
-      h = src.getImgHeight();
+      w = src.getCompImgWidth(c); // at the decoded resolution
+      h = src.getCompImgHeight(c);
 
       bitDepth = src.getNomRangeBits(this.c);
       if ((bitDepth <= 0) || (bitDepth > 31)) {
@@ -578,17 +694,56 @@ public class Grib2JpegDecoder {
     } // end int ulx, int uly, int w, int h
 
     public void writeAll() {
+      writeWindow(null, 0);
+    }
+
+    /**
+     * Decodes the tiles that overlap the window into a w by h array. The points of the other tiles are 0.
+     *
+     * @param window in full resolution image coordinates, or null for the whole image.
+     * @param reduce the number of resolution levels dropped, to scale the window to the decoded resolution.
+     */
+    void writeWindow(@Nullable Grib2DataWindow window, int reduce) {
+      int x0 = 0, y0 = 0, x1 = w, y1 = h; // [x0, x1) x [y0, y1) at the decoded resolution
+      if (window != null) {
+        x0 = window.xFirst >> reduce;
+        y0 = window.yFirst >> reduce;
+        x1 = (window.xLast >> reduce) + 1;
+        y1 = (window.yLast >> reduce) + 1;
+      }
+
       // Find the list of tile to decode.
       Coord nT = src.getNumTiles(null);
+      src.setTile(0, 0);
+      int imgX = src.getCompULX(c); // the first tile starts at the upper left corner of the image
+      int imgY = src.getCompULY(c);
+      gdata = null;
 
       // Loop on vertical tiles
       for (int y = 0; y < nT.y; y++) {
         // Loop on horizontal tiles
         for (int x = 0; x < nT.x; x++) {
           src.setTile(x, y);
-          write(0, 0, src.getImgWidth(), src.getImgHeight());
+          int tIdx = src.getTileIdx();
+          int tileX = src.getCompULX(c) - imgX;
+          int tileY = src.getCompULY(c) - imgY;
+          int tw = src.getTileCompWidth(tIdx, c);
+          int th = src.getTileCompHeight(tIdx, c);
+          if (tileX >= x1 || tileX + tw <= x0 || tileY >= y1 || tileY + th <= y0)
+            continue; // the entropy decoding and inverse wavelet transform of this tile are skipped
+
+          write(0, 0, tw, th);
+          if (nT.x * nT.y == 1 && db.offset == 0 && db.scanw == w && tw == w && th == h)
+            return; // the usual single tile, no need to copy
+          if (gdata == null)
+            gdata = new int[w * h];
+          for (int row = 0; row < th; row++) {
+            System.arraycopy(db.data, db.offset + row * db.scanw, gdata, (tileY + row) * w + tileX, tw);
+          }
         } // End loop on horizontal tiles
       } // End loop on vertical tiles
+      if (gdata == null)
+        gdata = new int[w * h];
     }
 
     /**
@@ -628,7 +783,15 @@ public class Grib2JpegDecoder {
      * @return a int[]
      */
     int[] getGdata() {
-      return db.data;
+      return (gdata != null) ? gdata : db.data;
+    }
+
+    int getWidth() {
+      return w;
+    }
+
+    int getHeight() {
+      return h;
     }
 
     public void flush() {}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.grib2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+import ucar.nc2.iosp.BitUnpacker;
+
+/**
+ * Decodes the PNG image of data template 7.41 into its packed values.
+ * After inflating and unfiltering, each row of a PNG image is its pixels packed into bitsPerPixel bits, so the values
+ * are unpacked with a BitUnpacker, whatever the bit depth and number of channels.
+ * Interlaced and palette images are not handled, use ImageIO for those.
+ *
+ * @see "http://www.libpng.org/pub/png/spec/1.2/PNG-Contents.html"
+ */
+class Grib2PngDecoder {
+  private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+  private static final int IHDR = 0x49484452;
+  private static final int IDAT = 0x49444154;
+  private static final int IEND = 0x49454e44;
+
+  private final int width;
+  private final int height;
+  private final int bitsPerPixel;
+  private final byte[] compressed;
+
+  /** Read the header of a PNG image, or return null if it is not one that this can decode. */
+  @Nullable
+  static Grib2PngDecoder of(byte[] png) {
+    ByteBuffer bb = ByteBuffer.wrap(png);
+    if (png.length < SIGNATURE.length + 25)
+      return null;
+    for (byte b : SIGNATURE) {
+      if (bb.get() != b)
+        return null;
+    }
+    bb.getInt(); // IHDR length
+    if (bb.getInt() != IHDR)
+      return null;
+    int width = bb.getInt();
+    int height = bb.getInt();
+    int bitDepth = bb.get();
+    int colorType = bb.get();
+    bb.get(); // compression
+    bb.get(); // filter
+    int interlace = bb.get();
+    bb.getInt(); // crc
+    if (interlace != 0 || width <= 0 || height <= 0)
+      return null;
+
+    int channels;
+    switch (colorType) {
+      case 0: // gray
+        channels = 1;
+        break;
+      case 2: // rgb
+        channels = 3;
+        break;
+      case 4: // gray + alpha
+        channels = 2;
+        break;
+      case 6: // rgb + alpha
+        channels = 4;
+        break;
+      default: // palette
+        return null;
+    }
+
+    // concatenate the IDAT chunks
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(png.length);
+    while (bb.remaining() >= 12) {
+      int length = bb.getInt();
+      int type = bb.getInt();
+      if (length < 0 || length > bb.remaining() - 4)
+        return null;
+      if (type == IDAT)
+        compressed.write(png, bb.position(), length);
+      else if (type == IEND)
+        break;
+      bb.position(bb.position() + length + 4); // skip data and crc
+    }
+
+    return new Grib2PngDecoder(width, height, bitDepth * channels, compressed.toByteArray());
+  }
+
+  private Grib2PngDecoder(int width, int height, int bitsPerPixel, byte[] compressed) {
+    this.width = width;
+    this.height = height;
+    this.bitsPerPixel = bitsPerPixel;
+    this.compressed = compressed;
+  }
+
+  int getBitsPerPixel() {
+    return bitsPerPixel;
+  }
+
+  /** Decode the image, and return its pixels in row order. */
+  int[] decode() throws IOException {
+    int rowBytes = Math.toIntExact(((long) width * bitsPerPixel + 7) / 8);
+    int stride = rowBytes + 1; // each row starts with its filter type
+    byte[] rows = new byte[Math.multiplyExact(height, stride)];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed);
+      int n = 0;
+      while (n < rows.length) {
+        int count = inflater.inflate(rows, n, rows.length - n);
+        if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+          throw new IOException("PNG image data ends after " + n + " of " + rows.length + " bytes");
+        n += count;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    } finally {
+      inflater.end();
+    }
+
+    int bpp = Math.max(1, bitsPerPixel / 8); // distance in bytes to the corresponding byte of the previous pixel
+    for (int row = 0; row < height; row++) {
+      unfilter(rows, row * stride, stride, bpp);
+    }
+
+    int[] result = new int[Math.multiplyExact(width, height)];
+    BitUnpacker unpacker = new BitUnpacker(rows);
+    for (int row = 0; row < height; row++) {
+      unpacker.setBitOffset(8L * (row * stride + 1));
+      unpacker.unpack(bitsPerPixel, result, row * width, width);
+    }
+    return result;
+  }
+
+  // undo the filter of the row at start, in place, using the previous row already unfiltered
+  private static void unfilter(byte[] rows, int start, int stride, int bpp) throws IOException {
+    int filter = rows[start];
+    int first = start + 1;
+    int end = start + stride;
+    int prev = start - stride; // the previous row, at the same offset
+    switch (filter) {
+      case 0: // none
+        break;
+      case 1: // sub
+        for (int i = first + bpp; i < end; i++)
+          rows[i] += rows[i - bpp];
+        break;
+      case 2: // up
+        if (prev >= 0) {
+          for (int i = first; i < end; i++)
+            rows[i] += rows[i - stride];
+        }
+        break;
+      case 3: // average
+        for (int i = first; i < end; i++) {
+          int left = (i - bpp >= first) ? rows[i - bpp] & 0xff : 0;
+          int up = (prev >= 0) ? rows[i - stride] & 0xff : 0;
+          rows[i] += (left + up) >>> 1;
+        }
+        break;
+      case 4: // paeth
+        for (int i = first; i < end; i++) {
+          int left = (i - bpp >= first) ? rows[i - bpp] & 0xff : 0;
+          int up = (prev >= 0) ? rows[i - stride] & 0xff : 0;
+          int upLeft = (i - bpp >= first && prev >= 0) ? rows[i - stride - bpp] & 0xff : 0;
+          rows[i] += paeth(left, up, upLeft);
+        }
+        break;
+      default:
+        throw new IOException("Unknown PNG filter type " + filter);
+    }
+  }
+
+  private static int paeth(int a, int b, int c) {
+    int p = a + b - c;
+    int pa = Math.abs(p - a);
+    int pb = Math.abs(p - b);
+    int pc = Math.abs(p - c);
+    if (pa <= pb && pa <= pc)
+      return a;
+    return (pb <= pc) ? b : c;
+  }
+}
@@ -7,6 +7,7 @@ package ucar.nc2.grib.grib2;
 
 import com.google.common.base.MoreObjects;
 import javax.annotation.Nullable;
+import ucar.ma2.Array;
 import ucar.nc2.grib.GribData;
 import ucar.nc2.grib.QuasiRegular;
 import ucar.nc2.time.CalendarDate;
@@ -215,6 +216,19 @@ public class Grib2Record {
 
   // isolate dependencies here - in case we have a "minimal I/O" mode where not all fields are available
   public float[] readData(RandomAccessFile raf) throws IOException {
+    return readData(raf, (Grib2DataWindow) null);
+  }
+
+  /**
+   * Read the data, unpacking only as much as needed for the points in the window.
+   * The points outside the window may not be set. The window is ignored for thin grids.
+   *
+   * @param raf from this RandomAccessFile
+   * @param window the part of the grid that is wanted, or null for all of it
+   * @return data as float[] array, the same size as when reading all of it
+   * @throws IOException on read error
+   */
+  public float[] readData(RandomAccessFile raf, @Nullable Grib2DataWindow window) throws IOException {
     Grib2Gds gds = getGDS();
 
     Grib2DataReader reader = new Grib2DataReader(drss.getDataTemplate(), gdss.getNumberPoints(), drss.getDataPoints(),
@@ -222,7 +236,7 @@ public class Grib2Record {
 
     Grib2Drs gdrs = drss.getDrs(raf);
 
-    float[] data = reader.getData(raf, bms, gdrs);
+    float[] data = reader.getData(raf, bms, gdrs, gds.isThin() ? null : window);
 
     if (gds.isThin())
       data = QuasiRegular.convertQuasiGrid(data, gds.getNptsInLine(), gds.getNxRaw(), gds.getNyRaw(),
@@ -232,6 +246,30 @@ public class Grib2Record {
     return data;
   }
 
+  /**
+   * Read a JPEG2000 packed grid (data template 40) at a lower resolution, for a preview.
+   * Only the lower resolution levels of the image are decoded, so this is much faster than reading all of it.
+   *
+   * @param raf from this RandomAccessFile
+   * @param reduce number of resolution levels to drop, each halving the number of rows and columns, rounding up
+   * @return the data as an Array of (rows, columns), or null if the grid is not JPEG2000 packed, or has a bitmap,
+   *         or is thin.
+   * @throws IOException on read error
+   */
+  @Nullable
+  public Array readReducedData(RandomAccessFile raf, int reduce) throws IOException {
+    Grib2Gds gds = getGDS();
+    if (gds.isThin())
+      return null;
+
+    Grib2DataReader reader = new Grib2DataReader(drss.getDataTemplate(), gdss.getNumberPoints(), drss.getDataPoints(),
+        getScanMode(), gds.getNxRaw(), dataSection.getStartingPosition(), dataSection.getMsgLength());
+
+    Grib2Drs gdrs = drss.getDrs(raf);
+
+    return reader.getReducedData(raf, bms, gdrs, reduce);
+  }
+
   // debugging - do not use
   @Nullable
   public int[] readRawData(RandomAccessFile raf) throws IOException {
@@ -305,6 +343,16 @@ public class Grib2Record {
    */
   public static float[] readData(RandomAccessFile raf, long drsPos, long bmsPos, int gdsNumberPoints, int scanMode,
       int nx, int ny, int[] nptsInLine) throws IOException {
+    return readData(raf, drsPos, bmsPos, gdsNumberPoints, scanMode, nx, ny, nptsInLine, null);
+  }
+
+  /**
+   * Same as readData(raf, drsPos, bmsPos, gdsNumberPoints, scanMode, nx, ny, nptsInLine), but only unpacking as much
+   * as needed for the points in the window. The points outside the window may not be set.
+   * The window is ignored for thin grids (nptsInLine != null).
+   */
+  public static float[] readData(RandomAccessFile raf, long drsPos, long bmsPos, int gdsNumberPoints, int scanMode,
+      int nx, int ny, int[] nptsInLine, @Nullable Grib2DataWindow window) throws IOException {
     raf.seek(drsPos);
     Grib2SectionDataRepresentation drs = new Grib2SectionDataRepresentation(raf);
     Grib2SectionBitMap bms = new Grib2SectionBitMap(raf);
@@ -318,7 +366,7 @@ public class Grib2Record {
 
     Grib2Drs gdrs = drs.getDrs(raf);
 
-    float[] data = reader.getData(raf, bms, gdrs);
+    float[] data = reader.getData(raf, bms, gdrs, (nptsInLine == null) ? window : null);
 
     if (nptsInLine != null)
       data = QuasiRegular.convertQuasiGrid(data, nptsInLine, nx, ny, GribData.getInterpolationMethod());
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import thredds.filesystem.MFileOS;
+import thredds.inventory.MFile;
+
+/** Test {@link GribCollectionBuilder#indexFiles} with and without an executor. */
+public class TestGribCollectionBuilderIndexFiles {
+  private static final int NFILES = 50;
+
+  private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+  @After
+  public void shutdown() {
+    GribCollectionBuilder.setIndexExecutor(null, GribCollectionBuilder.DEFAULT_FILES_IN_FLIGHT);
+    pool.shutdownNow();
+  }
+
+  private static List<MFile> makeFiles() {
+    List<MFile> files = new ArrayList<>();
+    for (int i = 0; i < NFILES; i++) {
+      files.add(new MFileOS("file" + i + ".grib2"));
+    }
+    return files;
+  }
+
+  // the "records" of a file are its name, or null for every 7th file, as if its index failed
+  private static String index(MFile mfile, AtomicInteger inFlight, AtomicInteger maxInFlight) {
+    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(new Random(mfile.getName().hashCode()).nextInt(5)); // finish out of order
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    String name = mfile.getName();
+    int fileno = Integer.parseInt(name.substring("file".length(), name.indexOf('.')));
+    return (fileno % 7 == 0) ? null : mfile.getName();
+  }
+
+  private static List<String> run() throws IOException {
+    List<String> result = new ArrayList<>();
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    GribCollectionBuilder.indexFiles(makeFiles().iterator(), mfile -> index(mfile, inFlight, maxInFlight),
+        (mfile, records) -> {
+          inFlight.decrementAndGet();
+          result.add(mfile.getName() + "=" + records);
+        });
+    return result;
+  }
+
+  @Test
+  public void testSameOrderAsSerial() throws IOException {
+    List<String> serial = run();
+    assertThat(serial).hasSize(NFILES);
+
+    GribCollectionBuilder.setIndexExecutor(pool, 8);
+    assertThat(run()).containsExactlyElementsIn(serial).inOrder();
+  }
+
+  @Test
+  public void testMaxFilesInFlight() throws IOException {
+    GribCollectionBuilder.setIndexExecutor(pool, 3);
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    GribCollectionBuilder.indexFiles(makeFiles().iterator(), mfile -> index(mfile, inFlight, maxInFlight),
+        (mfile, records) -> inFlight.decrementAndGet());
+    assertThat(maxInFlight.get()).isAtMost(3);
+  }
+
+  @Test
+  public void testIndexerFailure() {
+    GribCollectionBuilder.setIndexExecutor(pool, 8);
+    List<String> consumed = new ArrayList<>();
+    try {
+      GribCollectionBuilder.indexFiles(makeFiles().iterator(), mfile -> {
+        if (mfile.getName().equals("file20.grib2"))
+          throw new IOException("bad file");
+        return mfile.getName();
+      }, (mfile, records) -> consumed.add(records));
+      fail();
+    } catch (IOException e) {
+      assertThat(e.getMessage()).isEqualTo("bad file");
+    }
+    assertThat(consumed).hasSize(20);
+  }
+
+  @Test
+  public void testRejectingExecutor() throws IOException {
+    List<String> serial = run();
+    GribCollectionBuilder.setIndexExecutor(task -> {
+      throw new RejectedExecutionException("shut down");
+    }, 8);
+    assertThat(run()).containsExactlyElementsIn(serial).inOrder();
+  }
+
+  // the caller has the only thread of the pool, so it must index the files itself
+  @Test
+  public void testFromPoolThread() throws Exception {
+    List<String> serial = run();
+    ExecutorService single = Executors.newSingleThreadExecutor();
+    try {
+      GribCollectionBuilder.setIndexExecutor(single, 8);
+      Future<List<String>> parallel = single.submit(TestGribCollectionBuilderIndexFiles::run);
+      assertThat(parallel.get(30, TimeUnit.SECONDS)).containsExactlyElementsIn(serial).inOrder();
+    } finally {
+      single.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import ucar.nc2.grib.grib2.Grib2DataReader;
+import ucar.nc2.grib.grib2.Grib2Gds;
+import ucar.nc2.grib.grib2.Grib2Record;
+import ucar.nc2.grib.grib2.Grib2RecordScanner;
+import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+
+/** Test {@link GribParallelDecoder} with fake records. */
+public class TestGribParallelDecoder {
+  private static final int NRECORDS = 100;
+  private static final int NVALUES = 1000;
+  private static final int MESSAGE_LEN = 8 + 4 * NVALUES;
+
+  private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+  @After
+  public void shutdown() {
+    pool.shutdownNow();
+    Grib2DataReader.tearDown();
+  }
+
+  // a fake "message": its length, its record number, then NVALUES floats
+  private static byte[] makeFile() {
+    ByteBuffer bb = ByteBuffer.allocate(NRECORDS * MESSAGE_LEN);
+    for (int rec = 0; rec < NRECORDS; rec++) {
+      bb.putInt(MESSAGE_LEN);
+      bb.putInt(rec);
+      for (int i = 0; i < NVALUES; i++) {
+        bb.putFloat(rec * NVALUES + i);
+      }
+    }
+    return bb.array();
+  }
+
+  private static class FakeReader implements GribParallelDecoder.RecordReader {
+    int failOnRecord = -1;
+
+    @Override
+    public long readMessageLength(RandomAccessFile raf, long startPos) throws IOException {
+      raf.seek(startPos);
+      return raf.readInt();
+    }
+
+    @Override
+    public float[] readData(RandomAccessFile raf, long startPos, GribReaderRecord dr) throws IOException {
+      raf.seek(startPos + 4);
+      int rec = raf.readInt();
+      if (rec == failOnRecord) {
+        throw new IOException("bad record " + rec);
+      }
+      float[] result = new float[NVALUES];
+      raf.readFloat(result, 0, NVALUES);
+      return result;
+    }
+  }
+
+  private static List<GribReaderRecord> makeRecords() {
+    List<GribReaderRecord> records = new ArrayList<>();
+    for (int rec = 0; rec < NRECORDS; rec++) {
+      // result is in the reverse order of the file
+      GribCollectionImmutable.Record record = new GribCollectionImmutable.Record(0, rec * MESSAGE_LEN, 0, 0);
+      records.add(new GribReaderRecord(NRECORDS - 1 - rec, record, null));
+    }
+    return records;
+  }
+
+  private float[] read(GribParallelDecoder.RecordReader reader, Executor executor) throws IOException {
+    float[] result = new float[NRECORDS * NVALUES];
+    GribParallelDecoder.DataSink sink =
+        (data, resultIndex, nx) -> System.arraycopy(data, 0, result, resultIndex * NVALUES, NVALUES);
+    GribParallelDecoder decoder = new GribParallelDecoder(reader, sink, executor, 3);
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("fake", makeFile())) {
+      raf.order(RandomAccessFile.BIG_ENDIAN);
+      for (GribReaderRecord dr : makeRecords()) {
+        decoder.add(raf, dr, NVALUES);
+      }
+      decoder.finish();
+    } finally {
+      decoder.cancel();
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameAsSerial() throws IOException {
+    float[] serial = read(new FakeReader(), null);
+    float[] parallel = read(new FakeReader(), pool);
+    assertThat(parallel).isEqualTo(serial);
+    assertThat(serial[0]).isEqualTo((float) ((NRECORDS - 1) * NVALUES));
+    assertThat(serial[serial.length - 1]).isEqualTo((float) (NVALUES - 1));
+  }
+
+  @Test
+  public void testFailure() {
+    FakeReader reader = new FakeReader();
+    reader.failOnRecord = 42;
+    try {
+      read(reader, pool);
+      fail();
+    } catch (IOException e) {
+      assertThat(e.getMessage()).isEqualTo("bad record 42");
+    }
+  }
+
+  @Test
+  public void testRejectingExecutor() throws IOException {
+    float[] serial = read(new FakeReader(), null);
+    Executor rejecting = task -> {
+      throw new RejectedExecutionException("shut down");
+    };
+    assertThat(read(new FakeReader(), rejecting)).isEqualTo(serial);
+  }
+
+  // the caller has the only thread of the pool, so it must unpack the records itself
+  @Test
+  public void testFromPoolThread() throws Exception {
+    float[] serial = read(new FakeReader(), null);
+    ExecutorService single = Executors.newSingleThreadExecutor();
+    try {
+      Future<float[]> parallel = single.submit(() -> read(new FakeReader(), single));
+      assertThat(parallel.get(30, TimeUnit.SECONDS)).isEqualTo(serial);
+    } finally {
+      single.shutdownNow();
+    }
+  }
+
+  // read all the records of a real GRIB2 file, as GribDataReader does, and return the data of each record
+  private static float[][] readGrib2(String filename, ExecutorService executor) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+      List<Grib2Record> grs = new ArrayList<>();
+      List<GribReaderRecord> records = new ArrayList<>();
+      Grib2RecordScanner scanner = new Grib2RecordScanner(raf);
+      while (scanner.hasNext()) {
+        Grib2Record gr = scanner.next();
+        long pos = gr.getIs().getStartPos();
+        int drsOffset = (int) (gr.getDataRepresentationSection().getStartingPosition() - pos);
+        GribCollectionImmutable.Record record = new GribCollectionImmutable.Record(0, pos, 0, drsOffset);
+        records.add(new GribReaderRecord(grs.size(), record, null));
+        grs.add(gr);
+      }
+
+      GribParallelDecoder.RecordReader reader = new GribParallelDecoder.RecordReader() {
+        @Override
+        public long readMessageLength(RandomAccessFile raf, long startPos) throws IOException {
+          raf.seek(startPos);
+          return new ucar.nc2.grib.grib2.Grib2SectionIndicator(raf).getMessageLength();
+        }
+
+        @Override
+        public float[] readData(RandomAccessFile raf, long startPos, GribReaderRecord dr) throws IOException {
+          Grib2Record gr = grs.get(dr.resultIndex);
+          Grib2Gds gds = gr.getGDS();
+          return Grib2Record.readData(raf, startPos + dr.record.drsOffset, 0, gr.getGDSsection().getNumberPoints(),
+              gr.getScanMode(), gds.getNxRaw(), gds.getNyRaw(), gds.getNptsInLine());
+        }
+      };
+
+      float[][] result = new float[records.size()][];
+      GribParallelDecoder decoder =
+          new GribParallelDecoder(reader, (data, resultIndex, nx) -> result[resultIndex] = data, executor, 3);
+      try {
+        for (GribReaderRecord dr : records) {
+          decoder.add(raf, dr, 0);
+        }
+        decoder.finish();
+      } finally {
+        decoder.cancel();
+      }
+      return result;
+    }
+  }
+
+  // the records all have the same layout, so their data sections are at the same offset in each message
+  @Test
+  public void testRealGrib2File() throws IOException {
+    String filename = "../grib/src/test/data/berkes.grib2";
+    float[][] serial = readGrib2(filename, null);
+    assertThat(serial.length).isGreaterThan(1);
+
+    Grib2DataReader.tearDown();
+    float[][] parallel = readGrib2(filename, pool);
+    float[][] serialAfter = readGrib2(filename, null); // the parallel read did not change what is cached
+    for (int i = 0; i < serial.length; i++) {
+      assertThat(parallel[i]).isEqualTo(serial[i]);
+      assertThat(serialAfter[i]).isEqualTo(serial[i]);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import ucar.nc2.grib.coord.SparseArray;
+
+/** Test {@link RecordTable} against a List of Records. */
+public class TestRecordTable {
+
+  @Test
+  public void testTypicalCollection() {
+    // a few files, records in file order, small section offsets
+    Random random = new Random(1);
+    List<GribCollectionImmutable.Record> want = new ArrayList<>();
+    long pos = 0;
+    for (int i = 0; i < 10000; i++) {
+      if (i % 1000 == 0)
+        pos = 0;
+      want.add(new GribCollectionImmutable.Record(i / 1000, pos, 100 + random.nextInt(100), 50 + random.nextInt(50)));
+      pos += 10000 + random.nextInt(100000);
+    }
+    RecordTable table = check(want);
+    assertThat(table.getHeapSize()).isLessThan(8L * want.size());
+  }
+
+  @Test
+  public void testWideValues() {
+    // positions past 4 GB, offsets past 16 bits, filenos past a byte, unsorted
+    Random random = new Random(2);
+    List<GribCollectionImmutable.Record> want = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      long pos = (1L << 32) + random.nextInt(Integer.MAX_VALUE);
+      want.add(new GribCollectionImmutable.Record(random.nextInt(1000), pos, random.nextInt(100000), 0));
+    }
+    check(want);
+  }
+
+  @Test
+  public void testHugeSpan() {
+    // offsets within the first blocks dont fit in 32 bits, then need all 32 bits, then are small
+    Random random = new Random(3);
+    List<GribCollectionImmutable.Record> want = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      long pos;
+      if (i < 128)
+        pos = (i % 2 == 0) ? random.nextInt(1000) : (1L << 40) + random.nextInt(1000);
+      else if (i < 192)
+        pos = (i % 2 == 0) ? random.nextInt(1000) : (3L << 30) + random.nextInt(1000);
+      else
+        pos = 1000L * i;
+      want.add(new GribCollectionImmutable.Record(0, pos, 0, 0));
+    }
+    check(want);
+  }
+
+  @Test
+  public void testEmpty() {
+    RecordTable table = RecordTable.builder(0).build();
+    assertThat(table).isEmpty();
+  }
+
+  @Test
+  public void testSparseArray() {
+    RecordTable.Builder builder = RecordTable.builder(2);
+    builder.add(3, 1234, 0, 0).add(4, 5678, 0, 0);
+    SparseArray<GribCollectionImmutable.Record> sa =
+        new SparseArray<>(new int[] {2, 2}, new int[] {0, 2, 1, 0}, builder.build(), 0);
+    assertThat(sa.getContent(0)).isNull();
+    assertThat(sa.getContent(new int[] {0, 1}).fileno).isEqualTo(4);
+    assertThat(sa.getContent(new int[] {1, 0}).pos).isEqualTo(1234);
+    assertThat(sa.countNotMissing()).isEqualTo(2);
+  }
+
+  private RecordTable check(List<GribCollectionImmutable.Record> want) {
+    RecordTable.Builder builder = RecordTable.builder(10); // so it has to grow
+    for (GribCollectionImmutable.Record r : want)
+      builder.add(r.fileno, r.pos, r.bmsOffset, r.drsOffset);
+    RecordTable table = builder.build();
+
+    assertThat(table).hasSize(want.size());
+    for (int i = 0; i < want.size(); i++) {
+      GribCollectionImmutable.Record w = want.get(i);
+      GribCollectionImmutable.Record r = table.get(i);
+      assertThat(r.fileno).isEqualTo(w.fileno);
+      assertThat(r.pos).isEqualTo(w.pos);
+      assertThat(r.bmsOffset).isEqualTo(w.bmsOffset);
+      assertThat(r.drsOffset).isEqualTo(w.drsOffset);
+      assertThat(table.getFileno(i)).isEqualTo(w.fileno);
+      assertThat(table.getPos(i)).isEqualTo(w.pos);
+    }
+    return table;
+  }
+}
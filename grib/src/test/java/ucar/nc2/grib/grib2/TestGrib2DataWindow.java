@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.grib2;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import ucar.unidata.io.RandomAccessFile;
+
+/** Unpacking only a window of a GRIB2 record gives the same values as unpacking all of it. */
+@RunWith(Parameterized.class)
+public class TestGrib2DataWindow {
+
+  @Parameterized.Parameters(name = "{0}")
+  public static List<Object[]> getTestParameters() {
+    List<Object[]> result = new ArrayList<>();
+    result.add(new Object[] {"../grib/src/test/data/cosmo.pds11.grib2"}); // simple packing
+    result.add(new Object[] {"../grib/src/test/data/Eumetsat.VerticalPerspective.grib2"}); // simple, bitmap, -x
+    result.add(new Object[] {"../grib/src/test/data/Lannion.pds31.grib2"}); // simple, with bitmap
+    result.add(new Object[] {"../grib/src/test/data/ds.snow.grib2"}); // complex packing, missing values
+    result.add(new Object[] {"../grib/src/test/data/problem.pds9.grib2"}); // complex packing
+    result.add(new Object[] {"../grib/src/test/data/ds.sky.grib2"}); // complex with spatial differencing
+    result.add(new Object[] {"../grib/src/test/data/pdsScale.pds1.grib2"}); // jpeg2000
+    result.add(new Object[] {"../grib/src/test/data/rugley.pds15.grib2"}); // jpeg2000
+    result.add(new Object[] {"../grib/src/test/data/ofs_atl.grib2"}); // jpeg2000 with bitmap, reads all of it
+    return result;
+  }
+
+  private final String filename;
+
+  public TestGrib2DataWindow(String filename) {
+    this.filename = filename;
+  }
+
+  @After
+  public void clearCache() {
+    Grib2DataReader.tearDown();
+  }
+
+  @Test
+  public void compareWithAll() throws IOException {
+    Random random = new Random(filename.hashCode());
+    int nrecords = 0;
+    try (RandomAccessFile raf = new RandomAccessFile(filename, "r")) {
+      Grib2RecordScanner scanner = new Grib2RecordScanner(raf);
+      while (scanner.hasNext()) {
+        Grib2Record gr = scanner.next();
+        int template = gr.getDataRepresentationSection().getDataTemplate();
+        Grib2Gds gds = gr.getGDS();
+        if ((template != 0 && template != 2 && template != 3 && template != 40) || gds.isThin())
+          continue;
+        nrecords++;
+
+        Grib2DataReader.tearDown();
+        float[] all = gr.readData(raf);
+        int nx = gds.getNxRaw();
+        int ny = all.length / nx;
+
+        List<Grib2DataWindow> windows = new ArrayList<>();
+        windows.add(new Grib2DataWindow(0, 0, 0, 0));
+        windows.add(new Grib2DataWindow(ny - 1, ny - 1, nx - 1, nx - 1));
+        windows.add(new Grib2DataWindow(0, ny - 1, nx / 2, nx / 2));
+        for (int i = 0; i < 10; i++) {
+          int y = random.nextInt(ny);
+          int x = random.nextInt(nx);
+          windows.add(new Grib2DataWindow(y, y + random.nextInt(ny - y), x, x + random.nextInt(nx - x)));
+        }
+
+        for (Grib2DataWindow window : windows) {
+          Grib2DataReader.tearDown(); // so its not read from the cache
+          float[] part = gr.readData(raf, window);
+          assertThat(part.length).isEqualTo(all.length);
+          for (int y = window.yFirst; y <= window.yLast; y++) {
+            for (int x = window.xFirst; x <= window.xLast; x++) {
+              int idx = y * nx + x;
+              if (Float.floatToIntBits(part[idx]) != Float.floatToIntBits(all[idx])) {
+                assertThat(part[idx]).isEqualTo(all[idx]); // fails, with a message
+              }
+            }
+          }
+        }
+      }
+    }
+    assertThat(nrecords).isGreaterThan(0);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.grib2;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.unidata.io.RandomAccessFile;
+
+/** Test {@link Grib2Record#readReducedData} on JPEG2000 packed records. */
+public class TestGrib2JpegReduced {
+
+  @After
+  public void clearCache() {
+    Grib2DataReader.tearDown();
+  }
+
+  private static Grib2Record readFirst(RandomAccessFile raf) throws IOException {
+    Grib2RecordScanner scanner = new Grib2RecordScanner(raf);
+    assertThat(scanner.hasNext()).isTrue();
+    return scanner.next();
+  }
+
+  @Test
+  public void testFullResolution() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile("../grib/src/test/data/pdsScale.pds1.grib2", "r")) {
+      Grib2Record gr = readFirst(raf);
+      float[] all = gr.readData(raf);
+      Array full = gr.readReducedData(raf, 0);
+      assertThat(full).isNotNull();
+      assertThat(full.getShape()).isEqualTo(new int[] {181, 360});
+      assertThat((float[]) full.get1DJavaArray(float.class)).isEqualTo(all);
+    }
+  }
+
+  @Test
+  public void testReduced() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile("../grib/src/test/data/pdsScale.pds1.grib2", "r")) {
+      Grib2Record gr = readFirst(raf);
+      float[] all = gr.readData(raf);
+      float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+      for (float v : all) {
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+      }
+
+      Array half = gr.readReducedData(raf, 1);
+      assertThat(half).isNotNull();
+      assertThat(half.getShape()).isEqualTo(new int[] {91, 180});
+
+      // a smoothed version of the grid, so about the same range of values
+      float range = max - min;
+      for (float v : (float[]) half.get1DJavaArray(float.class)) {
+        assertThat(v).isAtLeast(min - range / 2);
+        assertThat(v).isAtMost(max + range / 2);
+      }
+    }
+  }
+
+  @Test
+  public void testBitmap() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile("../grib/src/test/data/ofs_atl.grib2", "r")) {
+      Grib2Record gr = readFirst(raf);
+      assertThat(gr.readReducedData(raf, 1)).isNull(); // the image is not the grid
+    }
+  }
+
+  @Test
+  public void testInputBufferNotRetainedWhenLarge() {
+    Grib2JpegDecoder decoder = Grib2JpegDecoder.getThreadDecoder(8);
+    byte[] small = decoder.getInputBuffer(1000);
+    assertThat(decoder.getInputBuffer(500)).isSameInstanceAs(small);
+
+    byte[] large = decoder.getInputBuffer(Grib2JpegDecoder.MAX_RETAINED_INPUT + 1);
+    assertThat(large.length).isAtLeast(Grib2JpegDecoder.MAX_RETAINED_INPUT + 1);
+    assertThat(Grib2JpegDecoder.getThreadDecoder(8).getInputBuffer(1000)).isSameInstanceAs(small);
+  }
+}
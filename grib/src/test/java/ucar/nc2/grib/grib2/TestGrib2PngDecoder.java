@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 1998-2020 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.grib2;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+
+/** Test {@link Grib2PngDecoder} on PNG images written by ImageIO, which uses all of the PNG row filters. */
+public class TestGrib2PngDecoder {
+  private static final int width = 123;
+  private static final int height = 45;
+
+  @Test
+  public void testGray8() throws IOException {
+    check(BufferedImage.TYPE_BYTE_GRAY, 8);
+  }
+
+  @Test
+  public void testGray16() throws IOException {
+    check(BufferedImage.TYPE_USHORT_GRAY, 16);
+  }
+
+  @Test
+  public void testRgb24() throws IOException {
+    check(BufferedImage.TYPE_INT_RGB, 24);
+  }
+
+  @Test
+  public void testRgba32() throws IOException {
+    check(BufferedImage.TYPE_INT_ARGB, 32);
+  }
+
+  private void check(int imageType, int nbits) throws IOException {
+    BufferedImage image = new BufferedImage(width, height, imageType);
+    WritableRaster raster = image.getRaster();
+    int[] expected = new int[width * height];
+    Random random = new Random(nbits);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        // smooth, so the encoder picks different filters
+        long value = (x * 37L + y * 101L + random.nextInt(8)) & ((1L << nbits) - 1);
+        int idx = y * width + x;
+        expected[idx] = (int) value;
+        for (int band = 0; band < raster.getNumBands(); band++) {
+          int bandBits = nbits / raster.getNumBands();
+          int shift = nbits - bandBits * (band + 1); // PNG stores the bands in order, most significant first
+          raster.setSample(x, y, band, (int) (value >>> shift) & ((1 << bandBits) - 1));
+        }
+      }
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThat(ImageIO.write(image, "png", out)).isTrue();
+    Grib2PngDecoder decoder = Grib2PngDecoder.of(out.toByteArray());
+    assertThat(decoder).isNotNull();
+    assertThat(decoder.getBitsPerPixel()).isEqualTo(nbits);
+    assertThat(decoder.decode()).isEqualTo(expected);
+  }
+}